@@ -0,0 +1,43 @@
+package com.ensitech.smart_city_iot.config;
+
+import com.ensitech.smart_city_iot.config.jwt.AutoriteUtilisateur;
+import com.ensitech.smart_city_iot.service.CacheDroitsUtilisateur;
+import com.ensitech.smart_city_iot.utils.Droits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+/**
+ * Vérification des droits fins dans les expressions de sécurité :
+ * {@code @PreAuthorize("@autorisations.peut(authentication, 'CAPTEURS', 'CREER')")}.
+ * Les droits viennent de {@link CacheDroitsUtilisateur}, la base n'est lue qu'en cas d'absence du cache.
+ */
+@Component("autorisations")
+@Slf4j
+public class Autorisations {
+
+    @Autowired
+    private CacheDroitsUtilisateur cacheDroits;
+
+    public boolean peut(Authentication authentication, String module, String action) {
+        // Noms écrits dans les annotations : une faute de frappe échoue plutôt que de refuser en silence
+        Droits.Module moduleDemande = Droits.Module.valueOf(module);
+        Droits.Action actionDemandee = Droits.Action.valueOf(action);
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority autorite : authentication.getAuthorities()) {
+            if (autorite instanceof AutoriteUtilisateur utilisateur && utilisateur.idUtilisateur() != null) {
+                boolean autorise = Droits.autorise(cacheDroits.getDroits(utilisateur.idUtilisateur()),
+                        moduleDemande, actionDemandee);
+                if (!autorise) {
+                    log.debug("Accès refusé à l'utilisateur {}: {} {}", utilisateur.idUtilisateur(), action, module);
+                }
+                return autorise;
+            }
+        }
+        return false;
+    }
+}
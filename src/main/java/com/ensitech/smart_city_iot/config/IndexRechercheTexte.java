@@ -0,0 +1,64 @@
+package com.ensitech.smart_city_iot.config;
+
+import com.ensitech.smart_city_iot.utils.TexteRecherche;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Index de recherche des commentaires et des rapports : calcule texte_recherche pour les lignes
+ * antérieures à la colonne, puis crée l'index FULLTEXT que ddl-auto=update ne sait pas déclarer.
+ * Les lignes suivantes sont tenues à jour par les callbacks JPA des entités.
+ */
+@Component
+@Slf4j
+public class IndexRechercheTexte implements ApplicationRunner {
+
+    private static final int TAILLE_LOT = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        indexer("commentaire", "id_commentaire", "titre", "contenu");
+        indexer("rapport", "id_rapport", "nom_rapport", "description");
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void indexer(String table, String colonneId, String colonneTitre, String colonneTexte) {
+        // Lignes sans texte_recherche : créées avant la colonne ou insérées hors JPA
+        long completees = 0;
+        List<Object[]> lot;
+        do {
+            lot = jdbcTemplate.query(
+                    "SELECT " + colonneId + ", " + colonneTitre + ", " + colonneTexte + " FROM " + table +
+                            " WHERE texte_recherche IS NULL LIMIT " + TAILLE_LOT,
+                    (rs, i) -> new Object[]{
+                            TexteRecherche.normaliser(rs.getString(2), rs.getString(3)), rs.getLong(1)});
+            if (!lot.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE " + table + " SET texte_recherche = ? WHERE " + colonneId + " = ?", lot);
+                completees += lot.size();
+            }
+        } while (lot.size() == TAILLE_LOT);
+        if (completees > 0) {
+            log.info("Texte de recherche calculé pour {} ligne(s) de {}", completees, table);
+        }
+
+        String index = "ft_" + table + "_recherche";
+        Integer existants = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                Integer.class, table, index);
+        if (existants == null || existants == 0) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD FULLTEXT INDEX " + index + " (texte_recherche)");
+            log.info("Index FULLTEXT {} créé", index);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.ensitech.smart_city_iot.config;
+
+import com.ensitech.smart_city_iot.utils.SeauJetons;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limitation de débit des routes coûteuses : un {@link SeauJetons} par politique et par utilisateur
+ * (attribut userId posé par JwtAuthenticatonFilter, adresse IP à défaut). Une requête sans jeton reçoit
+ * 429 avec Retry-After. Métriques : limitation.debit.requetes (politique, resultat) et limitation.debit.seaux.
+ */
+@Component
+@Slf4j
+public class LimitationDebitFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private LimitationDebitProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final Map<CleSeau, SeauJetons> seaux = new ConcurrentHashMap<>();
+    private List<PolitiqueActive> politiques = List.of();
+
+    private record CleSeau(String politique, String client) {
+    }
+
+    private record PolitiqueActive(String nom, LimitationDebitProperties.Politique politique,
+                                   Counter autorisees, Counter refusees) {
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        List<PolitiqueActive> actives = new ArrayList<>();
+        properties.getPolitiques().forEach((nom, politique) -> {
+            // Validation au démarrage plutôt qu'à la première requête
+            new SeauJetons(politique.getCapacite(), politique.getRechargeParSeconde());
+            actives.add(new PolitiqueActive(nom, politique,
+                    compteur(nom, "autorisee"), compteur(nom, "refusee")));
+            log.info("Limitation de débit {}: {} {}, {} requête(s) en rafale, {} par seconde", nom,
+                    politique.getMethode() != null ? politique.getMethode() : "*", politique.getChemin(),
+                    politique.getCapacite(), politique.getRechargeParSeconde());
+        });
+        politiques = List.copyOf(actives);
+        meterRegistry.gauge("limitation.debit.seaux", seaux, Map::size);
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        PolitiqueActive active = politique(request);
+        if (active == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        LimitationDebitProperties.Politique politique = active.politique();
+        SeauJetons seau = seaux.computeIfAbsent(new CleSeau(active.nom(), client(request)),
+                cle -> new SeauJetons(politique.getCapacite(), politique.getRechargeParSeconde()));
+        long attente = seau.prendre(System.nanoTime());
+        if (attente == 0) {
+            active.autorisees().increment();
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        active.refusees().increment();
+        long secondes = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(attente + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Limite {} atteinte pour {}, nouvel essai dans {} s", active.nom(), client(request), secondes);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(secondes));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getWriter(), Map.of(
+                "error", "Trop de requêtes, réessayez dans " + secondes + " seconde(s)",
+                "retry_after", secondes
+        ));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        return !properties.isActif() || politiques.isEmpty();
+    }
+
+    @Scheduled(fixedDelayString = "${limitation-debit.intervalle-purge-ms:60000}")
+    public void purger() {
+        long maintenant = System.nanoTime();
+        // Un seau plein se recrée à l'identique à la requête suivante
+        seaux.values().removeIf(seau -> seau.estPlein(maintenant));
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private PolitiqueActive politique(HttpServletRequest request) {
+        String chemin = request.getRequestURI().substring(request.getContextPath().length());
+        for (PolitiqueActive active : politiques) {
+            LimitationDebitProperties.Politique politique = active.politique();
+            if ((politique.getMethode() == null || politique.getMethode().equalsIgnoreCase(request.getMethod()))
+                    && matcher.match(politique.getChemin(), chemin)) {
+                return active;
+            }
+        }
+        return null;
+    }
+
+    private static String client(HttpServletRequest request) {
+        Object userId = request.getAttribute("userId");
+        return userId != null ? "utilisateur:" + userId : "ip:" + request.getRemoteAddr();
+    }
+
+    private Counter compteur(String politique, String resultat) {
+        return Counter.builder("limitation.debit.requetes")
+                .description("Requêtes soumises à une politique de limitation de débit")
+                .tag("politique", politique)
+                .tag("resultat", resultat)
+                .register(meterRegistry);
+    }
+}
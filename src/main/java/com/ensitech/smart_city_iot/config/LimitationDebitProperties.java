@@ -0,0 +1,35 @@
+package com.ensitech.smart_city_iot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Politiques de limitation de débit par route, un seau par utilisateur et par politique
+ * (limitation-debit.politiques.rapports-creation.chemin=/api/v1/rapports, ...)
+ */
+@Component
+@ConfigurationProperties(prefix = "limitation-debit")
+@Data
+public class LimitationDebitProperties {
+
+    private boolean actif = true;
+
+    // Seaux pleins depuis cet intervalle supprimés de la mémoire
+    private long intervallePurgeMs = 60000;
+
+    private Map<String, Politique> politiques = new HashMap<>();
+
+    @Data
+    public static class Politique {
+        // Méthode HTTP, toutes si absente
+        private String methode;
+        // Motif Ant sur le chemin de la requête
+        private String chemin;
+        private int capacite = 10;
+        private double rechargeParSeconde = 1.0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.ensitech.smart_city_iot.config;
+
+import com.ensitech.smart_city_iot.entity.Rapport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reprise des contenus stockés dans l'ancienne colonne rapport.contenu : copiés dans rapport_contenu
+ * et résumé calculé. ddl-auto=update crée la nouvelle table et la colonne resume_contenu.
+ * <p>
+ * L'ancienne colonne n'est plus lue ni écrite mais reste en place : une version précédente de
+ * l'application peut encore s'en servir (retour arrière, déploiement progressif) et la copie, sans
+ * perte ni écrasement, est rejouée à chaque démarrage. Sa suppression est une étape explicite,
+ * activée par {@code rapports.migration.supprimer-ancienne-colonne=true} une fois toutes les instances
+ * à jour ; elle n'a lieu que si chaque contenu est bien présent dans rapport_contenu.
+ */
+@Component
+@Slf4j
+public class MigrationContenuRapport implements ApplicationRunner {
+
+    // Contenus anciens sans copie. Un chemin_fichier saisi à la main n'implique aucun fichier : seul un
+    // rapport déjà repris (résumé calculé) puis régénéré sur fichier se passe de sa copie
+    private static final String CONTENUS_A_COPIER = "FROM rapport r WHERE r.contenu IS NOT NULL " +
+            "AND (r.chemin_fichier IS NULL OR r.resume_contenu IS NULL) " +
+            "AND NOT EXISTS (SELECT 1 FROM rapport_contenu c WHERE c.id_rapport = r.id_rapport)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${rapports.migration.supprimer-ancienne-colonne:false}")
+    private boolean supprimerAncienneColonne;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Integer colonnes = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'rapport' AND COLUMN_NAME = 'contenu'",
+                Integer.class);
+        if (colonnes == null || colonnes == 0) {
+            return;
+        }
+
+        // INSERT IGNORE : une copie concurrente (autre instance) ou un contenu modifié depuis est conservé
+        int copies = jdbcTemplate.update("INSERT IGNORE INTO rapport_contenu (id_rapport, contenu) " +
+                "SELECT r.id_rapport, r.contenu " + CONTENUS_A_COPIER);
+        int longueur = Rapport.LONGUEUR_RESUME;
+        jdbcTemplate.update(
+                "UPDATE rapport SET resume_contenu = IF(CHAR_LENGTH(contenu) > ?, CONCAT(LEFT(contenu, ?), '...'), contenu) " +
+                        "WHERE contenu IS NOT NULL AND resume_contenu IS NULL",
+                longueur, longueur);
+        if (copies > 0) {
+            log.info("Contenus des rapports copiés dans rapport_contenu: {} rapport(s)", copies);
+        }
+
+        if (!supprimerAncienneColonne) {
+            return;
+        }
+        Integer manquants = jdbcTemplate.queryForObject("SELECT COUNT(*) " + CONTENUS_A_COPIER, Integer.class);
+        if (manquants == null || manquants > 0) {
+            log.error("Colonne rapport.contenu conservée: {} contenu(s) absent(s) de rapport_contenu", manquants);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE rapport DROP COLUMN contenu");
+        log.warn("Colonne rapport.contenu supprimée après vérification de la copie");
+    }
+}
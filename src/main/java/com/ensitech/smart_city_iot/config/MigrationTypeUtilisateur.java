@@ -0,0 +1,44 @@
+package com.ensitech.smart_city_iot.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reprise de la colonne discriminante utilisateur.type_utilisateur pour les comptes créés avant elle :
+ * le type est déduit de la table fille qui porte l'identifiant. ddl-auto=update ajoute la colonne
+ * vide sur les lignes existantes. Sans effet une fois toutes les lignes typées.
+ */
+@Component
+@Slf4j
+public class MigrationTypeUtilisateur implements ApplicationRunner {
+
+    // Table fille -> valeur de @DiscriminatorValue
+    private static final Map<String, String> TYPES = Map.of(
+            "administrateur", "ADMINISTRATEUR",
+            "gestionnaire_de_ville", "GESTIONNAIRE_VILLE",
+            "chercheur", "CHERCHEUR",
+            "citoyen", "CITOYEN"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        TYPES.forEach((table, type) -> {
+            int lignes = jdbcTemplate.update(
+                    "UPDATE utilisateur u JOIN " + table + " f ON f.id_utilisateur = u.id_utilisateur " +
+                            "SET u.type_utilisateur = ? WHERE u.type_utilisateur IS NULL OR u.type_utilisateur = ''",
+                    type);
+            if (lignes > 0) {
+                log.info("Type {} renseigné pour {} utilisateur(s)", type, lignes);
+            }
+        });
+    }
+}
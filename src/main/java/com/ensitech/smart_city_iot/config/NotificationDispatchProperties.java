@@ -0,0 +1,37 @@
+package com.ensitech.smart_city_iot.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paramètres du dispatcher de notifications : taille des lots et politique par canal
+ * (notification.dispatch.canaux.EMAIL.concurrence=4, ...)
+ */
+@Component
+@ConfigurationProperties(prefix = "notification.dispatch")
+@Data
+public class NotificationDispatchProperties {
+
+    private int tailleLot = 100;
+
+    // Délai au-delà duquel un lot réclamé mais non finalisé est remis en file
+    private int delaiReclamationMinutes = 10;
+
+    private Map<String, Canal> canaux = new HashMap<>();
+
+    public Canal getCanal(String typeNotification) {
+        return canaux.getOrDefault(typeNotification, new Canal());
+    }
+
+    @Data
+    public static class Canal {
+        private int concurrence = 2;
+        private int tentativesMax = 5;
+        private long delaiBaseSecondes = 30;
+        private long delaiMaxSecondes = 3600;
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
@@ -18,6 +19,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 @Configuration
 @EnableWebSecurity
+@EnableMethodSecurity
 public class SecurityConfig {
 
     @Bean
@@ -27,6 +29,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticatonFilter authenticatonFilter;
 
+    @Autowired
+    private LimitationDebitFilter limitationDebitFilter;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity httpSecurity) throws Exception{
         return httpSecurity
@@ -42,6 +47,8 @@ public class SecurityConfig {
                         .anyRequest().authenticated()
                 )
         .addFilterBefore(authenticatonFilter, UsernamePasswordAuthenticationFilter.class)
+        // Après l'authentification : les seaux sont indexés par l'userId du token
+        .addFilterAfter(limitationDebitFilter, JwtAuthenticatonFilter.class)
         .build();
     }
 }
@@ -0,0 +1,16 @@
+package com.ensitech.smart_city_iot.config.jwt;
+
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Autorité portant l'identifiant de l'utilisateur du token, à côté de ROLE_* : les droits fins sont
+ * résolus par {@link com.ensitech.smart_city_iot.config.Autorisations}. Sans représentation textuelle,
+ * getAuthority() renvoie null comme le prévoit le contrat de GrantedAuthority.
+ */
+public record AutoriteUtilisateur(Long idUtilisateur) implements GrantedAuthority {
+
+    @Override
+    public String getAuthority() {
+        return null;
+    }
+}
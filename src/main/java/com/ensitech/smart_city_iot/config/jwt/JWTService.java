@@ -1,16 +1,23 @@
 package com.ensitech.smart_city_iot.config.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Slf4j
@@ -21,6 +28,30 @@ public class JWTService {
     @Value("${jwt.expiration:86400000}") // 24 heures par défaut
     private Long jwtExpiration;
 
+    @Value("${jwt.cache.taille-max:10000}")
+    private int tailleMaxCache;
+
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    // Jetons déjà vérifiés, par empreinte SHA-256 : une requête suivante avec le même jeton
+    // ne refait ni la vérification HMAC ni le décodage JSON
+    private final Map<String, JetonVerifie> jetonsVerifies = new ConcurrentHashMap<>();
+
+    /**
+     * Contenu d'un jeton dont la signature a été vérifiée ; expiration en millisecondes epoch
+     */
+    public record JetonVerifie(String email, String role, Long userId, long expiration) {
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        signInKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+    }
+
     /**
      * Génère un token JWT pour un utilisateur
      */
@@ -60,16 +91,48 @@ public class JWTService {
     }
 
     /**
-     * Valide le token JWT
+     * Vérifie signature et expiration en une seule lecture du token, ou le retrouve dans le cache
+     * des tokens déjà vérifiés jusqu'à son expiration
+     *
+     * @return null si le token est invalide ou expiré
      */
-    public boolean isTokenValid(String token) {
+    public JetonVerifie verifier(String token) {
+        String empreinte = empreinte(token);
+        long maintenant = System.currentTimeMillis();
+        JetonVerifie connu = jetonsVerifies.get(empreinte);
+        if (connu != null) {
+            if (connu.expiration() > maintenant) {
+                return connu;
+            }
+            jetonsVerifies.remove(empreinte, connu);
+            return null;
+        }
+
+        Claims claims;
         try {
-            extractAllClaims(token);
-            return !isTokenExpired(token);
+            // Le parser rejette aussi les tokens expirés
+            claims = extractAllClaims(token);
         } catch (Exception e) {
             log.debug("Token invalide: {}", e.getMessage());
-            return false;
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            log.debug("Token sans date d'expiration refusé");
+            return null;
         }
+
+        JetonVerifie jeton = new JetonVerifie(claims.getSubject(), claims.get("role", String.class),
+                claims.get("userId", Long.class), expiration.getTime());
+        mettreEnCache(empreinte, jeton, maintenant);
+        return jeton;
+    }
+
+    /**
+     * Valide le token JWT
+     */
+    public boolean isTokenValid(String token) {
+        return verifier(token) != null;
     }
 
     /**
@@ -89,17 +152,36 @@ public class JWTService {
      * Extrait toutes les claims du token
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     /**
      * Obtient la clé de signature
      */
     private SecretKey getSignInKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+        return signInKey;
+    }
+
+    /**
+     * Cache borné : une fois plein, les entrées expirées sont purgées ; s'il reste plein,
+     * le token n'est pas mis en cache et sera revérifié
+     */
+    private void mettreEnCache(String empreinte, JetonVerifie jeton, long maintenant) {
+        if (jetonsVerifies.size() >= tailleMaxCache) {
+            jetonsVerifies.values().removeIf(connu -> connu.expiration() <= maintenant);
+            if (jetonsVerifies.size() >= tailleMaxCache) {
+                return;
+            }
+        }
+        jetonsVerifies.put(empreinte, jeton);
+    }
+
+    private static String empreinte(String token) {
+        try {
+            byte[] hache = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hache);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 }
@@ -14,7 +14,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.List;
 
 @Component
 @Slf4j
@@ -41,12 +41,13 @@ public class JwtAuthenticatonFilter extends OncePerRequestFilter {
             // Extraire le token du header
             final String jwt = authHeader.substring(7); // Supprimer "Bearer "
 
-            // Vérifier si le token est valide
-            if (jwtService.isTokenValid(jwt)) {
-                // Extraire les informations du token
-                String email = jwtService.extractEmail(jwt);
-                String role = jwtService.extractRole(jwt);
-                Long userId = jwtService.extractUserId(jwt);
+            // Vérifier le token une seule fois, ou le retrouver parmi les tokens déjà vérifiés
+            JWTService.JetonVerifie jeton = jwtService.verifier(jwt);
+            if (jeton != null) {
+                // Informations du token
+                String email = jeton.email();
+                String role = jeton.role();
+                Long userId = jeton.userId();
 
                 log.debug("Token valide pour l'utilisateur: {} avec le rôle: {}", email, role);
 
@@ -56,7 +57,8 @@ public class JwtAuthenticatonFilter extends OncePerRequestFilter {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         email, // Principal (identifiant de l'utilisateur)
                         null,  // Credentials (pas besoin avec JWT)
-                        Collections.singletonList(authority) // Autorités/rôles
+                        // Rôle, et identifiant pour les droits fins résolus à la demande (@autorisations)
+                        List.of(authority, new AutoriteUtilisateur(userId))
                 );
 
                 // Ajouter les détails de la requête
@@ -1,11 +1,14 @@
 package com.ensitech.smart_city_iot.controller;
 
+import com.ensitech.smart_city_iot.dto.alerteDTO.BacktestAlerteDTO;
 import com.ensitech.smart_city_iot.dto.alerteDTO.CreateAlerteDTO;
 import com.ensitech.smart_city_iot.dto.alerteDTO.ResponseAlerteDTO;
+import com.ensitech.smart_city_iot.dto.alerteDTO.ResponseBacktestDTO;
 import com.ensitech.smart_city_iot.dto.alerteDTO.UpdateAlerteDTO;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.service.AlerteService;
+import com.ensitech.smart_city_iot.service.BacktestAlerteService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,6 +29,9 @@ public class AlerteController {
     @Autowired
     private AlerteService alerteService;
 
+    @Autowired
+    private BacktestAlerteService backtestAlerteService;
+
     @PostMapping("/alertes")
     public ResponseEntity<?> createAlerte(@Valid @RequestBody CreateAlerteDTO createDto) {
         try {
@@ -184,4 +190,26 @@ public class AlerteController {
                     .body(Map.of("error", "Erreur interne du serveur"));
         }
     }
+
+    @PostMapping("/alertes/backtest")
+    public ResponseEntity<?> backtesterAlertes(@Valid @RequestBody BacktestAlerteDTO backtestDto) {
+        try {
+            log.info("Backtest de {} règle(s) entre {} et {}", backtestDto.getRegles().size(),
+                    backtestDto.getPeriodeDebut(), backtestDto.getPeriodeFin());
+            ResponseBacktestDTO response = backtestAlerteService.backtester(backtestDto);
+            return ResponseEntity.ok(response);
+        } catch (BusinessException e) {
+            log.error("Erreur business lors du backtest: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            log.warn("Ressource non trouvée pour le backtest: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors du backtest des alertes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
 }
@@ -1,15 +1,19 @@
 package com.ensitech.smart_city_iot.controller;
 
 import com.ensitech.smart_city_iot.dto.capteurDTO.CreateCapteurDTO;
+import com.ensitech.smart_city_iot.dto.capteurDTO.ImportCapteursDTO;
 import com.ensitech.smart_city_iot.dto.capteurDTO.ResponseCapteurDTO;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.service.CapteurService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -27,6 +31,7 @@ public class CapteurController {
     private CapteurService capteurService;
 
     @PostMapping("/capteurs")
+    @PreAuthorize("@autorisations.peut(authentication, 'CAPTEURS', 'CREER')")
     public ResponseEntity<?> createCapteur(@Valid @RequestBody CreateCapteurDTO createDto) {
         try {
             log.info("Création d'un nouveau capteur: {}", createDto.getNomCapteur());
@@ -47,6 +52,28 @@ public class CapteurController {
         }
     }
 
+    // Corps lu en flux : CSV avec ligne d'en-tête, ou un objet JSON par ligne
+    @PostMapping(value = "/capteurs/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("@autorisations.peut(authentication, 'CAPTEURS', 'CREER')")
+    public ResponseEntity<?> importerCapteurs(HttpServletRequest requete) {
+        try {
+            String format = MediaType.parseMediaType(requete.getContentType())
+                    .isCompatibleWith(MediaType.APPLICATION_NDJSON) ? "NDJSON" : "CSV";
+            log.info("Import de capteurs au format {}", format);
+            ImportCapteursDTO rapport = capteurService.importerCapteurs(requete.getInputStream(), format);
+            HttpStatus statut = rapport.getCapteursCrees() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+            return ResponseEntity.status(statut).body(rapport);
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de l'import de capteurs: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de l'import de capteurs", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
     @GetMapping("/capteurs/{id}")
     public ResponseEntity<?> getCapteurById(@PathVariable Long id) {
         try {
@@ -98,6 +125,7 @@ public class CapteurController {
     }
 
     @DeleteMapping("/capteurs/{id}")
+    @PreAuthorize("@autorisations.peut(authentication, 'CAPTEURS', 'SUPPRIMER')")
     public ResponseEntity<?> deleteCapteur(@PathVariable Long id) {
         try {
             log.info("Suppression du capteur ID: {}", id);
@@ -1,5 +1,6 @@
 package com.ensitech.smart_city_iot.controller;
 
+import com.ensitech.smart_city_iot.dto.ResultatRechercheDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.CreateCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.ResponseCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.UpdateCommentaireDTO;
@@ -9,8 +10,11 @@ import com.ensitech.smart_city_iot.service.CommentaireService;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -82,15 +86,25 @@ public class CommentaireController {
     }
 
     @GetMapping("/commentaires/recherche")
-    public ResponseEntity<?> rechercherCommentaires(@RequestParam String q) {
+    public ResponseEntity<?> rechercherCommentaires(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
             log.debug("Recherche de commentaires avec le terme: {}", q);
-            List<ResponseCommentaireDTO> commentaires = commentaireService.rechercherCommentaires(q);
+            Page<ResultatRechercheDTO<ResponseCommentaireDTO>> resultats = commentaireService.rechercherCommentaires(q, PageRequest.of(page, size));
             return ResponseEntity.ok(Map.of(
-                    "commentaires", commentaires,
-                    "total", commentaires.size(),
+                    "commentaires", resultats.getContent(),
+                    "totalElements", resultats.getTotalElements(),
+                    "totalPages", resultats.getTotalPages(),
+                    "currentPage", resultats.getNumber(),
+                    "size", resultats.getSize(),
                     "terme_recherche", q
             ));
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de la recherche de commentaires: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Erreur lors de la recherche de commentaires", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -100,15 +114,21 @@ public class CommentaireController {
 
 
     @GetMapping("/commentaires/populaires")
-    public ResponseEntity<?> getCommentairesPopulaires(@RequestParam(defaultValue = "10") int limite) {
+    public ResponseEntity<?> getCommentairesPopulaires(
+            @RequestParam(required = false) String sujet,
+            @RequestParam(defaultValue = "10") int limite) {
         try {
-            log.debug("Demande des commentaires populaires, limite: {}", limite);
-            List<ResponseCommentaireDTO> commentaires = commentaireService.getCommentairesPopulaires(limite);
+            log.debug("Demande des commentaires populaires, sujet: {}, limite: {}", sujet, limite);
+            List<ResponseCommentaireDTO> commentaires = commentaireService.getCommentairesPopulaires(sujet, limite);
             return ResponseEntity.ok(Map.of(
                     "commentaires", commentaires,
                     "total", commentaires.size(),
                     "limite", limite
             ));
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de la récupération des commentaires populaires: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Erreur lors de la récupération des commentaires populaires", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -188,6 +208,46 @@ public class CommentaireController {
         }
     }
 
+    // Modération
+    @GetMapping("/commentaires/moderation")
+    @PreAuthorize("@autorisations.peut(authentication, 'COMMENTAIRES', 'MODIFIER')")
+    public ResponseEntity<?> getCommentairesAModerer(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            log.debug("Demande de la file de modération des commentaires");
+            Page<ResponseCommentaireDTO> commentaires = commentaireService.getCommentairesAModerer(PageRequest.of(page, size));
+            return ResponseEntity.ok(Map.of(
+                    "commentaires", commentaires.getContent(),
+                    "totalElements", commentaires.getTotalElements(),
+                    "totalPages", commentaires.getTotalPages(),
+                    "currentPage", commentaires.getNumber(),
+                    "size", commentaires.getSize()
+            ));
+        } catch (Exception e) {
+            log.error("Erreur lors de la récupération de la file de modération", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @PatchMapping("/commentaires/{id}/moderation/valider")
+    @PreAuthorize("@autorisations.peut(authentication, 'COMMENTAIRES', 'MODIFIER')")
+    public ResponseEntity<?> validerModeration(@PathVariable Long id) {
+        try {
+            log.info("Validation par la modération du commentaire ID: {}", id);
+            commentaireService.validerModeration(id);
+            return ResponseEntity.ok(Map.of("message", "Commentaire retiré de la file de modération"));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Commentaire non trouvé avec l'ID: " + id));
+        } catch (Exception e) {
+            log.error("Erreur lors de la validation du commentaire ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
     // Gestion des likes/dislikes
     @PostMapping("/commentaires/{id}/like")
     public ResponseEntity<?> ajouterLike(@PathVariable Long id) {
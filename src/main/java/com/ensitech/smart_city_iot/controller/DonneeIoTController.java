@@ -1,10 +1,15 @@
 package com.ensitech.smart_city_iot.controller;
 
 import com.ensitech.smart_city_iot.dto.DonneIotDTO.ResponseDonneeIoTDTO;
+import com.ensitech.smart_city_iot.dto.DonneIotDTO.StatistiquesApproximativesDTO;
 import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
 import com.ensitech.smart_city_iot.service.DonneeIoTService;
+import com.ensitech.smart_city_iot.service.ExportDonneesService;
+import com.ensitech.smart_city_iot.service.StatistiquesApproximativesService;
+import com.ensitech.smart_city_iot.utils.EcrivainArrow;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -12,12 +17,18 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +47,12 @@ public class DonneeIoTController {
     @Autowired
     private DonneeIoTRepository donneeIoTRepository;
 
+    @Autowired
+    private StatistiquesApproximativesService statistiquesApproximativesService;
+
+    @Autowired
+    private ExportDonneesService exportDonneesService;
+
     /**
      * Déclencher une collecte manuelle pour un capteur spécifique
      */
@@ -346,4 +363,74 @@ public class DonneeIoTController {
                     .body(Map.of("error", "Erreur interne du serveur"));
         }
     }
+
+    /**
+     * Statistiques approchées (quantiles P50/P95/P99, nombres distincts) d'une plage de jours,
+     * calculées depuis les sketchs journaliers ; globales ou pour un capteur
+     */
+    @GetMapping("/donnees/statistiques/approximatives")
+    public ResponseEntity<?> getStatistiquesApproximatives(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jourDebut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jourFin,
+            @RequestParam(required = false) Long idCapteur) {
+        try {
+            StatistiquesApproximativesDTO statistiques =
+                    statistiquesApproximativesService.calculer(jourDebut, jourFin, idCapteur);
+            return ResponseEntity.ok(statistiques);
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors du calcul des statistiques approximatives: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    /**
+     * Recalcul des sketchs journaliers de jours clos depuis les données brutes
+     */
+    @PostMapping("/donnees/statistiques/approximatives/reconstruire")
+    @PreAuthorize("@autorisations.peut(authentication, 'DONNEES', 'MODIFIER')")
+    public ResponseEntity<?> reconstruireSketchs(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jourDebut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate jourFin) {
+        try {
+            int jours = statistiquesApproximativesService.reconstruire(jourDebut, jourFin);
+            return ResponseEntity.ok(Map.of("message", "Sketchs reconstruits", "nombre_jours", jours));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de la reconstruction des sketchs: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    /**
+     * Export brut des données valides d'une période au format Arrow IPC, écrit en flux lot par lot
+     */
+    @GetMapping("/donnees/export/arrow")
+    @PreAuthorize("@autorisations.peut(authentication, 'DONNEES', 'LIRE')")
+    public ResponseEntity<?> exporterArrow(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateDebut,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateFin) {
+        try {
+            // Vérifiée avant le début de la réponse : une erreur pendant le flux ne peut plus changer le statut
+            exportDonneesService.verifierPeriode(dateDebut, dateFin);
+
+            StreamingResponseBody corps = sortie ->
+                    exportDonneesService.exporterArrow(dateDebut, dateFin, sortie, lignes -> { });
+            String nomFichier = "donnees-" + dateDebut.toLocalDate() + "-" + dateFin.toLocalDate() + ".arrow";
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType(EcrivainArrow.TYPE_CONTENU))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(nomFichier).build().toString())
+                    .body(corps);
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de l'export Arrow: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package com.ensitech.smart_city_iot.controller;
 
 import com.ensitech.smart_city_iot.dto.notificationDTO.CreateNotificationDTO;
+import com.ensitech.smart_city_iot.dto.notificationDTO.DiffusionNotificationDTO;
 import com.ensitech.smart_city_iot.dto.notificationDTO.ResponseNotificationDTO;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
@@ -64,6 +65,23 @@ public class NotificationController {
         }
     }
 
+    @GetMapping("/notifications/{id}/diffusion")
+    public ResponseEntity<?> getDiffusion(@PathVariable Long id) {
+        try {
+            log.debug("Demande de progression de diffusion pour la notification ID: {}", id);
+            DiffusionNotificationDTO response = notificationService.getDiffusion(id);
+            return ResponseEntity.ok(response);
+        } catch (EntityNotFoundException e) {
+            log.warn("Notification non trouvée ID: {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Notification non trouvée avec l'ID: " + id));
+        } catch (Exception e) {
+            log.error("Erreur lors de la récupération de la diffusion de la notification ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
     @GetMapping("/notifications")
     public ResponseEntity<?> getAllNotifications() {
         try {
@@ -132,11 +150,66 @@ public class NotificationController {
     }
 
 
+    @GetMapping("/utilisateurs/{idUtilisateur}/notifications/non-lues/nombre")
+    public ResponseEntity<?> getNombreNonLues(@PathVariable Long idUtilisateur) {
+        try {
+            long nombre = notificationService.getNombreNonLues(idUtilisateur);
+            return ResponseEntity.ok(Map.of(
+                    "non_lues", nombre,
+                    "utilisateur_id", idUtilisateur
+            ));
+        } catch (Exception e) {
+            log.error("Erreur lors du comptage des notifications non lues pour l'utilisateur ID: {}", idUtilisateur, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @PatchMapping("/utilisateurs/{idUtilisateur}/notifications/{id}/marquer-lu")
+    public ResponseEntity<?> marquerCommeLuPourUtilisateur(@PathVariable Long idUtilisateur, @PathVariable Long id) {
+        try {
+            log.info("Marquage comme lu de la notification ID: {} pour l'utilisateur ID: {}", id, idUtilisateur);
+            notificationService.marquerCommeLuPourUtilisateur(idUtilisateur, id);
+            return ResponseEntity.ok(Map.of("message", "Notification marquée comme lue"));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors du marquage de la notification ID: {} pour l'utilisateur ID: {}", id, idUtilisateur, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @PatchMapping("/utilisateurs/{idUtilisateur}/notifications/marquer-toutes-lues")
+    public ResponseEntity<?> marquerToutesCommeLues(@PathVariable Long idUtilisateur) {
+        try {
+            log.info("Marquage de toutes les notifications comme lues pour l'utilisateur ID: {}", idUtilisateur);
+            int nombre = notificationService.marquerToutesCommeLues(idUtilisateur);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Notifications marquées comme lues",
+                    "nombre", nombre
+            ));
+        } catch (Exception e) {
+            log.error("Erreur lors du marquage des notifications pour l'utilisateur ID: {}", idUtilisateur, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    /**
+     * Lecture propre à chaque destinataire : seule la ligne de l'utilisateur connecté est marquée
+     */
     @PatchMapping("/notifications/{id}/marquer-lu")
-    public ResponseEntity<?> marquerCommeLu(@PathVariable Long id) {
+    public ResponseEntity<?> marquerCommeLu(@PathVariable Long id,
+                                            @RequestAttribute(name = "userId", required = false) Long idUtilisateur) {
+        if (idUtilisateur == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Utilisateur non authentifié"));
+        }
         try {
-            log.info("Marquage comme lu de la notification ID: {}", id);
-            notificationService.marquerCommeLu(id);
+            log.info("Marquage comme lu de la notification ID: {} pour l'utilisateur ID: {}", id, idUtilisateur);
+            notificationService.marquerCommeLuPourUtilisateur(idUtilisateur, id);
             return ResponseEntity.ok(Map.of("message", "Notification marquée comme lue"));
         } catch (EntityNotFoundException e) {
             log.warn("Tentative de marquage d'une notification inexistante ID: {}", id);
@@ -171,7 +244,8 @@ public class NotificationController {
         try {
             log.info("Envoi de la notification ID: {}", id);
             notificationService.envoyerNotification(id);
-            return ResponseEntity.ok(Map.of("message", "Notification envoyée avec succès"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("message", "Notification mise en file d'envoi"));
         } catch (EntityNotFoundException e) {
             log.warn("Tentative d'envoi d'une notification inexistante ID: {}", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -1,11 +1,14 @@
 package com.ensitech.smart_city_iot.controller;
 
+import com.ensitech.smart_city_iot.dto.ResultatRechercheDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.CreateRapportDTO;
+import com.ensitech.smart_city_iot.dto.rapportDTO.FichierRapportDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.ResponseRapportDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.UpdateRapportDTO;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.service.RapportService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,17 +16,27 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:8080")
@@ -32,10 +45,18 @@ import java.util.Map;
 @Slf4j
 public class RapportController {
 
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    // Attributs de requête de l'envoi de fichier par le connecteur Tomcat
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHIER = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_DEBUT = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private RapportService rapportService;
 
     @PostMapping("/rapports")
+    @PreAuthorize("@autorisations.peut(authentication, 'RAPPORTS', 'CREER')")
     public ResponseEntity<?> createRapport(@Valid @RequestBody CreateRapportDTO createDto) {
         try {
             log.info("Création d'un nouveau rapport: {}", createDto.getNomRapport());
@@ -155,15 +176,25 @@ public class RapportController {
     }
 
     @GetMapping("/rapports/recherche")
-    public ResponseEntity<?> rechercherRapports(@RequestParam String q) {
+    public ResponseEntity<?> rechercherRapports(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
             log.debug("Recherche de rapports avec le terme: {}", q);
-            List<ResponseRapportDTO> rapports = rapportService.rechercherRapports(q);
+            Page<ResultatRechercheDTO<ResponseRapportDTO>> resultats = rapportService.rechercherRapports(q, PageRequest.of(page, size));
             return ResponseEntity.ok(Map.of(
-                    "rapports", rapports,
-                    "total", rapports.size(),
+                    "rapports", resultats.getContent(),
+                    "totalElements", resultats.getTotalElements(),
+                    "totalPages", resultats.getTotalPages(),
+                    "currentPage", resultats.getNumber(),
+                    "size", resultats.getSize(),
                     "terme_recherche", q
             ));
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de la recherche de rapports: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Erreur lors de la recherche de rapports", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -239,6 +270,10 @@ public class RapportController {
             log.warn("Tentative de suppression d'un rapport inexistant ID: {}", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Rapport non trouvé avec l'ID: " + id));
+        } catch (BusinessException e) {
+            log.warn("Suppression refusée pour le rapport ID {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Erreur lors de la suppression du rapport ID: {}", id, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -250,8 +285,9 @@ public class RapportController {
     public ResponseEntity<?> genererContenuRapport(@PathVariable Long id) {
         try {
             log.info("Génération du contenu pour le rapport ID: {}", id);
-            rapportService.genererContenuRapport(id);
-            return ResponseEntity.ok(Map.of("message", "Génération du rapport démarrée avec succès"));
+            rapportService.planifierGeneration(id);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(Map.of("message", "Génération du rapport planifiée"));
         } catch (EntityNotFoundException e) {
             log.warn("Tentative de génération pour un rapport inexistant ID: {}", id);
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -267,40 +303,70 @@ public class RapportController {
         }
     }
 
+    /**
+     * Téléchargement sans chargement du fichier en mémoire : fichier gzip servi tel quel
+     * (Content-Encoding) si le client l'accepte, plages HTTP (206) gérées sur la Resource,
+     * et envoi par sendfile de Tomcat pour les requêtes complètes quand le connecteur le permet
+     */
     @GetMapping("/rapports/{id}/telecharger")
-    public ResponseEntity<?> telechargerRapport(@PathVariable Long id) {
+    public ResponseEntity<?> telechargerRapport(@PathVariable Long id,
+                                                @RequestHeader HttpHeaders entetes,
+                                                HttpServletRequest requete) {
         try {
             log.info("Téléchargement du rapport ID: {}", id);
 
-            // Récupérer les informations du rapport pour le nom de fichier
-            ResponseRapportDTO rapport = rapportService.getRapportById(id);
-            byte[] contenu = rapportService.telechargerRapport(id);
-
-            // Déterminer le type de contenu selon le format
-            MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
-            String extension = ".txt";
-
-            switch (rapport.getFormatFichier()) {
-                case "PDF":
-                    mediaType = MediaType.APPLICATION_PDF;
-                    extension = ".pdf";
-                    break;
-                case "CSV":
-                    mediaType = MediaType.parseMediaType("text/csv");
-                    extension = ".csv";
-                    break;
-                case "JSON":
-                    mediaType = MediaType.APPLICATION_JSON;
-                    extension = ".json";
-                    break;
+            FichierRapportDTO fichier = rapportService.getFichierRapport(id);
+            MediaType mediaType = MediaType.parseMediaType(fichier.getTypeContenu());
+            String disposition = ContentDisposition.attachment().filename(fichier.getNomFichier()).build().toString();
+
+            // Rapports historiques stockés en base
+            if (fichier.getChemin() == null) {
+                return ResponseEntity.ok()
+                        .contentType(mediaType)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                        .body(fichier.getContenuHerite().getBytes(StandardCharsets.UTF_8));
             }
 
-            String filename = rapport.getNomRapport().replaceAll("[^a-zA-Z0-9.-]", "_") + extension;
+            Path chemin = fichier.getChemin();
+            if (fichier.isCompresse() && !accepteGzip(entetes.getFirst(HttpHeaders.ACCEPT_ENCODING))) {
+                // Client sans gzip : décompression à la volée, sans plages
+                StreamingResponseBody corps = sortie -> {
+                    try (InputStream entree = new GZIPInputStream(Files.newInputStream(chemin), TAILLE_TAMPON)) {
+                        entree.transferTo(sortie);
+                    }
+                };
+                return ResponseEntity.ok()
+                        .contentType(mediaType)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                        .header(HttpHeaders.ACCEPT_RANGES, "none")
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                        .body(corps);
+            }
 
-            return ResponseEntity.ok()
+            ResponseEntity.BodyBuilder reponse = ResponseEntity.ok()
                     .contentType(mediaType)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .body(contenu);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .lastModified(fichier.getDerniereModification())
+                    .eTag(fichier.getTailleStockee() + "-" + fichier.getDerniereModification().toEpochMilli());
+            if (fichier.isCompresse()) {
+                reponse.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+
+            boolean requeteConditionnelle = entetes.containsKey(HttpHeaders.RANGE)
+                    || entetes.containsKey(HttpHeaders.IF_NONE_MATCH)
+                    || entetes.containsKey(HttpHeaders.IF_MODIFIED_SINCE);
+            if (!requeteConditionnelle && Boolean.TRUE.equals(requete.getAttribute(SENDFILE_SUPPORT))) {
+                // Tomcat transfère le fichier par le noyau après le retour du contrôleur
+                requete.setAttribute(SENDFILE_FICHIER, chemin.toAbsolutePath().toString());
+                requete.setAttribute(SENDFILE_DEBUT, 0L);
+                requete.setAttribute(SENDFILE_FIN, fichier.getTailleStockee());
+                return reponse.contentLength(fichier.getTailleStockee()).build();
+            }
+
+            // Plages et requêtes conditionnelles (206, 304, 416) traitées par Spring sur la Resource
+            return reponse.body(new FileSystemResource(chemin));
 
         } catch (EntityNotFoundException e) {
             log.warn("Tentative de téléchargement d'un rapport inexistant ID: {}", id);
@@ -351,4 +417,31 @@ public class RapportController {
             return String.format("%.1f MB", taille / (1024.0 * 1024.0));
         }
     }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    /** gzip accepté s'il est listé (ou *) sans q=0 */
+    private boolean accepteGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String element : acceptEncoding.split(",")) {
+            String[] parties = element.trim().split(";");
+            String encodage = parties[0].trim();
+            if (!encodage.equalsIgnoreCase("gzip") && !encodage.equals("*")) {
+                continue;
+            }
+            boolean refuse = false;
+            for (int i = 1; i < parties.length; i++) {
+                String parametre = parties[i].trim().replace(" ", "");
+                if (parametre.matches("q=0(\\.0{0,3})?")) {
+                    refuse = true;
+                }
+            }
+            if (!refuse) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
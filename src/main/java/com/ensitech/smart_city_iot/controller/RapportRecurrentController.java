@@ -0,0 +1,95 @@
+package com.ensitech.smart_city_iot.controller;
+
+import com.ensitech.smart_city_iot.dto.rapportDTO.CreateRapportRecurrentDTO;
+import com.ensitech.smart_city_iot.dto.rapportDTO.ResponseRapportRecurrentDTO;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.service.RapportRecurrentService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@CrossOrigin(origins = "http://localhost:8080")
+@RequestMapping("/api/v1")
+@Validated
+@Slf4j
+public class RapportRecurrentController {
+
+    @Autowired
+    private RapportRecurrentService rapportRecurrentService;
+
+    @PostMapping("/rapports/recurrents")
+    @PreAuthorize("@autorisations.peut(authentication, 'RAPPORTS', 'CREER')")
+    public ResponseEntity<?> creerRapportRecurrent(@Valid @RequestBody CreateRapportRecurrentDTO createDto) {
+        try {
+            log.info("Création d'un rapport récurrent: {} ({})", createDto.getNomRapport(), createDto.getExpressionCron());
+            ResponseRapportRecurrentDTO response = rapportRecurrentService.creerRapportRecurrent(createDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de la création du rapport récurrent: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            log.error("Chercheur non trouvé: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de la création du rapport récurrent", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @GetMapping("/chercheurs/{idChercheur}/rapports/recurrents")
+    public ResponseEntity<?> getRapportsRecurrentsByChercheur(@PathVariable Long idChercheur) {
+        try {
+            List<ResponseRapportRecurrentDTO> recurrents = rapportRecurrentService.getRapportsRecurrentsByChercheur(idChercheur);
+            return ResponseEntity.ok(recurrents);
+        } catch (Exception e) {
+            log.error("Erreur lors de la récupération des rapports récurrents du chercheur ID: {}", idChercheur, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @PatchMapping("/rapports/recurrents/{id}/activation")
+    public ResponseEntity<?> changerActivation(@PathVariable Long id, @RequestParam boolean actif) {
+        try {
+            return ResponseEntity.ok(rapportRecurrentService.changerActivation(id, actif));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de la mise à jour du rapport récurrent ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @DeleteMapping("/rapports/recurrents/{id}")
+    public ResponseEntity<?> supprimerRapportRecurrent(@PathVariable Long id) {
+        try {
+            rapportRecurrentService.supprimerRapportRecurrent(id);
+            return ResponseEntity.ok(Map.of("message", "Rapport récurrent supprimé avec succès"));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de la suppression du rapport récurrent ID: {}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+}
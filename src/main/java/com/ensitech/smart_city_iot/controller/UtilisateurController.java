@@ -8,6 +8,7 @@ import com.ensitech.smart_city_iot.entity.GestionnaireDeVille;
 import com.ensitech.smart_city_iot.entity.Utilisateur;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.repository.IdentiteUtilisateur;
 import com.ensitech.smart_city_iot.service.UtilisateurService;
 import com.ensitech.smart_city_iot.config.jwt.JWTService;
 import jakarta.validation.Valid;
@@ -16,6 +17,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
@@ -71,22 +73,25 @@ public class UtilisateurController {
                         .body(Map.of("error", "Email et mot de passe requis"));
             }
 
-            Utilisateur utilisateur = utilisateurService.findByEmail(email);
+            // Identité seule : l'utilisateur complet n'est chargé qu'une fois la connexion acceptée
+            IdentiteUtilisateur identite = utilisateurService.getIdentiteByEmail(email);
 
             // Vérifier le mot de passe
-            if (!passwordEncoder.matches(motDePasse, utilisateur.getMotDePasse())) {
+            if (!passwordEncoder.matches(motDePasse, identite.getMotDePasse())) {
                 log.warn("Mot de passe incorrect pour: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Email ou mot de passe incorrect"));
             }
 
             // Vérifier que le compte est actif
-            if (!utilisateur.isActif()) {
+            if (!identite.isActif()) {
                 log.warn("Compte désactivé pour: {}", email);
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "Votre compte est désactivé"));
             }
 
+            Utilisateur utilisateur = utilisateurService.getProfil(identite.getIdUtilisateur());
+
             // Générer le token JWT
             String token = jwtService.generateToken(
                     utilisateur.getEmail(),
@@ -105,6 +110,10 @@ public class UtilisateurController {
             log.info("Connexion réussie pour: {}", email);
             return ResponseEntity.ok(response);
 
+        } catch (EntityNotFoundException e) {
+            log.warn("Utilisateur non trouvé: {}", loginUtilisateur.get("email"));
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Email ou mot de passe incorrect"));
         } catch (Exception e) {
             log.error("Erreur lors de la connexion: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -132,6 +141,46 @@ public class UtilisateurController {
         }
     }
 
+    @PutMapping("/utilisateurs/{id}/permissions/{idPermission}")
+    @PreAuthorize("@autorisations.peut(authentication, 'UTILISATEURS', 'MODIFIER')")
+    public ResponseEntity<?> attribuerPermission(@PathVariable Long id, @PathVariable Long idPermission) {
+        try {
+            log.info("Attribution de la permission {} à l'utilisateur {}", idPermission, id);
+            ResponseUtilisateurDTO response = utilisateurService.attribuerPermission(id, idPermission);
+            return ResponseEntity.ok(response);
+        } catch (BusinessException e) {
+            log.error("Erreur business lors de l'attribution de la permission: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            log.warn("Attribution impossible: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors de l'attribution de la permission {} à l'utilisateur {}", idPermission, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
+    @DeleteMapping("/utilisateurs/{id}/permissions/{idPermission}")
+    @PreAuthorize("@autorisations.peut(authentication, 'UTILISATEURS', 'MODIFIER')")
+    public ResponseEntity<?> retirerPermission(@PathVariable Long id, @PathVariable Long idPermission) {
+        try {
+            log.info("Retrait de la permission {} à l'utilisateur {}", idPermission, id);
+            ResponseUtilisateurDTO response = utilisateurService.retirerPermission(id, idPermission);
+            return ResponseEntity.ok(response);
+        } catch (EntityNotFoundException e) {
+            log.warn("Retrait impossible: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Erreur lors du retrait de la permission {} à l'utilisateur {}", idPermission, id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Erreur interne du serveur"));
+        }
+    }
+
     @PostMapping("/admin/login")
     public ResponseEntity<?> loginAdmin(@Valid @RequestBody Map<String, String> loginData) throws Exception {
         try {
@@ -153,23 +202,23 @@ public class UtilisateurController {
             }
 
             // Authentification de base
-            Utilisateur utilisateur = utilisateurService.findByEmail(email);
+            IdentiteUtilisateur identite = utilisateurService.getIdentiteByEmail(email);
 
             // Vérifier le mot de passe
-            if (!passwordEncoder.matches(motDePasse, utilisateur.getMotDePasse())) {
+            if (!passwordEncoder.matches(motDePasse, identite.getMotDePasse())) {
                 log.warn("Mot de passe incorrect pour: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Email ou mot de passe incorrect"));
             }
 
             // Vérifier que c'est un administrateur
-            if (!(utilisateur instanceof Administrateur)) {
+            if (!"ADMINISTRATEUR".equals(identite.getTypeUtilisateur())) {
                 log.warn("Tentative d'accès admin avec un compte non-admin: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Identifiants administrateur invalides"));
             }
 
-            Administrateur admin = (Administrateur) utilisateur;
+            Administrateur admin = (Administrateur) utilisateurService.getProfil(identite.getIdUtilisateur());
 
             // Vérification du code administrateur
             if (!codeAdmin.equals(admin.getCodeAdmin())) {
@@ -235,23 +284,23 @@ public class UtilisateurController {
             }
 
             // Authentification de base
-            Utilisateur utilisateur = utilisateurService.findByEmail(email);
+            IdentiteUtilisateur identite = utilisateurService.getIdentiteByEmail(email);
 
             // Vérifier le mot de passe
-            if (!passwordEncoder.matches(motDePasse, utilisateur.getMotDePasse())) {
+            if (!passwordEncoder.matches(motDePasse, identite.getMotDePasse())) {
                 log.warn("Mot de passe incorrect pour: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Email ou mot de passe incorrect"));
             }
 
             // Vérifier que c'est un gestionnaire de ville
-            if (!(utilisateur instanceof GestionnaireDeVille)) {
+            if (!"GESTIONNAIRE_VILLE".equals(identite.getTypeUtilisateur())) {
                 log.warn("Tentative d'accès gestionnaire avec un compte non-gestionnaire: {}", email);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                         .body(Map.of("error", "Identifiants gestionnaire invalides"));
             }
 
-            GestionnaireDeVille gestionnaire = (GestionnaireDeVille) utilisateur;
+            GestionnaireDeVille gestionnaire = (GestionnaireDeVille) utilisateurService.getProfil(identite.getIdUtilisateur());
 
             // Vérification du code gestionnaire
             if (!codeGV.equals(gestionnaire.getCodeGV())) {
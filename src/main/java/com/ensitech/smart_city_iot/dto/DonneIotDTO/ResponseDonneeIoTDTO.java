@@ -46,6 +46,7 @@ public class ResponseDonneeIoTDTO {
     // Métadonnées
     private LocalDateTime timestampCollecte;
     private String statutDonnee;
+    private Double scoreAnomalie;
     private String sourceApi;
 
     // Informations calculées
@@ -78,6 +79,7 @@ public class ResponseDonneeIoTDTO {
                 .pm10(donnee.getPm10())
                 .timestampCollecte(donnee.getTimestampCollecte())
                 .statutDonnee(donnee.getStatutDonnee())
+                .scoreAnomalie(donnee.getScoreAnomalie())
                 .sourceApi(donnee.getSourceApi())
                 .donneeValide(donnee.isDonneeValide());
 
@@ -0,0 +1,36 @@
+package com.ensitech.smart_city_iot.dto.DonneIotDTO;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+@Builder
+@Data
+public class StatistiquesApproximativesDTO {
+    private LocalDate jourDebut;
+    private LocalDate jourFin;
+    // null : toutes les villes et tous les capteurs
+    private Long idCapteur;
+    private int nombreJours;
+    private long nombreDonnees;
+    // Estimations HyperLogLog, calculées sur la ligne globale uniquement
+    private Long nombreVillesEstime;
+    private Long nombreCapteursEstime;
+    private double erreurRelativeQuantiles;
+    private double erreurStandardDistincts;
+    private long dureeCalculMs;
+    private Map<String, QuantilesMetriqueDTO> metriques;
+
+    @Builder
+    @Data
+    public static class QuantilesMetriqueDTO {
+        private long nombre;
+        private double min;
+        private double p50;
+        private double p95;
+        private double p99;
+        private double max;
+    }
+}
@@ -0,0 +1,36 @@
+package com.ensitech.smart_city_iot.dto;
+
+import com.ensitech.smart_city_iot.repository.ResultatRecherche;
+import lombok.Builder;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Builder
+@Data
+public class ResultatRechercheDTO<T> {
+    private T element;
+    private Double pertinence;
+
+    /**
+     * Page de résultats dans l'ordre de pertinence des lignes FULLTEXT ; une ligne supprimée
+     * entre les deux requêtes est ignorée
+     */
+    public static <T> Page<ResultatRechercheDTO<T>> page(Page<ResultatRecherche> lignes, Map<Long, T> elementsParId) {
+        List<ResultatRechercheDTO<T>> resultats = lignes.getContent().stream()
+                .map(ligne -> {
+                    T element = elementsParId.get(ligne.getId());
+                    return element == null ? null : ResultatRechercheDTO.<T>builder()
+                            .element(element)
+                            .pertinence(ligne.getPertinence())
+                            .build();
+                })
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(resultats, lignes.getPageable(), lignes.getTotalElements());
+    }
+}
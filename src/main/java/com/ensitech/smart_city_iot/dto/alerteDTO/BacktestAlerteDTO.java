@@ -0,0 +1,51 @@
+package com.ensitech.smart_city_iot.dto.alerteDTO;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BacktestAlerteDTO {
+
+    @NotNull(message = "La période de début est obligatoire")
+    private LocalDateTime periodeDebut;
+
+    @NotNull(message = "La période de fin est obligatoire")
+    private LocalDateTime periodeFin;
+
+    @NotEmpty(message = "Au moins une règle est obligatoire")
+    @Size(max = 100, message = "Un backtest ne peut pas dépasser 100 règles")
+    @Valid
+    private List<RegleBacktestDTO> regles;
+
+    /**
+     * Règle rejouée : soit une alerte existante (idAlerte), éventuellement avec un seuil
+     * ou une condition surchargés, soit une règle ad hoc sur un capteur.
+     */
+    @Builder
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RegleBacktestDTO {
+        private Long idAlerte;
+
+        private Long idCapteur;
+
+        private Double seuilValeur;
+
+        @Pattern(regexp = "SUPERIEUR|INFERIEUR|EGAL", message = "Type de condition invalide")
+        private String typeCondition;
+    }
+}
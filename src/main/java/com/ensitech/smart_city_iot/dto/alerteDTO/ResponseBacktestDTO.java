@@ -0,0 +1,38 @@
+package com.ensitech.smart_city_iot.dto.alerteDTO;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+@Data
+public class ResponseBacktestDTO {
+    private LocalDateTime periodeDebut;
+    private LocalDateTime periodeFin;
+    private long nombreMesuresAnalysees;
+    private int nombreSegments;
+    private long dureeCalculMs;
+    private List<ResultatRegleDTO> resultats;
+
+    @Builder
+    @Data
+    public static class ResultatRegleDTO {
+        private Long idAlerte;
+        private String titre;
+        private Long idCapteur;
+        private String metrique;
+        private Double seuilValeur;
+        private String typeCondition;
+
+        private long nombreMesures;
+        private long nombreMesuresEnAlerte;
+        // Un déclenchement = passage de la condition de faux à vrai
+        private long nombreDeclenchements;
+        private LocalDateTime premierDeclenchement;
+        private LocalDateTime dernierDeclenchement;
+        private List<LocalDateTime> declenchements;
+        private boolean chronologieTronquee;
+    }
+}
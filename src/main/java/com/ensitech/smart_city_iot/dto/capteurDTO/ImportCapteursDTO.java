@@ -0,0 +1,26 @@
+package com.ensitech.smart_city_iot.dto.capteurDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportCapteursDTO {
+
+    private int lignesLues;
+    private int capteursCrees;
+    private List<ErreurLigne> erreurs;
+
+    @Data
+    @AllArgsConstructor
+    public static class ErreurLigne {
+        private long ligne;
+        private String message;
+    }
+}
@@ -25,6 +25,8 @@ public class ResponseCommentaireDTO {
     private Double ratioPositif;
     private String sujet;
     private String localisation;
+    private Integer scoreModeration;
+    private Boolean signale;
 
     // Informations du citoyen
     private Long idCitoyen;
@@ -50,7 +52,9 @@ public class ResponseCommentaireDTO {
                 .nombreDislikes(commentaire.getNombreDislikes())
                 .totalInteractions(commentaire.getTotalInteractions())
                 .sujet(commentaire.getSujet())
-                .localisation(commentaire.getLocalisation());
+                .localisation(commentaire.getLocalisation())
+                .scoreModeration(commentaire.getScoreModeration())
+                .signale(commentaire.getSignale());
 
         // Informations du citoyen
         if (commentaire.getCitoyen() != null) {
@@ -0,0 +1,52 @@
+package com.ensitech.smart_city_iot.dto.notificationDTO;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Ciblage d'une notification : les critères renseignés se cumulent (ET logique).
+ * La zone ne concerne que les citoyens, seuls utilisateurs géolocalisés.
+ */
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudienceNotificationDTO {
+
+    // ADMINISTRATEUR, GESTIONNAIRE_VILLE, CHERCHEUR, CITOYEN
+    private List<String> roles;
+
+    private List<String> codesPostaux;
+
+    @DecimalMin(value = "-90.0", message = "La latitude doit être comprise entre -90 et 90")
+    @DecimalMax(value = "90.0", message = "La latitude doit être comprise entre -90 et 90")
+    private Double latitudeMin;
+
+    @DecimalMin(value = "-90.0", message = "La latitude doit être comprise entre -90 et 90")
+    @DecimalMax(value = "90.0", message = "La latitude doit être comprise entre -90 et 90")
+    private Double latitudeMax;
+
+    @DecimalMin(value = "-180.0", message = "La longitude doit être comprise entre -180 et 180")
+    @DecimalMax(value = "180.0", message = "La longitude doit être comprise entre -180 et 180")
+    private Double longitudeMin;
+
+    @DecimalMin(value = "-180.0", message = "La longitude doit être comprise entre -180 et 180")
+    @DecimalMax(value = "180.0", message = "La longitude doit être comprise entre -180 et 180")
+    private Double longitudeMax;
+
+    public boolean hasZone() {
+        return latitudeMin != null && latitudeMax != null && longitudeMin != null && longitudeMax != null;
+    }
+
+    public boolean estVide() {
+        return (roles == null || roles.isEmpty())
+                && (codesPostaux == null || codesPostaux.isEmpty())
+                && !hasZone();
+    }
+}
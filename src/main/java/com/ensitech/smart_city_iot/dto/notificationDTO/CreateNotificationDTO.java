@@ -1,5 +1,6 @@
 package com.ensitech.smart_city_iot.dto.notificationDTO;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -22,13 +23,16 @@ public class CreateNotificationDTO {
     @Size(max = 1000, message = "Le message ne peut pas dépasser 1000 caractères")
     private String message;
 
-    @Pattern(regexp = "EMAIL|SMS|SYSTEME", message = "Type de notification invalide")
+    @Pattern(regexp = "EMAIL|SMS|PUSH|SYSTEME", message = "Type de notification invalide")
     private String typeNotification = "SYSTEME";
 
     @NotNull(message = "L'ID de l'alerte est obligatoire")
     private Long idAlerte;
 
-    @NotEmpty(message = "Au moins un utilisateur doit être spécifié")
+    // Destinataires explicites, ou audience ciblée (au moins l'un des deux)
     private List<Long> idUtilisateurs;
 
+    @Valid
+    private AudienceNotificationDTO audience;
+
 }
@@ -0,0 +1,30 @@
+package com.ensitech.smart_city_iot.dto.notificationDTO;
+
+import com.ensitech.smart_city_iot.entity.Notification;
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class DiffusionNotificationDTO {
+    private Long idNotification;
+    private String statutDiffusion;
+    private long nombreDestinataires;
+    private long nombreDestinatairesTraites;
+    private double pourcentage;
+
+    public static DiffusionNotificationDTO fromEntity(Notification notification) {
+        long cible = notification.getNombreDestinataires() != null ? notification.getNombreDestinataires() : 0L;
+        long traites = notification.getNombreDestinatairesTraites() != null ? notification.getNombreDestinatairesTraites() : 0L;
+        double pourcentage = "TERMINEE".equals(notification.getStatutDiffusion()) ? 100.0
+                : cible > 0 ? Math.min(100.0, Math.round(traites * 1000.0 / cible) / 10.0) : 0.0;
+
+        return DiffusionNotificationDTO.builder()
+                .idNotification(notification.getIdNotification())
+                .statutDiffusion(notification.getStatutDiffusion())
+                .nombreDestinataires(cible)
+                .nombreDestinatairesTraites(traites)
+                .pourcentage(pourcentage)
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.ensitech.smart_city_iot.dto.notificationDTO;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Élément d'un lot réclamé dans l'outbox, détaché de la session JPA
+ */
+@Builder
+@Data
+public class EnvoiNotificationDTO {
+    private Long idOutbox;
+    private Long idNotification;
+    private String typeNotification;
+    private String titre;
+    private String message;
+    private int tentatives;
+    private long nombreDestinataires;
+}
@@ -12,6 +12,9 @@ import java.util.stream.Collectors;
 @Builder
 public class ResponseNotificationDTO {
 
+    // Au-delà, la liste des destinataires n'est pas chargée (diffusions de masse)
+    private static final long MAX_DESTINATAIRES_DETAILLES = 100;
+
     private Long idNotification;
     private String titre;
     private String message;
@@ -20,6 +23,7 @@ public class ResponseNotificationDTO {
     private LocalDateTime dateCreation;
     private LocalDateTime dateEnvoi;
     private Boolean lu;
+    private String statutDiffusion;
 
     // Informations de l'alerte associée
     private Long idAlerte;
@@ -39,7 +43,8 @@ public class ResponseNotificationDTO {
                 .statut(notification.getStatut())
                 .dateCreation(notification.getDateCreation())
                 .dateEnvoi(notification.getDateEnvoi())
-                .lu(notification.getLu());
+                .lu(notification.getLu())
+                .statutDiffusion(notification.getStatutDiffusion());
 
         // Informations de l'alerte
         if (notification.getAlerte() != null) {
@@ -49,7 +54,10 @@ public class ResponseNotificationDTO {
         }
 
         // Informations des utilisateurs
-        if (notification.getUtilisateurs() != null) {
+        Long nombreDestinataires = notification.getNombreDestinataires();
+        if (nombreDestinataires != null && nombreDestinataires > MAX_DESTINATAIRES_DETAILLES) {
+            builder.nombreUtilisateurs(nombreDestinataires.intValue());
+        } else if (notification.getUtilisateurs() != null && !notification.getUtilisateurs().isEmpty()) {
             List<UtilisateurSimpleDTO> utilisateursDTO = notification.getUtilisateurs().stream()
                     .map(u -> UtilisateurSimpleDTO.builder()
                             .idUtilisateur(u.getIdUtilisateur())
@@ -62,7 +70,7 @@ public class ResponseNotificationDTO {
             builder.utilisateurs(utilisateursDTO)
                     .nombreUtilisateurs(utilisateursDTO.size());
         } else {
-            builder.nombreUtilisateurs(0);
+            builder.nombreUtilisateurs(nombreDestinataires != null ? nombreDestinataires.intValue() : 0);
         }
 
         return builder.build();
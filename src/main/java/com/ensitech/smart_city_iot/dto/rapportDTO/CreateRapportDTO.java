@@ -33,7 +33,7 @@ public class CreateRapportDTO {
             message = "Type de rapport invalide")
     private String typeRapport = "GLOBAL";
 
-    @Pattern(regexp = "PDF|CSV|JSON",
+    @Pattern(regexp = "PDF|CSV|JSON|ARROW",
             message = "Format de fichier invalide")
     private String formatFichier = "PDF";
 
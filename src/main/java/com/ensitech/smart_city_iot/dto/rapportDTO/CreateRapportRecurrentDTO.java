@@ -0,0 +1,48 @@
+package com.ensitech.smart_city_iot.dto.rapportDTO;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateRapportRecurrentDTO {
+    // Le nom de chaque rapport généré est complété par la date d'échéance
+    @NotBlank(message = "Le nom du rapport est obligatoire")
+    @Size(max = 80, message = "Le nom ne peut pas dépasser 80 caractères")
+    private String nomRapport;
+
+    @Size(max = 500, message = "La description ne peut pas dépasser 500 caractères")
+    private String description;
+
+    @Pattern(regexp = "TEMPERATURE|POLLUTION|TRAFIC|BRUIT|LUMINOSITE|GLOBAL",
+            message = "Type de rapport invalide")
+    @Builder.Default
+    private String typeRapport = "GLOBAL";
+
+    @Pattern(regexp = "PDF|CSV|JSON|ARROW",
+            message = "Format de fichier invalide")
+    @Builder.Default
+    private String formatFichier = "PDF";
+
+    // Ex. "0 0 6 * * *" chaque jour à 6h, "0 0 6 * * MON" chaque lundi
+    @NotBlank(message = "L'expression cron est obligatoire")
+    private String expressionCron;
+
+    @NotNull(message = "La durée de la période est obligatoire")
+    @Min(value = 1, message = "La période doit couvrir au moins une heure")
+    @Max(value = 8784, message = "La période ne peut pas dépasser 1 an")
+    private Integer dureePeriodeHeures;
+
+    @NotNull(message = "L'ID du chercheur est obligatoire")
+    private Long idChercheur;
+}
@@ -0,0 +1,25 @@
+package com.ensitech.smart_city_iot.dto.rapportDTO;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Fichier d'un rapport prêt à être servi : le contenu n'est jamais chargé en mémoire,
+ * sauf pour les rapports historiques stockés en base (contenuHerite).
+ */
+@Builder
+@Data
+public class FichierRapportDTO {
+    private String nomFichier;
+    private String typeContenu;
+    private Path chemin;
+    // Fichier stocké compressé en gzip
+    private boolean compresse;
+    // Taille du fichier stocké (compressé le cas échéant)
+    private long tailleStockee;
+    private Instant derniereModification;
+    private String contenuHerite;
+}
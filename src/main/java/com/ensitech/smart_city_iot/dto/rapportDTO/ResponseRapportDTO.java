@@ -1,6 +1,7 @@
 package com.ensitech.smart_city_iot.dto.rapportDTO;
 
 import com.ensitech.smart_city_iot.entity.Rapport;
+import com.ensitech.smart_city_iot.repository.RapportResume;
 import lombok.Builder;
 import lombok.Data;
 
@@ -24,6 +25,12 @@ public class ResponseRapportDTO {
     private Long nombreDonnees;
     private String cheminFichier;
 
+    // Génération asynchrone : EN_ATTENTE, EN_EXECUTION, TERMINE, ERREUR
+    private String etatGeneration;
+    private Long nombreDonneesTraitees;
+    private Long nombreDonneesEstimees;
+    private Integer progression; // en pourcentage
+
     // Informations du chercheur
     private Long idChercheur;
     private String nomCompletChercheur;
@@ -52,7 +59,8 @@ public class ResponseRapportDTO {
                 .nombreDonnees(rapport.getNombreDonnees())
                 .cheminFichier(rapport.getCheminFichier())
                 .dureeGeneration(rapport.getDureeGeneration())
-                .peutTelecharger(rapport.isTermine());
+                .peutTelecharger(rapport.isTermine())
+                .resumeContenu(rapport.getResumeContenu());
 
         // Informations du chercheur
         if (rapport.getChercheur() != null) {
@@ -63,13 +71,36 @@ public class ResponseRapportDTO {
                     .domaineRecherche(rapport.getChercheur().getDomaineRecherche());
         }
 
-        // Résumé du contenu
-        if (rapport.getContenu() != null) {
-            builder.resumeContenu(rapport.getContenu().length() > 200 ?
-                    rapport.getContenu().substring(0, 200) + "..." :
-                    rapport.getContenu());
-        }
-
         return builder.build();
     }
+
+    /**
+     * Listes de rapports : construit depuis la projection, sans charger d'entité
+     */
+    public static ResponseRapportDTO fromResume(RapportResume resume) {
+        return ResponseRapportDTO.builder()
+                .idRapport(resume.getIdRapport())
+                .nomRapport(resume.getNomRapport())
+                .description(resume.getDescription())
+                .dateCreation(resume.getDateCreation())
+                .periodeDebut(resume.getPeriodeDebut())
+                .periodeFin(resume.getPeriodeFin())
+                .typeRapport(resume.getTypeRapport())
+                .formatFichier(resume.getFormatFichier())
+                .tailleFichier(resume.getTailleFichier())
+                .tailleFichierFormatee(Rapport.formaterTaille(resume.getTailleFichier()))
+                .statut(resume.getStatut())
+                .nombreDonnees(resume.getNombreDonnees())
+                .cheminFichier(resume.getCheminFichier())
+                .dureeGeneration(Rapport.decrireGeneration(resume.getDateCreation()))
+                .peutTelecharger("TERMINE".equals(resume.getStatut()))
+                .resumeContenu(resume.getResumeContenu())
+                // Même format que Chercheur.getNomComplet()
+                .idChercheur(resume.getIdChercheur())
+                .nomCompletChercheur("Dr. " + resume.getPrenomChercheur() + " " + resume.getNomChercheur())
+                .emailChercheur(resume.getEmailChercheur())
+                .institutChercheur(resume.getInstitutChercheur())
+                .domaineRecherche(resume.getDomaineRecherche())
+                .build();
+    }
 }
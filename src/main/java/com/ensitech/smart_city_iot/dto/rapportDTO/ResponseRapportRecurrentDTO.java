@@ -0,0 +1,41 @@
+package com.ensitech.smart_city_iot.dto.rapportDTO;
+
+import com.ensitech.smart_city_iot.entity.RapportRecurrent;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Builder
+@Data
+public class ResponseRapportRecurrentDTO {
+    private Long idRapportRecurrent;
+    private String nomRapport;
+    private String description;
+    private String typeRapport;
+    private String formatFichier;
+    private String expressionCron;
+    private Integer dureePeriodeHeures;
+    private boolean actif;
+    private LocalDateTime prochaineExecution;
+    private LocalDateTime derniereExecution;
+    private LocalDateTime dateCreation;
+    private Long idChercheur;
+
+    public static ResponseRapportRecurrentDTO fromEntity(RapportRecurrent recurrent) {
+        return ResponseRapportRecurrentDTO.builder()
+                .idRapportRecurrent(recurrent.getIdRapportRecurrent())
+                .nomRapport(recurrent.getNomRapport())
+                .description(recurrent.getDescription())
+                .typeRapport(recurrent.getTypeRapport())
+                .formatFichier(recurrent.getFormatFichier())
+                .expressionCron(recurrent.getExpressionCron())
+                .dureePeriodeHeures(recurrent.getDureePeriodeHeures())
+                .actif(recurrent.isActif())
+                .prochaineExecution(recurrent.getProchaineExecution())
+                .derniereExecution(recurrent.getDerniereExecution())
+                .dateCreation(recurrent.getDateCreation())
+                .idChercheur(recurrent.getChercheur() != null ? recurrent.getChercheur().getIdUtilisateur() : null)
+                .build();
+    }
+}
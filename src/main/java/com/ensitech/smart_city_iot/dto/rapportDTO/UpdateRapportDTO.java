@@ -26,7 +26,5 @@ public class UpdateRapportDTO {
 
     private Long tailleFichier;
 
-    private String cheminFichier;
-
     private Long nombreDonnees;
 }
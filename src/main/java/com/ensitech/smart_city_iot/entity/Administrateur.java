@@ -11,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "administrateur")
+@DiscriminatorValue("ADMINISTRATEUR")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
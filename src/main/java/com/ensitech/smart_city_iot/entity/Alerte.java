@@ -85,4 +85,16 @@ public class Alerte {
 
     }
 
+    public static boolean evaluerCondition(String typeCondition, Double seuil, double valeur) {
+        if (typeCondition == null || seuil == null) {
+            return false;
+        }
+        return switch (typeCondition) {
+            case "SUPERIEUR" -> valeur > seuil;
+            case "INFERIEUR" -> valeur < seuil;
+            case "EGAL" -> Math.abs(valeur - seuil) < 1e-9;
+            default -> false;
+        };
+    }
+
 }
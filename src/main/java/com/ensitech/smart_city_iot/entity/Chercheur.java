@@ -12,6 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "chercheur")
+@DiscriminatorValue("CHERCHEUR")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,6 +12,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "citoyen")
+@DiscriminatorValue("CITOYEN")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,5 +1,6 @@
 package com.ensitech.smart_city_iot.entity;
 
+import com.ensitech.smart_city_iot.utils.TexteRecherche;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,15 +8,24 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 @Entity
-@Table(name = "commentaire")
+@Table(name = "commentaire", indexes = {
+        @Index(name = "idx_commentaire_score", columnList = "actif, score"),
+        @Index(name = "idx_commentaire_sujet_score", columnList = "sujet, actif, score"),
+        @Index(name = "idx_commentaire_moderation", columnList = "signale, actif, score_moderation")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Commentaire {
 
+    /** Sujets acceptés par CreateCommentaireDTO et UpdateCommentaireDTO */
+    public static final Set<String> SUJETS = Set.of("GENERAL", "POLLUTION", "TRAFIC", "BRUIT", "LUMINOSITE",
+            "INFRASTRUCTURE", "SECURITE", "ENVIRONNEMENT", "SUGGESTIONS");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_commentaire")
@@ -39,18 +49,35 @@ public class Commentaire {
     @Column(name = "note_evaluation")
     private Integer noteEvaluation; // Note de 1 à 5 par exemple
 
-    @Column(name = "nombre_likes")
+    // Jamais réécrits par une mise à jour de l'entité : seuls les deltas de CompteursInteractions les modifient
+    @Column(name = "nombre_likes", updatable = false)
     private Integer nombreLikes = 0;
 
-    @Column(name = "nombre_dislikes")
+    @Column(name = "nombre_dislikes", updatable = false)
     private Integer nombreDislikes = 0;
 
+    // nombre_likes - nombre_dislikes, tenu à jour avec les compteurs pour le tri par popularité
+    @Column(name = "score", updatable = false)
+    private Integer score;
+
     @Column(name = "sujet", length = 50)
     private String sujet; // CAPTEUR, POLLUTION, TRAFIC, GENERAL, etc.
 
     @Column(name = "localisation", length = 200)
     private String localisation;
 
+    // Somme des poids des termes du dictionnaire de modération reconnus dans le titre et le contenu
+    @Column(name = "score_moderation")
+    private Integer scoreModeration;
+
+    // Dans la file de modération tant qu'un modérateur ne l'a pas validé
+    @Column(name = "signale")
+    private Boolean signale;
+
+    // Titre et contenu normalisés (TexteRecherche), indexés en FULLTEXT
+    @Column(name = "texte_recherche", columnDefinition = "TEXT")
+    private String texteRecherche;
+
     // Relation avec Citoyen
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_citoyen", nullable = false)
@@ -69,11 +96,14 @@ public class Commentaire {
         if (this.nombreDislikes == null) {
             this.nombreDislikes = 0;
         }
+        this.score = this.nombreLikes - this.nombreDislikes;
+        this.texteRecherche = TexteRecherche.normaliser(titre, contenu);
     }
 
     @PreUpdate
     public void preUpdate() {
         this.dateModification = LocalDateTime.now();
+        this.texteRecherche = TexteRecherche.normaliser(titre, contenu);
     }
 
     // Méthodes métier
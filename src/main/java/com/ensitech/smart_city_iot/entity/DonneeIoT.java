@@ -9,7 +9,10 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "donnee_iot")
+@Table(name = "donnee_iot", indexes = {
+        @Index(name = "idx_donnee_statut_timestamp", columnList = "statut_donnee, timestamp_collecte"),
+        @Index(name = "idx_donnee_capteur_timestamp", columnList = "id_capteur, timestamp_collecte")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -89,6 +92,10 @@ public class DonneeIoT {
     @Column(name = "statut_donnee", length = 20)
     private String statutDonnee = "VALIDE"; // VALIDE, INVALIDE, EN_ATTENTE
 
+    // Écart à la moyenne glissante du capteur (z-score) calculé à l'ingestion
+    @Column(name = "score_anomalie")
+    private Double scoreAnomalie;
+
     @Column(name = "source_api", length = 50)
     private String sourceApi = "WeatherAPI";
 
@@ -11,6 +11,7 @@ import java.util.List;
 
 @Entity
 @Table(name = "gestionnaire_de_ville")
+@DiscriminatorValue("GESTIONNAIRE_VILLE")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -44,12 +45,40 @@ public class Notification {
     @Column(name = "lu", nullable = false)
     private Boolean lu = false;
 
+    // Diffusion vers les destinataires (EN_COURS pour une audience ciblée tant que le fan-out n'est pas terminé)
+    @Builder.Default
+    @Column(name = "statut_diffusion", length = 20)
+    private String statutDiffusion = "TERMINEE"; // EN_COURS, TERMINEE, ERREUR (relance prévue), ECHEC
+
+    @Column(name = "nombre_destinataires")
+    private Long nombreDestinataires;
+
+    @Column(name = "nombre_destinataires_traites")
+    private Long nombreDestinatairesTraites;
+
+    // Critères d'audience sérialisés (JSON) et dernier id utilisateur traité, pour reprise
+    @Column(name = "ciblage", columnDefinition = "TEXT")
+    private String ciblage;
+
+    @Column(name = "curseur_diffusion")
+    private Long curseurDiffusion;
+
+    // Reprise d'un fan-out interrompu par une erreur, depuis le curseur
+    @Column(name = "tentatives_diffusion")
+    private Integer tentativesDiffusion;
+
+    @Column(name = "prochaine_diffusion")
+    private LocalDateTime prochaineDiffusion;
+
     // Relation avec Alerte (Une notification est associée à une alerte)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_alerte", nullable = false)
     private Alerte alerte;
 
     // Relation Many-to-Many avec Utilisateur (Une notification peut être envoyée à plusieurs utilisateurs)
+    // Lecture seule : notification_utilisateur est écrite par le fan-out et NotificationDestinataire,
+    // une réécriture de la collection effacerait l'état de lecture de chaque destinataire
+    @Immutable
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "notification_utilisateur",
@@ -67,6 +96,9 @@ public class Notification {
         if (this.statut == null) {
             this.statut = "EN_ATTENTE";
         }
+        if (this.statutDiffusion == null) {
+            this.statutDiffusion = "TERMINEE";
+        }
     }
 
     // Méthodes utilitaires
@@ -86,12 +118,4 @@ public class Notification {
         this.statut = "ENVOYE";
         this.dateEnvoi = LocalDateTime.now();
     }
-
-    public void ajouterUtilisateur(Utilisateur utilisateur) {
-        utilisateurs.add(utilisateur);
-    }
-
-    public void retirerUtilisateur(Utilisateur utilisateur) {
-        utilisateurs.remove(utilisateur);
-    }
 }
@@ -0,0 +1,38 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * État de lecture d'une notification pour un destinataire (ligne de notification_utilisateur).
+ * Les lignes sont insérées par le fan-out ; l'entité sert à lire et mettre à jour l'état.
+ */
+@Entity
+@Table(name = "notification_utilisateur", indexes = {
+        @Index(name = "idx_notif_utilisateur_lu", columnList = "id_utilisateur, lu")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationDestinataire {
+
+    @EmbeddedId
+    private NotificationDestinataireId id;
+
+    @Builder.Default
+    @Column(name = "lu", nullable = false, columnDefinition = "BOOLEAN NOT NULL DEFAULT FALSE")
+    private Boolean lu = false;
+
+    @Column(name = "date_lecture")
+    private LocalDateTime dateLecture;
+
+    public boolean isLu() {
+        return lu != null && lu;
+    }
+}
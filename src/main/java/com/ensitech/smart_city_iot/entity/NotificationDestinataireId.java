@@ -0,0 +1,24 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationDestinataireId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "id_notification")
+    private Long idNotification;
+
+    @Column(name = "id_utilisateur")
+    private Long idUtilisateur;
+}
@@ -0,0 +1,66 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "notification_outbox", indexes = {
+        @Index(name = "idx_outbox_type_statut", columnList = "type_notification, statut, prochaine_tentative")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NotificationOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_outbox")
+    private Long idOutbox;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_notification", nullable = false)
+    private Notification notification;
+
+    @Column(name = "type_notification", nullable = false, length = 20)
+    private String typeNotification; // EMAIL, SMS, PUSH, SYSTEME
+
+    @Builder.Default
+    @Column(name = "statut", nullable = false, length = 20)
+    private String statut = "EN_ATTENTE"; // EN_ATTENTE, EN_COURS, TRAITE, ECHEC
+
+    @Builder.Default
+    @Column(name = "tentatives", nullable = false)
+    private Integer tentatives = 0;
+
+    @Column(name = "prochaine_tentative", nullable = false)
+    private LocalDateTime prochaineTentative;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_reclamation")
+    private LocalDateTime dateReclamation;
+
+    @Column(name = "derniere_erreur", length = 500)
+    private String derniereErreur;
+
+    @PrePersist
+    public void prePersist() {
+        this.dateCreation = LocalDateTime.now();
+        if (this.statut == null) {
+            this.statut = "EN_ATTENTE";
+        }
+        if (this.tentatives == null) {
+            this.tentatives = 0;
+        }
+        if (this.prochaineTentative == null) {
+            this.prochaineTentative = this.dateCreation;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ensitech.smart_city_iot.entity;
 
+import com.ensitech.smart_city_iot.utils.TexteRecherche;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,6 +17,8 @@ import java.time.LocalDateTime;
 @Builder
 public class Rapport {
 
+    public static final int LONGUEUR_RESUME = 200;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_rapport")
@@ -30,8 +33,9 @@ public class Rapport {
     @Column(name = "date_creation", nullable = false)
     private LocalDateTime dateCreation;
 
-    @Column(name = "contenu", columnDefinition = "LONGTEXT")
-    private String contenu;
+    // Début du contenu calculé à la génération ; le contenu lui-même est dans le fichier ou dans rapport_contenu
+    @Column(name = "resume_contenu", length = LONGUEUR_RESUME + 3)
+    private String resumeContenu;
 
     @Column(name = "periode_debut")
     private LocalDateTime periodeDebut;
@@ -43,7 +47,7 @@ public class Rapport {
     private String typeRapport; // TEMPERATURE, POLLUTION, TRAFIC, GLOBAL, etc.
 
     @Column(name = "format_fichier", length = 20)
-    private String formatFichier = "PDF"; // PDF, CSV, JSON
+    private String formatFichier = "PDF"; // PDF, CSV, JSON, ARROW
 
     @Column(name = "taille_fichier")
     private Long tailleFichier; // en bytes
@@ -57,6 +61,10 @@ public class Rapport {
     @Column(name = "chemin_fichier", length = 500)
     private String cheminFichier;
 
+    // Nom et description normalisés (TexteRecherche), indexés en FULLTEXT
+    @Column(name = "texte_recherche", length = 700)
+    private String texteRecherche;
+
     // Relation avec Chercheur (Many-to-One)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_chercheur", nullable = false)
@@ -71,6 +79,12 @@ public class Rapport {
         if (this.formatFichier == null) {
             this.formatFichier = "PDF";
         }
+        this.texteRecherche = TexteRecherche.normaliser(nomRapport, description);
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        this.texteRecherche = TexteRecherche.normaliser(nomRapport, description);
     }
 
     // Méthodes utilitaires
@@ -87,6 +101,16 @@ public class Rapport {
     }
 
     public String getTailleFichierFormatee() {
+        return formaterTaille(tailleFichier);
+    }
+
+    public String getDureeGeneration() {
+        return decrireGeneration(dateCreation);
+    }
+
+    // Partagées avec les projections des listes de rapports
+
+    public static String formaterTaille(Long tailleFichier) {
         if (tailleFichier == null) return "0 KB";
 
         if (tailleFichier < 1024) {
@@ -98,12 +122,17 @@ public class Rapport {
         }
     }
 
-    public String getDureeGeneration() {
+    public static String decrireGeneration(LocalDateTime dateCreation) {
         if (dateCreation == null) return "N/A";
         // Calcul simple basé sur la date de création
         // Dans un vrai contexte, vous pourriez avoir une date de fin de génération
         return "Généré le " + dateCreation.toLocalDate();
     }
 
+    public static String resumer(String contenu) {
+        if (contenu == null) return null;
+        return contenu.length() > LONGUEUR_RESUME ? contenu.substring(0, LONGUEUR_RESUME) + "..." : contenu;
+    }
+
 
 }
@@ -0,0 +1,28 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contenu texte d'un rapport, hors de la ligne rapport : il n'est lu que par le téléchargement.
+ * Les rapports générés sont stockés sur fichier ; cette table ne porte que les contenus
+ * historiques ou saisis via la mise à jour d'un rapport.
+ */
+@Entity
+@Table(name = "rapport_contenu")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportContenu {
+
+    @Id
+    @Column(name = "id_rapport")
+    private Long idRapport;
+
+    @Column(name = "contenu", columnDefinition = "LONGTEXT", nullable = false)
+    private String contenu;
+}
@@ -0,0 +1,62 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * File persistante des générations de rapports : une ligne par rapport,
+ * remise en attente à chaque nouvelle demande de génération.
+ * Les jobs d'un même groupe sont réclamés et exécutés ensemble.
+ */
+@Entity
+@Table(name = "rapport_job", indexes = {
+        @Index(name = "idx_rapport_job_etat", columnList = "etat, date_soumission")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_job")
+    private Long idJob;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_rapport", nullable = false, unique = true)
+    private Rapport rapport;
+
+    @Column(name = "id_chercheur", nullable = false)
+    private Long idChercheur;
+
+    @Column(name = "etat", nullable = false, length = 20)
+    private String etat; // EN_ATTENTE, EN_EXECUTION, TERMINE, ERREUR
+
+    @Column(name = "date_soumission", nullable = false)
+    private LocalDateTime dateSoumission;
+
+    @Column(name = "date_debut")
+    private LocalDateTime dateDebut;
+
+    @Column(name = "date_fin")
+    private LocalDateTime dateFin;
+
+    @Column(name = "nombre_donnees_estimees")
+    private Long nombreDonneesEstimees;
+
+    @Column(name = "nombre_donnees_traitees")
+    private Long nombreDonneesTraitees;
+
+    @Column(name = "derniere_erreur", length = 500)
+    private String derniereErreur;
+
+    // Jobs de même clé (même fenêtre d'analyse) exécutés ensemble, sur un seul parcours des données
+    @Column(name = "cle_groupe", length = 100)
+    private String cleGroupe;
+}
@@ -0,0 +1,70 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Définition d'un rapport généré périodiquement : à chaque échéance de l'expression cron,
+ * un rapport est créé sur la fenêtre des {@code dureePeriodeHeures} heures qui précèdent l'échéance.
+ */
+@Entity
+@Table(name = "rapport_recurrent", indexes = {
+        @Index(name = "idx_rapport_recurrent_echeance", columnList = "actif, prochaine_execution")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RapportRecurrent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_rapport_recurrent")
+    private Long idRapportRecurrent;
+
+    @Column(name = "nom_rapport", nullable = false, length = 80)
+    private String nomRapport;
+
+    @Column(name = "description", length = 500)
+    private String description;
+
+    @Column(name = "type_rapport", nullable = false, length = 50)
+    private String typeRapport;
+
+    @Column(name = "format_fichier", nullable = false, length = 20)
+    private String formatFichier;
+
+    // Expression cron Spring à 6 champs (seconde minute heure jour mois jour-de-semaine)
+    @Column(name = "expression_cron", nullable = false, length = 100)
+    private String expressionCron;
+
+    @Column(name = "duree_periode_heures", nullable = false)
+    private Integer dureePeriodeHeures;
+
+    @Column(name = "actif", nullable = false)
+    @Builder.Default
+    private boolean actif = true;
+
+    @Column(name = "prochaine_execution", nullable = false)
+    private LocalDateTime prochaineExecution;
+
+    @Column(name = "derniere_execution")
+    private LocalDateTime derniereExecution;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_chercheur", nullable = false)
+    private Chercheur chercheur;
+
+    @PrePersist
+    public void prePersist() {
+        this.dateCreation = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,52 @@
+package com.ensitech.smart_city_iot.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Sketchs fusionnables des données VALIDE d'un jour : une ligne par capteur et une ligne
+ * globale (id_capteur = {@value #ID_GLOBAL}) portant en plus les sketchs de cardinalité
+ * des villes et des capteurs. Maintenus à l'ingestion, ils servent aux statistiques approchées.
+ */
+@Entity
+@Table(name = "sketch_journalier", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sketch_jour_capteur", columnNames = {"id_capteur", "jour"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SketchJournalier {
+
+    public static final long ID_GLOBAL = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_sketch")
+    private Long idSketch;
+
+    @Column(name = "jour", nullable = false)
+    private LocalDate jour;
+
+    @Column(name = "id_capteur", nullable = false)
+    private Long idCapteur;
+
+    @Column(name = "nombre_donnees", nullable = false)
+    private Long nombreDonnees;
+
+    // SketchesMetriques sérialisés
+    @Column(name = "quantiles", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] quantiles;
+
+    // Registres HyperLogLog, ligne globale uniquement
+    @Column(name = "villes", columnDefinition = "BLOB")
+    private byte[] villes;
+
+    @Column(name = "capteurs", columnDefinition = "BLOB")
+    private byte[] capteurs;
+}
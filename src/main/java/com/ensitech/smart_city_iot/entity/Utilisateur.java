@@ -12,8 +12,12 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "utilisateur")
+@Table(name = "utilisateur", indexes = {
+        @Index(name = "idx_utilisateur_email", columnList = "email"),
+        @Index(name = "idx_utilisateur_type", columnList = "type_utilisateur, actif")
+})
 @Inheritance(strategy = InheritanceType.JOINED)
+@DiscriminatorColumn(name = "type_utilisateur", discriminatorType = DiscriminatorType.STRING, length = 20)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -57,8 +61,8 @@ public abstract class Utilisateur {
     @Column(name = "notification_active")
     private Boolean notificationActive = true;
 
-
-    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    // Chargées à la demande : UtilisateurRepository.findProfilById pour les réponses qui les exposent
+    @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinTable(
             name = "utilisateur_permission",
             joinColumns = @JoinColumn(name = "id_utilisateur"),
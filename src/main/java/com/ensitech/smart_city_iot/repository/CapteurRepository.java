@@ -4,10 +4,12 @@ import com.ensitech.smart_city_iot.entity.Administrateur;
 import com.ensitech.smart_city_iot.entity.Capteur;
 import com.ensitech.smart_city_iot.entity.GestionnaireDeVille;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +25,8 @@ public interface CapteurRepository extends JpaRepository<Capteur, Long> {
 
     List<Capteur> findByStatut(String statut);
 
+    List<Capteur> findByStatutIn(List<String> statuts);
+
     List<Capteur> findByTypeCapteurAndStatut(String typeCapteur, String statut);
 
     // Recherche par numéro de série
@@ -30,6 +34,10 @@ public interface CapteurRepository extends JpaRepository<Capteur, Long> {
 
     boolean existsByNumeroSerie(String numeroSerie);
 
+    // Import en masse : contrôle d'unicité en mémoire
+    @Query("SELECT c.numeroSerie FROM Capteur c WHERE c.numeroSerie IS NOT NULL")
+    List<String> findNumerosSerie();
+
     // Recherche géographique
     @Query("SELECT c FROM Capteur c WHERE c.latitude BETWEEN :latMin AND :latMax AND c.longitude BETWEEN :lonMin AND :lonMax")
     List<Capteur> findByZoneGeographique(@Param("latMin") Double latMin,
@@ -55,4 +63,19 @@ public interface CapteurRepository extends JpaRepository<Capteur, Long> {
 
     @Query("SELECT c.statut, COUNT(c) FROM Capteur c GROUP BY c.statut")
     List<Object[]> countByStatut();
+
+    // Surveillance des battements : seuls l'identifiant et la fréquence des capteurs actifs sont lus
+    @Query("SELECT c.idCapteur, c.frequenceMesure FROM Capteur c WHERE c.statut = 'ACTIF'")
+    List<Object[]> findFrequencesCapteursActifs();
+
+    @Modifying
+    @Query("UPDATE Capteur c SET c.statut = 'DEFAILLANT', c.dateModification = CURRENT_TIMESTAMP " +
+            "WHERE c.idCapteur = :idCapteur AND c.statut = 'ACTIF' AND NOT EXISTS " +
+            "(SELECT 1 FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte >= :limite)")
+    int marquerDefaillant(@Param("idCapteur") Long idCapteur, @Param("limite") LocalDateTime limite);
+
+    @Modifying
+    @Query("UPDATE Capteur c SET c.statut = 'ACTIF', c.dateModification = CURRENT_TIMESTAMP " +
+            "WHERE c.idCapteur = :idCapteur AND c.statut = 'DEFAILLANT'")
+    int retablirActif(@Param("idCapteur") Long idCapteur);
 }
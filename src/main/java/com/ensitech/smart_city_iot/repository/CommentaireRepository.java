@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
@@ -23,6 +24,8 @@ public interface CommentaireRepository extends JpaRepository<Commentaire, Long>
 
     List<Commentaire> findByCitoyenAndActif(Citoyen citoyen, Boolean actif);
 
+    List<Commentaire> findByCitoyenIdUtilisateurAndActif(Long idCitoyen, Boolean actif);
+
     Page<Commentaire> findByCitoyen(Citoyen citoyen, Pageable pageable);
 
     // Recherche par statut
@@ -48,16 +51,38 @@ public interface CommentaireRepository extends JpaRepository<Commentaire, Long>
     List<Commentaire> findRecentCommentaires(@Param("dateDebut") LocalDateTime dateDebut);
 
     // Recherche par popularité
-    @Query("SELECT c FROM Commentaire c WHERE c.actif = true ORDER BY (c.nombreLikes - c.nombreDislikes) DESC")
+    @Query("SELECT c FROM Commentaire c LEFT JOIN FETCH c.citoyen WHERE c.actif = true ORDER BY c.score DESC, c.idCommentaire DESC")
     List<Commentaire> findMostPopular(Pageable pageable);
 
+    @Query("SELECT c FROM Commentaire c LEFT JOIN FETCH c.citoyen WHERE c.actif = true AND c.sujet = :sujet " +
+            "ORDER BY c.score DESC, c.idCommentaire DESC")
+    List<Commentaire> findMostPopularBySujet(@Param("sujet") String sujet, Pageable pageable);
+
+    // Classement en mémoire (ClassementCommentaires) : {id, score} par index (actif, score) et (sujet, actif, score)
+    @Query("SELECT c.idCommentaire, c.score FROM Commentaire c WHERE c.actif = true ORDER BY c.score DESC, c.idCommentaire DESC")
+    List<Object[]> findScoresPopulaires(Pageable pageable);
+
+    @Query("SELECT c.idCommentaire, c.score FROM Commentaire c WHERE c.actif = true AND c.sujet = :sujet " +
+            "ORDER BY c.score DESC, c.idCommentaire DESC")
+    List<Object[]> findScoresPopulairesBySujet(@Param("sujet") String sujet, Pageable pageable);
+
+    @Query("SELECT c.idCommentaire, c.sujet, c.score, c.actif FROM Commentaire c WHERE c.idCommentaire IN :ids")
+    List<Object[]> findClassementByIds(@Param("ids") List<Long> ids);
+
     @Query("SELECT c FROM Commentaire c WHERE c.actif = true ORDER BY c.nombreLikes DESC")
     List<Commentaire> findMostLiked(Pageable pageable);
 
-    // Recherche textuelle
-    @Query("SELECT c FROM Commentaire c WHERE (LOWER(c.titre) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "LOWER(c.contenu) LIKE LOWER(CONCAT('%', :search, '%'))) AND c.actif = true")
-    List<Commentaire> findByTitreOrContenuContaining(@Param("search") String search);
+    // Recherche textuelle : index FULLTEXT sur texte_recherche, requête produite par TexteRecherche.requeteBooleenne
+    @Query(value = "SELECT c.id_commentaire AS id, MATCH(c.texte_recherche) AGAINST (:requete IN BOOLEAN MODE) AS pertinence " +
+            "FROM commentaire c WHERE c.actif = true AND MATCH(c.texte_recherche) AGAINST (:requete IN BOOLEAN MODE) " +
+            "ORDER BY pertinence DESC, c.id_commentaire DESC",
+            countQuery = "SELECT COUNT(*) FROM commentaire c " +
+                    "WHERE c.actif = true AND MATCH(c.texte_recherche) AGAINST (:requete IN BOOLEAN MODE)",
+            nativeQuery = true)
+    Page<ResultatRecherche> rechercherTexte(@Param("requete") String requete, Pageable pageable);
+
+    @Query("SELECT c FROM Commentaire c LEFT JOIN FETCH c.citoyen WHERE c.idCommentaire IN :ids")
+    List<Commentaire> findAllWithCitoyenByIds(@Param("ids") List<Long> ids);
 
     // Statistiques
     @Query("SELECT COUNT(c) FROM Commentaire c WHERE c.citoyen.idUtilisateur = :idCitoyen")
@@ -69,26 +94,9 @@ public interface CommentaireRepository extends JpaRepository<Commentaire, Long>
     @Query("SELECT AVG(c.noteEvaluation) FROM Commentaire c WHERE c.noteEvaluation IS NOT NULL AND c.actif = true")
     Double getAverageNote();
 
-    // Gestion des likes/dislikes
-    @Transactional
-    @Modifying
-    @Query("UPDATE Commentaire c SET c.nombreLikes = c.nombreLikes + 1 WHERE c.idCommentaire = :id")
-    void incrementLikes(@Param("id") Long id);
-
-    @Transactional
-    @Modifying
-    @Query("UPDATE Commentaire c SET c.nombreDislikes = c.nombreDislikes + 1 WHERE c.idCommentaire = :id")
-    void incrementDislikes(@Param("id") Long id);
-
-    @Transactional
-    @Modifying
-    @Query("UPDATE Commentaire c SET c.nombreLikes = GREATEST(0, c.nombreLikes - 1) WHERE c.idCommentaire = :id")
-    void decrementLikes(@Param("id") Long id);
-
-    @Transactional
-    @Modifying
-    @Query("UPDATE Commentaire c SET c.nombreDislikes = GREATEST(0, c.nombreDislikes - 1) WHERE c.idCommentaire = :id")
-    void decrementDislikes(@Param("id") Long id);
+    // Gestion des likes/dislikes : compteurs écrits par CompteursInteractions
+    @Query("SELECT c.actif FROM Commentaire c WHERE c.idCommentaire = :id")
+    Optional<Boolean> findActifById(@Param("id") Long id);
 
     // Suppression logique
     @Transactional
@@ -101,11 +109,14 @@ public interface CommentaireRepository extends JpaRepository<Commentaire, Long>
     @Query("UPDATE Commentaire c SET c.actif = false WHERE c.citoyen.idUtilisateur = :idCitoyen")
     void softDeleteByCitoyen(@Param("idCitoyen") Long idCitoyen);
 
-    // Modération
-    @Query("SELECT c FROM Commentaire c WHERE c.nombreDislikes > :seuil AND c.actif = true")
-    List<Commentaire> findCommentairesAModerer(@Param("seuil") Integer seuil);
+    // Modération : file des commentaires signalés à l'écriture, par l'index (signale, actif, score_moderation)
+    @Query(value = "SELECT c FROM Commentaire c LEFT JOIN FETCH c.citoyen WHERE c.signale = true AND c.actif = true " +
+            "ORDER BY c.scoreModeration DESC",
+            countQuery = "SELECT COUNT(c) FROM Commentaire c WHERE c.signale = true AND c.actif = true")
+    Page<Commentaire> findCommentairesAModerer(Pageable pageable);
 
-    @Query("SELECT c FROM Commentaire c WHERE c.actif = true AND " +
-            "(LOWER(c.contenu) LIKE '%spam%' OR LOWER(c.contenu) LIKE '%inapproprie%')")
-    List<Commentaire> findPotentialSpam();
+    @Transactional
+    @Modifying
+    @Query("UPDATE Commentaire c SET c.signale = false WHERE c.idCommentaire = :id")
+    int validerModeration(@Param("id") Long id);
 }
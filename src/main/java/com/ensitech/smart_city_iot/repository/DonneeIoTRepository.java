@@ -2,15 +2,20 @@ package com.ensitech.smart_city_iot.repository;
 
 import com.ensitech.smart_city_iot.entity.Capteur;
 import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface DonneeIoTRepository extends JpaRepository<DonneeIoT, Long> {
@@ -30,11 +35,70 @@ public interface DonneeIoTRepository extends JpaRepository<DonneeIoT, Long> {
     // Recherche par période
     List<DonneeIoT> findByTimestampCollecteBetween(LocalDateTime debut, LocalDateTime fin);
 
+    List<DonneeIoT> findByStatutDonneeAndTimestampCollecteBetween(String statutDonnee, LocalDateTime debut, LocalDateTime fin);
+
+    // Estimation du volume d'un rapport (index statut_donnee, timestamp_collecte)
+    @Query("SELECT COUNT(d) FROM DonneeIoT d, Rapport r WHERE r.idRapport = :idRapport " +
+            "AND d.statutDonnee = 'VALIDE' AND d.timestampCollecte BETWEEN r.periodeDebut AND r.periodeFin")
+    long countPourRapport(@Param("idRapport") Long idRapport);
+
+    // Empreinte par jour {jour, nombre, id max, somme des id} : les données ne sont plus modifiées après insertion,
+    // toute insertion, suppression ou changement de statut change l'empreinte du jour
+    @Query("SELECT CAST(d.timestampCollecte AS LocalDate), COUNT(d), MAX(d.idDonneeIoT), SUM(d.idDonneeIoT) " +
+            "FROM DonneeIoT d WHERE d.statutDonnee = :statut " +
+            "AND d.timestampCollecte >= :debut AND d.timestampCollecte < :fin " +
+            "GROUP BY CAST(d.timestampCollecte AS LocalDate)")
+    List<Object[]> findEmpreintesParJour(@Param("statut") String statut,
+                                         @Param("debut") LocalDateTime debut,
+                                         @Param("fin") LocalDateTime fin);
+
+    // Parcours en flux d'une tranche [debut, fin[ : à consommer dans une transaction puis fermer.
+    // Taille de lot Integer.MIN_VALUE : le pilote MySQL lit les lignes une à une sans les charger toutes,
+    // la connexion ne doit servir à aucune autre requête tant que le flux est ouvert
+    @Query("SELECT d FROM DonneeIoT d JOIN FETCH d.capteur " +
+            "WHERE d.statutDonnee = :statut AND d.timestampCollecte >= :debut AND d.timestampCollecte < :fin " +
+            "ORDER BY d.timestampCollecte ASC, d.idDonneeIoT ASC")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<DonneeIoT> streamByStatutAndIntervalle(@Param("statut") String statut,
+                                                  @Param("debut") LocalDateTime debut,
+                                                  @Param("fin") LocalDateTime fin);
+
+    // Valeurs texte {nom du capteur, ville, région, pays, source} d'un intervalle [debut, fin[ : dictionnaires de l'export Arrow.
+    // Comparaison binaire : la collation par défaut confondrait "Paris" et "paris" en une seule valeur (octets UTF-8)
+    @Query(value = "SELECT DISTINCT CAST(c.nom_capteur AS BINARY), CAST(d.ville_nom AS BINARY), CAST(d.region AS BINARY), " +
+            "CAST(d.pays AS BINARY), CAST(d.source_api AS BINARY) FROM donnee_iot d JOIN capteur c ON c.id_capteur = d.id_capteur " +
+            "WHERE d.statut_donnee = :statut AND d.timestamp_collecte >= :debut AND d.timestamp_collecte < :fin",
+            nativeQuery = true)
+    List<Object[]> findValeursTexteDistinctes(@Param("statut") String statut,
+                                              @Param("debut") LocalDateTime debut,
+                                              @Param("fin") LocalDateTime fin);
+
+    // Premières données de la période (échantillon des rapports)
+    @Query("SELECT d FROM DonneeIoT d JOIN FETCH d.capteur " +
+            "WHERE d.statutDonnee = :statut AND d.timestampCollecte BETWEEN :debut AND :fin " +
+            "ORDER BY d.timestampCollecte ASC, d.idDonneeIoT ASC")
+    List<DonneeIoT> findEchantillon(@Param("statut") String statut,
+                                    @Param("debut") LocalDateTime debut,
+                                    @Param("fin") LocalDateTime fin,
+                                    Pageable pageable);
+
     @Query("SELECT d FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte BETWEEN :debut AND :fin ORDER BY d.timestampCollecte DESC")
     List<DonneeIoT> findByCapteurAndPeriode(@Param("idCapteur") Long idCapteur,
                                             @Param("debut") LocalDateTime debut,
                                             @Param("fin") LocalDateTime fin);
 
+    @Query("SELECT d FROM DonneeIoT d WHERE d.capteur.idCapteur IN :idCapteurs " +
+            "AND d.statutDonnee <> 'INVALIDE' " +
+            "AND d.timestampCollecte >= :debut AND d.timestampCollecte < :fin " +
+            "ORDER BY d.timestampCollecte ASC, d.idDonneeIoT ASC")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    List<DonneeIoT> findByCapteursAndIntervalle(@Param("idCapteurs") Collection<Long> idCapteurs,
+                                                @Param("debut") LocalDateTime debut,
+                                                @Param("fin") LocalDateTime fin);
+
     // Recherche par ville/région
     List<DonneeIoT> findByVilleNom(String villeNom);
 
@@ -47,27 +111,31 @@ public interface DonneeIoTRepository extends JpaRepository<DonneeIoT, Long> {
     @Query("SELECT d FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur ORDER BY d.timestampCollecte DESC")
     List<DonneeIoT> findLatestByCapteur(@Param("idCapteur") Long idCapteur, Pageable pageable);
 
+    // Dernière mesure ingérée par n'importe quelle instance (index id_capteur, timestamp_collecte)
+    @Query("SELECT MAX(d.timestampCollecte) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur")
+    LocalDateTime findDerniereCollecte(@Param("idCapteur") Long idCapteur);
+
     // Statistiques
     @Query("SELECT COUNT(d) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur")
     Long countByCapteur(@Param("idCapteur") Long idCapteur);
 
-    @Query("SELECT AVG(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte BETWEEN :debut AND :fin")
+    @Query("SELECT AVG(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.statutDonnee = 'VALIDE' AND d.timestampCollecte BETWEEN :debut AND :fin")
     Double getAverageTemperatureByCapteurAndPeriode(@Param("idCapteur") Long idCapteur,
                                                     @Param("debut") LocalDateTime debut,
                                                     @Param("fin") LocalDateTime fin);
 
-    @Query("SELECT MAX(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte BETWEEN :debut AND :fin")
+    @Query("SELECT MAX(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.statutDonnee = 'VALIDE' AND d.timestampCollecte BETWEEN :debut AND :fin")
     Double getMaxTemperatureByCapteurAndPeriode(@Param("idCapteur") Long idCapteur,
                                                 @Param("debut") LocalDateTime debut,
                                                 @Param("fin") LocalDateTime fin);
 
-    @Query("SELECT MIN(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte BETWEEN :debut AND :fin")
+    @Query("SELECT MIN(d.temperatureCelsius) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.statutDonnee = 'VALIDE' AND d.timestampCollecte BETWEEN :debut AND :fin")
     Double getMinTemperatureByCapteurAndPeriode(@Param("idCapteur") Long idCapteur,
                                                 @Param("debut") LocalDateTime debut,
                                                 @Param("fin") LocalDateTime fin);
 
     // Qualité de l'air
-    @Query("SELECT AVG(d.co) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.timestampCollecte BETWEEN :debut AND :fin")
+    @Query("SELECT AVG(d.co) FROM DonneeIoT d WHERE d.capteur.idCapteur = :idCapteur AND d.statutDonnee = 'VALIDE' AND d.timestampCollecte BETWEEN :debut AND :fin")
     Double getAverageCOByCapteurAndPeriode(@Param("idCapteur") Long idCapteur,
                                            @Param("debut") LocalDateTime debut,
                                            @Param("fin") LocalDateTime fin);
@@ -0,0 +1,21 @@
+package com.ensitech.smart_city_iot.repository;
+
+/**
+ * Projection de connexion et de vérification de propriétaire : colonnes de la seule table utilisateur,
+ * type lu dans la colonne discriminante, sans jointure vers les tables filles ni les permissions
+ */
+public interface IdentiteUtilisateur {
+    Long getIdUtilisateur();
+
+    String getEmail();
+
+    String getMotDePasse();
+
+    Boolean getActif();
+
+    String getTypeUtilisateur();
+
+    default boolean isActif() {
+        return getActif() != null && getActif();
+    }
+}
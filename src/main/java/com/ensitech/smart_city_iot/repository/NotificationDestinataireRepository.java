@@ -0,0 +1,29 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.NotificationDestinataire;
+import com.ensitech.smart_city_iot.entity.NotificationDestinataireId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface NotificationDestinataireRepository extends JpaRepository<NotificationDestinataire, NotificationDestinataireId> {
+
+    @Query("SELECT COUNT(d) FROM NotificationDestinataire d WHERE d.id.idUtilisateur = :idUtilisateur AND d.lu = false")
+    long countNonLues(@Param("idUtilisateur") Long idUtilisateur);
+
+    @Modifying
+    @Query("UPDATE NotificationDestinataire d SET d.lu = true, d.dateLecture = :date " +
+            "WHERE d.id.idNotification = :idNotification AND d.id.idUtilisateur = :idUtilisateur AND d.lu = false")
+    int marquerCommeLue(@Param("idNotification") Long idNotification,
+                        @Param("idUtilisateur") Long idUtilisateur,
+                        @Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query("UPDATE NotificationDestinataire d SET d.lu = true, d.dateLecture = :date " +
+            "WHERE d.id.idUtilisateur = :idUtilisateur AND d.lu = false")
+    int marquerToutesCommeLues(@Param("idUtilisateur") Long idUtilisateur,
+                               @Param("date") LocalDateTime date);
+}
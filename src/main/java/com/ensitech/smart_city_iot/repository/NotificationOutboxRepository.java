@@ -0,0 +1,52 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.NotificationOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    // Lot à traiter : les lignes déjà verrouillées par un autre worker sont ignorées (SKIP LOCKED)
+    // et les notifications dont le fan-out est en cours attendent la fin de la diffusion
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM NotificationOutbox o WHERE o.typeNotification = :type AND o.statut = 'EN_ATTENTE' " +
+            "AND o.prochaineTentative <= :maintenant " +
+            "AND EXISTS (SELECT 1 FROM Notification n WHERE n.idNotification = o.notification.idNotification " +
+            "AND (n.statutDiffusion IS NULL OR n.statutDiffusion = 'TERMINEE')) " +
+            "ORDER BY o.idOutbox")
+    List<NotificationOutbox> findLotAReclamer(@Param("type") String type,
+                                              @Param("maintenant") LocalDateTime maintenant,
+                                              Pageable pageable);
+
+    boolean existsByNotificationIdNotificationAndStatutIn(Long idNotification, Collection<String> statuts);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.statut = :statut, o.dateReclamation = :date WHERE o.idOutbox IN :ids")
+    int mettreAJourStatut(@Param("ids") Collection<Long> ids,
+                          @Param("statut") String statut,
+                          @Param("date") LocalDateTime date);
+
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.statut = 'EN_ATTENTE', o.tentatives = o.tentatives + 1, " +
+            "o.prochaineTentative = :prochaineTentative, o.derniereErreur = :erreur WHERE o.idOutbox = :id")
+    int replanifier(@Param("id") Long id,
+                    @Param("prochaineTentative") LocalDateTime prochaineTentative,
+                    @Param("erreur") String erreur);
+
+    // Réclamations abandonnées (arrêt du worker pendant un lot)
+    @Modifying
+    @Query("UPDATE NotificationOutbox o SET o.statut = 'EN_ATTENTE' WHERE o.statut = 'EN_COURS' AND o.dateReclamation < :limite")
+    int libererReclamationsExpirees(@Param("limite") LocalDateTime limite);
+}
@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
@@ -25,32 +26,48 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     // Recherche par statut
     List<Notification> findByStatut(String statut);
 
+    List<Notification> findByStatutDiffusion(String statutDiffusion);
+
+    @Query("SELECT n.idNotification FROM Notification n WHERE n.statutDiffusion = 'ERREUR' " +
+            "AND n.prochaineDiffusion <= :maintenant")
+    List<Long> findDiffusionsARelancer(@Param("maintenant") LocalDateTime maintenant);
+
     // Recherche par type
     List<Notification> findByTypeNotification(String typeNotification);
 
     // Recherche par statut de lecture
     List<Notification> findByLu(Boolean lu);
 
-    // Recherche par utilisateur et statut de lecture
-    @Query("SELECT n FROM Notification n JOIN n.utilisateurs u WHERE u.idUtilisateur = :idUtilisateur AND n.lu = :lu")
+    // Boîte de réception : notifications de l'utilisateur avec son état de lecture
+    @Query("SELECT n, d.lu FROM Notification n, NotificationDestinataire d " +
+            "WHERE d.id.idNotification = n.idNotification AND d.id.idUtilisateur = :idUtilisateur " +
+            "ORDER BY n.dateCreation DESC")
+    List<Object[]> findBoiteReception(@Param("idUtilisateur") Long idUtilisateur);
+
+    // Recherche par utilisateur et statut de lecture (état propre à chaque destinataire)
+    @Query("SELECT n FROM Notification n, NotificationDestinataire d " +
+            "WHERE d.id.idNotification = n.idNotification AND d.id.idUtilisateur = :idUtilisateur AND d.lu = :lu " +
+            "ORDER BY n.dateCreation DESC")
     List<Notification> findByUtilisateurAndLu(@Param("idUtilisateur") Long idUtilisateur, @Param("lu") Boolean lu);
 
     // Recherche par période
     List<Notification> findByDateCreationBetween(LocalDateTime debut, LocalDateTime fin);
 
-    // Marquer comme lu
-    @Transactional
-    @Modifying
-    @Query("UPDATE Notification n SET n.lu = true WHERE n.idNotification = :id")
-    void marquerCommeLu(@Param("id") Long id);
-
     // Marquer comme envoyé
     @Transactional
     @Modifying
     @Query("UPDATE Notification n SET n.statut = 'ENVOYE', n.dateEnvoi = :dateEnvoi WHERE n.idNotification = :id")
     void marquerCommeEnvoye(@Param("id") Long id, @Param("dateEnvoi") LocalDateTime dateEnvoi);
 
-    // Notifications non lues par utilisateur
-    @Query("SELECT COUNT(n) FROM Notification n JOIN n.utilisateurs u WHERE u.idUtilisateur = :idUtilisateur AND n.lu = false")
-    Long countNonLuesByUtilisateur(@Param("idUtilisateur") Long idUtilisateur);
+    // Mise à jour d'un lot d'envoi en une seule requête
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notification n SET n.statut = :statut, n.dateEnvoi = :dateEnvoi WHERE n.idNotification IN :ids")
+    int mettreAJourStatutLot(@Param("ids") Collection<Long> ids,
+                             @Param("statut") String statut,
+                             @Param("dateEnvoi") LocalDateTime dateEnvoi);
+
+    @Query("SELECT n.idNotification, COUNT(u) FROM Notification n JOIN n.utilisateurs u " +
+            "WHERE n.idNotification IN :ids GROUP BY n.idNotification")
+    List<Object[]> countDestinatairesParNotification(@Param("ids") Collection<Long> ids);
 }
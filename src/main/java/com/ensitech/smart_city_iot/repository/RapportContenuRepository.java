@@ -0,0 +1,9 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.RapportContenu;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RapportContenuRepository extends JpaRepository<RapportContenu, Long> {
+}
@@ -0,0 +1,63 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.RapportJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RapportJobRepository extends JpaRepository<RapportJob, Long> {
+
+    Optional<RapportJob> findByRapportIdRapport(Long idRapport);
+
+    @Query("SELECT j FROM RapportJob j JOIN FETCH j.rapport WHERE j.etat = 'EN_ATTENTE' " +
+            "ORDER BY j.dateSoumission ASC, j.idJob ASC")
+    List<RapportJob> findEnAttente(Pageable pageable);
+
+    @Query("SELECT j FROM RapportJob j JOIN FETCH j.rapport WHERE j.etat = 'EN_ATTENTE' AND j.cleGroupe = :cle " +
+            "ORDER BY j.dateSoumission ASC, j.idJob ASC")
+    List<RapportJob> findEnAttenteByCleGroupe(@Param("cle") String cleGroupe);
+
+    // Réclamation conditionnelle : une seule exécution par job
+    @Transactional
+    @Modifying
+    @Query("UPDATE RapportJob j SET j.etat = 'EN_EXECUTION', j.dateDebut = :date, j.dateFin = null, " +
+            "j.nombreDonneesTraitees = 0, j.derniereErreur = null WHERE j.idJob = :id AND j.etat = 'EN_ATTENTE'")
+    int reclamer(@Param("id") Long idJob, @Param("date") LocalDateTime date);
+
+    // Hors de la transaction de génération, pour être visible pendant celle-ci
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE RapportJob j SET j.nombreDonneesEstimees = :estimees WHERE j.idJob = :id")
+    void enregistrerEstimation(@Param("id") Long idJob, @Param("estimees") Long estimees);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query("UPDATE RapportJob j SET j.nombreDonneesTraitees = :traitees WHERE j.idJob = :id")
+    void enregistrerProgression(@Param("id") Long idJob, @Param("traitees") Long traitees);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RapportJob j SET j.etat = :etat, j.dateFin = :date, j.nombreDonneesTraitees = :traitees, " +
+            "j.derniereErreur = :erreur WHERE j.idJob = :id")
+    void terminer(@Param("id") Long idJob,
+                  @Param("etat") String etat,
+                  @Param("date") LocalDateTime date,
+                  @Param("traitees") Long traitees,
+                  @Param("erreur") String erreur);
+
+    // Jobs interrompus par un arrêt de l'application
+    @Transactional
+    @Modifying
+    @Query("UPDATE RapportJob j SET j.etat = 'EN_ATTENTE', j.dateDebut = null WHERE j.etat = 'EN_EXECUTION'")
+    int remettreEnAttente();
+}
@@ -0,0 +1,24 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.RapportRecurrent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RapportRecurrentRepository extends JpaRepository<RapportRecurrent, Long> {
+
+    // Verrouillées jusqu'au commit : une échéance n'est traitée qu'une fois, même avec plusieurs instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM RapportRecurrent r JOIN FETCH r.chercheur " +
+            "WHERE r.actif = true AND r.prochaineExecution <= :maintenant ORDER BY r.prochaineExecution ASC")
+    List<RapportRecurrent> findAEcheance(@Param("maintenant") LocalDateTime maintenant);
+
+    List<RapportRecurrent> findByChercheurIdUtilisateur(Long idChercheur);
+}
@@ -4,17 +4,60 @@ import com.ensitech.smart_city_iot.entity.Chercheur;
 import com.ensitech.smart_city_iot.entity.Rapport;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RapportRepository extends JpaRepository<Rapport, Long> {
 
+    // Listes : projection de la ligne rapport et du chercheur en une requête, sans contenu
+    String SELECT_RESUME = "SELECT r.idRapport AS idRapport, r.nomRapport AS nomRapport, r.description AS description, " +
+            "r.dateCreation AS dateCreation, r.periodeDebut AS periodeDebut, r.periodeFin AS periodeFin, " +
+            "r.typeRapport AS typeRapport, r.formatFichier AS formatFichier, r.tailleFichier AS tailleFichier, " +
+            "r.statut AS statut, r.nombreDonnees AS nombreDonnees, r.cheminFichier AS cheminFichier, " +
+            "r.resumeContenu AS resumeContenu, c.idUtilisateur AS idChercheur, c.prenom AS prenomChercheur, " +
+            "c.nom AS nomChercheur, c.email AS emailChercheur, c.institut AS institutChercheur, " +
+            "c.domaineRecherche AS domaineRecherche " +
+            "FROM Rapport r JOIN r.chercheur c ";
+
+    @Query(SELECT_RESUME)
+    List<RapportResume> findAllResumes();
+
+    // Génération hors transaction : le chercheur figure dans l'en-tête du rapport
+    @EntityGraph(attributePaths = "chercheur")
+    @Query("SELECT r FROM Rapport r WHERE r.idRapport = :id")
+    Optional<Rapport> findAvecChercheurById(@Param("id") Long id);
+
+    @Query(value = SELECT_RESUME, countQuery = "SELECT COUNT(r) FROM Rapport r")
+    Page<RapportResume> findAllResumes(Pageable pageable);
+
+    @Query(SELECT_RESUME + "WHERE c.idUtilisateur = :idChercheur")
+    List<RapportResume> findResumesByChercheur(@Param("idChercheur") Long idChercheur);
+
+    @Query(SELECT_RESUME + "WHERE r.statut = :statut")
+    List<RapportResume> findResumesByStatut(@Param("statut") String statut);
+
+    @Query(SELECT_RESUME + "WHERE r.typeRapport = :typeRapport")
+    List<RapportResume> findResumesByTypeRapport(@Param("typeRapport") String typeRapport);
+
+    @Query(SELECT_RESUME + "WHERE r.dateCreation >= :dateDebut ORDER BY r.dateCreation DESC")
+    List<RapportResume> findResumesRecents(@Param("dateDebut") LocalDateTime dateDebut);
+
+    @Query(SELECT_RESUME + "WHERE r.periodeDebut >= :debut AND r.periodeFin <= :fin")
+    List<RapportResume> findResumesByPeriodeAnalyse(@Param("debut") LocalDateTime debut, @Param("fin") LocalDateTime fin);
+
+    @Query(SELECT_RESUME + "WHERE r.idRapport IN :ids")
+    List<RapportResume> findResumesByIds(@Param("ids") List<Long> ids);
+
     // Recherche par chercheur
     List<Rapport> findByChercheur(Chercheur chercheur);
 
@@ -69,10 +112,13 @@ public interface RapportRepository extends JpaRepository<Rapport, Long> {
     @Query("SELECT SUM(r.tailleFichier) FROM Rapport r WHERE r.chercheur.idUtilisateur = :idChercheur")
     Long getTailleTotaleByChercheur(@Param("idChercheur") Long idChercheur);
 
-    // Recherche textuelle
-    @Query("SELECT r FROM Rapport r WHERE LOWER(r.nomRapport) LIKE LOWER(CONCAT('%', :search, '%')) OR " +
-            "LOWER(r.description) LIKE LOWER(CONCAT('%', :search, '%'))")
-    List<Rapport> findByNomOrDescriptionContaining(@Param("search") String search);
+    // Recherche textuelle : index FULLTEXT sur texte_recherche, requête produite par TexteRecherche.requeteBooleenne
+    @Query(value = "SELECT r.id_rapport AS id, MATCH(r.texte_recherche) AGAINST (:requete IN BOOLEAN MODE) AS pertinence " +
+            "FROM rapport r WHERE MATCH(r.texte_recherche) AGAINST (:requete IN BOOLEAN MODE) " +
+            "ORDER BY pertinence DESC, r.id_rapport DESC",
+            countQuery = "SELECT COUNT(*) FROM rapport r WHERE MATCH(r.texte_recherche) AGAINST (:requete IN BOOLEAN MODE)",
+            nativeQuery = true)
+    Page<ResultatRecherche> rechercherTexte(@Param("requete") String requete, Pageable pageable);
 
     // Rapports les plus volumineux
     @Query("SELECT r FROM Rapport r WHERE r.statut = 'TERMINE' ORDER BY r.tailleFichier DESC")
@@ -89,4 +135,9 @@ public interface RapportRepository extends JpaRepository<Rapport, Long> {
     @Query("SELECT COUNT(r) > 0 FROM Rapport r WHERE r.nomRapport = :nomRapport AND " +
             "r.chercheur.idUtilisateur = :idChercheur AND r.statut = 'EN_COURS'")
     boolean existsRapportEnCoursByNomAndChercheur(@Param("nomRapport") String nomRapport, @Param("idChercheur") Long idChercheur);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Rapport r SET r.statut = 'ERREUR' WHERE r.idRapport = :id")
+    void marquerEnErreur(@Param("id") Long idRapport);
 }
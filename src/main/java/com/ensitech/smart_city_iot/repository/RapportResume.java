@@ -0,0 +1,47 @@
+package com.ensitech.smart_city_iot.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection des listes de rapports : colonnes de la ligne rapport et du chercheur,
+ * lues en une requête avec jointure, sans contenu
+ */
+public interface RapportResume {
+    Long getIdRapport();
+
+    String getNomRapport();
+
+    String getDescription();
+
+    LocalDateTime getDateCreation();
+
+    LocalDateTime getPeriodeDebut();
+
+    LocalDateTime getPeriodeFin();
+
+    String getTypeRapport();
+
+    String getFormatFichier();
+
+    Long getTailleFichier();
+
+    String getStatut();
+
+    Long getNombreDonnees();
+
+    String getCheminFichier();
+
+    String getResumeContenu();
+
+    Long getIdChercheur();
+
+    String getPrenomChercheur();
+
+    String getNomChercheur();
+
+    String getEmailChercheur();
+
+    String getInstitutChercheur();
+
+    String getDomaineRecherche();
+}
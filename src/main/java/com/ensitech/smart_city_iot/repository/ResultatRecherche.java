@@ -0,0 +1,10 @@
+package com.ensitech.smart_city_iot.repository;
+
+/**
+ * Ligne d'une recherche FULLTEXT : identifiant et pertinence calculée par MATCH ... AGAINST
+ */
+public interface ResultatRecherche {
+    Long getId();
+
+    Double getPertinence();
+}
@@ -0,0 +1,29 @@
+package com.ensitech.smart_city_iot.repository;
+
+import com.ensitech.smart_city_iot.entity.SketchJournalier;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SketchJournalierRepository extends JpaRepository<SketchJournalier, Long> {
+
+    // Ligne verrouillée le temps de la fusion : plusieurs instances peuvent vider leurs sketchs en parallèle
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SketchJournalier s WHERE s.idCapteur = :idCapteur AND s.jour = :jour")
+    Optional<SketchJournalier> findPourFusion(@Param("idCapteur") Long idCapteur, @Param("jour") LocalDate jour);
+
+    List<SketchJournalier> findByIdCapteurAndJourBetweenOrderByJour(Long idCapteur, LocalDate debut, LocalDate fin);
+
+    @Modifying
+    @Query("DELETE FROM SketchJournalier s WHERE s.jour = :jour")
+    int supprimerJour(@Param("jour") LocalDate jour);
+}
@@ -1,6 +1,7 @@
 package com.ensitech.smart_city_iot.repository;
 
 import com.ensitech.smart_city_iot.entity.*;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -15,6 +16,27 @@ import java.util.Optional;
 public interface UtilisateurRepository extends JpaRepository<Utilisateur, Long> {
     Utilisateur findByEmail(String email);
 
+    String SELECT_IDENTITE = "SELECT id_utilisateur AS idUtilisateur, email, mot_de_passe AS motDePasse, " +
+            "actif, type_utilisateur AS typeUtilisateur FROM utilisateur ";
+
+    @Query(value = SELECT_IDENTITE + "WHERE email = :email", nativeQuery = true)
+    Optional<IdentiteUtilisateur> findIdentiteByEmail(@Param("email") String email);
+
+    @Query(value = SELECT_IDENTITE + "WHERE id_utilisateur = :id", nativeQuery = true)
+    Optional<IdentiteUtilisateur> findIdentiteById(@Param("id") Long id);
+
+    // Utilisateur complet avec ses permissions, pour ResponseUtilisateurDTO
+    @EntityGraph(attributePaths = "permissions")
+    @Query("SELECT u FROM Utilisateur u WHERE u.idUtilisateur = :id")
+    Optional<Utilisateur> findProfilById(@Param("id") Long id);
+
+    // Sous-type connu : jointure de la seule table fille, sans les permissions
+    @Query("SELECT c FROM Citoyen c WHERE c.idUtilisateur = :id")
+    Optional<Citoyen> findCitoyenById(@Param("id") Long id);
+
+    @Query("SELECT c FROM Chercheur c WHERE c.idUtilisateur = :id")
+    Optional<Chercheur> findChercheurById(@Param("id") Long id);
+
     List<Utilisateur> findByActif(Boolean actif);
 
     @Query("SELECT u FROM Utilisateur u WHERE TYPE(u) = :type")
@@ -0,0 +1,171 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.entity.SketchJournalier;
+import com.ensitech.smart_city_iot.repository.SketchJournalierRepository;
+import com.ensitech.smart_city_iot.utils.HyperLogLog;
+import com.ensitech.smart_city_iot.utils.SketchesMetriques;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maintien des sketchs journaliers à l'ingestion, en écriture différée : les mesures VALIDE
+ * validées par un commit sont agrégées en mémoire, puis fusionnées périodiquement dans
+ * sketch_journalier (une transaction par ligne). Une fusion en échec est remise en attente.
+ */
+@Component
+@Slf4j
+public class AlimentationSketchs {
+
+    @Autowired
+    private SketchJournalierRepository sketchRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+
+    private final Object verrou = new Object();
+    private Map<CleSketch, SketchesMetriques> parCapteur = new HashMap<>();
+    private Map<LocalDate, SketchsJour> parJour = new HashMap<>();
+
+    @PostConstruct
+    public void initialiser() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        vider();
+    }
+
+    /**
+     * Prise en compte de la mesure après le commit de la transaction qui l'insère
+     */
+    public void enregistrer(DonneeIoT donnee) {
+        if (!"VALIDE".equals(donnee.getStatutDonnee()) || donnee.getTimestampCollecte() == null
+                || donnee.getCapteur() == null || donnee.getCapteur().getIdCapteur() == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ajouter(donnee);
+                }
+            });
+        } else {
+            ajouter(donnee);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sketchs.intervalle-vidage-ms:10000}")
+    public void vider() {
+        Map<CleSketch, SketchesMetriques> capteurs;
+        Map<LocalDate, SketchsJour> jours;
+        synchronized (verrou) {
+            if (parCapteur.isEmpty() && parJour.isEmpty()) {
+                return;
+            }
+            capteurs = parCapteur;
+            jours = parJour;
+            parCapteur = new HashMap<>();
+            parJour = new HashMap<>();
+        }
+
+        int echecs = 0;
+        for (Map.Entry<CleSketch, SketchesMetriques> entree : capteurs.entrySet()) {
+            CleSketch cle = entree.getKey();
+            try {
+                fusionnerLigne(cle.idCapteur(), cle.jour(), entree.getValue(), null, null);
+            } catch (Exception e) {
+                echecs++;
+                synchronized (verrou) {
+                    parCapteur.merge(cle, entree.getValue(), SketchesMetriques::fusionner);
+                }
+            }
+        }
+        for (Map.Entry<LocalDate, SketchsJour> entree : jours.entrySet()) {
+            SketchsJour sketchs = entree.getValue();
+            try {
+                fusionnerLigne(SketchJournalier.ID_GLOBAL, entree.getKey(), sketchs.quantiles, sketchs.villes, sketchs.capteurs);
+            } catch (Exception e) {
+                echecs++;
+                synchronized (verrou) {
+                    parJour.merge(entree.getKey(), sketchs, SketchsJour::fusionner);
+                }
+            }
+        }
+        if (echecs > 0) {
+            log.warn("{} ligne(s) de sketchs non fusionnée(s), nouvelle tentative au prochain vidage", echecs);
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void ajouter(DonneeIoT donnee) {
+        LocalDate jour = donnee.getTimestampCollecte().toLocalDate();
+        Long idCapteur = donnee.getCapteur().getIdCapteur();
+        synchronized (verrou) {
+            parCapteur.computeIfAbsent(new CleSketch(idCapteur, jour), c -> new SketchesMetriques()).ajouter(donnee);
+            parJour.computeIfAbsent(jour, j -> new SketchsJour()).ajouter(idCapteur, donnee);
+        }
+    }
+
+    private void fusionnerLigne(Long idCapteur, LocalDate jour, SketchesMetriques quantiles,
+                                HyperLogLog villes, HyperLogLog capteurs) {
+        transaction.executeWithoutResult(status -> {
+            SketchJournalier ligne = sketchRepository.findPourFusion(idCapteur, jour)
+                    .orElseGet(() -> SketchJournalier.builder().jour(jour).idCapteur(idCapteur).build());
+            SketchesMetriques fusion = SketchesMetriques.depuisOctets(ligne.getQuantiles()).fusionner(quantiles);
+            ligne.setQuantiles(fusion.versOctets());
+            ligne.setNombreDonnees(fusion.getNombreDonnees());
+            if (villes != null) {
+                ligne.setVilles(HyperLogLog.depuisOctets(ligne.getVilles()).fusionner(villes).versOctets());
+            }
+            if (capteurs != null) {
+                ligne.setCapteurs(HyperLogLog.depuisOctets(ligne.getCapteurs()).fusionner(capteurs).versOctets());
+            }
+            sketchRepository.save(ligne);
+        });
+    }
+
+    private record CleSketch(Long idCapteur, LocalDate jour) {
+    }
+
+    /** Sketchs de la ligne globale d'un jour */
+    static final class SketchsJour {
+        final SketchesMetriques quantiles = new SketchesMetriques();
+        final HyperLogLog villes = new HyperLogLog();
+        final HyperLogLog capteurs = new HyperLogLog();
+
+        void ajouter(Long idCapteur, DonneeIoT donnee) {
+            quantiles.ajouter(donnee);
+            capteurs.ajouter(idCapteur);
+            if (donnee.getVilleNom() != null) {
+                villes.ajouter(donnee.getVilleNom());
+            }
+        }
+
+        SketchsJour fusionner(SketchsJour autre) {
+            quantiles.fusionner(autre.quantiles);
+            villes.fusionner(autre.villes);
+            capteurs.fusionner(autre.capteurs);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.alerteDTO.BacktestAlerteDTO;
+import com.ensitech.smart_city_iot.dto.alerteDTO.ResponseBacktestDTO;
+
+public interface BacktestAlerteService {
+    ResponseBacktestDTO backtester(BacktestAlerteDTO dto) throws Exception;
+}
@@ -0,0 +1,345 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.alerteDTO.BacktestAlerteDTO;
+import com.ensitech.smart_city_iot.dto.alerteDTO.ResponseBacktestDTO;
+import com.ensitech.smart_city_iot.entity.Alerte;
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.repository.AlerteRepository;
+import com.ensitech.smart_city_iot.repository.CapteurRepository;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.utils.MetriqueIoT;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+@Service
+@Slf4j
+public class BacktestAlerteServiceImpl implements BacktestAlerteService {
+
+    private static final int MAX_DECLENCHEMENTS_CHRONOLOGIE = 500;
+    private static final long DUREE_MAX_JOURS = 731;
+
+    @Autowired
+    private AlerteRepository alerteRepository;
+
+    @Autowired
+    private CapteurRepository capteurRepository;
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @Value("${alertes.backtest.parallelisme:4}")
+    private int parallelisme;
+
+    @Value("${alertes.backtest.taille-segment-heures:168}")
+    private long tailleSegmentHeures;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void initialiserPool() {
+        pool = new ForkJoinPool(Math.max(1, parallelisme));
+        log.info("Pool de backtest des alertes initialisé (parallélisme: {})", pool.getParallelism());
+    }
+
+    @PreDestroy
+    public void arreterPool() {
+        pool.shutdownNow();
+    }
+
+    /** Rejoue les règles sur la période, segment par segment, et fusionne les chronologies */
+    @Override
+    @Transactional(readOnly = true)
+    public ResponseBacktestDTO backtester(BacktestAlerteDTO dto) throws Exception {
+        validateBacktestData(dto);
+        long debutCalcul = System.currentTimeMillis();
+
+        List<RegleResolue> regles = resoudreRegles(dto.getRegles());
+        Map<Long, int[]> reglesParCapteur = indexerParCapteur(regles);
+
+        List<LocalDateTime> bornes = decouperPeriode(dto.getPeriodeDebut(), dto.getPeriodeFin());
+        log.info("Backtest de {} règle(s) sur {} segment(s) entre {} et {}",
+                regles.size(), bornes.size() - 1, dto.getPeriodeDebut(), dto.getPeriodeFin());
+
+        ResultatSegment resultat = pool.invoke(
+                new SegmentTask(regles, reglesParCapteur, bornes, 0, bornes.size() - 1));
+
+        List<ResponseBacktestDTO.ResultatRegleDTO> resultats = new ArrayList<>(regles.size());
+        for (RegleResolue regle : regles) {
+            int r = regle.index();
+            List<LocalDateTime> declenchements = resultat.declenchements.get(r);
+            resultats.add(ResponseBacktestDTO.ResultatRegleDTO.builder()
+                    .idAlerte(regle.idAlerte())
+                    .titre(regle.titre())
+                    .idCapteur(regle.idCapteur())
+                    .metrique(regle.metrique().getCode())
+                    .seuilValeur(regle.seuil())
+                    .typeCondition(regle.typeCondition())
+                    .nombreMesures(resultat.mesures[r])
+                    .nombreMesuresEnAlerte(resultat.enAlerte[r])
+                    .nombreDeclenchements(resultat.nombreDeclenchements[r])
+                    .premierDeclenchement(declenchements.isEmpty() ? null : declenchements.get(0))
+                    .dernierDeclenchement(resultat.dernierDeclenchement[r])
+                    .declenchements(declenchements)
+                    .chronologieTronquee(resultat.nombreDeclenchements[r] > declenchements.size())
+                    .build());
+        }
+
+        long duree = System.currentTimeMillis() - debutCalcul;
+        log.info("Backtest terminé en {} ms ({} mesures analysées)", duree, resultat.mesuresAnalysees);
+
+        return ResponseBacktestDTO.builder()
+                .periodeDebut(dto.getPeriodeDebut())
+                .periodeFin(dto.getPeriodeFin())
+                .nombreMesuresAnalysees(resultat.mesuresAnalysees)
+                .nombreSegments(bornes.size() - 1)
+                .dureeCalculMs(duree)
+                .resultats(resultats)
+                .build();
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void validateBacktestData(BacktestAlerteDTO dto) throws BusinessException {
+        if (!dto.getPeriodeDebut().isBefore(dto.getPeriodeFin())) {
+            throw new BusinessException("La période de début doit être antérieure à la période de fin");
+        }
+        if (Duration.between(dto.getPeriodeDebut(), dto.getPeriodeFin()).toDays() > DUREE_MAX_JOURS) {
+            throw new BusinessException("La période de backtest ne peut pas dépasser 2 ans");
+        }
+    }
+
+    private List<RegleResolue> resoudreRegles(List<BacktestAlerteDTO.RegleBacktestDTO> reglesDto) throws Exception {
+        List<RegleResolue> regles = new ArrayList<>(reglesDto.size());
+        for (BacktestAlerteDTO.RegleBacktestDTO regleDto : reglesDto) {
+            Long idAlerte = null;
+            String titre = null;
+            Double seuil = regleDto.getSeuilValeur();
+            String typeCondition = regleDto.getTypeCondition();
+            Capteur capteur;
+
+            if (regleDto.getIdAlerte() != null) {
+                Alerte alerte = alerteRepository.findById(regleDto.getIdAlerte())
+                        .orElseThrow(() -> new EntityNotFoundException("Alerte non trouvée avec l'ID: " + regleDto.getIdAlerte()));
+                idAlerte = alerte.getIdAlerte();
+                titre = alerte.getTitre();
+                capteur = alerte.getCapteur();
+                if (seuil == null) {
+                    seuil = alerte.getSeuilValeur();
+                }
+                if (typeCondition == null) {
+                    typeCondition = alerte.getTypeCondition();
+                }
+            } else if (regleDto.getIdCapteur() != null) {
+                capteur = capteurRepository.findById(regleDto.getIdCapteur())
+                        .orElseThrow(() -> new EntityNotFoundException("Capteur non trouvé avec l'ID: " + regleDto.getIdCapteur()));
+            } else {
+                throw new BusinessException("Chaque règle doit référencer une alerte ou un capteur");
+            }
+
+            if (seuil == null || typeCondition == null) {
+                throw new BusinessException("Le seuil et le type de condition sont obligatoires pour chaque règle");
+            }
+
+            MetriqueIoT metrique = MetriqueIoT.pourTypeCapteur(capteur.getTypeCapteur());
+            if (metrique == null) {
+                throw new BusinessException("Le type de capteur " + capteur.getTypeCapteur()
+                        + " n'est pas couvert par les données collectées");
+            }
+
+            regles.add(new RegleResolue(regles.size(), idAlerte, titre, capteur.getIdCapteur(),
+                    metrique, seuil, typeCondition));
+        }
+        return regles;
+    }
+
+    private Map<Long, int[]> indexerParCapteur(List<RegleResolue> regles) {
+        Map<Long, List<Integer>> groupes = new HashMap<>();
+        for (RegleResolue regle : regles) {
+            groupes.computeIfAbsent(regle.idCapteur(), k -> new ArrayList<>()).add(regle.index());
+        }
+        Map<Long, int[]> index = new HashMap<>();
+        groupes.forEach((idCapteur, indices) ->
+                index.put(idCapteur, indices.stream().mapToInt(Integer::intValue).toArray()));
+        return index;
+    }
+
+    private List<LocalDateTime> decouperPeriode(LocalDateTime debut, LocalDateTime fin) {
+        Duration taille = Duration.ofHours(Math.max(1, tailleSegmentHeures));
+        List<LocalDateTime> bornes = new ArrayList<>();
+        LocalDateTime courant = debut;
+        while (courant.isBefore(fin)) {
+            bornes.add(courant);
+            courant = courant.plus(taille);
+        }
+        bornes.add(fin);
+        return bornes;
+    }
+
+    private record RegleResolue(int index, Long idAlerte, String titre, Long idCapteur,
+                                MetriqueIoT metrique, Double seuil, String typeCondition) {
+    }
+
+    /** Découpe récursivement la liste de segments ; chaque feuille interroge sa propre tranche de temps */
+    private class SegmentTask extends RecursiveTask<ResultatSegment> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<RegleResolue> regles;
+        private final Map<Long, int[]> reglesParCapteur;
+        private final List<LocalDateTime> bornes;
+        private final int premier;
+        private final int dernier;
+
+        SegmentTask(List<RegleResolue> regles, Map<Long, int[]> reglesParCapteur,
+                    List<LocalDateTime> bornes, int premier, int dernier) {
+            this.regles = regles;
+            this.reglesParCapteur = reglesParCapteur;
+            this.bornes = bornes;
+            this.premier = premier;
+            this.dernier = dernier;
+        }
+
+        @Override
+        protected ResultatSegment compute() {
+            if (dernier - premier <= 1) {
+                return evaluerSegment(bornes.get(premier), bornes.get(dernier));
+            }
+            int milieu = (premier + dernier) >>> 1;
+            SegmentTask gauche = new SegmentTask(regles, reglesParCapteur, bornes, premier, milieu);
+            SegmentTask droite = new SegmentTask(regles, reglesParCapteur, bornes, milieu, dernier);
+            gauche.fork();
+            ResultatSegment resultatDroite = droite.compute();
+            return gauche.join().fusionner(resultatDroite);
+        }
+
+        private ResultatSegment evaluerSegment(LocalDateTime debut, LocalDateTime fin) {
+            ResultatSegment resultat = new ResultatSegment(regles.size());
+            List<DonneeIoT> donnees = donneeIoTRepository.findByCapteursAndIntervalle(
+                    reglesParCapteur.keySet(), debut, fin);
+
+            for (DonneeIoT donnee : donnees) {
+                int[] indices = reglesParCapteur.get(donnee.getCapteur().getIdCapteur());
+                if (indices == null) {
+                    continue;
+                }
+                resultat.mesuresAnalysees++;
+                for (int r : indices) {
+                    RegleResolue regle = regles.get(r);
+                    Double valeur = regle.metrique().valeur(donnee);
+                    if (valeur != null) {
+                        boolean enAlerte = Alerte.evaluerCondition(regle.typeCondition(), regle.seuil(), valeur);
+                        resultat.enregistrer(r, enAlerte, donnee.getTimestampCollecte());
+                    }
+                }
+            }
+            return resultat;
+        }
+    }
+
+    /**
+     * Chronologie partielle d'un segment. La fusion est associative : un épisode à cheval
+     * sur deux segments n'est compté qu'une fois.
+     */
+    private static final class ResultatSegment {
+        private final long[] mesures;
+        private final long[] enAlerte;
+        private final long[] nombreDeclenchements;
+        private final boolean[] aDesMesures;
+        private final boolean[] premiereEnAlerte;
+        private final boolean[] derniereEnAlerte;
+        private final LocalDateTime[] dernierDeclenchement;
+        private final List<List<LocalDateTime>> declenchements;
+        private long mesuresAnalysees;
+
+        ResultatSegment(int nombreRegles) {
+            mesures = new long[nombreRegles];
+            enAlerte = new long[nombreRegles];
+            nombreDeclenchements = new long[nombreRegles];
+            aDesMesures = new boolean[nombreRegles];
+            premiereEnAlerte = new boolean[nombreRegles];
+            derniereEnAlerte = new boolean[nombreRegles];
+            dernierDeclenchement = new LocalDateTime[nombreRegles];
+            declenchements = new ArrayList<>(nombreRegles);
+            for (int i = 0; i < nombreRegles; i++) {
+                declenchements.add(new ArrayList<>());
+            }
+        }
+
+        void enregistrer(int r, boolean alerte, LocalDateTime timestamp) {
+            if (!aDesMesures[r]) {
+                aDesMesures[r] = true;
+                premiereEnAlerte[r] = alerte;
+            }
+            mesures[r]++;
+            if (alerte) {
+                enAlerte[r]++;
+                if (!derniereEnAlerte[r]) {
+                    ajouterDeclenchement(r, timestamp);
+                }
+            }
+            derniereEnAlerte[r] = alerte;
+        }
+
+        private void ajouterDeclenchement(int r, LocalDateTime timestamp) {
+            nombreDeclenchements[r]++;
+            dernierDeclenchement[r] = timestamp;
+            if (declenchements.get(r).size() < MAX_DECLENCHEMENTS_CHRONOLOGIE) {
+                declenchements.get(r).add(timestamp);
+            }
+        }
+
+        ResultatSegment fusionner(ResultatSegment suivant) {
+            for (int r = 0; r < mesures.length; r++) {
+                List<LocalDateTime> suite = suivant.declenchements.get(r);
+                LocalDateTime dernierSuivant = suivant.dernierDeclenchement[r];
+
+                // L'épisode en cours à la fin de ce segment se prolonge dans le suivant
+                if (aDesMesures[r] && derniereEnAlerte[r] && suivant.aDesMesures[r] && suivant.premiereEnAlerte[r]) {
+                    suivant.nombreDeclenchements[r]--;
+                    suite = suite.subList(1, suite.size());
+                    if (suivant.nombreDeclenchements[r] == 0) {
+                        dernierSuivant = null;
+                    }
+                }
+
+                List<LocalDateTime> chronologie = declenchements.get(r);
+                int place = MAX_DECLENCHEMENTS_CHRONOLOGIE - chronologie.size();
+                if (place > 0 && !suite.isEmpty()) {
+                    chronologie.addAll(suite.subList(0, Math.min(place, suite.size())));
+                }
+
+                mesures[r] += suivant.mesures[r];
+                enAlerte[r] += suivant.enAlerte[r];
+                nombreDeclenchements[r] += suivant.nombreDeclenchements[r];
+                if (dernierSuivant != null) {
+                    dernierDeclenchement[r] = dernierSuivant;
+                }
+                if (!aDesMesures[r]) {
+                    premiereEnAlerte[r] = suivant.premiereEnAlerte[r];
+                }
+                if (suivant.aDesMesures[r]) {
+                    derniereEnAlerte[r] = suivant.derniereEnAlerte[r];
+                    aDesMesures[r] = true;
+                }
+            }
+            mesuresAnalysees += suivant.mesuresAnalysees;
+            return this;
+        }
+    }
+}
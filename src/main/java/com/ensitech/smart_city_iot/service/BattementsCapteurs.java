@@ -0,0 +1,277 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.notificationDTO.CreateNotificationDTO;
+import com.ensitech.smart_city_iot.entity.Alerte;
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.Utilisateur;
+import com.ensitech.smart_city_iot.repository.AlerteRepository;
+import com.ensitech.smart_city_iot.repository.CapteurRepository;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.utils.RoueTemporelle;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Détection des capteurs ACTIF devenus silencieux. Chaque mesure ingérée écrit l'instant du dernier
+ * battement du capteur (un champ volatile, sans verrou ni base). Une roue temporelle tient une seule
+ * échéance par capteur, à dernier battement + multiplicateur × max(frequenceMesure, période de collecte)
+ * + marge : un capteur ne mesure jamais plus souvent que la collecte ne l'interroge. À l'échéance, un
+ * capteur qui a battu entre-temps est simplement replanifié, sinon il passe DEFAILLANT et une alerte
+ * système est levée (notifiée à son responsable). Le coût par vérification est proportionnel aux
+ * échéances atteintes, jamais au nombre de capteurs.
+ * <p>
+ * Un capteur DEFAILLANT reste collecté : sa première mesure le repasse ACTIF et relance son suivi.
+ * <p>
+ * Avec plusieurs instances, chacune ne voit que les mesures de ses partitions Kafka. Une échéance
+ * atteinte sans battement local est donc confirmée par la dernière mesure en base, écrite par
+ * l'instance qui l'a ingérée : si elle est récente, le suivi repart d'elle. Le passage DEFAILLANT
+ * revérifie cette absence dans la même requête conditionnelle, et une seule instance le réussit.
+ * <p>
+ * Au démarrage, les capteurs ACTIF sont suivis à partir de l'instant présent : la collecte étant
+ * arrêtée avec l'application, chacun dispose d'un délai complet avant d'être déclaré défaillant.
+ */
+@Component
+@Slf4j
+public class BattementsCapteurs implements ApplicationRunner {
+
+    static final String CONDITION_SILENCE = "SILENCE";
+
+    @Autowired
+    private CapteurRepository capteurRepository;
+
+    @Autowired
+    private AlerteRepository alerteRepository;
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${capteurs.battements.multiplicateur:3}")
+    private int multiplicateur;
+
+    @Value("${capteurs.battements.frequence-defaut-minutes:15}")
+    private int frequenceDefautMinutes;
+
+    @Value("${donnees.collecte.intervalle-ms:900000}")
+    private long periodeCollecteMs;
+
+    @Value("${capteurs.battements.marge-ms:60000}")
+    private long margeMs;
+
+    @Value("${capteurs.battements.duree-case-ms:10000}")
+    private long dureeCaseMs;
+
+    @Value("${capteurs.battements.nombre-cases:512}")
+    private int nombreCases;
+
+    private TransactionTemplate transaction;
+    private RoueTemporelle<Suivi> roue;
+    private final Map<Long, Suivi> suivis = new ConcurrentHashMap<>();
+
+    private static final class Suivi {
+        private final Long idCapteur;
+        private volatile long dernierBattementMs;
+        private volatile long delaiMs;
+
+        private Suivi(Long idCapteur, long dernierBattementMs, long delaiMs) {
+            this.idCapteur = idCapteur;
+            this.dernierBattementMs = dernierBattementMs;
+            this.delaiMs = delaiMs;
+        }
+
+        private long echeance() {
+            return dernierBattementMs + delaiMs;
+        }
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        roue = new RoueTemporelle<>(nombreCases, dureeCaseMs, System.currentTimeMillis());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long maintenant = System.currentTimeMillis();
+        List<Object[]> actifs = capteurRepository.findFrequencesCapteursActifs();
+        for (Object[] ligne : actifs) {
+            suivre((Long) ligne[0], (Integer) ligne[1], maintenant);
+        }
+        log.info("Battements suivis pour {} capteur(s) actif(s)", actifs.size());
+    }
+
+    /**
+     * Mesure reçue pour le capteur : seul l'instant du dernier battement est écrit. Un capteur
+     * DEFAILLANT est rétabli ACTIF (dans la transaction de l'appelant).
+     */
+    public void battement(Capteur capteur) {
+        if ("DEFAILLANT".equals(capteur.getStatut()) && capteurRepository.retablirActif(capteur.getIdCapteur()) > 0) {
+            // Entité gérée alignée sur la base : un flush ultérieur ne réécrit pas DEFAILLANT
+            capteur.setStatut("ACTIF");
+            log.info("Capteur {} ({}) de nouveau actif après reprise des mesures",
+                    capteur.getNomCapteur(), capteur.getIdCapteur());
+        }
+        Suivi suivi = suivis.get(capteur.getIdCapteur());
+        if (suivi == null) {
+            suivre(capteur.getIdCapteur(), capteur.getFrequenceMesure(), System.currentTimeMillis());
+            return;
+        }
+        suivi.dernierBattementMs = System.currentTimeMillis();
+        suivi.delaiMs = delai(capteur.getFrequenceMesure());
+    }
+
+    /**
+     * Capteur suivi à partir de {@code instantMs} (création, démarrage, première mesure)
+     */
+    public void suivre(Long idCapteur, Integer frequenceMesure, long instantMs) {
+        synchronized (roue) {
+            Suivi suivi = suivis.get(idCapteur);
+            if (suivi != null) {
+                suivi.dernierBattementMs = Math.max(suivi.dernierBattementMs, instantMs);
+                return;
+            }
+            suivi = new Suivi(idCapteur, instantMs, delai(frequenceMesure));
+            suivis.put(idCapteur, suivi);
+            roue.planifier(suivi, suivi.echeance());
+        }
+    }
+
+    /**
+     * Capteurs créés ensemble (import) : tous sont planifiés sous un même verrou
+     */
+    public void suivreLot(Map<Long, Integer> frequencesMesure, long instantMs) {
+        synchronized (roue) {
+            frequencesMesure.forEach((idCapteur, frequenceMesure) -> suivre(idCapteur, frequenceMesure, instantMs));
+        }
+    }
+
+    /**
+     * Capteur supprimé : son échéance éventuelle sera ignorée
+     */
+    public void oublier(Long idCapteur) {
+        suivis.remove(idCapteur);
+    }
+
+    @Scheduled(fixedDelayString = "${capteurs.battements.duree-case-ms:10000}")
+    public void verifier() {
+        long maintenant = System.currentTimeMillis();
+        List<Suivi> echus;
+        synchronized (roue) {
+            echus = roue.avancer(maintenant);
+        }
+        for (Suivi suivi : echus) {
+            if (suivis.get(suivi.idCapteur) != suivi) {
+                continue;
+            }
+            if (suivi.echeance() > maintenant) {
+                replanifier(suivi, suivi.echeance());
+                continue;
+            }
+            try {
+                long derniereCollecte = derniereCollecteMs(suivi.idCapteur);
+                if (derniereCollecte + suivi.delaiMs > maintenant) {
+                    // Mesure ingérée par une autre instance
+                    suivi.dernierBattementMs = Math.max(suivi.dernierBattementMs, derniereCollecte);
+                    replanifier(suivi, suivi.echeance());
+                    continue;
+                }
+                long silenceMs = maintenant - Math.max(suivi.dernierBattementMs, derniereCollecte);
+                suivis.remove(suivi.idCapteur, suivi);
+                declarerDefaillant(suivi.idCapteur, silenceMs, versDate(maintenant - suivi.delaiMs));
+            } catch (Exception e) {
+                log.error("Capteur {} silencieux, déclaration en échec, nouvel essai: {}", suivi.idCapteur, e.getMessage());
+                suivis.putIfAbsent(suivi.idCapteur, suivi);
+                replanifier(suivi, maintenant + dureeCaseMs);
+            }
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void replanifier(Suivi suivi, long echeanceMs) {
+        synchronized (roue) {
+            roue.planifier(suivi, echeanceMs);
+        }
+    }
+
+    private long delai(Integer frequenceMesure) {
+        int minutes = frequenceMesure != null && frequenceMesure > 0 ? frequenceMesure : frequenceDefautMinutes;
+        long periodeMs = Math.max(TimeUnit.MINUTES.toMillis(minutes), periodeCollecteMs);
+        return multiplicateur * periodeMs + margeMs;
+    }
+
+    private long derniereCollecteMs(Long idCapteur) {
+        LocalDateTime derniere = donneeIoTRepository.findDerniereCollecte(idCapteur);
+        return derniere != null ? derniere.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : Long.MIN_VALUE / 2;
+    }
+
+    private static LocalDateTime versDate(long instantMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(instantMs), ZoneId.systemDefault());
+    }
+
+    private void declarerDefaillant(Long idCapteur, long silenceMs, LocalDateTime limite) {
+        transaction.executeWithoutResult(statut -> {
+            // Seul un capteur encore ACTIF et sans mesure depuis la limite bascule : maintenance,
+            // désactivations manuelles et mesures ingérées entre-temps ailleurs sont respectées
+            if (capteurRepository.marquerDefaillant(idCapteur, limite) == 0) {
+                return;
+            }
+            Capteur capteur = capteurRepository.findById(idCapteur).orElse(null);
+            if (capteur == null) {
+                return;
+            }
+            long minutes = TimeUnit.MILLISECONDS.toMinutes(silenceMs);
+            String titre = "Capteur silencieux: " + capteur.getNomCapteur();
+            Alerte alerte = alerteRepository.save(Alerte.builder()
+                    .titre(titre.length() > 100 ? titre.substring(0, 100) : titre)
+                    .description("Aucune mesure depuis " + minutes + " minute(s), capteur passé DEFAILLANT")
+                    .typeCondition(CONDITION_SILENCE)
+                    .priorite("HAUTE")
+                    .active(true)
+                    .capteur(capteur)
+                    .build());
+            log.warn("Capteur {} ({}) silencieux depuis {} minute(s): DEFAILLANT, alerte {}",
+                    capteur.getNomCapteur(), idCapteur, minutes, alerte.getIdAlerte());
+
+            Utilisateur responsable = capteur.getGestionnaireDeVille() != null
+                    ? capteur.getGestionnaireDeVille() : capteur.getAdministrateur();
+            if (responsable == null || !responsable.isActif()) {
+                return;
+            }
+            CreateNotificationDTO notification = new CreateNotificationDTO();
+            notification.setTitre(alerte.getTitre());
+            notification.setMessage(alerte.getDescription());
+            notification.setTypeNotification("SYSTEME");
+            notification.setIdAlerte(alerte.getIdAlerte());
+            notification.setIdUtilisateurs(List.of(responsable.getIdUtilisateur()));
+            try {
+                notificationService.createNotification(notification);
+            } catch (Exception e) {
+                throw new IllegalStateException("Notification du responsable impossible", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,147 @@
+package com.ensitech.smart_city_iot.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Agrégats partiels des rapports, un par jour clos, adressés par leur contenu :
+ * la clé porte la version du format, le jour et l'empreinte des données du jour.
+ * Une entrée n'est donc jamais modifiée ; une empreinte différente produit une nouvelle clé
+ * et remplace sur disque les entrées précédentes du même jour.
+ * Les entrées récentes sont gardées en mémoire (LRU), toutes sont persistées dans des fichiers.
+ */
+@Component
+@Slf4j
+public class CacheAgregatsJournaliers {
+
+    @Value("${rapports.cache.repertoire:rapports/cache}")
+    private String repertoire;
+
+    @Value("${rapports.cache.taille-memoire:512}")
+    private int tailleMemoire;
+
+    private Path dossier;
+    private Map<String, byte[]> memoire;
+
+    @PostConstruct
+    public void initialiser() throws IOException {
+        dossier = Paths.get(repertoire).toAbsolutePath();
+        Files.createDirectories(dossier);
+        memoire = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> plusAncienne) {
+                return size() > tailleMemoire;
+            }
+        };
+    }
+
+    /**
+     * Clé d'un jour : version du format, jour et empreinte (nombre de données, id max, somme des id)
+     */
+    public record Cle(int version, LocalDate jour, long nombre, long idMax, long sommeIds) {
+
+        String prefixeJour() {
+            return "agregats-v" + version + "-" + jour + "-";
+        }
+
+        String nom() {
+            return prefixeJour() + nombre + "-" + idMax + "-" + sommeIds;
+        }
+    }
+
+    public Optional<byte[]> lire(Cle cle) {
+        String nom = cle.nom();
+        synchronized (memoire) {
+            byte[] contenu = memoire.get(nom);
+            if (contenu != null) {
+                return Optional.of(contenu);
+            }
+        }
+
+        Path fichier = dossier.resolve(nom + ".bin");
+        if (!Files.exists(fichier)) {
+            return Optional.empty();
+        }
+        try {
+            byte[] contenu = Files.readAllBytes(fichier);
+            synchronized (memoire) {
+                memoire.put(nom, contenu);
+            }
+            return Optional.of(contenu);
+        } catch (IOException e) {
+            log.warn("Entrée de cache {} illisible: {}", nom, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Enregistre l'entrée puis supprime les entrées du même jour et de même version devenues obsolètes
+     */
+    public void ecrire(Cle cle, byte[] contenu) {
+        String nom = cle.nom();
+        synchronized (memoire) {
+            memoire.put(nom, contenu);
+        }
+
+        Path fichier = dossier.resolve(nom + ".bin");
+        try {
+            Path temporaire = Files.createTempFile(dossier, nom + "-", ".tmp");
+            try {
+                Files.write(temporaire, contenu);
+                Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaire);
+            }
+            supprimerObsoletes(cle);
+        } catch (IOException e) {
+            log.warn("Entrée de cache {} non persistée: {}", nom, e.getMessage());
+        }
+    }
+
+    /**
+     * Entrée illisible (format incompatible, fichier tronqué) : retirée de la mémoire et du disque
+     */
+    public void invalider(Cle cle) {
+        String nom = cle.nom();
+        synchronized (memoire) {
+            memoire.remove(nom);
+        }
+        try {
+            Files.deleteIfExists(dossier.resolve(nom + ".bin"));
+        } catch (IOException e) {
+            log.warn("Entrée de cache {} non supprimée: {}", nom, e.getMessage());
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    /** Les autres empreintes du même jour sont périmées */
+    private void supprimerObsoletes(Cle cle) throws IOException {
+        String nom = cle.nom();
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, cle.prefixeJour() + "*.bin")) {
+            for (Path fichier : fichiers) {
+                String autre = fichier.getFileName().toString();
+                autre = autre.substring(0, autre.length() - ".bin".length());
+                if (!autre.equals(nom)) {
+                    Files.deleteIfExists(fichier);
+                    synchronized (memoire) {
+                        memoire.remove(autre);
+                    }
+                }
+            }
+        }
+    }
+}
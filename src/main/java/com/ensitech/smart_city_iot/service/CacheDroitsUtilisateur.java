@@ -0,0 +1,123 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.Permission;
+import com.ensitech.smart_city_iot.entity.Utilisateur;
+import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
+import com.ensitech.smart_city_iot.utils.Droits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Droits de chaque utilisateur ({@link Droits}) calculés une fois puis servis depuis la mémoire :
+ * une vérification sur une route protégée coûte une lecture de table de hachage et un test de bit.
+ * <p>
+ * Une entrée est invalidée quand les permissions de l'utilisateur changent (après le commit),
+ * à l'expiration de sa première permission et au plus tard après {@code droits.cache.duree-max-ms},
+ * pour suivre les modifications faites directement en base. La connexion la précharge.
+ */
+@Component
+@Slf4j
+public class CacheDroitsUtilisateur {
+
+    @Autowired
+    private UtilisateurRepository utilisateurRepository;
+
+    @Value("${droits.cache.duree-max-ms:300000}")
+    private long dureeMaxMs;
+
+    private final Map<Long, Entree> entrees = new ConcurrentHashMap<>();
+    // Incrémentée à chaque invalidation : un chargement concurrent ne réinsère pas de droits périmés
+    private final AtomicLong generation = new AtomicLong();
+
+    private record Entree(long droits, long valideJusqua) {
+    }
+
+    /**
+     * Droits de l'utilisateur ; seul le premier appel, ou le premier après invalidation, lit la base
+     */
+    public long getDroits(Long idUtilisateur) {
+        Entree entree = entrees.get(idUtilisateur);
+        if (entree != null && System.currentTimeMillis() < entree.valideJusqua()) {
+            return entree.droits();
+        }
+        long generationLue = generation.get();
+        Utilisateur utilisateur = utilisateurRepository.findProfilById(idUtilisateur).orElse(null);
+        if (utilisateur == null) {
+            return Droits.AUCUN;
+        }
+        entree = calculer(utilisateur);
+        if (generation.get() == generationLue) {
+            entrees.put(idUtilisateur, entree);
+        }
+        return entree.droits();
+    }
+
+    /**
+     * À lire avant de charger un utilisateur dont les droits seront passés à {@link #enregistrer}
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Met en cache les droits d'un utilisateur dont les permissions viennent d'être chargées, sauf si
+     * une invalidation a eu lieu depuis {@code generationLue} (chargement concurrent d'une révocation)
+     */
+    public long enregistrer(Utilisateur utilisateur, long generationLue) {
+        Entree entree = calculer(utilisateur);
+        if (generation.get() == generationLue) {
+            entrees.put(utilisateur.getIdUtilisateur(), entree);
+        }
+        return entree.droits();
+    }
+
+    /**
+     * Permissions de l'utilisateur modifiées : entrée retirée après le commit de la transaction en cours
+     */
+    public void invalider(Long idUtilisateur) {
+        apresCommit(() -> {
+            generation.incrementAndGet();
+            entrees.remove(idUtilisateur);
+        });
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private Entree calculer(Utilisateur utilisateur) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        long valideJusqua = System.currentTimeMillis() + dureeMaxMs;
+        for (Permission permission : utilisateur.getPermissions()) {
+            LocalDateTime expiration = permission.getDateExpiration();
+            if (Boolean.TRUE.equals(permission.getActive()) && expiration != null && expiration.isAfter(maintenant)) {
+                valideJusqua = Math.min(valideJusqua,
+                        expiration.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            }
+        }
+        long droits = Droits.calculer(utilisateur, maintenant);
+        log.debug("Droits de l'utilisateur {} calculés: {}", utilisateur.getIdUtilisateur(), Long.toBinaryString(droits));
+        return new Entree(droits, valideJusqua);
+    }
+
+    private static void apresCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,8 +1,10 @@
 package com.ensitech.smart_city_iot.service;
 
 import com.ensitech.smart_city_iot.dto.capteurDTO.CreateCapteurDTO;
+import com.ensitech.smart_city_iot.dto.capteurDTO.ImportCapteursDTO;
 import com.ensitech.smart_city_iot.dto.capteurDTO.ResponseCapteurDTO;
 
+import java.io.InputStream;
 import java.util.List;
 
 
@@ -13,4 +15,5 @@ public interface CapteurService {
     List<ResponseCapteurDTO> getCapteursByGestionnaire(Long idGestionnaire) throws Exception;
     List<ResponseCapteurDTO> getAllCapteurs() throws Exception;
     void deleteCapteur(Long id) throws Exception;
+    ImportCapteursDTO importerCapteurs(InputStream flux, String format) throws Exception;
 }
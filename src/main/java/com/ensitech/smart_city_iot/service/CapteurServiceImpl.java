@@ -1,6 +1,7 @@
 package com.ensitech.smart_city_iot.service;
 
 import com.ensitech.smart_city_iot.dto.capteurDTO.CreateCapteurDTO;
+import com.ensitech.smart_city_iot.dto.capteurDTO.ImportCapteursDTO;
 import com.ensitech.smart_city_iot.dto.capteurDTO.ResponseCapteurDTO;
 import com.ensitech.smart_city_iot.entity.Administrateur;
 import com.ensitech.smart_city_iot.entity.Capteur;
@@ -10,13 +11,40 @@ import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.repository.CapteurRepository;
 import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
+import com.ensitech.smart_city_iot.utils.LigneCsv;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +58,38 @@ public class CapteurServiceImpl implements CapteurService{
     @Autowired
     private UtilisateurRepository utilisateurRepository;
 
+    @Autowired
+    private ValidationDonneeService validationDonneeService;
+
+    @Autowired
+    private BattementsCapteurs battementsCapteurs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${capteurs.import.taille-lot:1000}")
+    private int tailleLotImport;
+
+    @Value("${capteurs.import.lignes-max:100000}")
+    private int lignesMaxImport;
+
+    private static final String TYPES_CAPTEUR = "TEMPERATURE|HUMIDITE|POLLUTION|TRAFIC|BRUIT|LUMINOSITE|PRESSION|VENT|PLUIE";
+    private static final String STATUTS_CAPTEUR = "ACTIF|INACTIF|MAINTENANCE|DEFAILLANT";
+
+    private static final String SQL_INSERTION_CAPTEUR = "INSERT INTO capteur (nom_capteur, type_capteur, description, " +
+            "latitude, longitude, adresse_installation, statut, date_installation, frequence_mesure, unite_mesure, " +
+            "valeur_min, valeur_max, numero_serie, modele, fabricant, id_administrateur, id_gestionnaire, " +
+            "date_creation, cree_par) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private record LigneImport(CreateCapteurDTO dto, Utilisateur gestionnaire) {
+    }
+
     @Override
     public ResponseCapteurDTO createCapteur(CreateCapteurDTO dto) throws Exception {
         log.info("Création d'un nouveau capteur: {}", dto.getNomCapteur());
@@ -53,6 +113,9 @@ public class CapteurServiceImpl implements CapteurService{
         Capteur capteur = buildCapteurFromDTO(dto, gestionnaire);
 
         capteur = capteurRepository.save(capteur);
+        if ("ACTIF".equals(capteur.getStatut())) {
+            battementsCapteurs.suivre(capteur.getIdCapteur(), capteur.getFrequenceMesure(), System.currentTimeMillis());
+        }
 
         log.info("Capteur créé avec succès: ID {}", capteur.getIdCapteur());
         return ResponseCapteurDTO.fromEntity(capteur);
@@ -90,9 +153,90 @@ public class CapteurServiceImpl implements CapteurService{
                 .orElseThrow(() -> new EntityNotFoundException("Capteur non trouvé avec l'ID: " + id));
 
         capteurRepository.delete(capteur);
+        validationDonneeService.reinitialiserCapteur(id);
+        battementsCapteurs.oublier(id);
         log.info("Capteur supprimé: ID {}", id);
     }
 
+    /**
+     * Import en masse depuis un flux CSV (première ligne : noms des champs de CreateCapteurDTO) ou NDJSON
+     * (un CreateCapteurDTO par ligne). Le flux est lu ligne à ligne : chaque ligne invalide est rapportée
+     * avec son numéro et écartée ; les numéros de série sont contrôlés contre un ensemble chargé une fois,
+     * chaque gestionnaire n'est lu qu'une fois. Les lignes valides sont insérées par lots JDBC dans une
+     * seule transaction, puis les capteurs ACTIF entrent ensemble dans la surveillance des battements.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ImportCapteursDTO importerCapteurs(InputStream flux, String format) throws Exception {
+        boolean csv = "CSV".equals(format);
+        if (!csv && !"NDJSON".equals(format)) {
+            throw new BusinessException("Format d'import non supporté: " + format);
+        }
+
+        Set<String> numerosSerie = new HashSet<>(capteurRepository.findNumerosSerie());
+        Map<Long, Optional<Utilisateur>> gestionnaires = new HashMap<>();
+        List<LigneImport> valides = new ArrayList<>();
+        List<ImportCapteursDTO.ErreurLigne> erreurs = new ArrayList<>();
+        int lignesLues = 0;
+
+        try (BufferedReader lecteur = new BufferedReader(new InputStreamReader(flux, StandardCharsets.UTF_8))) {
+            List<String> entete = null;
+            long numero = 0;
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                numero++;
+                if (ligne.isBlank()) {
+                    continue;
+                }
+                if (csv && entete == null) {
+                    entete = LigneCsv.decouper(ligne.strip());
+                    continue;
+                }
+                if (++lignesLues > lignesMaxImport) {
+                    throw new BusinessException("Import limité à " + lignesMaxImport + " capteurs par requête");
+                }
+                try {
+                    CreateCapteurDTO dto = csv ? lireLigneCsv(entete, ligne) : objectMapper.readValue(ligne, CreateCapteurDTO.class);
+                    validateLigneImport(dto);
+                    Utilisateur gestionnaire = gestionnaires
+                            .computeIfAbsent(dto.getIdGestionnaireResponsable(), utilisateurRepository::findById)
+                            .orElseThrow(() -> new BusinessException("Gestionnaire non trouvé avec l'ID: " + dto.getIdGestionnaireResponsable()));
+                    if (!gestionnaire.peutCreerCapteur()) {
+                        throw new BusinessException("Ce type d'utilisateur ne peut pas créer de capteurs");
+                    }
+                    validateGestionnaireType(gestionnaire, dto.getTypeGestionnaire());
+                    if (dto.getNumeroSerie() != null && !numerosSerie.add(dto.getNumeroSerie())) {
+                        throw new BusinessException("Un capteur avec ce numéro de série existe déjà");
+                    }
+                    valides.add(new LigneImport(dto, gestionnaire));
+                } catch (BusinessException | IllegalArgumentException e) {
+                    erreurs.add(new ImportCapteursDTO.ErreurLigne(numero, e.getMessage()));
+                } catch (JsonProcessingException e) {
+                    erreurs.add(new ImportCapteursDTO.ErreurLigne(numero, "JSON invalide: " + e.getOriginalMessage()));
+                }
+            }
+        }
+
+        Map<Long, Integer> actifs = new LinkedHashMap<>();
+        if (!valides.isEmpty()) {
+            new TransactionTemplate(transactionManager).executeWithoutResult(statut -> {
+                for (int debut = 0; debut < valides.size(); debut += tailleLotImport) {
+                    inserer(valides.subList(debut, Math.min(debut + tailleLotImport, valides.size())), actifs);
+                }
+            });
+            // Après le commit, en une fois : la vérification ne voit jamais une partie de l'import
+            battementsCapteurs.suivreLot(actifs, System.currentTimeMillis());
+        }
+
+        log.info("Import de capteurs: {} ligne(s) lue(s), {} capteur(s) créé(s), {} ligne(s) rejetée(s)",
+                lignesLues, valides.size(), erreurs.size());
+        return ImportCapteursDTO.builder()
+                .lignesLues(lignesLues)
+                .capteursCrees(valides.size())
+                .erreurs(erreurs)
+                .build();
+    }
+
     // Méthodes privées
     private void validateCapteurData(CreateCapteurDTO dto) {
         // Vérification du numéro de série unique
@@ -100,6 +244,10 @@ public class CapteurServiceImpl implements CapteurService{
             throw new BusinessException("Un capteur avec ce numéro de série existe déjà");
         }
 
+        validateValeursCapteur(dto);
+    }
+
+    private void validateValeursCapteur(CreateCapteurDTO dto) {
         // Validation des valeurs min/max
         if (!dto.isValeurMinMaxValid()) {
             throw new BusinessException("La valeur minimale doit être inférieure ou égale à la valeur maximale");
@@ -153,4 +301,107 @@ public class CapteurServiceImpl implements CapteurService{
 
         return capteur;
     }
+
+    private CreateCapteurDTO lireLigneCsv(List<String> entete, String ligne) {
+        List<String> valeurs = LigneCsv.decouper(ligne);
+        if (valeurs.size() != entete.size()) {
+            throw new BusinessException("Nombre de colonnes incorrect: " + valeurs.size() + " au lieu de " + entete.size());
+        }
+        Map<String, String> champs = new HashMap<>();
+        for (int i = 0; i < entete.size(); i++) {
+            String valeur = valeurs.get(i).strip();
+            if (!valeur.isEmpty()) {
+                champs.put(entete.get(i).strip(), valeur);
+            }
+        }
+        return objectMapper.convertValue(champs, CreateCapteurDTO.class);
+    }
+
+    // Contraintes de CreateCapteurDTO, vérifiées ici pour rapporter la ligne fautive plutôt qu'échouer à l'insertion
+    private void validateLigneImport(CreateCapteurDTO dto) {
+        if (dto.getNomCapteur() == null || dto.getNomCapteur().isBlank()) {
+            throw new BusinessException("Le nom du capteur est obligatoire");
+        }
+        if (dto.getTypeCapteur() == null || !dto.getTypeCapteur().matches(TYPES_CAPTEUR)) {
+            throw new BusinessException("Type de capteur invalide");
+        }
+        if (dto.getStatut() == null || !dto.getStatut().matches(STATUTS_CAPTEUR)) {
+            throw new BusinessException("Statut invalide");
+        }
+        if (dto.getFrequenceMesure() != null && (dto.getFrequenceMesure() < 1 || dto.getFrequenceMesure() > 1440)) {
+            throw new BusinessException("La fréquence de mesure doit être comprise entre 1 et 1440 minutes");
+        }
+        if (dto.getIdGestionnaireResponsable() == null) {
+            throw new BusinessException("L'ID du gestionnaire responsable est obligatoire");
+        }
+        if (dto.getTypeGestionnaire() == null) {
+            throw new BusinessException("Le type de gestionnaire est obligatoire");
+        }
+        validateLongueur(dto.getNomCapteur(), 100, "Le nom");
+        validateLongueur(dto.getDescription(), 255, "La description");
+        validateLongueur(dto.getAdresseInstallation(), 200, "L'adresse");
+        validateLongueur(dto.getUniteMesure(), 20, "L'unité de mesure");
+        validateLongueur(dto.getNumeroSerie(), 50, "Le numéro de série");
+        validateLongueur(dto.getModele(), 50, "Le modèle");
+        validateLongueur(dto.getFabricant(), 50, "Le fabricant");
+        validateValeursCapteur(dto);
+    }
+
+    private void validateLongueur(String valeur, int max, String champ) {
+        if (valeur != null && valeur.length() > max) {
+            throw new BusinessException(champ + " ne peut pas dépasser " + max + " caractères");
+        }
+    }
+
+    private void inserer(List<LigneImport> lot, Map<Long, Integer> actifs) {
+        Timestamp maintenant = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder cles = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connexion -> connexion.prepareStatement(SQL_INSERTION_CAPTEUR, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        CreateCapteurDTO dto = lot.get(i).dto();
+                        Utilisateur gestionnaire = lot.get(i).gestionnaire();
+                        ps.setString(1, dto.getNomCapteur());
+                        ps.setString(2, dto.getTypeCapteur());
+                        ps.setString(3, dto.getDescription());
+                        ps.setObject(4, dto.getLatitude(), Types.DOUBLE);
+                        ps.setObject(5, dto.getLongitude(), Types.DOUBLE);
+                        ps.setString(6, dto.getAdresseInstallation());
+                        ps.setString(7, dto.getStatut());
+                        ps.setTimestamp(8, dto.getDateInstallation() != null ? Timestamp.valueOf(dto.getDateInstallation()) : maintenant);
+                        ps.setObject(9, dto.getFrequenceMesure(), Types.INTEGER);
+                        ps.setString(10, dto.getUniteMesure());
+                        ps.setObject(11, dto.getValeurMin(), Types.DOUBLE);
+                        ps.setObject(12, dto.getValeurMax(), Types.DOUBLE);
+                        ps.setString(13, dto.getNumeroSerie());
+                        ps.setString(14, dto.getModele());
+                        ps.setString(15, dto.getFabricant());
+                        ps.setObject(16, gestionnaire instanceof Administrateur ? gestionnaire.getIdUtilisateur() : null, Types.BIGINT);
+                        ps.setObject(17, gestionnaire instanceof GestionnaireDeVille ? gestionnaire.getIdUtilisateur() : null, Types.BIGINT);
+                        ps.setTimestamp(18, maintenant);
+                        ps.setString(19, gestionnaire.getNomComplet());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lot.size();
+                    }
+                }, cles);
+
+        List<Map<String, Object>> identifiants = cles.getKeyList();
+        if (identifiants.size() != lot.size()) {
+            // Sans identifiants, ces capteurs seront suivis à leur première mesure
+            log.warn("Import de capteurs: {} identifiant(s) générés pour {} ligne(s), surveillance différée",
+                    identifiants.size(), lot.size());
+            return;
+        }
+        for (int i = 0; i < lot.size(); i++) {
+            CreateCapteurDTO dto = lot.get(i).dto();
+            if ("ACTIF".equals(dto.getStatut())) {
+                Number id = (Number) identifiants.get(i).values().iterator().next();
+                actifs.put(id.longValue(), dto.getFrequenceMesure());
+            }
+        }
+    }
 }
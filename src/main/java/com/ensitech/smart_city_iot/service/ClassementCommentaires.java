@@ -0,0 +1,225 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.repository.CommentaireRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Commentaires les plus populaires (score = likes - dislikes), global et par sujet, tenus en mémoire.
+ * Chaque tableau est chargé une fois par la requête indexée sur le score, puis mis à jour par les
+ * vidages des compteurs et les changements d'état des commentaires : une lecture coûte O(K).
+ * <p>
+ * Un tableau contient exactement les meilleurs scores de ses commentaires actifs au-dessus d'un seuil ;
+ * tout commentaire hors tableau a un score au plus égal à ce seuil. Un commentaire du tableau passé sous
+ * le seuil en sort (un commentaire inconnu peut le dépasser) ; quand il reste moins de K entrées,
+ * le tableau est rechargé depuis la base.
+ * <p>
+ * Seuls les vidages de cette instance mettent les tableaux à jour : les interactions comptées par une
+ * autre instance n'arrivent qu'en base. Les tableaux sont donc abandonnés à intervalle régulier
+ * ({@code commentaires.classement.rafraichissement-ms}) et rechargés à la lecture suivante.
+ */
+@Component
+@Slf4j
+public class ClassementCommentaires implements ApplicationRunner {
+
+    @Autowired
+    private CommentaireRepository commentaireRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${commentaires.classement.taille:100}")
+    private int taille;
+
+    private Tableau global;
+    private final Map<String, Tableau> parSujet = new HashMap<>();
+
+    /**
+     * Tableaux rechargés depuis les compteurs en base à la prochaine lecture, vidages des autres instances compris
+     */
+    @Scheduled(fixedDelayString = "${commentaires.classement.rafraichissement-ms:60000}")
+    public synchronized void expirer() {
+        global = null;
+        parSujet.clear();
+    }
+
+    /**
+     * Score des lignes créées avant la colonne
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        int lignes = jdbcTemplate.update("UPDATE commentaire " +
+                "SET score = COALESCE(nombre_likes, 0) - COALESCE(nombre_dislikes, 0) WHERE score IS NULL");
+        if (lignes > 0) {
+            log.info("Score calculé pour {} commentaire(s)", lignes);
+        }
+    }
+
+    /**
+     * @return identifiants des {@code limite} commentaires actifs de meilleur score, null si
+     * {@code limite} dépasse la taille du classement (à lire en base)
+     */
+    public synchronized List<Long> meilleurs(String sujet, int limite) {
+        if (limite > taille) {
+            return null;
+        }
+        Tableau tableau = sujet == null ? global : parSujet.get(sujet);
+        if (tableau == null || tableau.aRecharger(taille)) {
+            tableau = charger(sujet);
+        }
+        return tableau.premiers(limite);
+    }
+
+    /**
+     * Nouveau score d'un commentaire après un vidage des compteurs, une création ou une modification
+     */
+    public synchronized void mettreAJour(Long idCommentaire, String sujet, int score, boolean actif) {
+        if (!actif) {
+            retirer(idCommentaire);
+            return;
+        }
+        // Sujet éventuellement modifié : l'entrée ne reste que dans le tableau de son sujet
+        for (Map.Entry<String, Tableau> entree : parSujet.entrySet()) {
+            if (!entree.getKey().equals(sujet)) {
+                entree.getValue().retirer(idCommentaire);
+            }
+        }
+        if (global != null) {
+            global.proposer(idCommentaire, score);
+        }
+        Tableau tableau = sujet != null ? parSujet.get(sujet) : null;
+        if (tableau != null) {
+            tableau.proposer(idCommentaire, score);
+        }
+    }
+
+    /**
+     * Commentaire supprimé ou désactivé
+     */
+    public synchronized void retirer(Long idCommentaire) {
+        if (global != null) {
+            global.retirer(idCommentaire);
+        }
+        parSujet.values().forEach(tableau -> tableau.retirer(idCommentaire));
+    }
+
+    /**
+     * Scores relus après l'écriture d'un lot de deltas
+     */
+    public void apresVidage(Collection<Long> idsCommentaires) {
+        List<Object[]> lignes = commentaireRepository.findClassementByIds(new ArrayList<>(idsCommentaires));
+        for (Object[] ligne : lignes) {
+            Integer score = (Integer) ligne[2];
+            mettreAJour((Long) ligne[0], (String) ligne[1], score != null ? score : 0, Boolean.TRUE.equals(ligne[3]));
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private Tableau charger(String sujet) {
+        // Double de K : les sorties sous le seuil n'imposent pas un rechargement immédiat
+        int capacite = 2 * taille;
+        PageRequest page = PageRequest.of(0, capacite);
+        List<Object[]> lignes = sujet == null
+                ? commentaireRepository.findScoresPopulaires(page)
+                : commentaireRepository.findScoresPopulairesBySujet(sujet, page);
+
+        Tableau tableau = new Tableau(capacite, lignes.size() == capacite);
+        for (Object[] ligne : lignes) {
+            Integer score = (Integer) ligne[1];
+            tableau.ajouter((Long) ligne[0], score != null ? score : 0);
+        }
+        tableau.fixerSeuil();
+        if (sujet == null) {
+            global = tableau;
+        } else {
+            parSujet.put(sujet, tableau);
+        }
+        return tableau;
+    }
+
+    private record Entree(Long id, int score) {
+    }
+
+    /** Meilleurs scores d'un classement ; protégé par le verrou de ClassementCommentaires */
+    private static final class Tableau {
+        private static final Comparator<Entree> ORDRE = Comparator.comparingInt(Entree::score).reversed()
+                .thenComparing(Entree::id, Comparator.reverseOrder());
+
+        private final int capacite;
+        private final TreeSet<Entree> entrees = new TreeSet<>(ORDRE);
+        private final Map<Long, Entree> parId = new HashMap<>();
+        // Tronqué au chargement ou par une sortie : des commentaires hors tableau ont un score au plus égal au seuil
+        private boolean tronque;
+        private int seuil = Integer.MIN_VALUE;
+
+        Tableau(int capacite, boolean tronque) {
+            this.capacite = capacite;
+            this.tronque = tronque;
+        }
+
+        void ajouter(Long id, int score) {
+            Entree entree = new Entree(id, score);
+            entrees.add(entree);
+            parId.put(id, entree);
+        }
+
+        void fixerSeuil() {
+            if (tronque && !entrees.isEmpty()) {
+                seuil = entrees.last().score();
+            }
+        }
+
+        boolean aRecharger(int taille) {
+            return tronque && entrees.size() < taille;
+        }
+
+        List<Long> premiers(int limite) {
+            List<Long> ids = new ArrayList<>(Math.min(limite, entrees.size()));
+            for (Entree entree : entrees) {
+                if (ids.size() == limite) {
+                    break;
+                }
+                ids.add(entree.id());
+            }
+            return ids;
+        }
+
+        void proposer(Long id, int score) {
+            retirer(id);
+            if (score < seuil) {
+                // Des commentaires hors tableau peuvent le précéder
+                return;
+            }
+            ajouter(id, score);
+            if (entrees.size() > capacite) {
+                Entree sortie = entrees.pollLast();
+                parId.remove(sortie.id());
+                seuil = Math.max(seuil, sortie.score());
+                tronque = true;
+            }
+        }
+
+        void retirer(Long id) {
+            Entree entree = parId.remove(id);
+            if (entree != null) {
+                entrees.remove(entree);
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ensitech.smart_city_iot.service;
 
+import com.ensitech.smart_city_iot.dto.ResultatRechercheDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.CreateCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.ResponseCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.UpdateCommentaireDTO;
@@ -28,6 +29,11 @@ public interface CommentaireService {
 
     void softDeleteCommentaire(Long id) throws Exception;
 
+    // Modération
+    Page<ResponseCommentaireDTO> getCommentairesAModerer(Pageable pageable) throws Exception;
+
+    void validerModeration(Long id) throws Exception;
+
     // Gestion des interactions
     void ajouterLike(Long id) throws Exception;
 
@@ -38,9 +44,9 @@ public interface CommentaireService {
     void retirerDislike(Long id) throws Exception;
 
     // Recherche et filtres
-    List<ResponseCommentaireDTO> rechercherCommentaires(String texte) throws Exception;
+    Page<ResultatRechercheDTO<ResponseCommentaireDTO>> rechercherCommentaires(String texte, Pageable pageable) throws Exception;
 
-    List<ResponseCommentaireDTO> getCommentairesPopulaires(int limite) throws Exception;
+    List<ResponseCommentaireDTO> getCommentairesPopulaires(String sujet, int limite) throws Exception;
 
     List<ResponseCommentaireDTO> getCommentairesRecents(int jours) throws Exception;
 
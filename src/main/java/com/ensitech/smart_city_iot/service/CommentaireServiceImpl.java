@@ -1,15 +1,18 @@
 package com.ensitech.smart_city_iot.service;
 
+import com.ensitech.smart_city_iot.dto.ResultatRechercheDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.CreateCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.ResponseCommentaireDTO;
 import com.ensitech.smart_city_iot.dto.commentaireDTO.UpdateCommentaireDTO;
 import com.ensitech.smart_city_iot.entity.Citoyen;
 import com.ensitech.smart_city_iot.entity.Commentaire;
-import com.ensitech.smart_city_iot.entity.Utilisateur;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.repository.CommentaireRepository;
+import com.ensitech.smart_city_iot.repository.IdentiteUtilisateur;
+import com.ensitech.smart_city_iot.repository.ResultatRecherche;
 import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
+import com.ensitech.smart_city_iot.utils.TexteRecherche;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -20,6 +23,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,19 +39,24 @@ public class CommentaireServiceImpl implements CommentaireService{
     @Autowired
     private UtilisateurRepository utilisateurRepository;
 
+    @Autowired
+    private CompteursInteractions compteursInteractions;
+
+    @Autowired
+    private ClassementCommentaires classementCommentaires;
+
+    @Autowired
+    private ModerationCommentaires moderationCommentaires;
+
     @Override
     public ResponseCommentaireDTO createCommentaire(CreateCommentaireDTO dto) throws Exception {
         log.info("Création d'un nouveau commentaire par le citoyen ID: {}", dto.getIdCitoyen());
 
         // Vérification que l'utilisateur existe et est bien un citoyen
-        Utilisateur utilisateur = utilisateurRepository.findById(dto.getIdCitoyen())
-                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé avec l'ID: " + dto.getIdCitoyen()));
-
-        if (!(utilisateur instanceof Citoyen)) {
-            throw new BusinessException("Seuls les citoyens peuvent poster des commentaires");
-        }
-
-        Citoyen citoyen = (Citoyen) utilisateur;
+        Citoyen citoyen = utilisateurRepository.findCitoyenById(dto.getIdCitoyen())
+                .orElseThrow(() -> utilisateurRepository.existsById(dto.getIdCitoyen())
+                        ? new BusinessException("Seuls les citoyens peuvent poster des commentaires")
+                        : new EntityNotFoundException("Utilisateur non trouvé avec l'ID: " + dto.getIdCitoyen()));
 
         // Vérification que le citoyen est actif
         if (!citoyen.isActif()) {
@@ -58,10 +68,12 @@ public class CommentaireServiceImpl implements CommentaireService{
 
         // Création du commentaire
         Commentaire commentaire = buildCommentaireFromDTO(dto, citoyen);
+        moderationCommentaires.moderer(commentaire);
         commentaire = commentaireRepository.save(commentaire);
+        classementCommentaires.mettreAJour(commentaire.getIdCommentaire(), commentaire.getSujet(), commentaire.getScore(), true);
 
         log.info("Commentaire créé avec succès: ID {}", commentaire.getIdCommentaire());
-        return ResponseCommentaireDTO.fromEntity(commentaire);
+        return versDTO(commentaire);
     }
 
     @Override
@@ -69,35 +81,35 @@ public class CommentaireServiceImpl implements CommentaireService{
         Commentaire commentaire = commentaireRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
 
-        return ResponseCommentaireDTO.fromEntity(commentaire);
+        return versDTO(commentaire);
     }
 
     @Override
     public List<ResponseCommentaireDTO> getAllCommentaires() throws Exception {
         List<Commentaire> commentaires = commentaireRepository.findByActif(true);
         return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
+                .map(this::versDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
     public Page<ResponseCommentaireDTO> getAllCommentaires(Pageable pageable) throws Exception {
         Page<Commentaire> commentaires = commentaireRepository.findByActif(true, pageable);
-        return commentaires.map(ResponseCommentaireDTO::fromEntity);
+        return commentaires.map(this::versDTO);
     }
 
     @Override
     public List<ResponseCommentaireDTO> getCommentairesByCitoyen(Long idCitoyen) throws Exception {
-        Utilisateur utilisateur = utilisateurRepository.findById(idCitoyen)
+        IdentiteUtilisateur identite = utilisateurRepository.findIdentiteById(idCitoyen)
                 .orElseThrow(() -> new EntityNotFoundException("Citoyen non trouvé avec l'ID: " + idCitoyen));
 
-        if (!(utilisateur instanceof Citoyen)) {
+        if (!"CITOYEN".equals(identite.getTypeUtilisateur())) {
             throw new BusinessException("L'utilisateur spécifié n'est pas un citoyen");
         }
 
-        List<Commentaire> commentaires = commentaireRepository.findByCitoyenAndActif((Citoyen) utilisateur, true);
+        List<Commentaire> commentaires = commentaireRepository.findByCitoyenIdUtilisateurAndActif(idCitoyen, true);
         return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
+                .map(this::versDTO)
                 .collect(Collectors.toList());
     }
 
@@ -105,7 +117,7 @@ public class CommentaireServiceImpl implements CommentaireService{
     public List<ResponseCommentaireDTO> getCommentairesBySujet(String sujet) throws Exception {
         List<Commentaire> commentaires = commentaireRepository.findBySujetAndActif(sujet, true);
         return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
+                .map(this::versDTO)
                 .collect(Collectors.toList());
     }
 
@@ -122,10 +134,13 @@ public class CommentaireServiceImpl implements CommentaireService{
 
         // Mise à jour des champs
         updateCommentaireFields(commentaire, dto);
+        moderationCommentaires.moderer(commentaire);
         commentaire = commentaireRepository.save(commentaire);
+        classementCommentaires.mettreAJour(id, commentaire.getSujet(),
+                commentaire.getScore() != null ? commentaire.getScore() : 0, true);
 
         log.info("Commentaire mis à jour avec succès: ID {}", id);
-        return ResponseCommentaireDTO.fromEntity(commentaire);
+        return versDTO(commentaire);
     }
 
     @Override
@@ -134,6 +149,7 @@ public class CommentaireServiceImpl implements CommentaireService{
                 .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
 
         commentaireRepository.delete(commentaire);
+        classementCommentaires.retirer(id);
         log.info("Commentaire supprimé définitivement: ID {}", id);
     }
 
@@ -143,67 +159,94 @@ public class CommentaireServiceImpl implements CommentaireService{
                 .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
 
         commentaireRepository.softDelete(id);
+        classementCommentaires.retirer(id);
         log.info("Commentaire désactivé: ID {}", id);
     }
 
     @Override
-    public void ajouterLike(Long id) throws Exception {
-        Commentaire commentaire = commentaireRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
+    public Page<ResponseCommentaireDTO> getCommentairesAModerer(Pageable pageable) throws Exception {
+        return commentaireRepository.findCommentairesAModerer(pageable).map(this::versDTO);
+    }
 
-        if (!commentaire.isActif()) {
-            throw new BusinessException("Ce commentaire n'est plus actif");
+    @Override
+    public void validerModeration(Long id) throws Exception {
+        if (commentaireRepository.validerModeration(id) == 0) {
+            throw new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id);
         }
+        log.info("Commentaire validé par la modération: ID {}", id);
+    }
 
-        commentaireRepository.incrementLikes(id);
+    @Override
+    public void ajouterLike(Long id) throws Exception {
+        verifierActif(id);
+        compteursInteractions.ajouterLike(id);
         log.debug("Like ajouté au commentaire ID: {}", id);
     }
 
     @Override
     public void retirerLike(Long id) throws Exception {
-        Commentaire commentaire = commentaireRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
-
-        commentaireRepository.decrementLikes(id);
+        verifierExistence(id);
+        compteursInteractions.retirerLike(id);
         log.debug("Like retiré du commentaire ID: {}", id);
     }
 
     @Override
     public void ajouterDislike(Long id) throws Exception {
-        Commentaire commentaire = commentaireRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
-
-        if (!commentaire.isActif()) {
-            throw new BusinessException("Ce commentaire n'est plus actif");
-        }
-
-        commentaireRepository.incrementDislikes(id);
+        verifierActif(id);
+        compteursInteractions.ajouterDislike(id);
         log.debug("Dislike ajouté au commentaire ID: {}", id);
     }
 
     @Override
     public void retirerDislike(Long id) throws Exception {
-        Commentaire commentaire = commentaireRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
-
-        commentaireRepository.decrementDislikes(id);
+        verifierExistence(id);
+        compteursInteractions.retirerDislike(id);
         log.debug("Dislike retiré du commentaire ID: {}", id);
     }
 
     @Override
-    public List<ResponseCommentaireDTO> rechercherCommentaires(String texte) throws Exception {
-        List<Commentaire> commentaires = commentaireRepository.findByTitreOrContenuContaining(texte);
-        return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
-                .collect(Collectors.toList());
+    public Page<ResultatRechercheDTO<ResponseCommentaireDTO>> rechercherCommentaires(String texte, Pageable pageable) throws Exception {
+        String requete = TexteRecherche.requeteBooleenne(texte);
+        if (requete == null) {
+            throw new BusinessException("La recherche doit contenir au moins un mot de "
+                    + TexteRecherche.LONGUEUR_MIN_TERME + " caractères");
+        }
+
+        Page<ResultatRecherche> lignes = commentaireRepository.rechercherTexte(requete, pageable);
+        List<Long> ids = lignes.map(ResultatRecherche::getId).getContent();
+        Map<Long, ResponseCommentaireDTO> commentaires = ids.isEmpty() ? Map.of() :
+                commentaireRepository.findAllWithCitoyenByIds(ids).stream()
+                        .collect(Collectors.toMap(Commentaire::getIdCommentaire, this::versDTO));
+        return ResultatRechercheDTO.page(lignes, commentaires);
     }
 
     @Override
-    public List<ResponseCommentaireDTO> getCommentairesPopulaires(int limite) throws Exception {
-        Pageable pageable = PageRequest.of(0, limite);
-        List<Commentaire> commentaires = commentaireRepository.findMostPopular(pageable);
-        return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
+    public List<ResponseCommentaireDTO> getCommentairesPopulaires(String sujet, int limite) throws Exception {
+        // Un classement est tenu en mémoire par sujet : seuls les sujets connus en ouvrent un
+        if (sujet != null && !Commentaire.SUJETS.contains(sujet)) {
+            throw new BusinessException("Sujet invalide: " + sujet);
+        }
+        List<Long> ids = classementCommentaires.meilleurs(sujet, limite);
+        if (ids == null) {
+            // Au-delà de la taille du classement : lecture par l'index sur le score
+            Pageable pageable = PageRequest.of(0, limite);
+            List<Commentaire> commentaires = sujet == null
+                    ? commentaireRepository.findMostPopular(pageable)
+                    : commentaireRepository.findMostPopularBySujet(sujet, pageable);
+            return commentaires.stream()
+                    .map(this::versDTO)
+                    .collect(Collectors.toList());
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Commentaire> commentaires = commentaireRepository.findAllWithCitoyenByIds(ids).stream()
+                .collect(Collectors.toMap(Commentaire::getIdCommentaire, commentaire -> commentaire));
+        return ids.stream()
+                .map(commentaires::get)
+                .filter(Objects::nonNull)
+                .map(this::versDTO)
                 .collect(Collectors.toList());
     }
 
@@ -212,7 +255,7 @@ public class CommentaireServiceImpl implements CommentaireService{
         LocalDateTime dateDebut = LocalDateTime.now().minusDays(jours);
         List<Commentaire> commentaires = commentaireRepository.findRecentCommentaires(dateDebut);
         return commentaires.stream()
-                .map(ResponseCommentaireDTO::fromEntity)
+                .map(this::versDTO)
                 .collect(Collectors.toList());
     }
 
@@ -227,16 +270,38 @@ public class CommentaireServiceImpl implements CommentaireService{
     }
 
     // Méthodes privées
+    private void verifierExistence(Long id) {
+        if (commentaireRepository.findActifById(id).isEmpty()) {
+            throw new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id);
+        }
+    }
+
+    private void verifierActif(Long id) {
+        Boolean actif = commentaireRepository.findActifById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Commentaire non trouvé avec l'ID: " + id));
+        if (!Boolean.TRUE.equals(actif)) {
+            throw new BusinessException("Ce commentaire n'est plus actif");
+        }
+    }
+
+    /** Compteurs stockés augmentés des votes pas encore écrits */
+    private ResponseCommentaireDTO versDTO(Commentaire commentaire) {
+        ResponseCommentaireDTO dto = ResponseCommentaireDTO.fromEntity(commentaire);
+        long[] enAttente = compteursInteractions.enAttente(commentaire.getIdCommentaire());
+        if (enAttente[0] != 0 || enAttente[1] != 0) {
+            int likes = (int) Math.max(0, (dto.getNombreLikes() != null ? dto.getNombreLikes() : 0) + enAttente[0]);
+            int dislikes = (int) Math.max(0, (dto.getNombreDislikes() != null ? dto.getNombreDislikes() : 0) + enAttente[1]);
+            dto.setNombreLikes(likes);
+            dto.setNombreDislikes(dislikes);
+            dto.setTotalInteractions(likes + dislikes);
+        }
+        return dto;
+    }
     private void validateCommentaireContent(CreateCommentaireDTO dto) {
         if (dto.getContenu().trim().length() < 10) {
             throw new BusinessException("Le contenu doit contenir au moins 10 caractères");
         }
-
-        // Validation anti-spam basique
-        if (dto.getContenu().toLowerCase().contains("spam") ||
-                dto.getContenu().toLowerCase().contains("pub")) {
-            throw new BusinessException("Contenu non autorisé détecté");
-        }
+        // Termes interdits : ModerationCommentaires
     }
 
     private Commentaire buildCommentaireFromDTO(CreateCommentaireDTO dto, Citoyen citoyen) {
@@ -0,0 +1,136 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.repository.NotificationDestinataireRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compteurs de notifications non lues par utilisateur, maintenus en mémoire.
+ * Le cache est découpé en segments verrouillés indépendamment ; un compteur absent est
+ * chargé une seule fois depuis la base puis mis à jour par incréments (diffusion, lecture).
+ * Les modifications ne sont appliquées qu'après le commit de la transaction qui les porte.
+ */
+@Component
+@Slf4j
+public class CompteurNonLuesCache {
+
+    private static final int NOMBRE_SEGMENTS = 64;
+
+    @Autowired
+    private NotificationDestinataireRepository destinataireRepository;
+
+    private final Segment[] segments = new Segment[NOMBRE_SEGMENTS];
+
+    public CompteurNonLuesCache() {
+        for (int i = 0; i < NOMBRE_SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Nombre de notifications non lues ; seul le premier appel pour un utilisateur interroge la base
+     */
+    public long getNombreNonLues(Long idUtilisateur) {
+        Segment segment = segment(idUtilisateur);
+        long version;
+        synchronized (segment) {
+            Long valeur = segment.compteurs.get(idUtilisateur);
+            if (valeur != null) {
+                return valeur;
+            }
+            version = segment.version;
+        }
+
+        // Chargement hors verrou : une modification concurrente invalide la valeur lue
+        long charge = destinataireRepository.countNonLues(idUtilisateur);
+        synchronized (segment) {
+            Long valeur = segment.compteurs.get(idUtilisateur);
+            if (valeur != null) {
+                return valeur;
+            }
+            if (segment.version == version) {
+                segment.compteurs.put(idUtilisateur, charge);
+            }
+            return charge;
+        }
+    }
+
+    /** Une nouvelle notification pour chacun des utilisateurs */
+    public void incrementer(Collection<Long> idUtilisateurs) {
+        apresCommit(() -> {
+            for (Long idUtilisateur : idUtilisateurs) {
+                Segment segment = segment(idUtilisateur);
+                synchronized (segment) {
+                    segment.version++;
+                    segment.compteurs.computeIfPresent(idUtilisateur, (id, valeur) -> valeur + 1);
+                }
+            }
+        });
+    }
+
+    /** Diffusion par tranche : les destinataires sont invalidés plutôt qu'énumérés */
+    public void invalider(Collection<Long> idUtilisateurs) {
+        apresCommit(() -> {
+            for (Long idUtilisateur : idUtilisateurs) {
+                Segment segment = segment(idUtilisateur);
+                synchronized (segment) {
+                    segment.version++;
+                    segment.compteurs.remove(idUtilisateur);
+                }
+            }
+        });
+    }
+
+    public void decrementer(Long idUtilisateur) {
+        apresCommit(() -> {
+            Segment segment = segment(idUtilisateur);
+            synchronized (segment) {
+                segment.version++;
+                segment.compteurs.computeIfPresent(idUtilisateur, (id, valeur) -> Math.max(0L, valeur - 1));
+            }
+        });
+    }
+
+    public void remettreAZero(Long idUtilisateur) {
+        apresCommit(() -> {
+            Segment segment = segment(idUtilisateur);
+            synchronized (segment) {
+                segment.version++;
+                segment.compteurs.put(idUtilisateur, 0L);
+            }
+        });
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private Segment segment(Long idUtilisateur) {
+        int hash = Long.hashCode(idUtilisateur);
+        hash ^= (hash >>> 16);
+        return segments[hash & (NOMBRE_SEGMENTS - 1)];
+    }
+
+    private void apresCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static final class Segment {
+        private final Map<Long, Long> compteurs = new HashMap<>();
+        private long version;
+    }
+}
@@ -0,0 +1,171 @@
+package com.ensitech.smart_city_iot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Likes et dislikes des commentaires en écriture différée : chaque vote incrémente un {@link LongAdder}
+ * du commentaire (compteurs répartis par cellule, sans verrou), et les deltas accumulés sont appliqués
+ * périodiquement par un UPDATE groupé. Un commentaire très populaire ne sérialise donc plus les votes
+ * sur le verrou de sa ligne InnoDB. Les lectures ajoutent les deltas en attente aux valeurs stockées ;
+ * le score et le classement en mémoire ont au plus un intervalle de vidage de retard.
+ */
+@Component
+@Slf4j
+public class CompteursInteractions {
+
+    private static final String SQL_DELTAS = "UPDATE commentaire SET " +
+            "nombre_likes = GREATEST(0, COALESCE(nombre_likes, 0) + ?), " +
+            "nombre_dislikes = GREATEST(0, COALESCE(nombre_dislikes, 0) + ?), " +
+            "score = nombre_likes - nombre_dislikes " +
+            "WHERE id_commentaire = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClassementCommentaires classementCommentaires;
+
+    private TransactionTemplate transaction;
+
+    private final Map<Long, Deltas> deltas = new ConcurrentHashMap<>();
+    // Entrées retirées de la table au vidage précédent : relues une dernière fois au vidage suivant,
+    // pour un vote qui aurait obtenu l'entrée juste avant son retrait
+    private final ConcurrentLinkedQueue<Map.Entry<Long, Deltas>> retirees = new ConcurrentLinkedQueue<>();
+
+    public void ajouterLike(Long idCommentaire) {
+        entree(idCommentaire).likes.increment();
+    }
+
+    public void retirerLike(Long idCommentaire) {
+        entree(idCommentaire).likes.decrement();
+    }
+
+    public void ajouterDislike(Long idCommentaire) {
+        entree(idCommentaire).dislikes.increment();
+    }
+
+    public void retirerDislike(Long idCommentaire) {
+        entree(idCommentaire).dislikes.decrement();
+    }
+
+    /**
+     * @return {likes, dislikes} en attente d'écriture, {0, 0} si aucun
+     */
+    public long[] enAttente(Long idCommentaire) {
+        Deltas entree = deltas.get(idCommentaire);
+        if (entree == null) {
+            return new long[]{0, 0};
+        }
+        return new long[]{entree.likes.sum(), entree.dislikes.sum()};
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        vider();
+    }
+
+    @Scheduled(fixedDelayString = "${commentaires.compteurs.intervalle-vidage-ms:1000}")
+    public synchronized void vider() {
+        List<Object[]> lignes = new ArrayList<>();
+
+        Map.Entry<Long, Deltas> retiree;
+        while ((retiree = retirees.poll()) != null) {
+            collecter(retiree.getKey(), retiree.getValue(), lignes);
+        }
+
+        List<Map.Entry<Long, Deltas>> inactives = new ArrayList<>();
+        for (Map.Entry<Long, Deltas> entree : deltas.entrySet()) {
+            if (!collecter(entree.getKey(), entree.getValue(), lignes)) {
+                // Rien depuis deux vidages : l'entrée est retirée pour borner la mémoire
+                if (entree.getValue().inactive) {
+                    inactives.add(entree);
+                }
+                entree.getValue().inactive = true;
+            } else {
+                entree.getValue().inactive = false;
+            }
+        }
+        for (Map.Entry<Long, Deltas> entree : inactives) {
+            if (deltas.remove(entree.getKey(), entree.getValue())) {
+                retirees.add(Map.entry(entree.getKey(), entree.getValue()));
+            }
+        }
+
+        if (lignes.isEmpty()) {
+            return;
+        }
+        // Ordre des clés constant : deux instances ne verrouillent pas les mêmes lignes en ordre inverse
+        lignes.sort((a, b) -> Long.compare((Long) a[2], (Long) b[2]));
+        try {
+            // Une transaction pour le lot : en cas d'échec, aucun delta n'est appliqué deux fois
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(SQL_DELTAS, lignes));
+            log.debug("Compteurs d'interactions écrits pour {} commentaire(s)", lignes.size());
+        } catch (Exception e) {
+            log.warn("Écriture des compteurs d'interactions en échec, nouvelle tentative au prochain vidage: {}",
+                    e.getMessage());
+            for (Object[] ligne : lignes) {
+                Deltas entree = entree((Long) ligne[2]);
+                entree.likes.add((Long) ligne[0]);
+                entree.dislikes.add((Long) ligne[1]);
+            }
+            return;
+        }
+
+        try {
+            classementCommentaires.apresVidage(lignes.stream().map(ligne -> (Long) ligne[2]).collect(Collectors.toSet()));
+        } catch (Exception e) {
+            log.warn("Mise à jour du classement des commentaires en échec: {}", e.getMessage());
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private Deltas entree(Long idCommentaire) {
+        return deltas.computeIfAbsent(idCommentaire, id -> new Deltas());
+    }
+
+    /**
+     * Relève et remet à zéro les deltas ; sumThenReset échange chaque cellule avec zéro,
+     * un vote concurrent est compté dans ce vidage ou dans le suivant, jamais perdu
+     */
+    private static boolean collecter(Long idCommentaire, Deltas entree, List<Object[]> lignes) {
+        long likes = entree.likes.sumThenReset();
+        long dislikes = entree.dislikes.sumThenReset();
+        if (likes == 0 && dislikes == 0) {
+            return false;
+        }
+        lignes.add(new Object[]{likes, dislikes, idCommentaire});
+        return true;
+    }
+
+    private static final class Deltas {
+        final LongAdder likes = new LongAdder();
+        final LongAdder dislikes = new LongAdder();
+        // Lu et écrit par le seul vidage (synchronized)
+        boolean inactive;
+    }
+}
@@ -0,0 +1,20 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.notificationDTO.AudienceNotificationDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface DiffusionNotificationService {
+
+    long compterAudience(AudienceNotificationDTO audience);
+
+    /** Identifiants actifs parmi ceux demandés ; échoue si l'un d'eux n'existe pas */
+    List<Long> filtrerUtilisateursActifs(Collection<Long> idUtilisateurs);
+
+    /** Insertion par lots dans notification_utilisateur, dans la transaction de l'appelant */
+    void inscrireDestinataires(Long idNotification, List<Long> idUtilisateurs);
+
+    /** Lance le fan-out ensembliste de l'audience après validation de la transaction courante */
+    void demarrerDiffusion(Long idNotification);
+}
@@ -0,0 +1,335 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.notificationDTO.AudienceNotificationDTO;
+import com.ensitech.smart_city_iot.entity.Notification;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.repository.NotificationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fan-out des notifications : les destinataires d'une audience sont parcourus par tranches
+ * d'identifiants (pagination par clé) et chaque tranche est insérée par un INSERT ... SELECT.
+ * Le curseur est enregistré avec chaque tranche, ce qui rend la diffusion reprenable : après une erreur
+ * (verrou mortel, délai dépassé), elle est relancée depuis le curseur avec un délai croissant, jusqu'à
+ * {@code notification.diffusion.tentatives-max} essais ; au-delà, elle passe ECHEC avec ses envois.
+ */
+@Service
+@Slf4j
+public class DiffusionNotificationServiceImpl implements DiffusionNotificationService {
+
+    private static final Map<String, String> TABLES_PAR_ROLE = Map.of(
+            "ADMINISTRATEUR", "administrateur",
+            "GESTIONNAIRE_VILLE", "gestionnaire_de_ville",
+            "CHERCHEUR", "chercheur",
+            "CITOYEN", "citoyen");
+
+    private static final int TAILLE_CLAUSE_IN = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CompteurNonLuesCache compteurNonLuesCache;
+
+    @Value("${notification.diffusion.taille-lot:5000}")
+    private int tailleLot;
+
+    @Value("${notification.diffusion.parallelisme:2}")
+    private int parallelisme;
+
+    @Value("${notification.diffusion.tentatives-max:5}")
+    private int tentativesMax;
+
+    @Value("${notification.diffusion.delai-base-secondes:30}")
+    private long delaiBaseSecondes;
+
+    private ExecutorService executeur;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void initialiser() {
+        executeur = Executors.newFixedThreadPool(Math.max(1, parallelisme));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdown();
+    }
+
+    /** Reprise des diffusions interrompues par un arrêt de l'application */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reprendreDiffusions() {
+        List<Notification> enCours = notificationRepository.findByStatutDiffusion("EN_COURS");
+        if (!enCours.isEmpty()) {
+            log.info("Reprise de {} diffusion(s) de notification interrompue(s)", enCours.size());
+            enCours.forEach(n -> soumettre(n.getIdNotification()));
+        }
+    }
+
+    /** Relance des diffusions en ERREUR dont le délai est écoulé */
+    @Scheduled(fixedDelayString = "${notification.diffusion.intervalle-relance-ms:15000}")
+    public void relancerDiffusions() {
+        for (Long idNotification : notificationRepository.findDiffusionsARelancer(LocalDateTime.now())) {
+            // Réclamation conditionnelle : une seule instance relance la diffusion
+            int reclamee = jdbcTemplate.update("UPDATE notification SET statut_diffusion = 'EN_COURS' " +
+                    "WHERE id_notification = ? AND statut_diffusion = 'ERREUR'", idNotification);
+            if (reclamee == 1) {
+                log.info("Relance de la diffusion de la notification {}", idNotification);
+                soumettre(idNotification);
+            }
+        }
+    }
+
+    @Override
+    public long compterAudience(AudienceNotificationDTO audience) {
+        FiltreAudience filtre = construireFiltre(audience);
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(*) " + filtre.clauses(), Long.class,
+                filtre.params().toArray());
+        return total != null ? total : 0L;
+    }
+
+    @Override
+    public List<Long> filtrerUtilisateursActifs(Collection<Long> idUtilisateurs) {
+        List<Long> demandes = new ArrayList<>(new LinkedHashSet<>(idUtilisateurs));
+        Map<Long, Boolean> actifs = new HashMap<>();
+
+        for (int debut = 0; debut < demandes.size(); debut += TAILLE_CLAUSE_IN) {
+            List<Long> tranche = demandes.subList(debut, Math.min(debut + TAILLE_CLAUSE_IN, demandes.size()));
+            String marqueurs = String.join(",", Collections.nCopies(tranche.size(), "?"));
+            jdbcTemplate.query("SELECT id_utilisateur, actif FROM utilisateur WHERE id_utilisateur IN (" + marqueurs + ")",
+                    rs -> {
+                        actifs.put(rs.getLong(1), rs.getBoolean(2));
+                    }, tranche.toArray());
+        }
+
+        List<Long> resultat = new ArrayList<>(demandes.size());
+        for (Long id : demandes) {
+            Boolean actif = actifs.get(id);
+            if (actif == null) {
+                throw new EntityNotFoundException("Utilisateur non trouvé avec l'ID: " + id);
+            }
+            if (!actif) {
+                log.warn("Utilisateur inactif ignoré: {}", id);
+                continue;
+            }
+            resultat.add(id);
+        }
+        return resultat;
+    }
+
+    @Override
+    public void inscrireDestinataires(Long idNotification, List<Long> idUtilisateurs) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO notification_utilisateur (id_notification, id_utilisateur) VALUES (?, ?)",
+                idUtilisateurs, tailleLot,
+                (ps, idUtilisateur) -> {
+                    ps.setLong(1, idNotification);
+                    ps.setLong(2, idUtilisateur);
+                });
+        compteurNonLuesCache.incrementer(idUtilisateurs);
+    }
+
+    @Override
+    public void demarrerDiffusion(Long idNotification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    soumettre(idNotification);
+                }
+            });
+        } else {
+            soumettre(idNotification);
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void soumettre(Long idNotification) {
+        executeur.submit(() -> diffuser(idNotification));
+    }
+
+    private void diffuser(Long idNotification) {
+        try {
+            Notification notification = notificationRepository.findById(idNotification).orElse(null);
+            if (notification == null || !"EN_COURS".equals(notification.getStatutDiffusion())) {
+                return;
+            }
+
+            AudienceNotificationDTO audience = objectMapper.readValue(notification.getCiblage(), AudienceNotificationDTO.class);
+            FiltreAudience filtre = construireFiltre(audience);
+            long curseur = notification.getCurseurDiffusion() != null ? notification.getCurseurDiffusion() : 0L;
+            long traites = notification.getNombreDestinatairesTraites() != null ? notification.getNombreDestinatairesTraites() : 0L;
+            long debutDiffusion = System.currentTimeMillis();
+
+            while (true) {
+                List<Object> params = new ArrayList<>(filtre.params());
+                params.add(curseur);
+                params.add(tailleLot);
+                List<Long> ids = jdbcTemplate.queryForList(
+                        "SELECT u.id_utilisateur " + filtre.clauses() +
+                                " AND u.id_utilisateur > ? ORDER BY u.id_utilisateur LIMIT ?",
+                        Long.class, params.toArray());
+                if (ids.isEmpty()) {
+                    break;
+                }
+
+                long borneMin = curseur;
+                long borneMax = ids.get(ids.size() - 1);
+                long dejaTraites = traites;
+                Integer inseres = transactionTemplate.execute(status -> {
+                    List<Object> paramsInsertion = new ArrayList<>();
+                    paramsInsertion.add(idNotification);
+                    paramsInsertion.addAll(filtre.params());
+                    paramsInsertion.add(borneMin);
+                    paramsInsertion.add(borneMax);
+                    int lignes = jdbcTemplate.update(
+                            "INSERT INTO notification_utilisateur (id_notification, id_utilisateur) " +
+                                    "SELECT ?, u.id_utilisateur " + filtre.clauses() +
+                                    " AND u.id_utilisateur > ? AND u.id_utilisateur <= ?",
+                            paramsInsertion.toArray());
+                    jdbcTemplate.update("UPDATE notification SET curseur_diffusion = ?, nombre_destinataires_traites = ? " +
+                            "WHERE id_notification = ?", borneMax, dejaTraites + lignes, idNotification);
+                    // L'audience a pu changer entre la sélection et l'insertion : compteurs rechargés
+                    if (lignes == ids.size()) {
+                        compteurNonLuesCache.incrementer(ids);
+                    } else {
+                        compteurNonLuesCache.invalider(ids);
+                    }
+                    return lignes;
+                });
+
+                curseur = borneMax;
+                traites += inseres != null ? inseres : 0;
+                log.debug("Diffusion notification {}: {} destinataire(s) traités", idNotification, traites);
+
+                if (ids.size() < tailleLot) {
+                    break;
+                }
+            }
+
+            jdbcTemplate.update("UPDATE notification SET statut_diffusion = 'TERMINEE', nombre_destinataires = ? " +
+                    "WHERE id_notification = ?", traites, idNotification);
+            log.info("Diffusion de la notification {} terminée: {} destinataire(s) en {} ms",
+                    idNotification, traites, System.currentTimeMillis() - debutDiffusion);
+        } catch (Exception e) {
+            log.error("Erreur lors de la diffusion de la notification {}: {}", idNotification, e.getMessage(), e);
+            signalerErreur(idNotification, e);
+        }
+    }
+
+    private void signalerErreur(Long idNotification, Exception erreur) {
+        try {
+            Integer tentatives = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(tentatives_diffusion, 0) + 1 FROM notification WHERE id_notification = ?",
+                    Integer.class, idNotification);
+            int tentative = tentatives != null ? tentatives : 1;
+            if (tentative < tentativesMax) {
+                // Délai doublé à chaque essai ; la relance reprend au curseur de la dernière tranche validée
+                LocalDateTime prochaine = LocalDateTime.now().plusSeconds(delaiBaseSecondes << Math.min(tentative - 1, 16));
+                jdbcTemplate.update("UPDATE notification SET statut_diffusion = 'ERREUR', tentatives_diffusion = ?, " +
+                        "prochaine_diffusion = ? WHERE id_notification = ?", tentative, prochaine, idNotification);
+                log.warn("Diffusion de la notification {} relancée à {} (essai {}/{})",
+                        idNotification, prochaine, tentative + 1, tentativesMax);
+                return;
+            }
+            String message = erreur.getMessage() != null && erreur.getMessage().length() > 500
+                    ? erreur.getMessage().substring(0, 500) : erreur.getMessage();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("UPDATE notification SET statut_diffusion = 'ECHEC', tentatives_diffusion = ?, " +
+                        "prochaine_diffusion = NULL WHERE id_notification = ?", tentative, idNotification);
+                // Les envois en attente de la fin du fan-out ne partiront plus
+                jdbcTemplate.update("UPDATE notification_outbox SET statut = 'ECHEC', derniere_erreur = ? " +
+                        "WHERE id_notification = ? AND statut = 'EN_ATTENTE'", message, idNotification);
+            });
+            log.error("Diffusion de la notification {} abandonnée après {} essai(s)", idNotification, tentative);
+        } catch (Exception e) {
+            // L'état reste EN_COURS : la diffusion sera reprise au prochain démarrage
+            log.error("Impossible d'enregistrer l'échec de diffusion de la notification {}: {}", idNotification, e.getMessage());
+        }
+    }
+
+    private FiltreAudience construireFiltre(AudienceNotificationDTO audience) {
+        if (audience == null || audience.estVide()) {
+            throw new BusinessException("L'audience doit préciser au moins un rôle, un code postal ou une zone");
+        }
+
+        StringBuilder from = new StringBuilder("FROM utilisateur u");
+        StringBuilder where = new StringBuilder(" WHERE u.actif = TRUE");
+        List<Object> params = new ArrayList<>();
+
+        if (audience.getRoles() != null && !audience.getRoles().isEmpty()) {
+            List<String> conditions = new ArrayList<>();
+            for (String role : new LinkedHashSet<>(audience.getRoles())) {
+                String table = TABLES_PAR_ROLE.get(role);
+                if (table == null) {
+                    throw new BusinessException("Rôle d'audience invalide: " + role);
+                }
+                conditions.add("EXISTS (SELECT 1 FROM " + table + " r WHERE r.id_utilisateur = u.id_utilisateur)");
+            }
+            where.append(" AND (").append(String.join(" OR ", conditions)).append(")");
+        }
+
+        if (audience.getCodesPostaux() != null && !audience.getCodesPostaux().isEmpty()) {
+            List<String> codes = new ArrayList<>(new LinkedHashSet<>(audience.getCodesPostaux()));
+            where.append(" AND u.code_postal IN (")
+                    .append(String.join(",", Collections.nCopies(codes.size(), "?")))
+                    .append(")");
+            params.addAll(codes);
+        }
+
+        boolean zonePartielle = audience.getLatitudeMin() != null || audience.getLatitudeMax() != null
+                || audience.getLongitudeMin() != null || audience.getLongitudeMax() != null;
+        if (audience.hasZone()) {
+            from.append(" JOIN citoyen z ON z.id_utilisateur = u.id_utilisateur");
+            where.append(" AND z.latitude BETWEEN ? AND ? AND z.longitude BETWEEN ? AND ?");
+            params.add(audience.getLatitudeMin());
+            params.add(audience.getLatitudeMax());
+            params.add(audience.getLongitudeMin());
+            params.add(audience.getLongitudeMax());
+        } else if (zonePartielle) {
+            throw new BusinessException("La zone doit préciser latitudeMin, latitudeMax, longitudeMin et longitudeMax");
+        }
+
+        return new FiltreAudience(from.append(where).toString(), params);
+    }
+
+    private record FiltreAudience(String clauses, List<Object> params) {
+    }
+}
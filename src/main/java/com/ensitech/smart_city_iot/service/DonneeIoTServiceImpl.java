@@ -38,6 +38,15 @@ public class DonneeIoTServiceImpl implements DonneeIoTService {
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Autowired
+    private ValidationDonneeService validationDonneeService;
+
+    @Autowired
+    private AlimentationSketchs alimentationSketchs;
+
+    @Autowired
+    private BattementsCapteurs battementsCapteurs;
+
     private final ObjectMapper objectMapper;
     private final String TOPIC_NAME = "smart-city-iot";
 
@@ -47,13 +56,14 @@ public class DonneeIoTServiceImpl implements DonneeIoTService {
     }
 
     /**
-     * Collecte automatique des données toutes les 5 minutes pour tous les capteurs actifs
+     * Collecte automatique des données toutes les 15 minutes pour tous les capteurs actifs ;
+     * les capteurs DEFAILLANT restent collectés : leur prochaine mesure les rétablit
      */
-    @Scheduled(fixedRate = 900000) // 15 minutes
+    @Scheduled(fixedRateString = "${donnees.collecte.intervalle-ms:900000}")
     public void collecterDonneesAutomatiquement() {
         log.info("Début de la collecte automatique des données IoT");
 
-        List<Capteur> capteursActifs = capteurRepository.findByStatut("ACTIF");
+        List<Capteur> capteursActifs = capteurRepository.findByStatutIn(List.of("ACTIF", "DEFAILLANT"));
 
         for (Capteur capteur : capteursActifs) {
             try {
@@ -187,13 +197,15 @@ public class DonneeIoTServiceImpl implements DonneeIoTService {
                 .pm10(message.getPm10())
                 .timestampCollecte(message.getTimestampCollecte())
                 .sourceApi(message.getSourceApi())
-                .statutDonnee("VALIDE")
                 .build();
 
+        validationDonneeService.valider(capteur, donneeIoT);
         donneeIoTRepository.save(donneeIoT);
+        alimentationSketchs.enregistrer(donneeIoT);
+        battementsCapteurs.battement(capteur);
 
-        log.info("Données IoT sauvegardées pour le capteur: {} (ville: {})",
-                capteur.getNomCapteur(), message.getVilleNom());
+        log.info("Données IoT sauvegardées pour le capteur: {} (ville: {}, statut: {})",
+                capteur.getNomCapteur(), message.getVilleNom(), donneeIoT.getStatutDonnee());
     }
 
     /**
@@ -0,0 +1,19 @@
+package com.ensitech.smart_city_iot.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.function.LongConsumer;
+
+public interface ExportDonneesService {
+
+    void verifierPeriode(LocalDateTime debut, LocalDateTime fin);
+
+    /**
+     * Données valides de [debut, fin] au format Arrow IPC, écrites en flux dans la sortie (non fermée)
+     *
+     * @param progression reçoit le nombre de lignes écrites, à chaque lot
+     * @return nombre de lignes écrites
+     */
+    long exporterArrow(LocalDateTime debut, LocalDateTime fin, OutputStream sortie, LongConsumer progression) throws IOException;
+}
@@ -0,0 +1,79 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.utils.EcrivainArrow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Export colonnaire des données brutes. Les dictionnaires et les lignes sont lus dans la même
+ * transaction en lecture seule (même instantané) : toute valeur texte lue figure dans son dictionnaire.
+ */
+@Service
+@Transactional(readOnly = true)
+@Slf4j
+public class ExportDonneesServiceImpl implements ExportDonneesService {
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${exports.arrow.taille-lot:65536}")
+    private int tailleLot;
+
+    @Override
+    public void verifierPeriode(LocalDateTime debut, LocalDateTime fin) {
+        if (debut == null || fin == null || !debut.isBefore(fin)) {
+            throw new BusinessException("La période de début doit être antérieure à la période de fin");
+        }
+        if (debut.plusYears(1).isBefore(fin)) {
+            throw new BusinessException("La période d'export ne peut pas dépasser 1 an");
+        }
+    }
+
+    @Override
+    public long exporterArrow(LocalDateTime debut, LocalDateTime fin, OutputStream sortie, LongConsumer progression) throws IOException {
+        verifierPeriode(debut, fin);
+        LocalDateTime finExclue = fin.plus(1, ChronoUnit.MICROS);
+
+        EcrivainArrow.Dictionnaires dictionnaires = EcrivainArrow.Dictionnaires.depuis(
+                donneeIoTRepository.findValeursTexteDistinctes("VALIDE", debut, finExclue));
+
+        try (EcrivainArrow ecrivain = new EcrivainArrow(sortie, dictionnaires, tailleLot);
+             Stream<DonneeIoT> flux = donneeIoTRepository.streamByStatutAndIntervalle("VALIDE", debut, finExclue)) {
+            Iterator<DonneeIoT> donnees = flux.iterator();
+            while (donnees.hasNext()) {
+                DonneeIoT donnee = donnees.next();
+                ecrivain.ajouter(donnee);
+                entityManager.detach(donnee);
+                if (ecrivain.getNombreLignes() % tailleLot == 0) {
+                    progression.accept(ecrivain.getNombreLignes());
+                }
+            }
+            ecrivain.terminer();
+            if (ecrivain.getValeursHorsDictionnaire() > 0) {
+                log.warn("Export Arrow {} - {}: {} valeur(s) texte absente(s) des dictionnaires, écrites nulles",
+                        debut, fin, ecrivain.getValeursHorsDictionnaire());
+            }
+            log.info("Export Arrow {} - {}: {} lignes", debut, fin, ecrivain.getNombreLignes());
+            return ecrivain.getNombreLignes();
+        }
+    }
+}
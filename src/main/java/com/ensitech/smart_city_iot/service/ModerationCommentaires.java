@@ -0,0 +1,154 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.Commentaire;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.utils.AutomateModeration;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modération des commentaires à l'écriture : titre et contenu sont analysés en un passage par
+ * l'automate du dictionnaire de termes pondérés. Au-delà du seuil de blocage le commentaire est refusé,
+ * au-delà du seuil de signalement il entre dans la file de modération (colonne signale indexée).
+ * <p>
+ * Le dictionnaire (une ligne {@code terme;poids}, {@code terme*} pour un préfixe, {@code #} pour un
+ * commentaire) est relu quand sa date de modification change ; l'automate est remplacé d'un bloc,
+ * les analyses en cours finissent sur l'ancien.
+ */
+@Component
+@Slf4j
+public class ModerationCommentaires implements ApplicationRunner {
+
+    private static final int TAILLE_LOT = 500;
+    private static final int POIDS_DEFAUT = 1;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${moderation.dictionnaire:classpath:moderation/termes.txt}")
+    private String emplacementDictionnaire;
+
+    @Value("${moderation.seuil-signalement:5}")
+    private int seuilSignalement;
+
+    @Value("${moderation.seuil-blocage:10}")
+    private int seuilBlocage;
+
+    private volatile AutomateModeration automate = AutomateModeration.construire(Map.of());
+    private long dateDictionnaire = -1;
+
+    @PostConstruct
+    public void initialiser() {
+        recharger();
+    }
+
+    /**
+     * Score et signalement du commentaire d'après son titre et son contenu
+     *
+     * @throws BusinessException si le score atteint le seuil de blocage
+     */
+    public void moderer(Commentaire commentaire) {
+        AutomateModeration.Resultat resultat = automate.analyser(commentaire.getTitre(), commentaire.getContenu());
+        if (resultat.score() >= seuilBlocage) {
+            log.info("Commentaire refusé par la modération, termes: {}", resultat.termes());
+            throw new BusinessException("Contenu non autorisé détecté");
+        }
+        commentaire.setScoreModeration(resultat.score());
+        commentaire.setSignale(resultat.score() >= seuilSignalement);
+        if (commentaire.getSignale()) {
+            log.debug("Commentaire signalé à la modération, termes: {}", resultat.termes());
+        }
+    }
+
+    /**
+     * Score des commentaires antérieurs à la modération à l'écriture, jamais bloqués
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        long moderes = 0;
+        List<Object[]> lot;
+        do {
+            AutomateModeration courant = automate;
+            lot = jdbcTemplate.query(
+                    "SELECT id_commentaire, titre, contenu FROM commentaire WHERE score_moderation IS NULL LIMIT " + TAILLE_LOT,
+                    (rs, i) -> {
+                        int score = courant.analyser(rs.getString(2), rs.getString(3)).score();
+                        return new Object[]{score, score >= seuilSignalement, rs.getLong(1)};
+                    });
+            if (!lot.isEmpty()) {
+                jdbcTemplate.batchUpdate(
+                        "UPDATE commentaire SET score_moderation = ?, signale = ? WHERE id_commentaire = ?", lot);
+                moderes += lot.size();
+            }
+        } while (lot.size() == TAILLE_LOT);
+        if (moderes > 0) {
+            log.info("Score de modération calculé pour {} commentaire(s)", moderes);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${moderation.dictionnaire.intervalle-verification-ms:30000}")
+    public synchronized void recharger() {
+        Resource ressource = resourceLoader.getResource(emplacementDictionnaire);
+        try {
+            long date = ressource.lastModified();
+            if (date == dateDictionnaire) {
+                return;
+            }
+            Map<String, Integer> termes = lire(ressource);
+            automate = AutomateModeration.construire(termes);
+            dateDictionnaire = date;
+            log.info("Dictionnaire de modération chargé: {} terme(s) depuis {}", automate.getNombreTermes(),
+                    emplacementDictionnaire);
+        } catch (IOException e) {
+            log.warn("Dictionnaire de modération illisible ({}), conservation du précédent: {}",
+                    emplacementDictionnaire, e.getMessage());
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private Map<String, Integer> lire(Resource ressource) throws IOException {
+        Map<String, Integer> termes = new LinkedHashMap<>();
+        try (BufferedReader lecteur = new BufferedReader(
+                new InputStreamReader(ressource.getInputStream(), StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                ligne = ligne.trim();
+                if (ligne.isEmpty() || ligne.startsWith("#")) {
+                    continue;
+                }
+                int separateur = ligne.lastIndexOf(';');
+                if (separateur < 0) {
+                    termes.put(ligne, POIDS_DEFAUT);
+                    continue;
+                }
+                try {
+                    termes.put(ligne.substring(0, separateur).trim(), Integer.parseInt(ligne.substring(separateur + 1).trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("Poids invalide ignoré dans le dictionnaire de modération: {}", ligne);
+                }
+            }
+        }
+        return termes;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.notificationDTO.EnvoiNotificationDTO;
+import com.ensitech.smart_city_iot.entity.Notification;
+
+import java.util.List;
+import java.util.Map;
+
+public interface NotificationDispatchService {
+
+    /** Écrit l'enregistrement d'outbox dans la transaction de l'appelant */
+    void planifierEnvoi(Notification notification);
+
+    boolean estEnvoiPlanifie(Long idNotification);
+
+    List<EnvoiNotificationDTO> reclamerLot(String typeNotification, int taille);
+
+    void finaliserLot(String typeNotification, List<EnvoiNotificationDTO> envoyes, Map<EnvoiNotificationDTO, String> echecs);
+
+    int libererReclamationsExpirees();
+}
@@ -0,0 +1,163 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.config.NotificationDispatchProperties;
+import com.ensitech.smart_city_iot.dto.notificationDTO.EnvoiNotificationDTO;
+import com.ensitech.smart_city_iot.entity.Notification;
+import com.ensitech.smart_city_iot.entity.NotificationOutbox;
+import com.ensitech.smart_city_iot.repository.NotificationOutboxRepository;
+import com.ensitech.smart_city_iot.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+@Transactional
+public class NotificationDispatchServiceImpl implements NotificationDispatchService {
+
+    private static final List<String> STATUTS_EN_COURS = List.of("EN_ATTENTE", "EN_COURS");
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationDispatchProperties proprietes;
+
+    @Override
+    public void planifierEnvoi(Notification notification) {
+        String typeNotification = notification.getTypeNotification() != null
+                ? notification.getTypeNotification() : "SYSTEME";
+        NotificationOutbox outbox = NotificationOutbox.builder()
+                .notification(notification)
+                .typeNotification(typeNotification)
+                .statut("EN_ATTENTE")
+                .tentatives(0)
+                .build();
+
+        outboxRepository.save(outbox);
+        log.debug("Envoi planifié pour la notification ID {} (canal {})",
+                notification.getIdNotification(), typeNotification);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean estEnvoiPlanifie(Long idNotification) {
+        return outboxRepository.existsByNotificationIdNotificationAndStatutIn(idNotification, STATUTS_EN_COURS);
+    }
+
+    /** Verrouille un lot du canal, le passe EN_COURS et charge les notifications en deux requêtes */
+    @Override
+    public List<EnvoiNotificationDTO> reclamerLot(String typeNotification, int taille) {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<NotificationOutbox> lot = outboxRepository.findLotAReclamer(
+                typeNotification, maintenant, PageRequest.of(0, taille));
+        if (lot.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> idsOutbox = lot.stream().map(NotificationOutbox::getIdOutbox).collect(Collectors.toList());
+        outboxRepository.mettreAJourStatut(idsOutbox, "EN_COURS", maintenant);
+
+        List<Long> idsNotification = lot.stream()
+                .map(o -> o.getNotification().getIdNotification())
+                .distinct()
+                .collect(Collectors.toList());
+        Map<Long, Notification> notifications = notificationRepository.findAllById(idsNotification).stream()
+                .collect(Collectors.toMap(Notification::getIdNotification, n -> n));
+        Map<Long, Long> destinataires = new HashMap<>();
+        for (Object[] ligne : notificationRepository.countDestinatairesParNotification(idsNotification)) {
+            destinataires.put((Long) ligne[0], (Long) ligne[1]);
+        }
+
+        List<EnvoiNotificationDTO> envois = new ArrayList<>(lot.size());
+        for (NotificationOutbox outbox : lot) {
+            Long idNotification = outbox.getNotification().getIdNotification();
+            Notification notification = notifications.get(idNotification);
+            envois.add(EnvoiNotificationDTO.builder()
+                    .idOutbox(outbox.getIdOutbox())
+                    .idNotification(idNotification)
+                    .typeNotification(typeNotification)
+                    .titre(notification != null ? notification.getTitre() : null)
+                    .message(notification != null ? notification.getMessage() : null)
+                    .tentatives(outbox.getTentatives())
+                    .nombreDestinataires(destinataires.getOrDefault(idNotification, 0L))
+                    .build());
+        }
+
+        log.debug("Lot de {} notification(s) {} réclamé", envois.size(), typeNotification);
+        return envois;
+    }
+
+    /** Statut et date d'envoi de tout le lot en une requête ; les échecs sont replanifiés avec backoff */
+    @Override
+    public void finaliserLot(String typeNotification, List<EnvoiNotificationDTO> envoyes,
+                             Map<EnvoiNotificationDTO, String> echecs) {
+        LocalDateTime maintenant = LocalDateTime.now();
+
+        if (!envoyes.isEmpty()) {
+            notificationRepository.mettreAJourStatutLot(
+                    envoyes.stream().map(EnvoiNotificationDTO::getIdNotification).collect(Collectors.toList()),
+                    "ENVOYE", maintenant);
+            outboxRepository.mettreAJourStatut(
+                    envoyes.stream().map(EnvoiNotificationDTO::getIdOutbox).collect(Collectors.toList()),
+                    "TRAITE", maintenant);
+        }
+
+        if (echecs.isEmpty()) {
+            return;
+        }
+
+        NotificationDispatchProperties.Canal canal = proprietes.getCanal(typeNotification);
+        List<EnvoiNotificationDTO> abandons = new ArrayList<>();
+        echecs.forEach((envoi, erreur) -> {
+            int tentatives = envoi.getTentatives() + 1;
+            if (tentatives >= canal.getTentativesMax()) {
+                abandons.add(envoi);
+            } else {
+                long delai = Math.min(canal.getDelaiMaxSecondes(),
+                        canal.getDelaiBaseSecondes() << Math.min(tentatives - 1, 20));
+                outboxRepository.replanifier(envoi.getIdOutbox(), maintenant.plusSeconds(delai), tronquer(erreur));
+            }
+        });
+
+        if (!abandons.isEmpty()) {
+            notificationRepository.mettreAJourStatutLot(
+                    abandons.stream().map(EnvoiNotificationDTO::getIdNotification).collect(Collectors.toList()),
+                    "ECHEC", null);
+            outboxRepository.mettreAJourStatut(
+                    abandons.stream().map(EnvoiNotificationDTO::getIdOutbox).collect(Collectors.toList()),
+                    "ECHEC", maintenant);
+            log.warn("{} notification(s) {} en échec définitif après {} tentatives",
+                    abandons.size(), typeNotification, canal.getTentativesMax());
+        }
+    }
+
+    @Override
+    public int libererReclamationsExpirees() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(proprietes.getDelaiReclamationMinutes());
+        int liberees = outboxRepository.libererReclamationsExpirees(limite);
+        if (liberees > 0) {
+            log.warn("{} envoi(s) de notification remis en file après expiration de la réclamation", liberees);
+        }
+        return liberees;
+    }
+
+    private String tronquer(String erreur) {
+        if (erreur == null) {
+            return null;
+        }
+        return erreur.length() > 500 ? erreur.substring(0, 500) : erreur;
+    }
+}
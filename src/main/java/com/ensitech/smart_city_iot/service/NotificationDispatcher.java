@@ -0,0 +1,157 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.config.NotificationDispatchProperties;
+import com.ensitech.smart_city_iot.dto.notificationDTO.EnvoiNotificationDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Worker de l'outbox des notifications : chaque canal dispose de son propre pool
+ * (limite de concurrence) et d'au plus un lot en vol.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private static final List<String> CANAUX = List.of("EMAIL", "SMS", "PUSH", "SYSTEME");
+
+    @Autowired
+    private NotificationDispatchService dispatchService;
+
+    @Autowired
+    private NotificationDispatchProperties proprietes;
+
+    private final Map<String, ExecutorService> executeurs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicBoolean> lotsEnVol = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialiserCanaux() {
+        for (String canal : CANAUX) {
+            int concurrence = Math.max(1, proprietes.getCanal(canal).getConcurrence());
+            executeurs.put(canal, Executors.newFixedThreadPool(concurrence, threadFactory(canal)));
+            lotsEnVol.put(canal, new AtomicBoolean(false));
+            log.info("Canal de notification {} initialisé (concurrence: {})", canal, concurrence);
+        }
+    }
+
+    @PreDestroy
+    public void arreterCanaux() {
+        executeurs.values().forEach(ExecutorService::shutdown);
+    }
+
+    /**
+     * Réclame un lot par canal libre et le distribue sur le pool du canal
+     */
+    @Scheduled(fixedDelayString = "${notification.dispatch.intervalle-ms:2000}")
+    public void drainerOutbox() {
+        for (String canal : CANAUX) {
+            AtomicBoolean enVol = lotsEnVol.get(canal);
+            if (!enVol.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                List<EnvoiNotificationDTO> lot = dispatchService.reclamerLot(canal, proprietes.getTailleLot());
+                if (lot.isEmpty()) {
+                    enVol.set(false);
+                } else {
+                    traiterLot(canal, lot, enVol);
+                }
+            } catch (Exception e) {
+                enVol.set(false);
+                log.error("Erreur lors de la réclamation d'un lot {}: {}", canal, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void libererReclamationsExpirees() {
+        try {
+            dispatchService.libererReclamationsExpirees();
+        } catch (Exception e) {
+            log.error("Erreur lors de la libération des réclamations expirées: {}", e.getMessage());
+        }
+    }
+
+    private void traiterLot(String canal, List<EnvoiNotificationDTO> lot, AtomicBoolean enVol) {
+        ExecutorService executeur = executeurs.get(canal);
+        List<CompletableFuture<String>> envois = new ArrayList<>(lot.size());
+        for (EnvoiNotificationDTO envoi : lot) {
+            envois.add(CompletableFuture.supplyAsync(() -> envoyer(envoi), executeur));
+        }
+
+        CompletableFuture.allOf(envois.toArray(new CompletableFuture<?>[0])).whenComplete((ignore, erreur) -> {
+            try {
+                List<EnvoiNotificationDTO> envoyes = new ArrayList<>();
+                Map<EnvoiNotificationDTO, String> echecs = new HashMap<>();
+                for (int i = 0; i < lot.size(); i++) {
+                    String erreurEnvoi = envois.get(i).join();
+                    if (erreurEnvoi == null) {
+                        envoyes.add(lot.get(i));
+                    } else {
+                        echecs.put(lot.get(i), erreurEnvoi);
+                    }
+                }
+                dispatchService.finaliserLot(canal, envoyes, echecs);
+                log.info("Lot {} traité: {} envoyée(s), {} échec(s)", canal, envoyes.size(), echecs.size());
+            } catch (Exception e) {
+                log.error("Erreur lors de la finalisation d'un lot {}: {}", canal, e.getMessage(), e);
+            } finally {
+                enVol.set(false);
+            }
+        });
+    }
+
+    /**
+     * Envoi sur le canal ; retourne le message d'erreur ou null en cas de succès
+     */
+    private String envoyer(EnvoiNotificationDTO envoi) {
+        try {
+            // Ici, brancher le fournisseur réel (SMTP, passerelle SMS, push)
+            switch (envoi.getTypeNotification()) {
+                case "EMAIL":
+                    log.info("Envoi par email à {} utilisateurs: {}", envoi.getNombreDestinataires(), envoi.getTitre());
+                    break;
+                case "SMS":
+                    log.info("Envoi par SMS à {} utilisateurs: {}", envoi.getNombreDestinataires(), envoi.getTitre());
+                    break;
+                case "PUSH":
+                    log.info("Envoi push à {} utilisateurs: {}", envoi.getNombreDestinataires(), envoi.getTitre());
+                    break;
+                case "SYSTEME":
+                    log.info("Notification système pour {} utilisateurs: {}", envoi.getNombreDestinataires(), envoi.getTitre());
+                    break;
+                default:
+                    return "Canal inconnu: " + envoi.getTypeNotification();
+            }
+            return null;
+        } catch (Exception e) {
+            log.warn("Échec d'envoi de la notification ID {}: {}", envoi.getIdNotification(), e.getMessage());
+            return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+    }
+
+    private ThreadFactory threadFactory(String canal) {
+        AtomicInteger compteur = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "notification-" + canal.toLowerCase() + "-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
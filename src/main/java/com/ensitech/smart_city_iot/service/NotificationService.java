@@ -1,6 +1,7 @@
 package com.ensitech.smart_city_iot.service;
 
 import com.ensitech.smart_city_iot.dto.notificationDTO.CreateNotificationDTO;
+import com.ensitech.smart_city_iot.dto.notificationDTO.DiffusionNotificationDTO;
 import com.ensitech.smart_city_iot.dto.notificationDTO.ResponseNotificationDTO;
 
 import java.util.List;
@@ -11,6 +12,8 @@ public interface NotificationService {
 
     ResponseNotificationDTO getNotificationById(Long id) throws Exception;
 
+    DiffusionNotificationDTO getDiffusion(Long id) throws Exception;
+
     List<ResponseNotificationDTO> getAllNotifications() throws Exception;
 
     List<ResponseNotificationDTO> getNotificationsByAlerte(Long idAlerte) throws Exception;
@@ -20,7 +23,11 @@ public interface NotificationService {
     List<ResponseNotificationDTO> getNotificationsNonLues(Long idUtilisateur) throws Exception;
 
 
-    void marquerCommeLu(Long id) throws Exception;
+    long getNombreNonLues(Long idUtilisateur) throws Exception;
+
+    void marquerCommeLuPourUtilisateur(Long idUtilisateur, Long idNotification) throws Exception;
+
+    int marquerToutesCommeLues(Long idUtilisateur) throws Exception;
 
     void marquerCommeEnvoye(Long id) throws Exception;
 
@@ -1,18 +1,21 @@
 package com.ensitech.smart_city_iot.service;
 
 import com.ensitech.smart_city_iot.dto.notificationDTO.CreateNotificationDTO;
+import com.ensitech.smart_city_iot.dto.notificationDTO.DiffusionNotificationDTO;
 import com.ensitech.smart_city_iot.dto.notificationDTO.ResponseNotificationDTO;
 import com.ensitech.smart_city_iot.entity.Alerte;
 import com.ensitech.smart_city_iot.entity.Notification;
-import com.ensitech.smart_city_iot.entity.Utilisateur;
+import com.ensitech.smart_city_iot.entity.NotificationDestinataireId;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
 import com.ensitech.smart_city_iot.repository.AlerteRepository;
+import com.ensitech.smart_city_iot.repository.NotificationDestinataireRepository;
 import com.ensitech.smart_city_iot.repository.NotificationRepository;
-import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -32,7 +35,19 @@ public class NotificationServiceImpl implements NotificationService {
     private AlerteRepository alerteRepository;
 
     @Autowired
-    private UtilisateurRepository utilisateurRepository;
+    private NotificationDispatchService notificationDispatchService;
+
+    @Autowired
+    private DiffusionNotificationService diffusionNotificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private NotificationDestinataireRepository destinataireRepository;
+
+    @Autowired
+    private CompteurNonLuesCache compteurNonLuesCache;
 
     @Override
     public ResponseNotificationDTO createNotification(CreateNotificationDTO dto) throws Exception {
@@ -47,25 +62,11 @@ public class NotificationServiceImpl implements NotificationService {
             throw new BusinessException("Impossible de créer une notification pour une alerte inactive");
         }
 
-        // Vérification des utilisateurs
-        List<Utilisateur> utilisateurs = new ArrayList<>();
-        for (Long idUtilisateur : dto.getIdUtilisateurs()) {
-            Utilisateur utilisateur = utilisateurRepository.findById(idUtilisateur)
-                    .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé avec l'ID: " + idUtilisateur));
-
-            if (!utilisateur.isActif()) {
-                log.warn("Utilisateur inactif ignoré: {}", idUtilisateur);
-                continue;
-            }
-
-            utilisateurs.add(utilisateur);
-        }
-
-        if (utilisateurs.isEmpty()) {
-            throw new BusinessException("Aucun utilisateur actif spécifié pour la notification");
+        boolean ciblageExplicite = dto.getIdUtilisateurs() != null && !dto.getIdUtilisateurs().isEmpty();
+        if (!ciblageExplicite && dto.getAudience() == null) {
+            throw new BusinessException("Au moins un utilisateur ou une audience doit être spécifié");
         }
 
-        // Création de la notification
         Notification notification = Notification.builder()
                 .titre(dto.getTitre())
                 .message(dto.getMessage())
@@ -73,10 +74,38 @@ public class NotificationServiceImpl implements NotificationService {
                 .statut("EN_ATTENTE")
                 .lu(false)
                 .alerte(alerte)
-                .utilisateurs(utilisateurs)
                 .build();
 
-        notification = notificationRepository.save(notification);
+        if (ciblageExplicite) {
+            // Vérification des utilisateurs en une requête, inscription par lots
+            List<Long> idUtilisateurs = diffusionNotificationService.filtrerUtilisateursActifs(dto.getIdUtilisateurs());
+            if (idUtilisateurs.isEmpty()) {
+                throw new BusinessException("Aucun utilisateur actif spécifié pour la notification");
+            }
+
+            notification.setStatutDiffusion("TERMINEE");
+            notification.setNombreDestinataires((long) idUtilisateurs.size());
+            notification.setNombreDestinatairesTraites((long) idUtilisateurs.size());
+            notification = notificationRepository.save(notification);
+            diffusionNotificationService.inscrireDestinataires(notification.getIdNotification(), idUtilisateurs);
+        } else {
+            // Audience ciblée : fan-out ensembliste après validation de la transaction
+            long audience = diffusionNotificationService.compterAudience(dto.getAudience());
+            if (audience == 0) {
+                throw new BusinessException("Aucun utilisateur actif ne correspond à l'audience spécifiée");
+            }
+
+            notification.setStatutDiffusion("EN_COURS");
+            notification.setNombreDestinataires(audience);
+            notification.setNombreDestinatairesTraites(0L);
+            notification.setCiblage(objectMapper.writeValueAsString(dto.getAudience()));
+            notification = notificationRepository.save(notification);
+            diffusionNotificationService.demarrerDiffusion(notification.getIdNotification());
+            log.info("Diffusion de la notification {} vers une audience de {} utilisateur(s)",
+                    notification.getIdNotification(), audience);
+        }
+
+        notificationDispatchService.planifierEnvoi(notification);
 
         log.info("Notification créée avec succès: ID {}", notification.getIdNotification());
         return ResponseNotificationDTO.fromEntity(notification);
@@ -90,6 +119,14 @@ public class NotificationServiceImpl implements NotificationService {
         return ResponseNotificationDTO.fromEntity(notification);
     }
 
+    @Override
+    public DiffusionNotificationDTO getDiffusion(Long id) throws Exception {
+        Notification notification = notificationRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Notification non trouvée avec l'ID: " + id));
+
+        return DiffusionNotificationDTO.fromEntity(notification);
+    }
+
     @Override
     public List<ResponseNotificationDTO> getAllNotifications() throws Exception {
         List<Notification> notifications = notificationRepository.findAll();
@@ -108,10 +145,14 @@ public class NotificationServiceImpl implements NotificationService {
 
     @Override
     public List<ResponseNotificationDTO> getNotificationsByUtilisateur(Long idUtilisateur) throws Exception {
-        List<Notification> notifications = notificationRepository.findByUtilisateur(idUtilisateur);
-        return notifications.stream()
-                .map(ResponseNotificationDTO::fromEntity)
-                .collect(Collectors.toList());
+        List<Object[]> lignes = notificationRepository.findBoiteReception(idUtilisateur);
+        List<ResponseNotificationDTO> notifications = new ArrayList<>(lignes.size());
+        for (Object[] ligne : lignes) {
+            ResponseNotificationDTO dto = ResponseNotificationDTO.fromEntity((Notification) ligne[0]);
+            dto.setLu(Boolean.TRUE.equals(ligne[1]));
+            notifications.add(dto);
+        }
+        return notifications;
     }
 
     @Override
@@ -119,17 +160,39 @@ public class NotificationServiceImpl implements NotificationService {
         List<Notification> notifications = notificationRepository.findByUtilisateurAndLu(idUtilisateur, false);
         return notifications.stream()
                 .map(ResponseNotificationDTO::fromEntity)
+                .peek(dto -> dto.setLu(false))
                 .collect(Collectors.toList());
     }
 
+    // Servi par le cache : pas de transaction, donc pas de connexion empruntée au pool
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long getNombreNonLues(Long idUtilisateur) throws Exception {
+        return compteurNonLuesCache.getNombreNonLues(idUtilisateur);
+    }
+
 
     @Override
-    public void marquerCommeLu(Long id) throws Exception {
-        Notification notification = notificationRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Notification non trouvée avec l'ID: " + id));
+    public void marquerCommeLuPourUtilisateur(Long idUtilisateur, Long idNotification) throws Exception {
+        int modifiees = destinataireRepository.marquerCommeLue(idNotification, idUtilisateur, LocalDateTime.now());
+        if (modifiees == 0) {
+            // Déjà lue, ou l'utilisateur n'est pas destinataire de la notification
+            if (!destinataireRepository.existsById(new NotificationDestinataireId(idNotification, idUtilisateur))) {
+                throw new EntityNotFoundException("Notification " + idNotification
+                        + " non trouvée pour l'utilisateur ID: " + idUtilisateur);
+            }
+            return;
+        }
+        compteurNonLuesCache.decrementer(idUtilisateur);
+        log.info("Notification {} marquée comme lue par l'utilisateur {}", idNotification, idUtilisateur);
+    }
 
-        notificationRepository.marquerCommeLu(id);
-        log.info("Notification marquée comme lue: ID {}", id);
+    @Override
+    public int marquerToutesCommeLues(Long idUtilisateur) throws Exception {
+        int modifiees = destinataireRepository.marquerToutesCommeLues(idUtilisateur, LocalDateTime.now());
+        compteurNonLuesCache.remettreAZero(idUtilisateur);
+        log.info("{} notification(s) marquée(s) comme lue(s) pour l'utilisateur {}", modifiees, idUtilisateur);
+        return modifiees;
     }
 
     @Override
@@ -150,29 +213,14 @@ public class NotificationServiceImpl implements NotificationService {
             throw new BusinessException("Cette notification a déjà été envoyée");
         }
 
-        // Ici, vous pouvez ajouter la logique d'envoi réel (email, SMS, etc.)
-        // Pour cet exemple, on se contente de marquer comme envoyé
-
-        log.info("Envoi de la notification: {}", notification.getTitre());
-
-        // Simulation d'envoi selon le type
-        switch (notification.getTypeNotification()) {
-            case "EMAIL":
-                log.info("Envoi par email à {} utilisateurs", notification.getUtilisateurs().size());
-                break;
-            case "SMS":
-                log.info("Envoi par SMS à {} utilisateurs", notification.getUtilisateurs().size());
-                break;
-            case "PUSH":
-                log.info("Envoi push à {} utilisateurs", notification.getUtilisateurs().size());
-                break;
-            case "SYSTEME":
-                log.info("Notification système créée pour {} utilisateurs", notification.getUtilisateurs().size());
-                break;
+        if (notificationDispatchService.estEnvoiPlanifie(id)) {
+            log.info("Envoi déjà en file pour la notification ID {}", id);
+            return;
         }
 
-        marquerCommeEnvoye(id);
-        log.info("Notification envoyée avec succès: ID {}", id);
+        // L'envoi effectif est assuré par le dispatcher de l'outbox
+        notificationDispatchService.planifierEnvoi(notification);
+        log.info("Notification mise en file d'envoi: ID {}", id);
     }
 
 }
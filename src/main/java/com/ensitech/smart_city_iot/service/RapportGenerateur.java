@@ -0,0 +1,981 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.Rapport;
+import com.ensitech.smart_city_iot.repository.CapteurRepository;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.utils.AccumulateurStatistiques;
+import com.ensitech.smart_city_iot.utils.AccumulateurStatistiques.Statistiques;
+import com.ensitech.smart_city_iot.utils.MetriqueIoT;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Génération des rapports en flux : la période est découpée en jours parcourus en parallèle,
+ * chacun par son propre curseur (taille de lot fixe) et dans sa propre transaction.
+ * Seuls les agrégats et un échantillon borné restent en mémoire, quelle que soit la taille de la période.
+ * Les agrégats des jours clos complets sont réutilisés d'un rapport à l'autre tant que l'empreinte
+ * des données du jour ne change pas : seuls les jours absents du cache ou modifiés sont relus.
+ * Le fichier final est compressé en gzip (un seul membre) : il est servi tel quel aux clients
+ * qui acceptent cet encodage. Le format ARROW est un export colonnaire des données, écrit à part.
+ */
+@Component
+@Slf4j
+public class RapportGenerateur {
+
+    private static final int TAILLE_ECHANTILLON_JSON = 1000;
+    private static final int TAILLE_ECHANTILLON_TEXTE = 15;
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    private static final int PAS_PROGRESSION = 1000;
+    // À incrémenter à chaque changement du contenu de StatistiquesRapport
+    private static final int VERSION_AGREGATS = 1;
+    private static final String ENTETE_CSV = "ID_Donnee,Date_Collecte,Ville,Region,Pays,Latitude,Longitude," +
+            "Temperature_Celsius,Temperature_Fahrenheit,Humidite,Vitesse_Vent_KPH,Precipitation_MM," +
+            "CO,NO2,O3,SO2,PM10,Indice_UV,Nuageux,Source_API,ID_Capteur,Nom_Capteur\n";
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @Autowired
+    private CapteurRepository capteurRepository;
+
+    @Autowired
+    private CacheAgregatsJournaliers cacheAgregats;
+
+    @Autowired
+    private ExportDonneesService exportDonneesService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${rapports.stockage.repertoire:rapports}")
+    private String repertoire;
+
+    @Value("${rapports.stockage.compression:true}")
+    private boolean compression;
+
+    @Value("${rapports.generation.parallelisme:4}")
+    private int parallelisme;
+
+    private ForkJoinPool pool;
+    private TransactionTemplate transactionLecture;
+
+    @PostConstruct
+    public void initialiser() {
+        pool = new ForkJoinPool(Math.max(1, parallelisme));
+        transactionLecture = new TransactionTemplate(transactionManager);
+        transactionLecture.setReadOnly(true);
+        transactionLecture.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        log.info("Pool de génération des rapports initialisé (parallélisme: {})", pool.getParallelism());
+    }
+
+    @PreDestroy
+    public void arreter() {
+        pool.shutdownNow();
+    }
+
+    public ResultatGeneration generer(Rapport rapport) throws IOException {
+        return generer(rapport, lus -> { });
+    }
+
+    /**
+     * @param progression reçoit le nombre de lignes lues, toutes les {@value #PAS_PROGRESSION} lignes
+     */
+    public ResultatGeneration generer(Rapport rapport, LongConsumer progression) throws IOException {
+        return genererGroupe(List.of(rapport), progression).get(rapport.getIdRapport());
+    }
+
+    /**
+     * Rapports d'une même période générés ensemble : les données sont parcourues une seule fois et
+     * chaque rapport est rendu depuis les agrégats et l'échantillon communs. Les fichiers CSV et ARROW
+     * ne dépendent que de la période : produits pour le premier rapport, liés (ou copiés) pour les autres.
+     *
+     * @return résultat par id de rapport
+     */
+    public Map<Long, ResultatGeneration> genererGroupe(List<Rapport> rapports, LongConsumer progression) throws IOException {
+        Rapport reference = rapports.get(0);
+        for (Rapport rapport : rapports) {
+            if (!rapport.getPeriodeDebut().equals(reference.getPeriodeDebut())
+                    || !rapport.getPeriodeFin().equals(reference.getPeriodeFin())) {
+                throw new IllegalArgumentException("Les rapports d'un groupe doivent porter sur la même période");
+            }
+        }
+        Path dossier = Paths.get(repertoire).toAbsolutePath();
+        Files.createDirectories(dossier);
+        String prefixe = "rapport-" + reference.getIdRapport();
+        boolean csv = rapports.stream().anyMatch(rapport -> "CSV".equals(rapport.getFormatFichier()));
+        boolean agregats = rapports.stream().anyMatch(rapport -> !"CSV".equals(rapport.getFormatFichier())
+                && !"ARROW".equals(rapport.getFormatFichier()));
+        boolean json = rapports.stream().anyMatch(rapport -> "JSON".equals(rapport.getFormatFichier()));
+
+        Map<Long, ResultatGeneration> resultats = new LinkedHashMap<>();
+        try {
+            ResultatTranches tranches = csv || agregats ? parcourir(reference, dossier, prefixe, csv, progression) : null;
+            List<DonneeIoT> echantillon = agregats
+                    ? echantillon(reference, json ? TAILLE_ECHANTILLON_JSON : TAILLE_ECHANTILLON_TEXTE)
+                    : List.of();
+
+            Map<String, ResultatGeneration> partages = new HashMap<>();
+            for (Rapport rapport : rapports) {
+                String format = rapport.getFormatFichier();
+                ResultatGeneration partage = partages.get(format);
+                ResultatGeneration resultat;
+                if (partage != null) {
+                    resultat = lier(partage, rapport, dossier);
+                } else if ("ARROW".equals(format)) {
+                    resultat = genererArrow(rapport, dossier, progression);
+                    partages.put(format, resultat);
+                } else {
+                    resultat = ecrire(rapport, dossier, tranches, echantillon);
+                    if ("CSV".equals(format)) {
+                        partages.put(format, resultat);
+                    }
+                }
+                resultats.put(rapport.getIdRapport(), resultat);
+            }
+            if (rapports.size() > 1) {
+                log.info("Groupe de {} rapports du {} au {} généré en un parcours", rapports.size(),
+                        reference.getPeriodeDebut(), reference.getPeriodeFin());
+            }
+            return resultats;
+        } catch (IOException | RuntimeException e) {
+            // Pas de résultat partiel : les fichiers déjà écrits du groupe sont retirés
+            for (ResultatGeneration resultat : resultats.values()) {
+                Files.deleteIfExists(resultat.chemin());
+            }
+            throw e;
+        } finally {
+            supprimerTranches(dossier, prefixe);
+        }
+    }
+
+    /**
+     * Jours parcourus en parallèle, chacun avec son curseur ; fusion dans l'ordre des jours
+     */
+    private ResultatTranches parcourir(Rapport rapport, Path dossier, String prefixe, boolean csv,
+                                       LongConsumer progression) {
+        List<LocalDateTime> bornes = decouper(rapport.getPeriodeDebut(), rapport.getPeriodeFin());
+        Parcours parcours = new Parcours(bornes, empreintesJoursClos(bornes),
+                csv ? dossier.resolve(prefixe + "-tranche-") : null, new AtomicLong(), progression);
+        ResultatTranches resultat = pool.invoke(new TrancheTask(parcours, 0, bornes.size() - 1));
+        log.info("Rapport ID {}: {} jour(s), {} repris du cache", rapport.getIdRapport(),
+                bornes.size() - 1, parcours.reprises.get());
+        return resultat;
+    }
+
+    private ResultatGeneration ecrire(Rapport rapport, Path dossier, ResultatTranches tranches,
+                                      List<DonneeIoT> echantillon) throws IOException {
+        Path cible = cible(dossier, rapport);
+        Path temporaire = Files.createTempFile(dossier, "rapport-" + rapport.getIdRapport() + "-", ".tmp");
+        boolean csv = "CSV".equals(rapport.getFormatFichier());
+        StatistiquesRapport stats = tranches.stats();
+
+        try {
+            long taille;
+            if (csv && !compression) {
+                taille = concatenerCSV(tranches.parties(), temporaire);
+            } else {
+                CompteurOctets sortie = ouvrir(temporaire);
+                try (sortie) {
+                    if (csv) {
+                        sortie.write(ENTETE_CSV.getBytes(StandardCharsets.UTF_8));
+                        for (Path partie : tranches.parties()) {
+                            Files.copy(partie, sortie);
+                        }
+                    } else if ("JSON".equals(rapport.getFormatFichier())) {
+                        ecrireJSON(rapport, stats, echantillon, sortie);
+                    } else {
+                        ecrireTexte(rapport, stats,
+                                echantillon.subList(0, Math.min(TAILLE_ECHANTILLON_TEXTE, echantillon.size())), sortie);
+                    }
+                }
+                taille = sortie.octets;
+            }
+
+            Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Rapport ID {} écrit: {} octets, {} octets stockés", rapport.getIdRapport(), taille, Files.size(cible));
+            return new ResultatGeneration(cible, stats.nombre, taille, lireResume(cible));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaire);
+            throw e;
+        }
+    }
+
+    /**
+     * Export colonnaire : un seul parcours ordonné de la période, sans agrégats ;
+     * le fichier est compressé par Arrow (ZSTD par colonne) et jamais en gzip
+     */
+    private ResultatGeneration genererArrow(Rapport rapport, Path dossier, LongConsumer progression) throws IOException {
+        Path cible = cible(dossier, rapport);
+        Path temporaire = Files.createTempFile(dossier, "rapport-" + rapport.getIdRapport() + "-", ".tmp");
+        try {
+            long nombre;
+            try (OutputStream sortie = Files.newOutputStream(temporaire)) {
+                nombre = exportDonneesService.exporterArrow(rapport.getPeriodeDebut(), rapport.getPeriodeFin(), sortie, progression);
+            }
+            Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long taille = Files.size(cible);
+            log.info("Rapport ID {} écrit: {} lignes Arrow, {} octets", rapport.getIdRapport(), nombre, taille);
+            return new ResultatGeneration(cible, nombre, taille, Rapport.resumer("Export Arrow IPC de " + nombre +
+                    " données valides : colonnes typées, textes encodés par dictionnaire, compression ZSTD"));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporaire);
+            throw e;
+        }
+    }
+
+    /**
+     * Fichier identique d'un autre rapport du groupe : lien physique (les fichiers ne sont jamais
+     * modifiés en place, seulement remplacés), copie si le système de fichiers ne le permet pas
+     */
+    private ResultatGeneration lier(ResultatGeneration partage, Rapport rapport, Path dossier) throws IOException {
+        Path cible = cible(dossier, rapport);
+        Files.deleteIfExists(cible);
+        try {
+            Files.createLink(cible, partage.chemin());
+        } catch (UnsupportedOperationException | IOException e) {
+            Path temporaire = Files.createTempFile(dossier, "rapport-" + rapport.getIdRapport() + "-", ".tmp");
+            try {
+                Files.copy(partage.chemin(), temporaire, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporaire, cible, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaire);
+            }
+        }
+        return new ResultatGeneration(cible, partage.nombreDonnees(), partage.taille(), partage.resume());
+    }
+
+    private Path cible(Path dossier, Rapport rapport) {
+        String format = rapport.getFormatFichier();
+        boolean gzip = compression && !"ARROW".equals(format);
+        return dossier.resolve("rapport-" + rapport.getIdRapport() + extension(format) + (gzip ? ".gz" : ""));
+    }
+
+    /**
+     * @param taille taille du contenu avant compression (taille du fichier pour Arrow, compressé en interne)
+     * @param resume début du contenu, stocké dans la ligne du rapport pour les listes
+     */
+    public record ResultatGeneration(Path chemin, long nombreDonnees, long taille, String resume) {
+    }
+
+    public boolean estDansStockage(Path chemin) {
+        return chemin.toAbsolutePath().normalize().startsWith(Paths.get(repertoire).toAbsolutePath().normalize());
+    }
+
+    // ========== FORMATS ==========
+
+    /** Sortie du fichier final, compressée si configuré ; compte les octets avant compression */
+    private CompteurOctets ouvrir(Path fichier) throws IOException {
+        OutputStream fichierSortie = Files.newOutputStream(fichier);
+        return new CompteurOctets(compression
+                ? new GZIPOutputStream(fichierSortie, TAILLE_TAMPON)
+                : new BufferedOutputStream(fichierSortie, TAILLE_TAMPON));
+    }
+
+    /** Lit seulement les premiers caractères du fichier final */
+    private String lireResume(Path fichier) throws IOException {
+        InputStream entree = Files.newInputStream(fichier);
+        if (fichier.getFileName().toString().endsWith(".gz")) {
+            entree = new GZIPInputStream(entree);
+        }
+        try (Reader lecteur = new InputStreamReader(entree, StandardCharsets.UTF_8)) {
+            char[] debut = new char[Rapport.LONGUEUR_RESUME + 1];
+            int lus = 0;
+            int n;
+            while (lus < debut.length && (n = lecteur.read(debut, lus, debut.length - lus)) != -1) {
+                lus += n;
+            }
+            return Rapport.resumer(new String(debut, 0, lus));
+        }
+    }
+
+    /** En-tête puis fichiers des tranches recopiés dans l'ordre, sans passer par le tas (sans compression) */
+    private long concatenerCSV(List<Path> parties, Path destination) throws IOException {
+        try (FileChannel sortie = FileChannel.open(destination, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer entete = ByteBuffer.wrap(ENTETE_CSV.getBytes(StandardCharsets.UTF_8));
+            while (entete.hasRemaining()) {
+                sortie.write(entete);
+            }
+            for (Path partie : parties) {
+                try (FileChannel entree = FileChannel.open(partie, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long taille = entree.size();
+                    while (position < taille) {
+                        position += entree.transferTo(position, taille - position, sortie);
+                    }
+                }
+            }
+            return sortie.size();
+        }
+    }
+
+    private static final class CompteurOctets extends FilterOutputStream {
+        private long octets;
+
+        CompteurOctets(OutputStream sortie) {
+            super(sortie);
+        }
+
+        @Override
+        public void write(int octet) throws IOException {
+            out.write(octet);
+            octets++;
+        }
+
+        @Override
+        public void write(byte[] tampon, int debut, int longueur) throws IOException {
+            out.write(tampon, debut, longueur);
+            octets += longueur;
+        }
+    }
+
+    private void ecrireLigneCSV(Writer csv, DonneeIoT donnee) throws IOException {
+        csv.append(String.valueOf(donnee.getIdDonneeIoT())).append(',')
+                .append(String.valueOf(donnee.getTimestampCollecte())).append(',')
+                .append(escapeCsv(donnee.getVilleNom())).append(',')
+                .append(escapeCsv(donnee.getRegion())).append(',')
+                .append(escapeCsv(donnee.getPays())).append(',')
+                .append(String.valueOf(donnee.getLatitude())).append(',')
+                .append(String.valueOf(donnee.getLongitude())).append(',')
+                .append(String.valueOf(donnee.getTemperatureCelsius())).append(',')
+                .append(String.valueOf(donnee.getTemperatureFahrenheit())).append(',')
+                .append(String.valueOf(donnee.getHumidite())).append(',')
+                .append(String.valueOf(donnee.getVitesseVentKph())).append(',')
+                .append(String.valueOf(donnee.getPrecipitationMm())).append(',')
+                .append(String.valueOf(donnee.getCo())).append(',')
+                .append(String.valueOf(donnee.getNo2())).append(',')
+                .append(String.valueOf(donnee.getO3())).append(',')
+                .append(String.valueOf(donnee.getSo2())).append(',')
+                .append(String.valueOf(donnee.getPm10())).append(',')
+                .append(String.valueOf(donnee.getIndiceUv())).append(',')
+                .append(String.valueOf(donnee.getNuageux())).append(',')
+                .append(escapeCsv(donnee.getSourceApi())).append(',')
+                .append(donnee.getCapteur() != null ? String.valueOf(donnee.getCapteur().getIdCapteur()) : "").append(',')
+                .append(donnee.getCapteur() != null ? escapeCsv(donnee.getCapteur().getNomCapteur()) : "").append('\n');
+    }
+
+    private void ecrireJSON(Rapport rapport, StatistiquesRapport stats, List<DonneeIoT> echantillon,
+                            OutputStream sortie) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(sortie, JsonEncoding.UTF8);
+        json.useDefaultPrettyPrinter();
+
+        json.writeStartObject();
+
+        json.writeObjectFieldStart("rapport_info");
+        json.writeObjectField("id", rapport.getIdRapport());
+        json.writeStringField("nom", rapport.getNomRapport());
+        json.writeStringField("description", rapport.getDescription() != null ? rapport.getDescription() : "");
+        json.writeStringField("type", rapport.getTypeRapport());
+        json.writeObjectField("periode_debut", rapport.getPeriodeDebut());
+        json.writeObjectField("periode_fin", rapport.getPeriodeFin());
+        json.writeStringField("chercheur", rapport.getChercheur().getNomComplet());
+        json.writeStringField("institut", rapport.getChercheur().getInstitut() != null ? rapport.getChercheur().getInstitut() : "");
+        json.writeObjectField("date_generation", rapport.getDateCreation());
+        json.writeEndObject();
+
+        json.writeArrayFieldStart("donnees_echantillon");
+        for (DonneeIoT donnee : echantillon) {
+            ecrireDonneeJSON(json, donnee);
+        }
+        json.writeEndArray();
+
+        json.writeStringField("note", stats.nombre > TAILLE_ECHANTILLON_JSON ?
+                "Échantillon de " + TAILLE_ECHANTILLON_JSON + " données sur " + stats.nombre + " au total" :
+                "Toutes les données de la période");
+
+        json.writeObjectFieldStart("statistiques_generales");
+        json.writeNumberField("nombre_total_donnees", stats.nombre);
+        json.writeNumberField("nombre_villes", stats.accumulateur.getParVille().size());
+        json.writeNumberField("nombre_capteurs", stats.accumulateur.getParCapteur().size());
+        json.writeObjectField("premiere_donnee", stats.premiere);
+        json.writeObjectField("derniere_donnee", stats.derniere);
+        json.writeEndObject();
+
+        json.writeObjectFieldStart("statistiques_detaillees");
+        if (stats.nombre > 0) {
+            Statistiques global = stats.accumulateur.getGlobal();
+            json.writeObjectFieldStart("temperature");
+            json.writeNumberField("moyenne", arrondir(global.moyenne(MetriqueIoT.TEMPERATURE_CELSIUS)));
+            json.writeNumberField("min", global.min(MetriqueIoT.TEMPERATURE_CELSIUS));
+            json.writeNumberField("max", global.max(MetriqueIoT.TEMPERATURE_CELSIUS));
+            json.writeNumberField("ecart_type", arrondir(global.ecartType(MetriqueIoT.TEMPERATURE_CELSIUS)));
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("pollution");
+            json.writeNumberField("pm10_moyenne", arrondir(global.moyenne(MetriqueIoT.PM10)));
+            json.writeNumberField("co_moyenne", arrondir(global.moyenne(MetriqueIoT.CO)));
+            json.writeNumberField("no2_moyenne", global.moyenne(MetriqueIoT.NO2));
+            json.writeNumberField("o3_moyenne", global.moyenne(MetriqueIoT.O3));
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("meteo");
+            json.writeNumberField("humidite_moyenne", arrondir(global.moyenne(MetriqueIoT.HUMIDITE)));
+            json.writeNumberField("vitesse_vent_moyenne", global.moyenne(MetriqueIoT.VITESSE_VENT_KPH));
+            json.writeNumberField("precipitation_totale", global.somme(MetriqueIoT.PRECIPITATION_MM));
+            json.writeEndObject();
+        }
+        json.writeEndObject();
+
+        json.writeEndObject();
+        json.flush();
+    }
+
+    private void ecrireDonneeJSON(JsonGenerator json, DonneeIoT donnee) throws IOException {
+        json.writeStartObject();
+        json.writeObjectField("id", donnee.getIdDonneeIoT());
+        json.writeObjectField("timestamp", donnee.getTimestampCollecte());
+        json.writeStringField("ville", donnee.getVilleNom());
+        json.writeStringField("region", donnee.getRegion());
+        json.writeStringField("pays", donnee.getPays());
+        json.writeObjectField("latitude", donnee.getLatitude());
+        json.writeObjectField("longitude", donnee.getLongitude());
+        json.writeObjectField("temperature_c", donnee.getTemperatureCelsius());
+        json.writeObjectField("temperature_f", donnee.getTemperatureFahrenheit());
+        json.writeObjectField("humidite", donnee.getHumidite());
+        json.writeObjectField("vitesse_vent", donnee.getVitesseVentKph());
+        json.writeObjectField("precipitation", donnee.getPrecipitationMm());
+        json.writeObjectField("pm10", donnee.getPm10());
+        json.writeObjectField("co", donnee.getCo());
+        json.writeObjectField("no2", donnee.getNo2());
+        json.writeObjectField("o3", donnee.getO3());
+        json.writeObjectField("so2", donnee.getSo2());
+        json.writeObjectField("indice_uv", donnee.getIndiceUv());
+        json.writeObjectField("capteur_id", donnee.getCapteur() != null ? donnee.getCapteur().getIdCapteur() : null);
+        json.writeStringField("capteur_nom", donnee.getCapteur() != null ? donnee.getCapteur().getNomCapteur() : null);
+        json.writeEndObject();
+    }
+
+    private void ecrireTexte(Rapport rapport, StatistiquesRapport stats, List<DonneeIoT> echantillon,
+                             OutputStream sortie) throws IOException {
+        Writer contenu = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), TAILLE_TAMPON);
+
+        contenu.append("=== RAPPORT D'ANALYSE IoT ===\n\n");
+        contenu.append("Nom du rapport: ").append(rapport.getNomRapport()).append("\n");
+        contenu.append("Type: ").append(rapport.getTypeRapport()).append("\n");
+        contenu.append("Période d'analyse: du ").append(rapport.getPeriodeDebut().format(FORMAT_DATE))
+                .append(" au ").append(rapport.getPeriodeFin().format(FORMAT_DATE)).append("\n");
+        contenu.append("Généré le: ").append(LocalDateTime.now().format(FORMAT_DATE)).append("\n");
+        contenu.append("Chercheur: ").append(rapport.getChercheur().getNomComplet()).append("\n");
+        if (rapport.getChercheur().getInstitut() != null) {
+            contenu.append("Institut: ").append(rapport.getChercheur().getInstitut()).append("\n");
+        }
+        contenu.append("\n");
+
+        contenu.append("=== STATISTIQUES GÉNÉRALES ===\n");
+        contenu.append("Nombre total de données IoT analysées: ").append(String.valueOf(stats.nombre)).append("\n");
+
+        if (stats.nombre == 0) {
+            contenu.append("\n⚠️  AUCUNE DONNÉE DISPONIBLE pour cette période.\n");
+            contenu.append("Vérifiez que :\n");
+            contenu.append("- Des capteurs étaient actifs pendant cette période\n");
+            contenu.append("- La collecte de données fonctionnait correctement\n");
+            contenu.append("- La période sélectionnée contient des données\n");
+            contenu.flush();
+            return;
+        }
+
+        contenu.append("Première donnée: ").append(stats.premiere.format(FORMAT_DATE)).append("\n");
+        contenu.append("Dernière donnée: ").append(stats.derniere.format(FORMAT_DATE)).append("\n");
+        contenu.append("Nombre de villes: ").append(String.valueOf(stats.accumulateur.getParVille().size())).append("\n");
+        contenu.append("Nombre de capteurs: ").append(String.valueOf(stats.accumulateur.getParCapteur().size())).append("\n\n");
+
+        switch (rapport.getTypeRapport()) {
+            case "TEMPERATURE":
+                ecrireAnalyseTemperature(contenu, stats);
+                break;
+            case "POLLUTION":
+                ecrireAnalysePollution(contenu, stats);
+                break;
+            case "GLOBAL":
+                ecrireAnalyseGlobale(contenu, stats);
+                break;
+            default:
+                ecrireAnalyseBasique(contenu, stats);
+        }
+
+        contenu.append("=== ÉCHANTILLON DE DONNÉES (15 premières) ===\n");
+        for (DonneeIoT donnee : echantillon) {
+            contenu.append("📊 ").append(donnee.getTimestampCollecte().format(FORMAT_DATE))
+                    .append(" | ").append(donnee.getVilleNom())
+                    .append(" | Temp: ").append(String.valueOf(donnee.getTemperatureCelsius())).append("°C")
+                    .append(" | Humidité: ").append(String.valueOf(donnee.getHumidite())).append("%")
+                    .append(" | PM10: ").append(String.valueOf(donnee.getPm10()))
+                    .append(" | Capteur: ").append(donnee.getCapteur().getNomCapteur()).append("\n");
+        }
+
+        contenu.append("\n=== FIN DU RAPPORT ===\n");
+        contenu.flush();
+    }
+
+    private void ecrireAnalyseTemperature(Writer contenu, StatistiquesRapport stats) throws IOException {
+        contenu.append("=== ANALYSE DE TEMPÉRATURE ===\n");
+        Statistiques global = stats.accumulateur.getGlobal();
+        double tempMin = global.min(MetriqueIoT.TEMPERATURE_CELSIUS);
+        double tempMax = global.max(MetriqueIoT.TEMPERATURE_CELSIUS);
+        contenu.append("Température moyenne: ").append(String.format("%.2f", global.moyenne(MetriqueIoT.TEMPERATURE_CELSIUS))).append("°C\n");
+        contenu.append("Température minimale: ").append(String.format("%.2f", tempMin)).append("°C\n");
+        contenu.append("Température maximale: ").append(String.format("%.2f", tempMax)).append("°C\n");
+        contenu.append("Écart de température: ").append(String.format("%.2f", tempMax - tempMin)).append("°C\n");
+        contenu.append("Écart-type: ").append(String.format("%.2f", global.ecartType(MetriqueIoT.TEMPERATURE_CELSIUS))).append("°C\n\n");
+
+        ecrireMoyennesParVille(contenu, stats, MetriqueIoT.TEMPERATURE_CELSIUS, "Température moyenne par ville:\n", "°C\n");
+    }
+
+    private void ecrireAnalysePollution(Writer contenu, StatistiquesRapport stats) throws IOException {
+        contenu.append("=== ANALYSE DE POLLUTION ===\n");
+        Statistiques global = stats.accumulateur.getGlobal();
+        double pm10Moyen = global.moyenne(MetriqueIoT.PM10);
+        contenu.append("CO moyen: ").append(String.format("%.2f", global.moyenne(MetriqueIoT.CO))).append(" µg/m³\n");
+        contenu.append("PM10 moyen: ").append(String.format("%.2f", pm10Moyen)).append(" µg/m³\n");
+        contenu.append("NO2 moyen: ").append(String.format("%.2f", global.moyenne(MetriqueIoT.NO2))).append(" µg/m³\n\n");
+
+        String qualiteAir;
+        if (pm10Moyen <= 20) {
+            qualiteAir = "Bonne";
+        } else if (pm10Moyen <= 40) {
+            qualiteAir = "Moyenne";
+        } else if (pm10Moyen <= 50) {
+            qualiteAir = "Dégradée";
+        } else if (pm10Moyen <= 100) {
+            qualiteAir = "Mauvaise";
+        } else {
+            qualiteAir = "Très mauvaise";
+        }
+        contenu.append("Qualité de l'air globale: ").append(qualiteAir).append("\n\n");
+
+        ecrireMoyennesParVille(contenu, stats, MetriqueIoT.PM10, "PM10 moyen par ville:\n", " µg/m³\n");
+    }
+
+    private void ecrireMoyennesParVille(Writer contenu, StatistiquesRapport stats, MetriqueIoT metrique,
+                                        String titre, String unite) throws IOException {
+        boolean titreEcrit = false;
+        for (Map.Entry<String, Statistiques> entree : stats.accumulateur.getParVille().entrySet()) {
+            if (entree.getValue().nombre(metrique) == 0) {
+                continue;
+            }
+            if (!titreEcrit) {
+                contenu.append(titre);
+                titreEcrit = true;
+            }
+            contenu.append("- ").append(entree.getKey()).append(": ")
+                    .append(String.format("%.2f", entree.getValue().moyenne(metrique))).append(unite);
+        }
+        if (titreEcrit) {
+            contenu.append("\n");
+        }
+    }
+
+    private void ecrireAnalyseGlobale(Writer contenu, StatistiquesRapport stats) throws IOException {
+        ecrireAnalyseTemperature(contenu, stats);
+        ecrireAnalysePollution(contenu, stats);
+
+        Statistiques global = stats.accumulateur.getGlobal();
+        contenu.append("=== ANALYSE MÉTÉOROLOGIQUE ===\n");
+        contenu.append("Humidité moyenne: ").append(String.format("%.1f", global.moyenne(MetriqueIoT.HUMIDITE))).append("%\n");
+        contenu.append("Vitesse du vent moyenne: ").append(String.format("%.1f", global.moyenne(MetriqueIoT.VITESSE_VENT_KPH))).append(" km/h\n");
+        contenu.append("Précipitations totales: ").append(String.format("%.1f", global.somme(MetriqueIoT.PRECIPITATION_MM))).append(" mm\n");
+        contenu.append("Indice UV moyen: ").append(String.format("%.1f", global.moyenne(MetriqueIoT.INDICE_UV))).append("\n\n");
+
+        contenu.append("=== SYNTHÈSE PAR VILLE ===\n");
+        for (Map.Entry<String, Statistiques> entree : stats.accumulateur.getParVille().entrySet()) {
+            Statistiques ville = entree.getValue();
+            contenu.append("🏙️ ").append(entree.getKey()).append(": ")
+                    .append("Temp: ").append(String.format("%.1f", ville.moyenne(MetriqueIoT.TEMPERATURE_CELSIUS))).append("°C, ")
+                    .append("PM10: ").append(String.format("%.1f", ville.moyenne(MetriqueIoT.PM10))).append(" µg/m³")
+                    .append(" (").append(String.valueOf(ville.getNombreDonnees())).append(" mesures)\n");
+        }
+        contenu.append("\n");
+    }
+
+    private void ecrireAnalyseBasique(Writer contenu, StatistiquesRapport stats) throws IOException {
+        contenu.append("=== ANALYSE BASIQUE ===\n");
+        contenu.append("Données collectées et analysées avec succès.\n");
+        contenu.append("Type de rapport: Analyse générale des données IoT\n\n");
+
+        if (!stats.mesuresParSource.isEmpty()) {
+            contenu.append("Répartition par source de données:\n");
+            for (Map.Entry<String, Long> entree : stats.mesuresParSource.entrySet()) {
+                contenu.append("- ").append(entree.getKey()).append(": ").append(String.valueOf(entree.getValue())).append(" mesures\n");
+            }
+            contenu.append("\n");
+        }
+
+        Map<Long, Statistiques> parCapteur = stats.accumulateur.getParCapteur();
+        if (!parCapteur.isEmpty()) {
+            // Agrégats indexés par identifiant : les noms sont résolus à l'écriture
+            Map<Long, String> noms = capteurRepository.findAllById(parCapteur.keySet()).stream()
+                    .collect(Collectors.toMap(Capteur::getIdCapteur, Capteur::getNomCapteur));
+            contenu.append("Répartition par capteur:\n");
+            List<Map.Entry<Long, Statistiques>> entrees = new ArrayList<>(parCapteur.entrySet());
+            entrees.sort((a, b) -> Long.compare(b.getValue().getNombreDonnees(), a.getValue().getNombreDonnees()));
+            for (Map.Entry<Long, Statistiques> entree : entrees) {
+                contenu.append("- ").append(noms.getOrDefault(entree.getKey(), "Capteur " + entree.getKey())).append(": ")
+                        .append(String.valueOf(entree.getValue().getNombreDonnees())).append(" mesures\n");
+            }
+            contenu.append("\n");
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    /**
+     * Bornes des tranches alignées sur minuit, pour que les jours complets soient réutilisables
+     * d'un rapport à l'autre ; la dernière borne inclut la fin de période (BETWEEN)
+     */
+    private List<LocalDateTime> decouper(LocalDateTime debut, LocalDateTime fin) {
+        List<LocalDateTime> bornes = new ArrayList<>();
+        bornes.add(debut);
+        for (LocalDateTime minuit = debut.toLocalDate().plusDays(1).atStartOfDay(); minuit.isBefore(fin); minuit = minuit.plusDays(1)) {
+            bornes.add(minuit);
+        }
+        bornes.add(fin.plus(1, ChronoUnit.MICROS));
+        return bornes;
+    }
+
+    /**
+     * Clés de cache des jours complets et clos de la période, en une requête groupée sur l'index
+     * (statut, timestamp) ; un jour sans donnée a une empreinte nulle
+     */
+    private Map<LocalDate, CacheAgregatsJournaliers.Cle> empreintesJoursClos(List<LocalDateTime> bornes) {
+        LocalDate aujourdhui = LocalDate.now();
+        Map<LocalDate, Object[]> empreintes = donneeIoTRepository
+                .findEmpreintesParJour("VALIDE", bornes.get(0), bornes.get(bornes.size() - 1)).stream()
+                .collect(Collectors.toMap(ligne -> (LocalDate) ligne[0], Function.identity()));
+
+        Map<LocalDate, CacheAgregatsJournaliers.Cle> cles = new HashMap<>();
+        for (int i = 0; i < bornes.size() - 1; i++) {
+            LocalDateTime debut = bornes.get(i);
+            LocalDate jour = debut.toLocalDate();
+            boolean complet = debut.equals(jour.atStartOfDay()) && bornes.get(i + 1).equals(debut.plusDays(1));
+            if (!complet || !jour.isBefore(aujourdhui)) {
+                continue;
+            }
+            Object[] empreinte = empreintes.get(jour);
+            cles.put(jour, empreinte == null
+                    ? new CacheAgregatsJournaliers.Cle(VERSION_AGREGATS, jour, 0, 0, 0)
+                    : new CacheAgregatsJournaliers.Cle(VERSION_AGREGATS, jour, ((Number) empreinte[1]).longValue(),
+                    ((Number) empreinte[2]).longValue(), ((Number) empreinte[3]).longValue()));
+        }
+        return cles;
+    }
+
+    private List<DonneeIoT> echantillon(Rapport rapport, int taille) {
+        return donneeIoTRepository.findEchantillon("VALIDE", rapport.getPeriodeDebut(), rapport.getPeriodeFin(),
+                PageRequest.of(0, taille));
+    }
+
+    private void supprimerTranches(Path dossier, String prefixe) {
+        try (DirectoryStream<Path> parties = Files.newDirectoryStream(dossier, prefixe + "-tranche-*.part")) {
+            for (Path partie : parties) {
+                Files.deleteIfExists(partie);
+            }
+        } catch (IOException e) {
+            log.warn("Fichiers intermédiaires du {} non supprimés: {}", prefixe, e.getMessage());
+        }
+    }
+
+    /**
+     * Tranche d'un jour clos complet : agrégats repris du cache si l'empreinte du jour n'a pas changé,
+     * sans requête si le jour est vide. Le CSV a besoin des lignes et relit donc toujours la tranche.
+     */
+    private ResultatTranches traiterTranche(Parcours parcours, int index) {
+        CacheAgregatsJournaliers.Cle cle = parcours.cles.get(parcours.bornes.get(index).toLocalDate());
+        if (cle != null && cle.nombre() == 0) {
+            return new ResultatTranches(new StatistiquesRapport(), List.of());
+        }
+
+        if (cle != null && parcours.prefixeParties == null) {
+            StatistiquesRapport stats = depuisCache(cle);
+            if (stats != null) {
+                parcours.reprises.incrementAndGet();
+                parcours.progression.accept(parcours.lues.addAndGet(cle.nombre()));
+                return new ResultatTranches(stats, List.of());
+            }
+        }
+
+        ResultatTranches resultat = lireTranche(parcours, index);
+        if (cle != null && cacheAgregats.lire(cle).isEmpty()) {
+            try {
+                cacheAgregats.ecrire(cle, resultat.stats().serialiser());
+            } catch (IOException e) {
+                log.warn("Agrégats du {} non mis en cache: {}", cle.jour(), e.getMessage());
+            }
+        }
+        return resultat;
+    }
+
+    private StatistiquesRapport depuisCache(CacheAgregatsJournaliers.Cle cle) {
+        return cacheAgregats.lire(cle).map(contenu -> {
+            try {
+                return StatistiquesRapport.deserialiser(contenu);
+            } catch (IOException e) {
+                log.warn("Agrégats du {} illisibles, recalcul: {}", cle.jour(), e.getMessage());
+                cacheAgregats.invalider(cle);
+                return null;
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * Parcourt une tranche [debut, fin[ dans sa propre transaction en lecture seule :
+     * agrégats de la tranche et, pour le CSV, lignes écrites dans un fichier propre à la tranche
+     */
+    private ResultatTranches lireTranche(Parcours parcours, int index) {
+        LocalDateTime debut = parcours.bornes.get(index);
+        LocalDateTime fin = parcours.bornes.get(index + 1);
+        Path prefixeParties = parcours.prefixeParties;
+        AtomicLong lues = parcours.lues;
+        return transactionLecture.execute(status -> {
+            StatistiquesRapport stats = new StatistiquesRapport();
+            Path partie = prefixeParties != null ? Paths.get(prefixeParties + String.valueOf(index) + ".part") : null;
+
+            try (Stream<DonneeIoT> flux = donneeIoTRepository.streamByStatutAndIntervalle("VALIDE", debut, fin);
+                 Writer csv = partie != null ? Files.newBufferedWriter(partie, StandardCharsets.UTF_8) : Writer.nullWriter()) {
+                Iterator<DonneeIoT> donnees = flux.iterator();
+                while (donnees.hasNext()) {
+                    DonneeIoT donnee = donnees.next();
+                    stats.ajouter(donnee);
+                    if (partie != null) {
+                        ecrireLigneCSV(csv, donnee);
+                    }
+                    entityManager.detach(donnee);
+
+                    long total = lues.incrementAndGet();
+                    if (total % PAS_PROGRESSION == 0) {
+                        parcours.progression.accept(total);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new ResultatTranches(stats, partie != null ? List.of(partie) : List.of());
+        });
+    }
+
+    private record ResultatTranches(StatistiquesRapport stats, List<Path> parties) {
+
+        ResultatTranches fusionner(ResultatTranches droite) {
+            List<Path> toutes = new ArrayList<>(parties);
+            toutes.addAll(droite.parties);
+            return new ResultatTranches(stats.fusionner(droite.stats), toutes);
+        }
+    }
+
+    /** État partagé par les tâches d'une génération */
+    private static final class Parcours {
+        private final List<LocalDateTime> bornes;
+        private final Map<LocalDate, CacheAgregatsJournaliers.Cle> cles;
+        private final Path prefixeParties;
+        private final AtomicLong lues;
+        private final LongConsumer progression;
+        private final AtomicLong reprises = new AtomicLong();
+
+        Parcours(List<LocalDateTime> bornes, Map<LocalDate, CacheAgregatsJournaliers.Cle> cles, Path prefixeParties,
+                 AtomicLong lues, LongConsumer progression) {
+            this.bornes = bornes;
+            this.cles = cles;
+            this.prefixeParties = prefixeParties;
+            this.lues = lues;
+            this.progression = progression;
+        }
+    }
+
+    /** Découpe récursivement la liste de tranches ; la fusion conserve l'ordre chronologique */
+    private class TrancheTask extends RecursiveTask<ResultatTranches> {
+        private static final long serialVersionUID = 1L;
+
+        private final Parcours parcours;
+        private final int premier;
+        private final int dernier;
+
+        TrancheTask(Parcours parcours, int premier, int dernier) {
+            this.parcours = parcours;
+            this.premier = premier;
+            this.dernier = dernier;
+        }
+
+        @Override
+        protected ResultatTranches compute() {
+            if (dernier - premier <= 1) {
+                return traiterTranche(parcours, premier);
+            }
+            int milieu = (premier + dernier) >>> 1;
+            TrancheTask gauche = new TrancheTask(parcours, premier, milieu);
+            TrancheTask droite = new TrancheTask(parcours, milieu, dernier);
+            gauche.fork();
+            ResultatTranches resultatDroite = droite.compute();
+            return gauche.join().fusionner(resultatDroite);
+        }
+    }
+
+    private String extension(String formatFichier) {
+        if ("CSV".equals(formatFichier)) {
+            return ".csv";
+        }
+        if ("JSON".equals(formatFichier)) {
+            return ".json";
+        }
+        if ("ARROW".equals(formatFichier)) {
+            return ".arrow";
+        }
+        return ".txt";
+    }
+
+    private String escapeCsv(String value) {
+        if (value == null) return "";
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private double arrondir(double valeur) {
+        return Math.round(valeur * 100.0) / 100.0;
+    }
+
+    /**
+     * Agrégats calculés en un passage ; taille bornée par le nombre de villes, sources et capteurs.
+     * Indépendants du type de rapport, qui ne choisit que les sections écrites.
+     */
+    private static final class StatistiquesRapport {
+        private final AccumulateurStatistiques accumulateur;
+
+        private long nombre;
+        private LocalDateTime premiere;
+        private LocalDateTime derniere;
+        private final Map<String, Long> mesuresParSource = new TreeMap<>();
+
+        StatistiquesRapport() {
+            this(new AccumulateurStatistiques());
+        }
+
+        private StatistiquesRapport(AccumulateurStatistiques accumulateur) {
+            this.accumulateur = accumulateur;
+        }
+
+        void ajouter(DonneeIoT donnee) {
+            nombre++;
+            accumulateur.ajouter(donnee);
+
+            LocalDateTime timestamp = donnee.getTimestampCollecte();
+            if (timestamp != null) {
+                if (premiere == null || timestamp.isBefore(premiere)) premiere = timestamp;
+                if (derniere == null || timestamp.isAfter(derniere)) derniere = timestamp;
+            }
+            if (donnee.getSourceApi() != null) {
+                mesuresParSource.merge(donnee.getSourceApi(), 1L, Long::sum);
+            }
+        }
+
+        StatistiquesRapport fusionner(StatistiquesRapport autre) {
+            nombre += autre.nombre;
+            accumulateur.fusionner(autre.accumulateur);
+            if (autre.premiere != null && (premiere == null || autre.premiere.isBefore(premiere))) premiere = autre.premiere;
+            if (autre.derniere != null && (derniere == null || autre.derniere.isAfter(derniere))) derniere = autre.derniere;
+            autre.mesuresParSource.forEach((source, n) -> mesuresParSource.merge(source, n, Long::sum));
+            return this;
+        }
+
+        byte[] serialiser() throws IOException {
+            ByteArrayOutputStream octets = new ByteArrayOutputStream();
+            try (DataOutputStream sortie = new DataOutputStream(octets)) {
+                sortie.writeLong(nombre);
+                sortie.writeUTF(premiere != null ? premiere.toString() : "");
+                sortie.writeUTF(derniere != null ? derniere.toString() : "");
+                sortie.writeInt(mesuresParSource.size());
+                for (Map.Entry<String, Long> entree : mesuresParSource.entrySet()) {
+                    sortie.writeUTF(entree.getKey());
+                    sortie.writeLong(entree.getValue());
+                }
+                accumulateur.ecrire(sortie);
+            }
+            return octets.toByteArray();
+        }
+
+        static StatistiquesRapport deserialiser(byte[] contenu) throws IOException {
+            try (DataInputStream entree = new DataInputStream(new ByteArrayInputStream(contenu))) {
+                long nombre = entree.readLong();
+                String premiere = entree.readUTF();
+                String derniere = entree.readUTF();
+                Map<String, Long> parSource = new TreeMap<>();
+                int sources = entree.readInt();
+                for (int i = 0; i < sources; i++) {
+                    parSource.put(entree.readUTF(), entree.readLong());
+                }
+
+                StatistiquesRapport stats = new StatistiquesRapport(AccumulateurStatistiques.lire(entree));
+                stats.nombre = nombre;
+                stats.premiere = premiere.isEmpty() ? null : LocalDateTime.parse(premiere);
+                stats.derniere = derniere.isEmpty() ? null : LocalDateTime.parse(derniere);
+                stats.mesuresParSource.putAll(parSource);
+                return stats;
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.Rapport;
+import com.ensitech.smart_city_iot.entity.RapportJob;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.repository.RapportJobRepository;
+import com.ensitech.smart_city_iot.repository.RapportRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ordonnanceur des générations de rapports : la file est persistée dans rapport_job et
+ * exécutée par un pool borné, hors des requêtes HTTP. À chaque place libre, le job choisi
+ * est le plus ancien du chercheur ayant le moins de générations en cours.
+ * Un job choisi entraîne les jobs en attente de son groupe : ils occupent une seule place
+ * et sont générés en un seul parcours des données.
+ */
+@Component
+@Slf4j
+public class RapportJobScheduler {
+
+    private static final int TAILLE_FENETRE = 200;
+    private static final long INTERVALLE_PERSISTANCE_MS = 5000;
+
+    @Autowired
+    private RapportJobRepository jobRepository;
+
+    @Autowired
+    private RapportRepository rapportRepository;
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @Lazy
+    @Autowired
+    private RapportService rapportService;
+
+    @Value("${rapports.jobs.workers:2}")
+    private int workers;
+
+    @Value("${rapports.jobs.max-par-chercheur:1}")
+    private int maxParChercheur;
+
+    private ExecutorService executeur;
+    private final Map<Long, Execution> enCours = new ConcurrentHashMap<>();
+    private final AtomicInteger tachesActives = new AtomicInteger();
+
+    @PostConstruct
+    public void initialiser() {
+        AtomicInteger compteur = new AtomicInteger();
+        executeur = Executors.newFixedThreadPool(Math.max(1, workers), runnable -> {
+            Thread thread = new Thread(runnable, "rapport-job-" + compteur.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void arreter() {
+        executeur.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reprendreJobs() {
+        int repris = jobRepository.remettreEnAttente();
+        if (repris > 0) {
+            log.info("{} génération(s) de rapport interrompue(s) remise(s) en file", repris);
+        }
+        distribuer();
+    }
+
+    public void soumettre(Rapport rapport) {
+        soumettre(rapport, null);
+    }
+
+    /**
+     * Met le rapport en file dans la transaction courante ; la distribution a lieu après le commit
+     *
+     * @param cleGroupe rapports de même période à générer ensemble, null pour un job isolé
+     */
+    public void soumettre(Rapport rapport, String cleGroupe) {
+        RapportJob job = jobRepository.findByRapportIdRapport(rapport.getIdRapport())
+                .orElseGet(() -> RapportJob.builder()
+                        .rapport(rapport)
+                        .idChercheur(rapport.getChercheur().getIdUtilisateur())
+                        .build());
+        job.setEtat("EN_ATTENTE");
+        job.setDateSoumission(LocalDateTime.now());
+        job.setDateDebut(null);
+        job.setDateFin(null);
+        job.setNombreDonneesTraitees(0L);
+        job.setDerniereErreur(null);
+        job.setCleGroupe(cleGroupe);
+        jobRepository.save(job);
+        log.info("Génération du rapport ID {} mise en file", rapport.getIdRapport());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    distribuer();
+                }
+            });
+        } else {
+            distribuer();
+        }
+    }
+
+    public boolean estEnFile(Long idRapport) {
+        return enCours.containsKey(idRapport) || jobRepository.findByRapportIdRapport(idRapport)
+                .map(job -> "EN_ATTENTE".equals(job.getEtat()) || "EN_EXECUTION".equals(job.getEtat()))
+                .orElse(false);
+    }
+
+    /**
+     * Progression du rapport : valeur en mémoire pendant l'exécution, sinon état persisté
+     */
+    public Optional<Progression> getProgression(Long idRapport) {
+        Execution execution = enCours.get(idRapport);
+        if (execution != null) {
+            return Optional.of(new Progression("EN_EXECUTION", execution.traitees.get(),
+                    execution.estimees >= 0 ? execution.estimees : null));
+        }
+        return jobRepository.findByRapportIdRapport(idRapport)
+                .map(job -> new Progression(job.getEtat(),
+                        job.getNombreDonneesTraitees() != null ? job.getNombreDonneesTraitees() : 0L,
+                        job.getNombreDonneesEstimees()));
+    }
+
+    @Scheduled(fixedDelayString = "${rapports.jobs.intervalle-ms:2000}")
+    public synchronized void distribuer() {
+        int libres = workers - tachesActives.get();
+        if (libres <= 0) {
+            return;
+        }
+
+        List<RapportJob> candidats = new ArrayList<>(jobRepository.findEnAttente(PageRequest.of(0, TAILLE_FENETRE)));
+        if (candidats.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> parChercheur = new HashMap<>();
+        enCours.values().forEach(e -> parChercheur.merge(e.idChercheur, 1, Integer::sum));
+
+        while (libres > 0) {
+            // Candidats triés par ancienneté : le premier au minimum est le plus ancien
+            RapportJob choisi = null;
+            int minimum = Integer.MAX_VALUE;
+            for (RapportJob job : candidats) {
+                int actifs = parChercheur.getOrDefault(job.getIdChercheur(), 0);
+                if (actifs < maxParChercheur && actifs < minimum) {
+                    minimum = actifs;
+                    choisi = job;
+                }
+            }
+            if (choisi == null) {
+                break;
+            }
+            candidats.remove(choisi);
+
+            if (jobRepository.reclamer(choisi.getIdJob(), LocalDateTime.now()) == 0) {
+                continue;
+            }
+            parChercheur.merge(choisi.getIdChercheur(), 1, Integer::sum);
+            libres--;
+
+            List<Execution> groupe = new ArrayList<>();
+            groupe.add(new Execution(choisi.getIdJob(), choisi.getRapport().getIdRapport(), choisi.getIdChercheur()));
+            if (choisi.getCleGroupe() != null) {
+                for (RapportJob membre : jobRepository.findEnAttenteByCleGroupe(choisi.getCleGroupe())) {
+                    candidats.removeIf(job -> job.getIdJob().equals(membre.getIdJob()));
+                    if (jobRepository.reclamer(membre.getIdJob(), LocalDateTime.now()) == 1) {
+                        groupe.add(new Execution(membre.getIdJob(), membre.getRapport().getIdRapport(), membre.getIdChercheur()));
+                        parChercheur.merge(membre.getIdChercheur(), 1, Integer::sum);
+                    }
+                }
+            }
+
+            groupe.forEach(execution -> enCours.put(execution.idRapport, execution));
+            tachesActives.incrementAndGet();
+            executeur.submit(() -> executer(groupe));
+        }
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    /**
+     * Les rapports d'un groupe portent sur la même période : une estimation et une progression communes
+     */
+    private void executer(List<Execution> groupe) {
+        long debut = System.currentTimeMillis();
+        Execution principale = groupe.get(0);
+        List<Long> idRapports = groupe.stream().map(execution -> execution.idRapport).toList();
+        try {
+            long estimees = donneeIoTRepository.countPourRapport(principale.idRapport);
+            for (Execution execution : groupe) {
+                execution.estimees = estimees;
+                jobRepository.enregistrerEstimation(execution.idJob, estimees);
+            }
+            log.info("Génération du (des) rapport(s) ID {} démarrée: environ {} données", idRapports, estimees);
+
+            rapportService.genererContenuRapports(idRapports, lignes -> groupe.forEach(execution -> execution.progresser(lignes)));
+
+            for (Execution execution : groupe) {
+                jobRepository.terminer(execution.idJob, "TERMINE", LocalDateTime.now(), execution.traitees.get(), null);
+            }
+            log.info("Génération du (des) rapport(s) ID {} terminée en {} ms", idRapports, System.currentTimeMillis() - debut);
+        } catch (Exception e) {
+            log.error("Échec de la génération du (des) rapport(s) ID {}: {}", idRapports, e.getMessage(), e);
+            String erreur = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            for (Execution execution : groupe) {
+                try {
+                    // La transaction de génération a pu être annulée avec le statut ERREUR
+                    rapportRepository.marquerEnErreur(execution.idRapport);
+                    jobRepository.terminer(execution.idJob, "ERREUR", LocalDateTime.now(), execution.traitees.get(),
+                            erreur.length() > 500 ? erreur.substring(0, 500) : erreur);
+                } catch (Exception ex) {
+                    log.error("Impossible d'enregistrer l'échec du rapport ID {}: {}", execution.idRapport, ex.getMessage());
+                }
+            }
+        } finally {
+            groupe.forEach(execution -> enCours.remove(execution.idRapport));
+            tachesActives.decrementAndGet();
+            distribuer();
+        }
+    }
+
+    public record Progression(String etat, long traitees, Long estimees) {
+
+        /** Pourcentage borné à 99 tant que la génération n'est pas terminée */
+        public Integer pourcentage() {
+            if ("TERMINE".equals(etat)) {
+                return 100;
+            }
+            if (estimees == null) {
+                return null;
+            }
+            if (estimees == 0) {
+                return 0;
+            }
+            return (int) Math.min(99, traitees * 100 / estimees);
+        }
+    }
+
+    private final class Execution {
+        private final Long idJob;
+        private final Long idRapport;
+        private final Long idChercheur;
+        private final AtomicLong traitees = new AtomicLong();
+        private volatile long estimees = -1;
+        private volatile long dernierePersistance = System.currentTimeMillis();
+
+        Execution(Long idJob, Long idRapport, Long idChercheur) {
+            this.idJob = idJob;
+            this.idRapport = idRapport;
+            this.idChercheur = idChercheur;
+        }
+
+        void progresser(long lignes) {
+            traitees.set(lignes);
+            long maintenant = System.currentTimeMillis();
+            if (maintenant - dernierePersistance >= INTERVALLE_PERSISTANCE_MS) {
+                dernierePersistance = maintenant;
+                try {
+                    jobRepository.enregistrerProgression(idJob, lignes);
+                } catch (Exception e) {
+                    log.warn("Progression du rapport ID {} non enregistrée: {}", idRapport, e.getMessage());
+                }
+            }
+        }
+    }
+}
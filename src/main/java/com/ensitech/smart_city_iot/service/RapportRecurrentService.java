@@ -0,0 +1,23 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.rapportDTO.CreateRapportRecurrentDTO;
+import com.ensitech.smart_city_iot.dto.rapportDTO.ResponseRapportRecurrentDTO;
+
+import java.util.List;
+
+public interface RapportRecurrentService {
+
+    ResponseRapportRecurrentDTO creerRapportRecurrent(CreateRapportRecurrentDTO dto) throws Exception;
+
+    List<ResponseRapportRecurrentDTO> getRapportsRecurrentsByChercheur(Long idChercheur) throws Exception;
+
+    ResponseRapportRecurrentDTO changerActivation(Long id, boolean actif) throws Exception;
+
+    void supprimerRapportRecurrent(Long id) throws Exception;
+
+    /**
+     * Crée les rapports des définitions arrivées à échéance et les met en file,
+     * regroupés par fenêtre d'analyse pour un calcul commun
+     */
+    void executerEcheances();
+}
@@ -0,0 +1,172 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.rapportDTO.CreateRapportRecurrentDTO;
+import com.ensitech.smart_city_iot.dto.rapportDTO.ResponseRapportRecurrentDTO;
+import com.ensitech.smart_city_iot.entity.Chercheur;
+import com.ensitech.smart_city_iot.entity.Rapport;
+import com.ensitech.smart_city_iot.entity.RapportRecurrent;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.repository.RapportRecurrentRepository;
+import com.ensitech.smart_city_iot.repository.RapportRepository;
+import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rapports récurrents : à chaque passage, les définitions échues sont regroupées par fenêtre d'analyse
+ * [échéance - durée, échéance[. Les rapports d'une même fenêtre partagent une clé de groupe et sont
+ * générés par un seul job : données parcourues une fois, rendu propre à chaque chercheur.
+ */
+@Service
+@Transactional
+@Slf4j
+public class RapportRecurrentServiceImpl implements RapportRecurrentService {
+
+    private static final DateTimeFormatter FORMAT_ECHEANCE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @Autowired
+    private RapportRecurrentRepository rapportRecurrentRepository;
+
+    @Autowired
+    private RapportRepository rapportRepository;
+
+    @Autowired
+    private UtilisateurRepository utilisateurRepository;
+
+    @Autowired
+    private RapportJobScheduler rapportJobScheduler;
+
+    @Override
+    public ResponseRapportRecurrentDTO creerRapportRecurrent(CreateRapportRecurrentDTO dto) throws Exception {
+        Chercheur chercheur = utilisateurRepository.findChercheurById(dto.getIdChercheur())
+                .orElseThrow(() -> utilisateurRepository.existsById(dto.getIdChercheur())
+                        ? new BusinessException("Seuls les chercheurs peuvent créer des rapports")
+                        : new EntityNotFoundException("Utilisateur non trouvé avec l'ID: " + dto.getIdChercheur()));
+        if (!chercheur.isActif()) {
+            throw new BusinessException("Votre compte n'est pas actif");
+        }
+
+        LocalDateTime prochaineExecution = analyserCron(dto.getExpressionCron()).next(LocalDateTime.now());
+        if (prochaineExecution == null) {
+            throw new BusinessException("L'expression cron n'a aucune échéance future");
+        }
+        RapportRecurrent recurrent = RapportRecurrent.builder()
+                .nomRapport(dto.getNomRapport().trim())
+                .description(dto.getDescription())
+                .typeRapport(dto.getTypeRapport())
+                .formatFichier(dto.getFormatFichier())
+                .expressionCron(dto.getExpressionCron().trim())
+                .dureePeriodeHeures(dto.getDureePeriodeHeures())
+                .prochaineExecution(prochaineExecution)
+                .chercheur(chercheur)
+                .build();
+        recurrent = rapportRecurrentRepository.save(recurrent);
+
+        log.info("Rapport récurrent créé: ID {} ({}), prochaine exécution {}",
+                recurrent.getIdRapportRecurrent(), recurrent.getExpressionCron(), recurrent.getProchaineExecution());
+        return ResponseRapportRecurrentDTO.fromEntity(recurrent);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ResponseRapportRecurrentDTO> getRapportsRecurrentsByChercheur(Long idChercheur) throws Exception {
+        return rapportRecurrentRepository.findByChercheurIdUtilisateur(idChercheur).stream()
+                .map(ResponseRapportRecurrentDTO::fromEntity)
+                .toList();
+    }
+
+    @Override
+    public ResponseRapportRecurrentDTO changerActivation(Long id, boolean actif) throws Exception {
+        RapportRecurrent recurrent = rapportRecurrentRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Rapport récurrent non trouvé avec l'ID: " + id));
+
+        if (actif && !recurrent.isActif()) {
+            // Pas de rattrapage des échéances passées pendant la désactivation
+            LocalDateTime prochaineExecution = analyserCron(recurrent.getExpressionCron()).next(LocalDateTime.now());
+            if (prochaineExecution == null) {
+                throw new BusinessException("L'expression cron n'a aucune échéance future");
+            }
+            recurrent.setProchaineExecution(prochaineExecution);
+        }
+        recurrent.setActif(actif);
+        return ResponseRapportRecurrentDTO.fromEntity(rapportRecurrentRepository.save(recurrent));
+    }
+
+    @Override
+    public void supprimerRapportRecurrent(Long id) throws Exception {
+        RapportRecurrent recurrent = rapportRecurrentRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Rapport récurrent non trouvé avec l'ID: " + id));
+        // Les rapports déjà générés sont conservés
+        rapportRecurrentRepository.delete(recurrent);
+        log.info("Rapport récurrent supprimé: ID {}", id);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${rapports.recurrents.intervalle-ms:60000}")
+    public void executerEcheances() {
+        LocalDateTime maintenant = LocalDateTime.now();
+        List<RapportRecurrent> echus = rapportRecurrentRepository.findAEcheance(maintenant);
+        if (echus.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> groupes = new TreeMap<>();
+        for (RapportRecurrent recurrent : echus) {
+            LocalDateTime echeance = recurrent.getProchaineExecution();
+            // Échéances manquées (arrêt de l'application) : un seul rapport, puis reprise à la prochaine échéance
+            recurrent.setDerniereExecution(echeance);
+            LocalDateTime prochaineExecution = analyserCron(recurrent.getExpressionCron()).next(maintenant);
+            if (prochaineExecution != null) {
+                recurrent.setProchaineExecution(prochaineExecution);
+            } else {
+                recurrent.setActif(false);
+            }
+
+            if (!recurrent.getChercheur().isActif()) {
+                log.warn("Rapport récurrent ID {} ignoré: chercheur inactif", recurrent.getIdRapportRecurrent());
+                continue;
+            }
+
+            LocalDateTime debut = echeance.minusHours(recurrent.getDureePeriodeHeures());
+            LocalDateTime fin = echeance.minus(1, ChronoUnit.MICROS);
+            Rapport rapport = rapportRepository.save(Rapport.builder()
+                    .nomRapport(recurrent.getNomRapport() + " - " + echeance.format(FORMAT_ECHEANCE))
+                    .description(recurrent.getDescription())
+                    .periodeDebut(debut)
+                    .periodeFin(fin)
+                    .typeRapport(recurrent.getTypeRapport())
+                    .formatFichier(recurrent.getFormatFichier())
+                    .statut("EN_COURS")
+                    .chercheur(recurrent.getChercheur())
+                    .build());
+
+            String cleGroupe = "recurrent-" + debut + "-" + echeance;
+            rapportJobScheduler.soumettre(rapport, cleGroupe);
+            groupes.merge(cleGroupe, 1, Integer::sum);
+        }
+
+        log.info("{} rapport(s) récurrent(s) échu(s), {} fenêtre(s) d'analyse: {}", echus.size(), groupes.size(), groupes);
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private CronExpression analyserCron(String expression) {
+        try {
+            return CronExpression.parse(expression.trim());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Expression cron invalide: " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ensitech.smart_city_iot.service;
 
+import com.ensitech.smart_city_iot.dto.ResultatRechercheDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.CreateRapportDTO;
+import com.ensitech.smart_city_iot.dto.rapportDTO.FichierRapportDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.ResponseRapportDTO;
 import com.ensitech.smart_city_iot.dto.rapportDTO.UpdateRapportDTO;
 import org.springframework.data.domain.Page;
@@ -8,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.LongConsumer;
 
 public interface RapportService {
     ResponseRapportDTO createRapport(CreateRapportDTO dto) throws Exception;
@@ -29,12 +32,19 @@ public interface RapportService {
     void deleteRapport(Long id) throws Exception;
 
     // Génération de contenu
+    void planifierGeneration(Long id) throws Exception;
+
     void genererContenuRapport(Long id) throws Exception;
 
-    byte[] telechargerRapport(Long id) throws Exception;
+    void genererContenuRapport(Long id, LongConsumer progression) throws Exception;
+
+    // Rapports de même période : un seul parcours des données
+    void genererContenuRapports(List<Long> ids, LongConsumer progression) throws Exception;
+
+    FichierRapportDTO getFichierRapport(Long id) throws Exception;
 
     // Recherche et filtres
-    List<ResponseRapportDTO> rechercherRapports(String texte) throws Exception;
+    Page<ResultatRechercheDTO<ResponseRapportDTO>> rechercherRapports(String texte, Pageable pageable) throws Exception;
 
     List<ResponseRapportDTO> getRapportsRecents(int jours) throws Exception;
 
@@ -0,0 +1,12 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.DonneIotDTO.StatistiquesApproximativesDTO;
+
+import java.time.LocalDate;
+
+public interface StatistiquesApproximativesService {
+
+    StatistiquesApproximativesDTO calculer(LocalDate jourDebut, LocalDate jourFin, Long idCapteur);
+
+    int reconstruire(LocalDate jourDebut, LocalDate jourFin);
+}
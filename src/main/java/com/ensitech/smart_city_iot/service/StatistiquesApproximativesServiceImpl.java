@@ -0,0 +1,174 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.dto.DonneIotDTO.StatistiquesApproximativesDTO;
+import com.ensitech.smart_city_iot.dto.DonneIotDTO.StatistiquesApproximativesDTO.QuantilesMetriqueDTO;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.entity.SketchJournalier;
+import com.ensitech.smart_city_iot.exception.BusinessException;
+import com.ensitech.smart_city_iot.repository.DonneeIoTRepository;
+import com.ensitech.smart_city_iot.repository.SketchJournalierRepository;
+import com.ensitech.smart_city_iot.utils.HyperLogLog;
+import com.ensitech.smart_city_iot.utils.MetriqueIoT;
+import com.ensitech.smart_city_iot.utils.SketchQuantiles;
+import com.ensitech.smart_city_iot.utils.SketchesMetriques;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Statistiques approchées d'une plage de jours, calculées uniquement à partir des sketchs
+ * journaliers : le coût dépend du nombre de jours, pas du nombre de mesures.
+ */
+@Service
+@Slf4j
+@Transactional
+public class StatistiquesApproximativesServiceImpl implements StatistiquesApproximativesService {
+
+    private static final long MAX_JOURS_RECONSTRUCTION = 366;
+
+    @Autowired
+    private SketchJournalierRepository sketchRepository;
+
+    @Autowired
+    private DonneeIoTRepository donneeIoTRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public StatistiquesApproximativesDTO calculer(LocalDate jourDebut, LocalDate jourFin, Long idCapteur) {
+        if (jourDebut == null || jourFin == null || jourFin.isBefore(jourDebut)) {
+            throw new BusinessException("La plage de jours est invalide");
+        }
+        long debut = System.currentTimeMillis();
+        boolean global = idCapteur == null;
+
+        List<SketchJournalier> lignes = sketchRepository.findByIdCapteurAndJourBetweenOrderByJour(
+                global ? SketchJournalier.ID_GLOBAL : idCapteur, jourDebut, jourFin);
+
+        SketchesMetriques quantiles = new SketchesMetriques();
+        HyperLogLog villes = new HyperLogLog();
+        HyperLogLog capteurs = new HyperLogLog();
+        for (SketchJournalier ligne : lignes) {
+            quantiles.fusionner(SketchesMetriques.depuisOctets(ligne.getQuantiles()));
+            if (global) {
+                villes.fusionner(HyperLogLog.depuisOctets(ligne.getVilles()));
+                capteurs.fusionner(HyperLogLog.depuisOctets(ligne.getCapteurs()));
+            }
+        }
+
+        Map<String, QuantilesMetriqueDTO> metriques = new LinkedHashMap<>();
+        for (MetriqueIoT metrique : MetriqueIoT.values()) {
+            SketchQuantiles sketch = quantiles.get(metrique);
+            if (sketch.getNombre() == 0) {
+                continue;
+            }
+            metriques.put(metrique.getCode(), QuantilesMetriqueDTO.builder()
+                    .nombre(sketch.getNombre())
+                    .min(sketch.getMin())
+                    .p50(sketch.quantile(0.50))
+                    .p95(sketch.quantile(0.95))
+                    .p99(sketch.quantile(0.99))
+                    .max(sketch.getMax())
+                    .build());
+        }
+
+        return StatistiquesApproximativesDTO.builder()
+                .jourDebut(jourDebut)
+                .jourFin(jourFin)
+                .idCapteur(idCapteur)
+                .nombreJours(lignes.size())
+                .nombreDonnees(quantiles.getNombreDonnees())
+                .nombreVillesEstime(global ? villes.estimation() : null)
+                .nombreCapteursEstime(global ? capteurs.estimation() : (quantiles.getNombreDonnees() > 0 ? 1L : 0L))
+                .erreurRelativeQuantiles(SketchQuantiles.ERREUR_RELATIVE)
+                .erreurStandardDistincts(HyperLogLog.erreurStandard())
+                .dureeCalculMs(System.currentTimeMillis() - debut)
+                .metriques(metriques)
+                .build();
+    }
+
+    /**
+     * Recalcule les sketchs de jours clos depuis les données brutes (reprise d'historique,
+     * perte des sketchs en attente), un jour par transaction
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public int reconstruire(LocalDate jourDebut, LocalDate jourFin) {
+        if (jourDebut == null || jourFin == null || jourFin.isBefore(jourDebut)) {
+            throw new BusinessException("La plage de jours est invalide");
+        }
+        if (!jourFin.isBefore(LocalDate.now())) {
+            throw new BusinessException("Seuls les jours clos peuvent être reconstruits");
+        }
+        if (ChronoUnit.DAYS.between(jourDebut, jourFin) >= MAX_JOURS_RECONSTRUCTION) {
+            throw new BusinessException("La reconstruction est limitée à " + MAX_JOURS_RECONSTRUCTION + " jours par appel");
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int jours = 0;
+        for (LocalDate jour = jourDebut; !jour.isAfter(jourFin); jour = jour.plusDays(1)) {
+            LocalDate courant = jour;
+            transaction.executeWithoutResult(status -> reconstruireJour(courant));
+            jours++;
+        }
+        log.info("Sketchs reconstruits du {} au {} ({} jours)", jourDebut, jourFin, jours);
+        return jours;
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void reconstruireJour(LocalDate jour) {
+        Map<Long, SketchesMetriques> parCapteur = new HashMap<>();
+        AlimentationSketchs.SketchsJour global = new AlimentationSketchs.SketchsJour();
+
+        try (Stream<DonneeIoT> flux = donneeIoTRepository.streamByStatutAndIntervalle("VALIDE",
+                jour.atStartOfDay(), jour.plusDays(1).atStartOfDay())) {
+            flux.forEach(donnee -> {
+                Long idCapteur = donnee.getCapteur().getIdCapteur();
+                parCapteur.computeIfAbsent(idCapteur, c -> new SketchesMetriques()).ajouter(donnee);
+                global.ajouter(idCapteur, donnee);
+                entityManager.detach(donnee);
+            });
+        }
+
+        sketchRepository.supprimerJour(jour);
+        List<SketchJournalier> lignes = new ArrayList<>();
+        parCapteur.forEach((idCapteur, sketches) -> lignes.add(SketchJournalier.builder()
+                .jour(jour)
+                .idCapteur(idCapteur)
+                .nombreDonnees(sketches.getNombreDonnees())
+                .quantiles(sketches.versOctets())
+                .build()));
+        if (!parCapteur.isEmpty()) {
+            lignes.add(SketchJournalier.builder()
+                    .jour(jour)
+                    .idCapteur(SketchJournalier.ID_GLOBAL)
+                    .nombreDonnees(global.quantiles.getNombreDonnees())
+                    .quantiles(global.quantiles.versOctets())
+                    .villes(global.villes.versOctets())
+                    .capteurs(global.capteurs.versOctets())
+                    .build());
+        }
+        sketchRepository.saveAll(lignes);
+    }
+}
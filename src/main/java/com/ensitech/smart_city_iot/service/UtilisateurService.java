@@ -5,12 +5,17 @@ import com.ensitech.smart_city_iot.dto.utilisateurDTO.ResponseUtilisateurDTO;
 import com.ensitech.smart_city_iot.dto.utilisateurDTO.UpdateUtilisateurDTO;
 import com.ensitech.smart_city_iot.entity.Administrateur;
 import com.ensitech.smart_city_iot.entity.Utilisateur;
+import com.ensitech.smart_city_iot.repository.IdentiteUtilisateur;
 
 public interface UtilisateurService {
 
     ResponseUtilisateurDTO createUtilisateur (CreateUtilisateurDTO dto) throws Exception;
 
-    Utilisateur findByEmail(String email);
+    // Identifiant, mot de passe, état et type du compte, sur la seule table utilisateur
+    IdentiteUtilisateur getIdentiteByEmail(String email);
+
+    // Utilisateur complet (sous-type et permissions), une fois l'identité vérifiée
+    Utilisateur getProfil(Long id);
 
     Utilisateur login(String email, String password) throws Exception;
 
@@ -24,6 +29,10 @@ public interface UtilisateurService {
 
     ResponseUtilisateurDTO getUtilisateurById(Long id) throws Exception;
 
+    ResponseUtilisateurDTO attribuerPermission(Long idUtilisateur, Long idPermission) throws Exception;
+
+    ResponseUtilisateurDTO retirerPermission(Long idUtilisateur, Long idPermission) throws Exception;
+
 
 
 }
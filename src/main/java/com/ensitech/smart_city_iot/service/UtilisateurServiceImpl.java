@@ -6,6 +6,8 @@ import com.ensitech.smart_city_iot.dto.utilisateurDTO.UpdateUtilisateurDTO;
 import com.ensitech.smart_city_iot.entity.*;
 import com.ensitech.smart_city_iot.exception.BusinessException;
 import com.ensitech.smart_city_iot.exception.EntityNotFoundException;
+import com.ensitech.smart_city_iot.repository.IdentiteUtilisateur;
+import com.ensitech.smart_city_iot.repository.PermissionRepository;
 import com.ensitech.smart_city_iot.repository.UtilisateurRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +24,12 @@ public class UtilisateurServiceImpl implements UtilisateurService {
     @Autowired
     private UtilisateurRepository utilisateurRepository;
 
+    @Autowired
+    private PermissionRepository permissionRepository;
+
+    @Autowired
+    private CacheDroitsUtilisateur cacheDroits;
+
     @Override
     public ResponseUtilisateurDTO createUtilisateur(CreateUtilisateurDTO dto) throws Exception {
 
@@ -116,15 +124,34 @@ public class UtilisateurServiceImpl implements UtilisateurService {
 
     @Override
     public Utilisateur login(String email, String password) throws Exception {
-        Utilisateur utilisateur = utilisateurRepository.findByEmail(email);
-        if (utilisateur != null && BCrypt.checkpw(password, utilisateur.getMotDePasse())){
-            return utilisateur;
+        // Lue avant la première lecture de la transaction : le profil chargé n'est pas antérieur
+        long generationDroits = cacheDroits.generation();
+        IdentiteUtilisateur identite = utilisateurRepository.findIdentiteByEmail(email).orElse(null);
+        if (identite != null && BCrypt.checkpw(password, identite.getMotDePasse())){
+            return chargerProfil(identite.getIdUtilisateur(), generationDroits);
         }
         return null;
     }
 
-    public Utilisateur findByEmail(String email) {
-        return utilisateurRepository.findByEmail(email);
+    @Override
+    @Transactional(readOnly = true)
+    public IdentiteUtilisateur getIdentiteByEmail(String email) {
+        return utilisateurRepository.findIdentiteByEmail(email)
+                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Utilisateur getProfil(Long id) {
+        return chargerProfil(id, cacheDroits.generation());
+    }
+
+    private Utilisateur chargerProfil(Long id, long generationDroits) {
+        Utilisateur utilisateur = utilisateurRepository.findProfilById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
+        // Permissions chargées : les droits de la session qui s'ouvre sont prêts sans autre lecture
+        cacheDroits.enregistrer(utilisateur, generationDroits);
+        return utilisateur;
     }
 
     @Override
@@ -151,9 +178,37 @@ public class UtilisateurServiceImpl implements UtilisateurService {
     public ResponseUtilisateurDTO getUtilisateurById(Long id) throws Exception {
         log.debug("ID Utilisateur : {}",id);
 
-        Utilisateur utilisateur = utilisateurRepository.findById(id)
+        return ResponseUtilisateurDTO.fromEntity(getProfil(id));
+    }
+
+    @Override
+    public ResponseUtilisateurDTO attribuerPermission(Long idUtilisateur, Long idPermission) throws Exception {
+        Utilisateur utilisateur = utilisateurRepository.findProfilById(idUtilisateur)
+                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
+        Permission permission = permissionRepository.findById(idPermission)
+                .orElseThrow(() -> new EntityNotFoundException("Permission non trouvée avec l'ID: " + idPermission));
+
+        if (utilisateur.getPermissions().stream().anyMatch(p -> p.getIdPermission().equals(idPermission))) {
+            throw new BusinessException("L'utilisateur possède déjà cette permission");
+        }
+        utilisateur.getPermissions().add(permission);
+        cacheDroits.invalider(idUtilisateur);
+
+        log.info("Permission {} attribuée à l'utilisateur {}", idPermission, idUtilisateur);
+        return ResponseUtilisateurDTO.fromEntity(utilisateur);
+    }
+
+    @Override
+    public ResponseUtilisateurDTO retirerPermission(Long idUtilisateur, Long idPermission) throws Exception {
+        Utilisateur utilisateur = utilisateurRepository.findProfilById(idUtilisateur)
                 .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
 
+        if (!utilisateur.getPermissions().removeIf(p -> p.getIdPermission().equals(idPermission))) {
+            throw new EntityNotFoundException("Permission non attribuée à l'utilisateur: " + idPermission);
+        }
+        cacheDroits.invalider(idUtilisateur);
+
+        log.info("Permission {} retirée à l'utilisateur {}", idPermission, idUtilisateur);
         return ResponseUtilisateurDTO.fromEntity(utilisateur);
     }
 }
@@ -0,0 +1,11 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+
+public interface ValidationDonneeService {
+    /** Renseigne le statut (VALIDE, INVALIDE, EN_ATTENTE) et le score d'anomalie de la donnée */
+    void valider(Capteur capteur, DonneeIoT donnee);
+
+    void reinitialiserCapteur(Long idCapteur);
+}
@@ -0,0 +1,173 @@
+package com.ensitech.smart_city_iot.service;
+
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.utils.MetriqueIoT;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validation en ligne des mesures à l'ingestion :
+ * - contrôle des bornes valeurMin/valeurMax du capteur (INVALIDE)
+ * - détection d'écart par moyenne et variance exponentielles (EN_ATTENTE)
+ * - détection de capteur bloqué sur une même valeur (EN_ATTENTE)
+ * Les deux derniers contrôles dépendent de la métrique ({@link Profil}) : précipitations et vent valent
+ * souvent zéro puis varient brusquement, l'humidité est entière ; un écart-type plancher exprimé dans
+ * l'unité de la métrique évite qu'une série plate rende toute variation atypique.
+ * Une mesure atypique n'entre pas dans la moyenne de référence ; après plusieurs mesures atypiques
+ * consécutives (changement de régime), la référence est réapprise.
+ * L'état conservé par capteur est de taille constante.
+ */
+@Service
+@Slf4j
+public class ValidationDonneeServiceImpl implements ValidationDonneeService {
+
+    private static final double EPSILON = 1e-9;
+
+    @Value("${donnees.validation.ewma-alpha:0.05}")
+    private double alpha;
+
+    @Value("${donnees.validation.seuil-zscore:4.0}")
+    private double seuilZScore;
+
+    @Value("${donnees.validation.echauffement:20}")
+    private int echauffement;
+
+    @Value("${donnees.validation.seuil-bloque:12}")
+    private int seuilBloque;
+
+    @Value("${donnees.validation.ecarts-consecutifs-max:6}")
+    private int ecartsConsecutifsMax;
+
+    private final Map<Long, EtatCapteur> etats = new ConcurrentHashMap<>();
+
+    @Override
+    public void valider(Capteur capteur, DonneeIoT donnee) {
+        MetriqueIoT metrique = MetriqueIoT.pourTypeCapteur(capteur.getTypeCapteur());
+        if (metrique == null) {
+            // Type de capteur sans mesure dédiée dans les données collectées
+            donnee.setStatutDonnee("VALIDE");
+            return;
+        }
+
+        Double valeur = metrique.valeur(donnee);
+        if (valeur == null || valeur.isNaN() || valeur.isInfinite()) {
+            donnee.setStatutDonnee("EN_ATTENTE");
+            return;
+        }
+
+        if ((capteur.getValeurMin() != null && valeur < capteur.getValeurMin())
+                || (capteur.getValeurMax() != null && valeur > capteur.getValeurMax())) {
+            log.warn("Mesure hors bornes pour le capteur {}: {} = {} (bornes [{}, {}])",
+                    capteur.getIdCapteur(), metrique.getCode(), valeur, capteur.getValeurMin(), capteur.getValeurMax());
+            donnee.setStatutDonnee("INVALIDE");
+            return;
+        }
+
+        Profil profil = Profil.pour(metrique);
+        EtatCapteur etat = etats.computeIfAbsent(capteur.getIdCapteur(), id -> new EtatCapteur());
+        synchronized (etat) {
+            double zScore = profil.controleEcart() ? etat.zScore(valeur, profil.plancherEcartType()) : 0.0;
+            boolean bloque = profil.controleBloque() && etat.repeter(valeur) >= seuilBloque;
+            boolean atypique = profil.controleEcart() && etat.nombre > echauffement && zScore > seuilZScore;
+
+            donnee.setScoreAnomalie(zScore);
+            if (atypique) {
+                // La référence n'apprend pas des mesures écartées, sauf changement de régime durable
+                if (++etat.ecartsConsecutifs >= ecartsConsecutifsMax) {
+                    log.info("Capteur {}: {} mesures atypiques consécutives, référence réapprise",
+                            capteur.getIdCapteur(), etat.ecartsConsecutifs);
+                    etat.reinitialiserReference();
+                }
+            } else {
+                etat.ecartsConsecutifs = 0;
+                etat.enregistrer(valeur, alpha);
+            }
+
+            if (bloque) {
+                log.warn("Capteur {} bloqué sur la valeur {} depuis {} mesures",
+                        capteur.getIdCapteur(), valeur, etat.repetitions);
+                donnee.setStatutDonnee("EN_ATTENTE");
+            } else if (atypique) {
+                log.info("Mesure atypique pour le capteur {}: {} = {} (z = {})",
+                        capteur.getIdCapteur(), metrique.getCode(), valeur, String.format("%.2f", zScore));
+                donnee.setStatutDonnee("EN_ATTENTE");
+            } else {
+                donnee.setStatutDonnee("VALIDE");
+            }
+        }
+    }
+
+    @Override
+    public void reinitialiserCapteur(Long idCapteur) {
+        etats.remove(idCapteur);
+    }
+
+    /**
+     * Contrôles applicables à une métrique ; le plancher d'écart-type est dans l'unité de la métrique
+     */
+    private record Profil(boolean controleBloque, boolean controleEcart, double plancherEcartType) {
+
+        static Profil pour(MetriqueIoT metrique) {
+            return switch (metrique) {
+                case TEMPERATURE_CELSIUS -> new Profil(true, true, 0.5);
+                case TEMPERATURE_FAHRENHEIT -> new Profil(true, true, 1.0);
+                // Valeurs entières en %, stables pendant des heures
+                case HUMIDITE, NUAGEUX -> new Profil(false, true, 5.0);
+                case INDICE_UV -> new Profil(false, true, 1.0);
+                // Nulles la plupart du temps, puis brusques : ni série constante ni écart ne sont anormaux
+                case PRECIPITATION_MM, VITESSE_VENT_KPH -> new Profil(false, false, 0.0);
+                case CO, NO2, O3, SO2, PM10 -> new Profil(true, true, 5.0);
+            };
+        }
+    }
+
+    /** Moyenne et variance exponentielles, dernière valeur et nombre de répétitions */
+    private static final class EtatCapteur {
+        private long nombre;
+        private double moyenne;
+        private double variance;
+        private double derniereValeur = Double.NaN;
+        private int repetitions;
+        private int ecartsConsecutifs;
+
+        double zScore(double valeur, double plancherEcartType) {
+            if (nombre < 2) {
+                return 0.0;
+            }
+            double ecartType = Math.max(Math.sqrt(variance), plancherEcartType);
+            return ecartType > 0 ? Math.abs(valeur - moyenne) / ecartType : 0.0;
+        }
+
+        /** Met à jour la moyenne et la variance de référence */
+        void enregistrer(double valeur, double alpha) {
+            if (nombre == 0) {
+                moyenne = valeur;
+                variance = 0.0;
+            } else {
+                double ecart = valeur - moyenne;
+                double increment = alpha * ecart;
+                moyenne += increment;
+                variance = (1 - alpha) * (variance + ecart * increment);
+            }
+            nombre++;
+        }
+
+        /** Retourne le nombre de mesures identiques consécutives, celle-ci comprise */
+        int repeter(double valeur) {
+            repetitions = Math.abs(valeur - derniereValeur) < EPSILON ? repetitions + 1 : 1;
+            derniereValeur = valeur;
+            return repetitions;
+        }
+
+        /** Nouvel échauffement : la prochaine mesure devient la référence */
+        void reinitialiserReference() {
+            nombre = 0;
+            ecartsConsecutifs = 0;
+        }
+    }
+}
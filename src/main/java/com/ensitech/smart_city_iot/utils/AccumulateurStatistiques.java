@@ -0,0 +1,231 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistiques de toutes les métriques {@link MetriqueIoT} calculées en un seul passage :
+ * nombre, somme, min, max et variance (algorithme de Welford), au global, par ville et par capteur.
+ * Chaque groupe est stocké dans des tableaux primitifs indexés par l'ordinal de la métrique.
+ * Deux accumulateurs se fusionnent (formule de Chan), ce qui permet un calcul par tranches parallèles.
+ * Non thread-safe : un accumulateur par thread, puis fusion.
+ * Sérialisable en binaire ({@link #ecrire}/{@link #lire}) pour la mise en cache d'agrégats partiels.
+ */
+public final class AccumulateurStatistiques {
+
+    private static final int NOMBRE_METRIQUES = MetriqueIoT.nombre();
+
+    private final Statistiques global = new Statistiques();
+    private final Map<String, Statistiques> parVille = new HashMap<>();
+    private final Map<Long, Statistiques> parCapteur = new HashMap<>();
+
+    private final double[] valeurs = new double[NOMBRE_METRIQUES];
+    private final boolean[] presentes = new boolean[NOMBRE_METRIQUES];
+
+    public void ajouter(DonneeIoT donnee) {
+        // Extraction unique des valeurs, partagée par les trois niveaux de regroupement
+        for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+            Double valeur = MetriqueIoT.parIndex(i).valeur(donnee);
+            presentes[i] = valeur != null && !valeur.isNaN();
+            valeurs[i] = presentes[i] ? valeur : 0.0;
+        }
+
+        global.ajouter(valeurs, presentes);
+        if (donnee.getVilleNom() != null) {
+            parVille.computeIfAbsent(donnee.getVilleNom(), v -> new Statistiques()).ajouter(valeurs, presentes);
+        }
+        if (donnee.getCapteur() != null && donnee.getCapteur().getIdCapteur() != null) {
+            parCapteur.computeIfAbsent(donnee.getCapteur().getIdCapteur(), c -> new Statistiques()).ajouter(valeurs, presentes);
+        }
+    }
+
+    public AccumulateurStatistiques fusionner(AccumulateurStatistiques autre) {
+        global.fusionner(autre.global);
+        autre.parVille.forEach((ville, stats) -> parVille.merge(ville, stats.copie(), Statistiques::fusionner));
+        autre.parCapteur.forEach((capteur, stats) -> parCapteur.merge(capteur, stats.copie(), Statistiques::fusionner));
+        return this;
+    }
+
+    /** Format binaire : nombre de métriques, global, puis groupes par ville et par capteur */
+    public void ecrire(DataOutput sortie) throws IOException {
+        sortie.writeInt(NOMBRE_METRIQUES);
+        global.ecrire(sortie);
+        sortie.writeInt(parVille.size());
+        for (Map.Entry<String, Statistiques> entree : parVille.entrySet()) {
+            sortie.writeUTF(entree.getKey());
+            entree.getValue().ecrire(sortie);
+        }
+        sortie.writeInt(parCapteur.size());
+        for (Map.Entry<Long, Statistiques> entree : parCapteur.entrySet()) {
+            sortie.writeLong(entree.getKey());
+            entree.getValue().ecrire(sortie);
+        }
+    }
+
+    /**
+     * @throws IOException si le format ne correspond plus à la liste des métriques
+     */
+    public static AccumulateurStatistiques lire(DataInput entree) throws IOException {
+        int metriques = entree.readInt();
+        if (metriques != NOMBRE_METRIQUES) {
+            throw new IOException("Format incompatible: " + metriques + " métriques au lieu de " + NOMBRE_METRIQUES);
+        }
+        AccumulateurStatistiques accumulateur = new AccumulateurStatistiques();
+        accumulateur.global.lire(entree);
+        int villes = entree.readInt();
+        for (int i = 0; i < villes; i++) {
+            String ville = entree.readUTF();
+            Statistiques stats = new Statistiques();
+            stats.lire(entree);
+            accumulateur.parVille.put(ville, stats);
+        }
+        int capteurs = entree.readInt();
+        for (int i = 0; i < capteurs; i++) {
+            long capteur = entree.readLong();
+            Statistiques stats = new Statistiques();
+            stats.lire(entree);
+            accumulateur.parCapteur.put(capteur, stats);
+        }
+        return accumulateur;
+    }
+
+    public Statistiques getGlobal() {
+        return global;
+    }
+
+    /** Statistiques par ville, triées par nom */
+    public Map<String, Statistiques> getParVille() {
+        return Collections.unmodifiableMap(new TreeMap<>(parVille));
+    }
+
+    public Map<Long, Statistiques> getParCapteur() {
+        return Collections.unmodifiableMap(parCapteur);
+    }
+
+    /**
+     * Statistiques d'un groupe : un tableau par agrégat, une case par métrique
+     */
+    public static final class Statistiques {
+        private long nombreDonnees;
+        private final long[] nombre = new long[NOMBRE_METRIQUES];
+        private final double[] somme = new double[NOMBRE_METRIQUES];
+        private final double[] moyenne = new double[NOMBRE_METRIQUES];
+        private final double[] m2 = new double[NOMBRE_METRIQUES];
+        private final double[] min = new double[NOMBRE_METRIQUES];
+        private final double[] max = new double[NOMBRE_METRIQUES];
+
+        Statistiques() {
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        void ajouter(double[] valeurs, boolean[] presentes) {
+            nombreDonnees++;
+            for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+                if (!presentes[i]) {
+                    continue;
+                }
+                double valeur = valeurs[i];
+                long n = ++nombre[i];
+                somme[i] += valeur;
+                double ecart = valeur - moyenne[i];
+                moyenne[i] += ecart / n;
+                m2[i] += ecart * (valeur - moyenne[i]);
+                if (valeur < min[i]) min[i] = valeur;
+                if (valeur > max[i]) max[i] = valeur;
+            }
+        }
+
+        Statistiques fusionner(Statistiques autre) {
+            nombreDonnees += autre.nombreDonnees;
+            for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+                long nb = autre.nombre[i];
+                if (nb == 0) {
+                    continue;
+                }
+                long na = nombre[i];
+                long n = na + nb;
+                double ecart = autre.moyenne[i] - moyenne[i];
+                moyenne[i] += ecart * nb / n;
+                m2[i] += autre.m2[i] + ecart * ecart * ((double) na * nb / n);
+                nombre[i] = n;
+                somme[i] += autre.somme[i];
+                min[i] = Math.min(min[i], autre.min[i]);
+                max[i] = Math.max(max[i], autre.max[i]);
+            }
+            return this;
+        }
+
+        Statistiques copie() {
+            return new Statistiques().fusionner(this);
+        }
+
+        void ecrire(DataOutput sortie) throws IOException {
+            sortie.writeLong(nombreDonnees);
+            for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+                sortie.writeLong(nombre[i]);
+                sortie.writeDouble(somme[i]);
+                sortie.writeDouble(moyenne[i]);
+                sortie.writeDouble(m2[i]);
+                sortie.writeDouble(min[i]);
+                sortie.writeDouble(max[i]);
+            }
+        }
+
+        void lire(DataInput entree) throws IOException {
+            nombreDonnees = entree.readLong();
+            for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+                nombre[i] = entree.readLong();
+                somme[i] = entree.readDouble();
+                moyenne[i] = entree.readDouble();
+                m2[i] = entree.readDouble();
+                min[i] = entree.readDouble();
+                max[i] = entree.readDouble();
+            }
+        }
+
+        /** Nombre de données du groupe, toutes métriques confondues */
+        public long getNombreDonnees() {
+            return nombreDonnees;
+        }
+
+        public long nombre(MetriqueIoT metrique) {
+            return nombre[metrique.ordinal()];
+        }
+
+        public double somme(MetriqueIoT metrique) {
+            return somme[metrique.ordinal()];
+        }
+
+        /** Moyenne, 0 en l'absence de valeur */
+        public double moyenne(MetriqueIoT metrique) {
+            return nombre[metrique.ordinal()] > 0 ? moyenne[metrique.ordinal()] : 0.0;
+        }
+
+        public double min(MetriqueIoT metrique) {
+            return nombre[metrique.ordinal()] > 0 ? min[metrique.ordinal()] : 0.0;
+        }
+
+        public double max(MetriqueIoT metrique) {
+            return nombre[metrique.ordinal()] > 0 ? max[metrique.ordinal()] : 0.0;
+        }
+
+        /** Variance de population */
+        public double variance(MetriqueIoT metrique) {
+            long n = nombre[metrique.ordinal()];
+            return n > 0 ? m2[metrique.ordinal()] / n : 0.0;
+        }
+
+        public double ecartType(MetriqueIoT metrique) {
+            return Math.sqrt(variance(metrique));
+        }
+    }
+}
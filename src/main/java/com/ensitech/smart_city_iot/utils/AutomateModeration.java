@@ -0,0 +1,164 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Automate d'Aho-Corasick sur un dictionnaire de termes pondérés : toutes les occurrences de tous
+ * les termes sont trouvées en un seul passage sur le texte, quel que soit le nombre de termes.
+ * Le texte et les termes passent par {@link TexteRecherche#normaliser} ; un terme n'est reconnu que
+ * sur des mots entiers (« pub » ne reconnaît pas « publique »), sauf s'il se termine par {@code *}
+ * (préfixe). Immuable une fois construit : partageable entre threads.
+ */
+public final class AutomateModeration {
+
+    // a-z, 0-9 et l'espace : seuls caractères d'un texte normalisé
+    private static final int ALPHABET = 37;
+    private static final int ESPACE = 36;
+
+    private final int[] transitions;
+    private final int[][] sorties;
+    private final String[] termes;
+    private final int[] poids;
+    private final int[] longueurs;
+    private final boolean[] prefixes;
+
+    public record Resultat(int score, List<String> termes) {
+    }
+
+    /**
+     * @param dictionnaire poids par terme ; un terme vide une fois normalisé est ignoré
+     */
+    public static AutomateModeration construire(Map<String, Integer> dictionnaire) {
+        return new AutomateModeration(dictionnaire);
+    }
+
+    private AutomateModeration(Map<String, Integer> dictionnaire) {
+        List<String> listeTermes = new ArrayList<>();
+        List<Integer> listePoids = new ArrayList<>();
+        List<Boolean> listePrefixes = new ArrayList<>();
+        for (Map.Entry<String, Integer> entree : dictionnaire.entrySet()) {
+            String brut = entree.getKey().trim();
+            boolean prefixe = brut.endsWith("*");
+            String terme = TexteRecherche.normaliser(prefixe ? brut.substring(0, brut.length() - 1) : brut);
+            if (!terme.isEmpty()) {
+                listeTermes.add(terme);
+                listePoids.add(entree.getValue());
+                listePrefixes.add(prefixe);
+            }
+        }
+        int nombre = listeTermes.size();
+        termes = listeTermes.toArray(new String[0]);
+        poids = new int[nombre];
+        longueurs = new int[nombre];
+        prefixes = new boolean[nombre];
+        for (int i = 0; i < nombre; i++) {
+            poids[i] = listePoids.get(i);
+            longueurs[i] = termes[i].length();
+            prefixes[i] = listePrefixes.get(i);
+        }
+
+        // Trie des termes
+        List<int[]> enfants = new ArrayList<>();
+        List<List<Integer>> terminaux = new ArrayList<>();
+        enfants.add(nouvelEtat());
+        terminaux.add(new ArrayList<>());
+        for (int i = 0; i < nombre; i++) {
+            int etat = 0;
+            for (int j = 0; j < termes[i].length(); j++) {
+                int symbole = symbole(termes[i].charAt(j));
+                if (enfants.get(etat)[symbole] < 0) {
+                    enfants.get(etat)[symbole] = enfants.size();
+                    enfants.add(nouvelEtat());
+                    terminaux.add(new ArrayList<>());
+                }
+                etat = enfants.get(etat)[symbole];
+            }
+            terminaux.get(etat).add(i);
+        }
+
+        // Liens d'échec en largeur, puis transitions complètes : un seul accès au tableau par caractère
+        int etats = enfants.size();
+        transitions = new int[etats * ALPHABET];
+        sorties = new int[etats][];
+        int[] echecs = new int[etats];
+        ArrayDeque<Integer> file = new ArrayDeque<>();
+        sorties[0] = new int[0];
+        for (int symbole = 0; symbole < ALPHABET; symbole++) {
+            int enfant = enfants.get(0)[symbole];
+            if (enfant > 0) {
+                transitions[symbole] = enfant;
+                echecs[enfant] = 0;
+                file.add(enfant);
+            }
+        }
+        while (!file.isEmpty()) {
+            int etat = file.poll();
+            int[] propres = terminaux.get(etat).stream().mapToInt(Integer::intValue).toArray();
+            int[] heritees = sorties[echecs[etat]];
+            sorties[etat] = Arrays.copyOf(propres, propres.length + heritees.length);
+            System.arraycopy(heritees, 0, sorties[etat], propres.length, heritees.length);
+            for (int symbole = 0; symbole < ALPHABET; symbole++) {
+                int enfant = enfants.get(etat)[symbole];
+                int repli = transitions[echecs[etat] * ALPHABET + symbole];
+                if (enfant > 0) {
+                    transitions[etat * ALPHABET + symbole] = enfant;
+                    echecs[enfant] = repli;
+                    file.add(enfant);
+                } else {
+                    transitions[etat * ALPHABET + symbole] = repli;
+                }
+            }
+        }
+    }
+
+    public int getNombreTermes() {
+        return termes.length;
+    }
+
+    /**
+     * @return somme des poids de toutes les occurrences et termes distincts reconnus
+     */
+    public Resultat analyser(String... morceaux) {
+        String texte = TexteRecherche.normaliser(morceaux);
+        int score = 0;
+        Set<String> reconnus = new LinkedHashSet<>();
+        int etat = 0;
+        for (int i = 0; i < texte.length(); i++) {
+            etat = transitions[etat * ALPHABET + symbole(texte.charAt(i))];
+            for (int terme : sorties[etat]) {
+                int debut = i - longueurs[terme] + 1;
+                boolean motDebut = debut == 0 || texte.charAt(debut - 1) == ' ';
+                boolean motFin = prefixes[terme] || i == texte.length() - 1 || texte.charAt(i + 1) == ' ';
+                if (motDebut && motFin) {
+                    score += poids[terme];
+                    reconnus.add(termes[terme]);
+                }
+            }
+        }
+        return new Resultat(score, new ArrayList<>(reconnus));
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private static int[] nouvelEtat() {
+        int[] etat = new int[ALPHABET];
+        Arrays.fill(etat, -1);
+        return etat;
+    }
+
+    private static int symbole(char caractere) {
+        if (caractere >= 'a' && caractere <= 'z') {
+            return caractere - 'a';
+        }
+        if (caractere >= '0' && caractere <= '9') {
+            return 26 + caractere - '0';
+        }
+        return ESPACE;
+    }
+}
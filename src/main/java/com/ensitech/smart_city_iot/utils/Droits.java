@@ -0,0 +1,109 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.Permission;
+import com.ensitech.smart_city_iot.entity.Utilisateur;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Droits d'un utilisateur tenus dans un long : un bit par couple (module, action), soit
+ * {@code module.ordinal() * 4 + action.ordinal()}. Les droits du rôle (méthodes peut* de l'entité)
+ * s'ajoutent à ceux des permissions actives et non expirées ; un administrateur les a tous.
+ * Un module de permission inconnu n'accorde rien.
+ */
+public final class Droits {
+
+    public enum Module {
+        CAPTEURS, DONNEES, ALERTES, RAPPORTS, COMMENTAIRES, NOTIFICATIONS, UTILISATEURS
+    }
+
+    public enum Action {
+        LIRE, CREER, MODIFIER, SUPPRIMER
+    }
+
+    public static final long AUCUN = 0L;
+    public static final long TOUS = (1L << (Module.values().length * Action.values().length)) - 1;
+
+    private Droits() {
+    }
+
+    public static long bit(Module module, Action action) {
+        return 1L << (module.ordinal() * Action.values().length + action.ordinal());
+    }
+
+    public static boolean autorise(long droits, Module module, Action action) {
+        return (droits & bit(module, action)) != 0;
+    }
+
+    /**
+     * Droits du rôle et des permissions de l'utilisateur, à l'instant {@code maintenant}
+     */
+    public static long calculer(Utilisateur utilisateur, LocalDateTime maintenant) {
+        if (!utilisateur.isActif()) {
+            return AUCUN;
+        }
+        if (utilisateur.peutGererUtilisateurs()) {
+            return TOUS;
+        }
+        long droits = bit(Module.CAPTEURS, Action.LIRE) | bit(Module.ALERTES, Action.LIRE)
+                | bit(Module.RAPPORTS, Action.LIRE) | bit(Module.COMMENTAIRES, Action.LIRE)
+                | bit(Module.NOTIFICATIONS, Action.LIRE);
+        if (utilisateur.peutCreerCapteur()) {
+            droits |= bit(Module.CAPTEURS, Action.CREER) | bit(Module.CAPTEURS, Action.MODIFIER)
+                    | bit(Module.CAPTEURS, Action.SUPPRIMER);
+        }
+        if (utilisateur.peutVoirDonneesBrutes()) {
+            droits |= bit(Module.DONNEES, Action.LIRE);
+        }
+        if (utilisateur.peutGenererRapport()) {
+            droits |= bit(Module.RAPPORTS, Action.CREER);
+        }
+        for (Permission permission : utilisateur.getPermissions()) {
+            droits |= droits(permission, maintenant);
+        }
+        return droits;
+    }
+
+    /**
+     * Bits accordés par une permission, aucun si elle est inactive, expirée ou d'un module inconnu
+     */
+    public static long droits(Permission permission, LocalDateTime maintenant) {
+        if (!Boolean.TRUE.equals(permission.getActive())
+                || (permission.getDateExpiration() != null && !maintenant.isBefore(permission.getDateExpiration()))) {
+            return AUCUN;
+        }
+        Module module = module(permission.getModuleConcerne());
+        if (module == null) {
+            return AUCUN;
+        }
+        long droits = AUCUN;
+        if (Boolean.TRUE.equals(permission.getLire())) {
+            droits |= bit(module, Action.LIRE);
+        }
+        if (Boolean.TRUE.equals(permission.getCreer())) {
+            droits |= bit(module, Action.CREER);
+        }
+        if (Boolean.TRUE.equals(permission.getModifier())) {
+            droits |= bit(module, Action.MODIFIER);
+        }
+        if (Boolean.TRUE.equals(permission.getSupprimer())) {
+            droits |= bit(module, Action.SUPPRIMER);
+        }
+        return droits;
+    }
+
+    /**
+     * @return module désigné par {@code nom} sans tenir compte de la casse, null s'il est inconnu
+     */
+    public static Module module(String nom) {
+        if (nom == null) {
+            return null;
+        }
+        try {
+            return Module.valueOf(nom.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import org.apache.arrow.compression.CommonsCompressionFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeStampMilliVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.ipc.message.IpcOption;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Écriture de données IoT au format fichier Arrow IPC : colonnes typées, lots de {@code tailleLot} lignes
+ * (seul le lot courant est en mémoire), buffers compressés en ZSTD. Les colonnes texte sont encodées
+ * par dictionnaire : les dictionnaires sont écrits en tête de fichier, leurs valeurs doivent donc être
+ * connues avant la première ligne. Une valeur absente de son dictionnaire (ligne insérée entre la lecture
+ * des dictionnaires et le parcours) est écrite nulle et comptée, sans interrompre le fichier.
+ * Non thread-safe ; le flux de sortie n'est pas fermé.
+ */
+public final class EcrivainArrow implements AutoCloseable {
+
+    public static final String TYPE_CONTENU = "application/vnd.apache.arrow.file";
+    private static final ArrowType.Int TYPE_INDEX = new ArrowType.Int(32, true);
+    private static final int TAILLE_TAMPON = 64 * 1024;
+
+    /**
+     * Valeurs possibles des colonnes encodées par dictionnaire
+     */
+    public record Dictionnaires(Set<String> capteurs, Set<String> villes, Set<String> regions,
+                                Set<String> pays, Set<String> sources) {
+
+        /**
+         * @param tuples lignes {nom du capteur, ville, région, pays, source}, en texte ou en octets UTF-8
+         */
+        public static Dictionnaires depuis(List<Object[]> tuples) {
+            Dictionnaires dictionnaires = new Dictionnaires(new TreeSet<>(), new TreeSet<>(), new TreeSet<>(),
+                    new TreeSet<>(), new TreeSet<>());
+            for (Object[] tuple : tuples) {
+                ajouter(dictionnaires.capteurs, tuple[0]);
+                ajouter(dictionnaires.villes, tuple[1]);
+                ajouter(dictionnaires.regions, tuple[2]);
+                ajouter(dictionnaires.pays, tuple[3]);
+                ajouter(dictionnaires.sources, tuple[4]);
+            }
+            return dictionnaires;
+        }
+
+        private static void ajouter(Set<String> valeurs, Object valeur) {
+            if (valeur instanceof byte[] octets) {
+                valeurs.add(new String(octets, StandardCharsets.UTF_8));
+            } else if (valeur != null) {
+                valeurs.add(valeur.toString());
+            }
+        }
+    }
+
+    private final BufferAllocator allocateur = new RootAllocator();
+    private final List<ColonneDictionnaire> colonnesDictionnaire = new ArrayList<>();
+    private final OutputStream sortie;
+    private final int tailleLot;
+
+    private final BigIntVector idDonnee;
+    private final TimeStampMilliVector dateCollecte;
+    private final ColonneDictionnaire ville;
+    private final ColonneDictionnaire region;
+    private final ColonneDictionnaire pays;
+    private final Float8Vector latitude;
+    private final Float8Vector longitude;
+    private final Float8Vector[] metriques = new Float8Vector[MetriqueIoT.nombre()];
+    private final ColonneDictionnaire source;
+    private final BigIntVector idCapteur;
+    private final ColonneDictionnaire capteur;
+
+    private final VectorSchemaRoot racine;
+    private final ArrowFileWriter ecrivain;
+    private int ligne;
+    private long nombreLignes;
+    private long valeursHorsDictionnaire;
+
+    public EcrivainArrow(OutputStream sortie, Dictionnaires dictionnaires, int tailleLot) throws IOException {
+        this.sortie = new BufferedOutputStream(new SortieNonFermee(sortie), TAILLE_TAMPON);
+        this.tailleLot = tailleLot;
+        DictionaryProvider.MapDictionaryProvider fournisseur = new DictionaryProvider.MapDictionaryProvider();
+
+        // Colonnes dans l'ordre de l'export CSV
+        List<FieldVector> vecteurs = new ArrayList<>();
+        idDonnee = ajouter(vecteurs, new BigIntVector("id_donnee", allocateur));
+        dateCollecte = ajouter(vecteurs, new TimeStampMilliVector("timestamp_collecte", allocateur));
+        ville = colonne(vecteurs, fournisseur, "ville", 1, dictionnaires.villes());
+        region = colonne(vecteurs, fournisseur, "region", 2, dictionnaires.regions());
+        pays = colonne(vecteurs, fournisseur, "pays", 3, dictionnaires.pays());
+        latitude = ajouter(vecteurs, new Float8Vector("latitude", allocateur));
+        longitude = ajouter(vecteurs, new Float8Vector("longitude", allocateur));
+        for (int i = 0; i < metriques.length; i++) {
+            metriques[i] = ajouter(vecteurs, new Float8Vector(MetriqueIoT.parIndex(i).getCode(), allocateur));
+        }
+        source = colonne(vecteurs, fournisseur, "source_api", 4, dictionnaires.sources());
+        idCapteur = ajouter(vecteurs, new BigIntVector("id_capteur", allocateur));
+        capteur = colonne(vecteurs, fournisseur, "nom_capteur", 5, dictionnaires.capteurs());
+
+        racine = VectorSchemaRoot.of(vecteurs.toArray(new FieldVector[0]));
+        ecrivain = new ArrowFileWriter(racine, fournisseur, Channels.newChannel(this.sortie), Map.of(),
+                IpcOption.DEFAULT, CommonsCompressionFactory.INSTANCE, CompressionUtil.CodecType.ZSTD);
+        ecrivain.start();
+    }
+
+    public void ajouter(DonneeIoT donnee) throws IOException {
+        if (ligne == 0) {
+            racine.allocateNew();
+        }
+        ecrire(idDonnee, donnee.getIdDonneeIoT());
+        if (donnee.getTimestampCollecte() != null) {
+            dateCollecte.setSafe(ligne, donnee.getTimestampCollecte().toInstant(ZoneOffset.UTC).toEpochMilli());
+        } else {
+            dateCollecte.setNull(ligne);
+        }
+        ville.ecrire(ligne, donnee.getVilleNom());
+        region.ecrire(ligne, donnee.getRegion());
+        pays.ecrire(ligne, donnee.getPays());
+        ecrire(latitude, donnee.getLatitude());
+        ecrire(longitude, donnee.getLongitude());
+        for (int i = 0; i < metriques.length; i++) {
+            ecrire(metriques[i], MetriqueIoT.parIndex(i).valeur(donnee));
+        }
+        source.ecrire(ligne, donnee.getSourceApi());
+        ecrire(idCapteur, donnee.getCapteur() != null ? donnee.getCapteur().getIdCapteur() : null);
+        capteur.ecrire(ligne, donnee.getCapteur() != null ? donnee.getCapteur().getNomCapteur() : null);
+
+        ligne++;
+        nombreLignes++;
+        if (ligne == tailleLot) {
+            ecrireLot();
+        }
+    }
+
+    /**
+     * Écrit le dernier lot et le pied de fichier ; sans appel, le fichier est incomplet
+     */
+    public void terminer() throws IOException {
+        if (ligne > 0) {
+            ecrireLot();
+        }
+        ecrivain.end();
+        sortie.flush();
+    }
+
+    public long getNombreLignes() {
+        return nombreLignes;
+    }
+
+    public long getValeursHorsDictionnaire() {
+        return valeursHorsDictionnaire;
+    }
+
+    @Override
+    public void close() {
+        ecrivain.close();
+        racine.close();
+        colonnesDictionnaire.forEach(colonne -> colonne.valeurs.close());
+        allocateur.close();
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private void ecrireLot() throws IOException {
+        racine.setRowCount(ligne);
+        ecrivain.writeBatch();
+        ligne = 0;
+    }
+
+    private void ecrire(Float8Vector vecteur, Double valeur) {
+        if (valeur != null) {
+            vecteur.setSafe(ligne, valeur);
+        } else {
+            vecteur.setNull(ligne);
+        }
+    }
+
+    private void ecrire(BigIntVector vecteur, Long valeur) {
+        if (valeur != null) {
+            vecteur.setSafe(ligne, valeur);
+        } else {
+            vecteur.setNull(ligne);
+        }
+    }
+
+    private static <V extends FieldVector> V ajouter(List<FieldVector> vecteurs, V vecteur) {
+        vecteurs.add(vecteur);
+        return vecteur;
+    }
+
+    private ColonneDictionnaire colonne(List<FieldVector> vecteurs, DictionaryProvider.MapDictionaryProvider fournisseur,
+                                        String nom, long id, Collection<String> domaine) {
+        ColonneDictionnaire colonne = new ColonneDictionnaire(nom, id, domaine);
+        fournisseur.put(colonne.dictionnaire);
+        colonnesDictionnaire.add(colonne);
+        vecteurs.add(colonne.indices);
+        return colonne;
+    }
+
+    /** Colonne texte : indices entiers dans le lot, valeurs distinctes une seule fois dans le fichier */
+    private final class ColonneDictionnaire {
+        private final VarCharVector valeurs;
+        private final Dictionary dictionnaire;
+        private final IntVector indices;
+        private final Map<String, Integer> index = new HashMap<>();
+
+        ColonneDictionnaire(String nom, long id, Collection<String> domaine) {
+            DictionaryEncoding encodage = new DictionaryEncoding(id, false, TYPE_INDEX);
+            valeurs = new VarCharVector(nom + "_valeurs", allocateur);
+            valeurs.allocateNew();
+            for (String valeur : domaine) {
+                int position = index.size();
+                valeurs.setSafe(position, valeur.getBytes(StandardCharsets.UTF_8));
+                index.put(valeur, position);
+            }
+            valeurs.setValueCount(index.size());
+            dictionnaire = new Dictionary(valeurs, encodage);
+            indices = new IntVector(new Field(nom, new FieldType(true, TYPE_INDEX, encodage), null), allocateur);
+        }
+
+        void ecrire(int ligne, String valeur) {
+            if (valeur == null) {
+                indices.setNull(ligne);
+                return;
+            }
+            Integer position = index.get(valeur);
+            if (position == null) {
+                // Les dictionnaires sont déjà écrits en tête de fichier : la valeur ne peut plus y entrer
+                indices.setNull(ligne);
+                valeursHorsDictionnaire++;
+                return;
+            }
+            indices.setSafe(ligne, position);
+        }
+    }
+
+    /** Le flux appartient à l'appelant : la fermeture de l'écrivain Arrow ne fait que le vider */
+    private static final class SortieNonFermee extends OutputStream {
+        private final OutputStream sortie;
+
+        SortieNonFermee(OutputStream sortie) {
+            this.sortie = sortie;
+        }
+
+        @Override
+        public void write(int octet) throws IOException {
+            sortie.write(octet);
+        }
+
+        @Override
+        public void write(byte[] tampon, int debut, int longueur) throws IOException {
+            sortie.write(tampon, debut, longueur);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            sortie.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            sortie.flush();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Découpage d'une ligne CSV (séparateur virgule, guillemets doubles, {@code ""} pour un guillemet
+ * dans un champ entre guillemets). Un champ ne s'étend pas sur plusieurs lignes ; le retour chariot
+ * d'une fin de ligne CRLF laissé par un découpage sur {@code \n} seul est ignoré.
+ */
+public final class LigneCsv {
+
+    private LigneCsv() {
+    }
+
+    /**
+     * @throws IllegalArgumentException si un guillemet ouvert n'est pas refermé
+     */
+    public static List<String> decouper(String ligne) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        int fin = ligne.endsWith("\r") ? ligne.length() - 1 : ligne.length();
+        for (int i = 0; i < fin; i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c != '"') {
+                    champ.append(c);
+                } else if (i + 1 < fin && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else {
+                    entreGuillemets = false;
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == ',') {
+                champs.add(champ.toString());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        if (entreGuillemets) {
+            throw new IllegalArgumentException("Guillemet non refermé");
+        }
+        champs.add(champ.toString());
+        return champs;
+    }
+}
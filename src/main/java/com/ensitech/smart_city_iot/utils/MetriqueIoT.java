@@ -0,0 +1,65 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+
+import java.util.function.Function;
+
+/**
+ * Métriques numériques portées par une {@link DonneeIoT}, avec leur extracteur.
+ * L'ordinal sert d'index stable dans les tableaux de calcul.
+ */
+public enum MetriqueIoT {
+    TEMPERATURE_CELSIUS("temperature_celsius", DonneeIoT::getTemperatureCelsius),
+    TEMPERATURE_FAHRENHEIT("temperature_fahrenheit", DonneeIoT::getTemperatureFahrenheit),
+    VITESSE_VENT_KPH("vitesse_vent_kph", DonneeIoT::getVitesseVentKph),
+    PRECIPITATION_MM("precipitation_mm", DonneeIoT::getPrecipitationMm),
+    HUMIDITE("humidite", DonneeIoT::getHumidite),
+    NUAGEUX("nuageux", DonneeIoT::getNuageux),
+    INDICE_UV("indice_uv", DonneeIoT::getIndiceUv),
+    CO("co", DonneeIoT::getCo),
+    NO2("no2", DonneeIoT::getNo2),
+    O3("o3", DonneeIoT::getO3),
+    SO2("so2", DonneeIoT::getSo2),
+    PM10("pm10", DonneeIoT::getPm10);
+
+    private static final MetriqueIoT[] VALEURS = values();
+
+    private final String code;
+    private final Function<DonneeIoT, Double> extracteur;
+
+    MetriqueIoT(String code, Function<DonneeIoT, Double> extracteur) {
+        this.code = code;
+        this.extracteur = extracteur;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Double valeur(DonneeIoT donnee) {
+        return extracteur.apply(donnee);
+    }
+
+    public static int nombre() {
+        return VALEURS.length;
+    }
+
+    public static MetriqueIoT parIndex(int index) {
+        return VALEURS[index];
+    }
+
+    /** Métrique mesurée par un type de capteur, ou null si la donnée collectée ne la porte pas */
+    public static MetriqueIoT pourTypeCapteur(String typeCapteur) {
+        if (typeCapteur == null) {
+            return null;
+        }
+        return switch (typeCapteur.toUpperCase()) {
+            case "TEMPERATURE" -> TEMPERATURE_CELSIUS;
+            case "HUMIDITE" -> HUMIDITE;
+            case "POLLUTION" -> PM10;
+            case "VENT" -> VITESSE_VENT_KPH;
+            case "PLUIE" -> PRECIPITATION_MM;
+            default -> null;
+        };
+    }
+}
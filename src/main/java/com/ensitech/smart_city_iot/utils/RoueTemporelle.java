@@ -0,0 +1,75 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Roue temporelle hachée : une échéance est rangée dans la case {@code (échéance / durée d'une case)
+ * modulo le nombre de cases} ; une échéance à plus d'une révolution reste dans sa case aux passages
+ * intermédiaires.
+ * Planifier coûte O(1), avancer ne parcourt que les cases écoulées ; la précision est d'une case.
+ * Non synchronisée : l'appelant sérialise les accès.
+ */
+public final class RoueTemporelle<T> {
+
+    private final List<ArrayDeque<Echeance<T>>> cases;
+    private final long dureeCaseMs;
+    private long caseCourante;
+    private int taille;
+
+    private record Echeance<T>(T element, long numeroCase) {
+    }
+
+    public RoueTemporelle(int nombreCases, long dureeCaseMs, long origineMs) {
+        if (nombreCases <= 0 || dureeCaseMs <= 0) {
+            throw new IllegalArgumentException("Nombre de cases et durée d'une case doivent être positifs");
+        }
+        this.cases = new ArrayList<>(nombreCases);
+        for (int i = 0; i < nombreCases; i++) {
+            cases.add(new ArrayDeque<>());
+        }
+        this.dureeCaseMs = dureeCaseMs;
+        this.caseCourante = origineMs / dureeCaseMs;
+    }
+
+    /**
+     * Range {@code element} pour l'instant {@code echeanceMs} ; une échéance passée sort au prochain avancement
+     */
+    public void planifier(T element, long echeanceMs) {
+        // La case courante est déjà traitée : une échéance passée ou présente part à la suivante
+        long numero = Math.max(echeanceMs / dureeCaseMs, caseCourante + 1);
+        cases.get((int) (numero % cases.size())).add(new Echeance<>(element, numero));
+        taille++;
+    }
+
+    /**
+     * Traite les cases écoulées jusqu'à {@code maintenantMs}
+     *
+     * @return éléments dont l'échéance est atteinte, retirés de la roue
+     */
+    public List<T> avancer(long maintenantMs) {
+        List<T> echus = new ArrayList<>();
+        long derniere = maintenantMs / dureeCaseMs;
+        // Après une longue pause, chaque case n'est visitée qu'une fois
+        long pas = Math.min(derniere - caseCourante, cases.size());
+        for (long i = 1; i <= pas; i++) {
+            Iterator<Echeance<T>> iterateur = cases.get((int) ((caseCourante + i) % cases.size())).iterator();
+            while (iterateur.hasNext()) {
+                Echeance<T> echeance = iterateur.next();
+                if (echeance.numeroCase() <= derniere) {
+                    iterateur.remove();
+                    taille--;
+                    echus.add(echeance.element());
+                }
+            }
+        }
+        caseCourante = Math.max(caseCourante, derniere);
+        return echus;
+    }
+
+    public int getTaille() {
+        return taille;
+    }
+}
@@ -0,0 +1,55 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seau à jetons sans verrou, sous sa forme GCRA : l'état tient dans un seul long, l'instant théorique
+ * auquel le seau sera de nouveau plein. Un jeton consommé repousse cet instant d'un intervalle de
+ * recharge ; la demande est refusée si l'instant dépasserait maintenant + capacité × intervalle.
+ * Une demande acceptée coûte une lecture et un compareAndSet.
+ */
+public final class SeauJetons {
+
+    private final long intervalleNanos;
+    private final long toleranceNanos;
+    private final AtomicLong plein = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param capacite            jetons disponibles en rafale
+     * @param rechargeParSeconde  jetons rendus par seconde
+     */
+    public SeauJetons(int capacite, double rechargeParSeconde) {
+        if (capacite < 1 || rechargeParSeconde <= 0) {
+            throw new IllegalArgumentException("Capacité et recharge doivent être positives");
+        }
+        this.intervalleNanos = Math.max(1L, (long) (1_000_000_000L / rechargeParSeconde));
+        this.toleranceNanos = capacite * intervalleNanos;
+    }
+
+    /**
+     * @param maintenantNanos horloge monotone ({@link System#nanoTime()})
+     * @return 0 si un jeton a été pris, sinon l'attente en nanosecondes avant le prochain jeton
+     */
+    public long prendre(long maintenantNanos) {
+        while (true) {
+            long courant = plein.get();
+            long depart = courant == Long.MIN_VALUE || courant - maintenantNanos < 0 ? maintenantNanos : courant;
+            long suivant = depart + intervalleNanos;
+            long depassement = suivant - maintenantNanos - toleranceNanos;
+            if (depassement > 0) {
+                return depassement;
+            }
+            if (plein.compareAndSet(courant, suivant)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return vrai si le seau est plein : il peut être oublié sans changer les décisions suivantes
+     */
+    public boolean estPlein(long maintenantNanos) {
+        long courant = plein.get();
+        return courant == Long.MIN_VALUE || courant - maintenantNanos <= 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantiles approchés à erreur relative bornée (principe DDSketch) : chaque valeur est comptée dans
+ * un seau logarithmique d'indice ⌈log_γ |v|⌉, avec γ = (1 + α) / (1 - α). Tout quantile restitué
+ * est à moins de α (en relatif) d'une valeur réelle de rang exact. Les seaux étant fixes,
+ * deux sketchs se fusionnent par simple addition des compteurs, sans perte supplémentaire.
+ * La taille dépend de l'étendue des valeurs, pas de leur nombre.
+ */
+public final class SketchQuantiles {
+
+    public static final double ERREUR_RELATIVE = 0.01;
+    private static final double GAMMA = (1 + ERREUR_RELATIVE) / (1 - ERREUR_RELATIVE);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double VALEUR_MIN_INDEXABLE = 1e-9;
+
+    private final TreeMap<Integer, Long> positifs = new TreeMap<>();
+    private final TreeMap<Integer, Long> negatifs = new TreeMap<>();
+    private long zeros;
+    private long nombre;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public void ajouter(double valeur) {
+        if (Double.isNaN(valeur) || Double.isInfinite(valeur)) {
+            return;
+        }
+        if (valeur > VALEUR_MIN_INDEXABLE) {
+            positifs.merge(index(valeur), 1L, Long::sum);
+        } else if (valeur < -VALEUR_MIN_INDEXABLE) {
+            negatifs.merge(index(-valeur), 1L, Long::sum);
+        } else {
+            zeros++;
+        }
+        nombre++;
+        if (valeur < min) min = valeur;
+        if (valeur > max) max = valeur;
+    }
+
+    public SketchQuantiles fusionner(SketchQuantiles autre) {
+        autre.positifs.forEach((index, n) -> positifs.merge(index, n, Long::sum));
+        autre.negatifs.forEach((index, n) -> negatifs.merge(index, n, Long::sum));
+        zeros += autre.zeros;
+        nombre += autre.nombre;
+        min = Math.min(min, autre.min);
+        max = Math.max(max, autre.max);
+        return this;
+    }
+
+    public long getNombre() {
+        return nombre;
+    }
+
+    public double getMin() {
+        return nombre > 0 ? min : 0.0;
+    }
+
+    public double getMax() {
+        return nombre > 0 ? max : 0.0;
+    }
+
+    /**
+     * @param q quantile dans [0, 1]
+     * @return valeur approchée, 0 si le sketch est vide
+     */
+    public double quantile(double q) {
+        if (nombre == 0) {
+            return 0.0;
+        }
+        long rang = (long) Math.floor(q * (nombre - 1));
+        long cumul = 0;
+
+        // Ordre croissant des valeurs : négatifs d'indice décroissant, zéros, puis positifs
+        for (Map.Entry<Integer, Long> seau : negatifs.descendingMap().entrySet()) {
+            cumul += seau.getValue();
+            if (cumul > rang) {
+                return borner(-valeur(seau.getKey()));
+            }
+        }
+        cumul += zeros;
+        if (cumul > rang) {
+            return 0.0;
+        }
+        for (Map.Entry<Integer, Long> seau : positifs.entrySet()) {
+            cumul += seau.getValue();
+            if (cumul > rang) {
+                return borner(valeur(seau.getKey()));
+            }
+        }
+        return max;
+    }
+
+    public void ecrire(DataOutput sortie) throws IOException {
+        sortie.writeLong(nombre);
+        sortie.writeLong(zeros);
+        sortie.writeDouble(min);
+        sortie.writeDouble(max);
+        ecrireSeaux(sortie, positifs);
+        ecrireSeaux(sortie, negatifs);
+    }
+
+    public static SketchQuantiles lire(DataInput entree) throws IOException {
+        SketchQuantiles sketch = new SketchQuantiles();
+        sketch.nombre = entree.readLong();
+        sketch.zeros = entree.readLong();
+        sketch.min = entree.readDouble();
+        sketch.max = entree.readDouble();
+        lireSeaux(entree, sketch.positifs);
+        lireSeaux(entree, sketch.negatifs);
+        return sketch;
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private static int index(double valeurAbsolue) {
+        return (int) Math.ceil(Math.log(valeurAbsolue) / LOG_GAMMA);
+    }
+
+    /** Valeur représentative du seau ]γ^(i-1), γ^i] : erreur relative au plus α */
+    private static double valeur(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+
+    private double borner(double valeur) {
+        return Math.max(min, Math.min(max, valeur));
+    }
+
+    private static void ecrireSeaux(DataOutput sortie, TreeMap<Integer, Long> seaux) throws IOException {
+        sortie.writeInt(seaux.size());
+        for (Map.Entry<Integer, Long> seau : seaux.entrySet()) {
+            sortie.writeInt(seau.getKey());
+            sortie.writeLong(seau.getValue());
+        }
+    }
+
+    private static void lireSeaux(DataInput entree, TreeMap<Integer, Long> seaux) throws IOException {
+        int taille = entree.readInt();
+        for (int i = 0; i < taille; i++) {
+            seaux.put(entree.readInt(), entree.readLong());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Un {@link SketchQuantiles} par métrique {@link MetriqueIoT}, indexé par l'ordinal.
+ * Non thread-safe ; fusionnable et sérialisable pour le stockage par jour.
+ */
+public final class SketchesMetriques {
+
+    private static final int NOMBRE_METRIQUES = MetriqueIoT.nombre();
+
+    private final SketchQuantiles[] sketches = new SketchQuantiles[NOMBRE_METRIQUES];
+    private long nombreDonnees;
+
+    public SketchesMetriques() {
+        for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+            sketches[i] = new SketchQuantiles();
+        }
+    }
+
+    public void ajouter(DonneeIoT donnee) {
+        nombreDonnees++;
+        for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+            Double valeur = MetriqueIoT.parIndex(i).valeur(donnee);
+            if (valeur != null) {
+                sketches[i].ajouter(valeur);
+            }
+        }
+    }
+
+    public SketchesMetriques fusionner(SketchesMetriques autre) {
+        nombreDonnees += autre.nombreDonnees;
+        for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+            sketches[i].fusionner(autre.sketches[i]);
+        }
+        return this;
+    }
+
+    public long getNombreDonnees() {
+        return nombreDonnees;
+    }
+
+    public SketchQuantiles get(MetriqueIoT metrique) {
+        return sketches[metrique.ordinal()];
+    }
+
+    public byte[] versOctets() {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (DataOutputStream sortie = new DataOutputStream(octets)) {
+            sortie.writeInt(NOMBRE_METRIQUES);
+            sortie.writeLong(nombreDonnees);
+            for (SketchQuantiles sketch : sketches) {
+                sketch.ecrire(sortie);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return octets.toByteArray();
+    }
+
+    public static SketchesMetriques depuisOctets(byte[] contenu) {
+        SketchesMetriques resultat = new SketchesMetriques();
+        if (contenu == null) {
+            return resultat;
+        }
+        try (DataInputStream entree = new DataInputStream(new ByteArrayInputStream(contenu))) {
+            int metriques = entree.readInt();
+            if (metriques != NOMBRE_METRIQUES) {
+                throw new IllegalArgumentException("Sketchs de " + metriques + " métriques au lieu de " + NOMBRE_METRIQUES);
+            }
+            resultat.nombreDonnees = entree.readLong();
+            for (int i = 0; i < NOMBRE_METRIQUES; i++) {
+                resultat.sketches[i] = SketchQuantiles.lire(entree);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return resultat;
+    }
+}
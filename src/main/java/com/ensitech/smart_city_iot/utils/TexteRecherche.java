@@ -0,0 +1,74 @@
+package com.ensitech.smart_city_iot.utils;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normalisation du texte indexé en FULLTEXT (colonnes texte_recherche) et des saisies de recherche :
+ * minuscules, accents retirés, ponctuation remplacée par des espaces. Texte indexé et requêtes passant
+ * par la même normalisation, « éléctricité », « Electricite » et « electr » se rejoignent quelle que soit
+ * la collation des tables.
+ */
+public final class TexteRecherche {
+
+    /** innodb_ft_min_token_size par défaut : les mots plus courts ne sont pas indexés */
+    public static final int LONGUEUR_MIN_TERME = 3;
+    public static final int NOMBRE_MAX_TERMES = 10;
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATEURS = Pattern.compile("[^a-z0-9]+");
+
+    private TexteRecherche() {
+    }
+
+    /**
+     * @return les morceaux non nuls normalisés et séparés par un espace, chaîne vide si aucun
+     */
+    public static String normaliser(String... morceaux) {
+        StringBuilder texte = new StringBuilder();
+        for (String morceau : morceaux) {
+            if (morceau == null || morceau.isBlank()) {
+                continue;
+            }
+            String decompose = Normalizer.normalize(morceau, Normalizer.Form.NFD);
+            String normalise = SEPARATEURS.matcher(DIACRITIQUES.matcher(decompose).replaceAll("")
+                    .toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+            if (!normalise.isEmpty()) {
+                if (!texte.isEmpty()) {
+                    texte.append(' ');
+                }
+                texte.append(normalise);
+            }
+        }
+        return texte.toString();
+    }
+
+    /**
+     * Requête MATCH ... AGAINST en mode booléen : chaque terme est obligatoire et recherché par préfixe.
+     * Les termes ne contiennent plus que [a-z0-9] : aucun opérateur saisi ne passe dans la requête.
+     *
+     * @return null si la saisie ne contient aucun terme d'au moins {@value #LONGUEUR_MIN_TERME} caractères
+     */
+    public static String requeteBooleenne(String saisie) {
+        Set<String> termes = new LinkedHashSet<>();
+        for (String terme : normaliser(saisie).split(" ")) {
+            if (terme.length() >= LONGUEUR_MIN_TERME && termes.size() < NOMBRE_MAX_TERMES) {
+                termes.add(terme);
+            }
+        }
+        if (termes.isEmpty()) {
+            return null;
+        }
+        StringBuilder requete = new StringBuilder();
+        for (String terme : termes) {
+            if (!requete.isEmpty()) {
+                requete.append(' ');
+            }
+            requete.append('+').append(terme).append('*');
+        }
+        return requete.toString();
+    }
+}
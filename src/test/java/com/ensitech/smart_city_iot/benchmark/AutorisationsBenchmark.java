@@ -0,0 +1,93 @@
+package com.ensitech.smart_city_iot.benchmark;
+
+import com.ensitech.smart_city_iot.config.Autorisations;
+import com.ensitech.smart_city_iot.config.jwt.AutoriteUtilisateur;
+import com.ensitech.smart_city_iot.entity.Citoyen;
+import com.ensitech.smart_city_iot.entity.Permission;
+import com.ensitech.smart_city_iot.service.CacheDroitsUtilisateur;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vérification d'un droit sur une route protégée : parcours historique des permissions chargées
+ * avec l'utilisateur (Utilisateur.hasPermission) contre le test de bit sur les droits en cache,
+ * tel qu'évalué par @PreAuthorize (hors coût de l'expression SpEL).
+ * Lancement : exécuter main() depuis l'IDE, ou via le classpath de test Maven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutorisationsBenchmark {
+
+    private static final String[] MODULES = {"CAPTEURS", "DONNEES", "ALERTES", "RAPPORTS", "COMMENTAIRES"};
+
+    private Citoyen utilisateur;
+    private Autorisations autorisations;
+    private Authentication authentication;
+
+    @Setup
+    public void preparer() {
+        utilisateur = new Citoyen();
+        utilisateur.setIdUtilisateur(42L);
+        utilisateur.setActif(true);
+        List<Permission> permissions = new ArrayList<>();
+        for (String module : MODULES) {
+            permissions.add(Permission.builder()
+                    .moduleConcerne(module)
+                    .lire(true).creer(false).modifier(true).supprimer(false)
+                    .active(true)
+                    .dateAttribution(LocalDateTime.now())
+                    .dateExpiration(LocalDateTime.now().plusDays(30))
+                    .build());
+        }
+        utilisateur.setPermissions(permissions);
+
+        CacheDroitsUtilisateur cache = new CacheDroitsUtilisateur();
+        ReflectionTestUtils.setField(cache, "dureeMaxMs", 300_000L);
+        cache.enregistrer(utilisateur, cache.generation());
+        autorisations = new Autorisations();
+        ReflectionTestUtils.setField(autorisations, "cacheDroits", cache);
+
+        authentication = new UsernamePasswordAuthenticationToken("citoyen@smartcity.fr", null,
+                List.of(new SimpleGrantedAuthority("ROLE_CITOYEN"), new AutoriteUtilisateur(42L)));
+    }
+
+    @Benchmark
+    public boolean historique() {
+        return utilisateur.hasPermission("COMMENTAIRES", "MODIFIER");
+    }
+
+    @Benchmark
+    public boolean droitsEnCache() {
+        return autorisations.peut(authentication, "COMMENTAIRES", "MODIFIER");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AutorisationsBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
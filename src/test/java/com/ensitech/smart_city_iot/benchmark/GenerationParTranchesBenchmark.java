@@ -0,0 +1,135 @@
+package com.ensitech.smart_city_iot.benchmark;
+
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.utils.AccumulateurStatistiques;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit du calcul d'un rapport par tranches de temps selon la taille du pool :
+ * même découpage récursif et même fusion ordonnée que RapportGenerateur, sur des tranches
+ * déjà en mémoire (la lecture par curseur n'est pas mesurée).
+ * Lancement : exécuter main() depuis l'IDE, ou via le classpath de test Maven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class GenerationParTranchesBenchmark {
+
+    private static final String[] VILLES = {"Paris", "Lyon", "Marseille", "Lille", "Nantes", "Bordeaux", "Toulouse", "Nice"};
+    private static final int NOMBRE_TRANCHES = 365;
+    private static final int DONNEES_PAR_TRANCHE = 2000;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelisme;
+
+    private List<List<DonneeIoT>> tranches;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        Random aleatoire = new Random(42);
+        List<Capteur> capteurs = new ArrayList<>();
+        for (long i = 1; i <= 200; i++) {
+            capteurs.add(Capteur.builder().idCapteur(i).nomCapteur("Capteur-" + i).build());
+        }
+
+        tranches = new ArrayList<>(NOMBRE_TRANCHES);
+        LocalDateTime debut = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int t = 0; t < NOMBRE_TRANCHES; t++) {
+            List<DonneeIoT> tranche = new ArrayList<>(DONNEES_PAR_TRANCHE);
+            for (int i = 0; i < DONNEES_PAR_TRANCHE; i++) {
+                tranche.add(DonneeIoT.builder()
+                        .capteur(capteurs.get(aleatoire.nextInt(capteurs.size())))
+                        .villeNom(VILLES[aleatoire.nextInt(VILLES.length)])
+                        .timestampCollecte(debut.plusDays(t).plusSeconds(i * 43L))
+                        .temperatureCelsius(10 + aleatoire.nextGaussian() * 8)
+                        .temperatureFahrenheit(50 + aleatoire.nextGaussian() * 14)
+                        .humidite(60 + aleatoire.nextGaussian() * 15)
+                        .vitesseVentKph(Math.abs(aleatoire.nextGaussian() * 20))
+                        .precipitationMm(aleatoire.nextDouble() * 2)
+                        .nuageux(aleatoire.nextDouble() * 100)
+                        .indiceUv(aleatoire.nextDouble() * 8)
+                        .co(200 + aleatoire.nextGaussian() * 50)
+                        .no2(20 + aleatoire.nextGaussian() * 5)
+                        .o3(60 + aleatoire.nextGaussian() * 10)
+                        .so2(5 + aleatoire.nextGaussian())
+                        .pm10(25 + aleatoire.nextGaussian() * 10)
+                        .build());
+            }
+            tranches.add(tranche);
+        }
+        pool = new ForkJoinPool(parallelisme);
+    }
+
+    @TearDown(Level.Trial)
+    public void arreter() {
+        pool.shutdownNow();
+    }
+
+    /** Une opération = un rapport d'un an (730 000 mesures) */
+    @Benchmark
+    public AccumulateurStatistiques rapportAnnuel() {
+        return pool.invoke(new TrancheTask(0, NOMBRE_TRANCHES));
+    }
+
+    private class TrancheTask extends RecursiveTask<AccumulateurStatistiques> {
+        private static final long serialVersionUID = 1L;
+
+        private final int premier;
+        private final int dernier;
+
+        TrancheTask(int premier, int dernier) {
+            this.premier = premier;
+            this.dernier = dernier;
+        }
+
+        @Override
+        protected AccumulateurStatistiques compute() {
+            if (dernier - premier <= 1) {
+                AccumulateurStatistiques accumulateur = new AccumulateurStatistiques();
+                for (DonneeIoT donnee : tranches.get(premier)) {
+                    accumulateur.ajouter(donnee);
+                }
+                return accumulateur;
+            }
+            int milieu = (premier + dernier) >>> 1;
+            TrancheTask gauche = new TrancheTask(premier, milieu);
+            gauche.fork();
+            AccumulateurStatistiques droite = new TrancheTask(milieu, dernier).compute();
+            return gauche.join().fusionner(droite);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GenerationParTranchesBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
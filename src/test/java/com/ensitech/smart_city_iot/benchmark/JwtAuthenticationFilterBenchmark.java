@@ -0,0 +1,112 @@
+package com.ensitech.smart_city_iot.benchmark;
+
+import com.ensitech.smart_city_iot.config.jwt.JWTService;
+import com.ensitech.smart_city_iot.config.jwt.JwtAuthenticatonFilter;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtre JWT sur un ensemble de tokens valides : vérification historique (clé reconstruite et token
+ * relu cinq fois) contre le filtre actuel, sans cache (une vérification par requête) et avec cache
+ * des tokens déjà vérifiés (aucune cryptographie après le premier passage).
+ * Lancement : exécuter main() depuis l'IDE, ou via le classpath de test Maven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final String SECRET = "myDefaultSecretKeyForSmartCityIoTApplicationThatIsLongEnoughForHS256";
+    private static final int NOMBRE_TOKENS = 1000;
+
+    @Param({"0", "10000"})
+    private int tailleMaxCache;
+
+    private JWTService jwtService;
+    private JwtAuthenticatonFilter filtre;
+    private String[] tokens;
+    private int suivant;
+
+    @Setup
+    public void preparer() {
+        jwtService = new JWTService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "tailleMaxCache", tailleMaxCache);
+        jwtService.initialiser();
+
+        filtre = new JwtAuthenticatonFilter();
+        ReflectionTestUtils.setField(filtre, "jwtService", jwtService);
+
+        tokens = new String[NOMBRE_TOKENS];
+        for (int i = 0; i < NOMBRE_TOKENS; i++) {
+            tokens[i] = jwtService.generateToken("citoyen" + i + "@smartcity.fr", "CITOYEN", (long) i);
+        }
+    }
+
+    @Benchmark
+    public void verificationHistorique(Blackhole trou) {
+        String token = tokenSuivant();
+        // isTokenValid (deux lectures), puis extractEmail, extractRole et extractUserId
+        if (!lireHistorique(token).getExpiration().before(new Date())
+                && !lireHistorique(token).getExpiration().before(new Date())) {
+            trou.consume(lireHistorique(token).getSubject());
+            trou.consume(lireHistorique(token).get("role", String.class));
+            trou.consume(lireHistorique(token).get("userId", Long.class));
+        }
+    }
+
+    @Benchmark
+    public void filtre(Blackhole trou) throws Exception {
+        MockHttpServletRequest requete = new MockHttpServletRequest("GET", "/api/v1/commentaires");
+        requete.addHeader("Authorization", "Bearer " + tokenSuivant());
+        filtre.doFilter(requete, new MockHttpServletResponse(), new MockFilterChain());
+        trou.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    private String tokenSuivant() {
+        String token = tokens[suivant];
+        suivant = (suivant + 1) % NOMBRE_TOKENS;
+        return token;
+    }
+
+    private static Claims lireHistorique(String token) {
+        SecretKey cle = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parser().verifyWith(cle).build().parseSignedClaims(token).getPayload();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
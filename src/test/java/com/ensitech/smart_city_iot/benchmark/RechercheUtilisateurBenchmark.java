@@ -0,0 +1,218 @@
+package com.ensitech.smart_city_iot.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche d'utilisateurs sur la base configurée (lecture seule) : requêtes émises avant la colonne
+ * discriminante (jointure des quatre tables filles, permissions chargées avec l'utilisateur) contre
+ * la projection de la table utilisateur seule et le chargement d'un sous-type connu.
+ * Les variantes connexion ajoutent la vérification BCrypt du PasswordEncoder (coût 10), qui domine
+ * une connexion acceptée ; l'écart porte sur les refus et sur les vérifications de propriétaire.
+ * Base : spring.datasource.* de application.properties, surchargeables par -Dbenchmark.datasource.url,
+ * -Dbenchmark.datasource.username et -Dbenchmark.datasource.password ; au moins un citoyen requis.
+ * Lancement : exécuter main() depuis l'IDE, ou via le classpath de test Maven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RechercheUtilisateurBenchmark {
+
+    private static final int NOMBRE_UTILISATEURS = 1000;
+
+    private static final String SELECT_POLYMORPHE = "SELECT u.*, a.*, g.*, ch.*, ci.*, " +
+            "CASE WHEN a.id_utilisateur IS NOT NULL THEN 1 WHEN g.id_utilisateur IS NOT NULL THEN 2 " +
+            "WHEN ch.id_utilisateur IS NOT NULL THEN 3 WHEN ci.id_utilisateur IS NOT NULL THEN 4 ELSE 0 END AS clazz " +
+            "FROM utilisateur u " +
+            "LEFT JOIN administrateur a ON a.id_utilisateur = u.id_utilisateur " +
+            "LEFT JOIN gestionnaire_de_ville g ON g.id_utilisateur = u.id_utilisateur " +
+            "LEFT JOIN chercheur ch ON ch.id_utilisateur = u.id_utilisateur " +
+            "LEFT JOIN citoyen ci ON ci.id_utilisateur = u.id_utilisateur ";
+
+    private static final String SELECT_PERMISSIONS = "SELECT p.* FROM utilisateur_permission up " +
+            "JOIN permission p ON p.id_permission = up.id_permission WHERE up.id_utilisateur = ?";
+
+    private Connection base;
+    private PreparedStatement polymorpheParEmail;
+    private PreparedStatement polymorpheParId;
+    private PreparedStatement permissions;
+    private PreparedStatement identiteParEmail;
+    private PreparedStatement citoyenParId;
+
+    private String[] emails;
+    private long[] idsCitoyens;
+    private String hash;
+    private int suivant;
+
+    @Setup
+    public void preparer() throws SQLException, IOException {
+        Properties proprietes = new Properties();
+        try (InputStream flux = getClass().getResourceAsStream("/application.properties")) {
+            if (flux != null) {
+                proprietes.load(flux);
+            }
+        }
+        base = DriverManager.getConnection(
+                System.getProperty("benchmark.datasource.url", proprietes.getProperty("spring.datasource.url")),
+                System.getProperty("benchmark.datasource.username", proprietes.getProperty("spring.datasource.username")),
+                System.getProperty("benchmark.datasource.password", proprietes.getProperty("spring.datasource.password")));
+
+        polymorpheParEmail = base.prepareStatement(SELECT_POLYMORPHE + "WHERE u.email = ?");
+        polymorpheParId = base.prepareStatement(SELECT_POLYMORPHE + "WHERE u.id_utilisateur = ?");
+        permissions = base.prepareStatement(SELECT_PERMISSIONS);
+        identiteParEmail = base.prepareStatement("SELECT id_utilisateur AS idUtilisateur, email, " +
+                "mot_de_passe AS motDePasse, actif, type_utilisateur AS typeUtilisateur FROM utilisateur WHERE email = ?");
+        citoyenParId = base.prepareStatement("SELECT u.*, ci.* FROM citoyen ci " +
+                "JOIN utilisateur u ON u.id_utilisateur = ci.id_utilisateur WHERE ci.id_utilisateur = ?");
+
+        List<String> listeEmails = new ArrayList<>();
+        List<Long> listeCitoyens = new ArrayList<>();
+        try (PreparedStatement requete = base.prepareStatement(
+                "SELECT u.email, ci.id_utilisateur FROM utilisateur u " +
+                        "LEFT JOIN citoyen ci ON ci.id_utilisateur = u.id_utilisateur LIMIT " + NOMBRE_UTILISATEURS);
+             ResultSet lignes = requete.executeQuery()) {
+            while (lignes.next()) {
+                listeEmails.add(lignes.getString(1));
+                long idCitoyen = lignes.getLong(2);
+                if (!lignes.wasNull()) {
+                    listeCitoyens.add(idCitoyen);
+                }
+            }
+        }
+        if (listeCitoyens.isEmpty()) {
+            throw new IllegalStateException("Aucun citoyen dans la base du benchmark");
+        }
+        emails = listeEmails.toArray(new String[0]);
+        idsCitoyens = listeCitoyens.stream().mapToLong(Long::longValue).toArray();
+        hash = BCrypt.hashpw("motDePasseBenchmark", BCrypt.gensalt(10));
+    }
+
+    @TearDown
+    public void fermer() throws SQLException {
+        base.close();
+    }
+
+    @Benchmark
+    public void rechercheHistorique(Blackhole trou) throws SQLException {
+        trou.consume(lireHistorique(polymorpheParEmail, emailSuivant()));
+    }
+
+    @Benchmark
+    public void rechercheIdentite(Blackhole trou) throws SQLException {
+        trou.consume(lireIdentite(trou));
+    }
+
+    @Benchmark
+    public void connexionHistorique(Blackhole trou) throws SQLException {
+        trou.consume(lireHistorique(polymorpheParEmail, emailSuivant()));
+        trou.consume(BCrypt.checkpw("motDePasseBenchmark", hash));
+    }
+
+    @Benchmark
+    public void connexion(Blackhole trou) throws SQLException {
+        long id = lireIdentite(trou);
+        trou.consume(BCrypt.checkpw("motDePasseBenchmark", hash));
+        // Connexion acceptée : profil complet relu par identifiant pour la réponse
+        trou.consume(lireHistorique(polymorpheParId, id));
+    }
+
+    @Benchmark
+    public void proprietaireHistorique(Blackhole trou) throws SQLException {
+        trou.consume(lireHistorique(polymorpheParId, citoyenSuivant()));
+    }
+
+    @Benchmark
+    public void proprietaire(Blackhole trou) throws SQLException {
+        citoyenParId.setLong(1, citoyenSuivant());
+        trou.consume(lire(citoyenParId));
+    }
+
+    private long lireIdentite(Blackhole trou) throws SQLException {
+        identiteParEmail.setString(1, emailSuivant());
+        long id = 0;
+        try (ResultSet lignes = identiteParEmail.executeQuery()) {
+            while (lignes.next()) {
+                id = lignes.getLong(1);
+                trou.consume(lignes.getString(3));
+                trou.consume(lignes.getBoolean(4));
+                trou.consume(lignes.getString(5));
+            }
+        }
+        return id;
+    }
+
+    private int lireHistorique(PreparedStatement requete, Object valeur) throws SQLException {
+        requete.setObject(1, valeur);
+        int colonnes = 0;
+        List<Long> ids = new ArrayList<>(1);
+        try (ResultSet lignes = requete.executeQuery()) {
+            while (lignes.next()) {
+                ids.add(lignes.getLong("id_utilisateur"));
+                colonnes += lignes.getMetaData().getColumnCount();
+            }
+        }
+        // Permissions EAGER : une requête de plus par utilisateur chargé
+        for (Long id : ids) {
+            permissions.setLong(1, id);
+            colonnes += lire(permissions);
+        }
+        return colonnes;
+    }
+
+    private static int lire(PreparedStatement requete) throws SQLException {
+        int colonnes = 0;
+        try (ResultSet lignes = requete.executeQuery()) {
+            while (lignes.next()) {
+                colonnes += lignes.getMetaData().getColumnCount();
+            }
+        }
+        return colonnes;
+    }
+
+    private String emailSuivant() {
+        String email = emails[suivant % emails.length];
+        suivant = (suivant + 1) % NOMBRE_UTILISATEURS;
+        return email;
+    }
+
+    private long citoyenSuivant() {
+        long id = idsCitoyens[suivant % idsCitoyens.length];
+        suivant = (suivant + 1) % NOMBRE_UTILISATEURS;
+        return id;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RechercheUtilisateurBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
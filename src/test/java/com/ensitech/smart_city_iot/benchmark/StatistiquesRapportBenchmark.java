@@ -0,0 +1,142 @@
+package com.ensitech.smart_city_iot.benchmark;
+
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import com.ensitech.smart_city_iot.utils.AccumulateurStatistiques;
+import com.ensitech.smart_city_iot.utils.MetriqueIoT;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Statistiques d'un rapport GLOBAL : calcul historique (un stream par métrique et par agrégat,
+ * groupingBy par ville) contre l'accumulateur en un passage.
+ * Lancement : exécuter main() depuis l'IDE, ou via le classpath de test Maven.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatistiquesRapportBenchmark {
+
+    private static final String[] VILLES = {"Paris", "Lyon", "Marseille", "Lille", "Nantes", "Bordeaux", "Toulouse", "Nice"};
+
+    @Param({"10000", "200000"})
+    private int nombreDonnees;
+
+    private List<DonneeIoT> donnees;
+
+    @Setup
+    public void preparer() {
+        Random aleatoire = new Random(42);
+        List<Capteur> capteurs = new ArrayList<>();
+        for (long i = 1; i <= 50; i++) {
+            capteurs.add(Capteur.builder().idCapteur(i).nomCapteur("Capteur-" + i).typeCapteur("TEMPERATURE").build());
+        }
+
+        donnees = new ArrayList<>(nombreDonnees);
+        LocalDateTime debut = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < nombreDonnees; i++) {
+            donnees.add(DonneeIoT.builder()
+                    .idDonneeIoT((long) i)
+                    .capteur(capteurs.get(aleatoire.nextInt(capteurs.size())))
+                    .villeNom(VILLES[aleatoire.nextInt(VILLES.length)])
+                    .timestampCollecte(debut.plusMinutes(i))
+                    .temperatureCelsius(10 + aleatoire.nextGaussian() * 8)
+                    .temperatureFahrenheit(50 + aleatoire.nextGaussian() * 14)
+                    .humidite(60 + aleatoire.nextGaussian() * 15)
+                    .vitesseVentKph(Math.abs(aleatoire.nextGaussian() * 20))
+                    .precipitationMm(aleatoire.nextDouble() < 0.8 ? 0.0 : aleatoire.nextDouble() * 5)
+                    .nuageux(aleatoire.nextDouble() * 100)
+                    .indiceUv(aleatoire.nextDouble() * 8)
+                    .co(200 + aleatoire.nextGaussian() * 50)
+                    .no2(20 + aleatoire.nextGaussian() * 5)
+                    .o3(60 + aleatoire.nextGaussian() * 10)
+                    .so2(aleatoire.nextDouble() < 0.1 ? null : 5 + aleatoire.nextGaussian())
+                    .pm10(25 + aleatoire.nextGaussian() * 10)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public void calculHistorique(Blackhole trou) {
+        // Reproduction des analyses température, pollution et globale avant l'accumulateur
+        trou.consume(donnees.stream().filter(d -> d.getTemperatureCelsius() != null)
+                .mapToDouble(DonneeIoT::getTemperatureCelsius).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getTemperatureCelsius() != null)
+                .mapToDouble(DonneeIoT::getTemperatureCelsius).min().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getTemperatureCelsius() != null)
+                .mapToDouble(DonneeIoT::getTemperatureCelsius).max().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getTemperatureCelsius() != null && d.getVilleNom() != null)
+                .collect(Collectors.groupingBy(DonneeIoT::getVilleNom,
+                        Collectors.averagingDouble(DonneeIoT::getTemperatureCelsius))));
+
+        trou.consume(donnees.stream().filter(d -> d.getCo() != null).mapToDouble(DonneeIoT::getCo).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getPm10() != null).mapToDouble(DonneeIoT::getPm10).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getNo2() != null).mapToDouble(DonneeIoT::getNo2).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getPm10() != null && d.getVilleNom() != null)
+                .collect(Collectors.groupingBy(DonneeIoT::getVilleNom,
+                        Collectors.averagingDouble(DonneeIoT::getPm10))));
+
+        trou.consume(donnees.stream().filter(d -> d.getHumidite() != null)
+                .mapToDouble(DonneeIoT::getHumidite).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getVitesseVentKph() != null)
+                .mapToDouble(DonneeIoT::getVitesseVentKph).average().orElse(0.0));
+        trou.consume(donnees.stream().filter(d -> d.getPrecipitationMm() != null)
+                .mapToDouble(DonneeIoT::getPrecipitationMm).sum());
+        trou.consume(donnees.stream().filter(d -> d.getIndiceUv() != null)
+                .mapToDouble(DonneeIoT::getIndiceUv).average().orElse(0.0));
+
+        Map<String, List<DonneeIoT>> parVille = donnees.stream()
+                .filter(d -> d.getVilleNom() != null)
+                .collect(Collectors.groupingBy(DonneeIoT::getVilleNom));
+        parVille.forEach((ville, donneesVille) -> {
+            trou.consume(donneesVille.stream().filter(d -> d.getTemperatureCelsius() != null)
+                    .mapToDouble(DonneeIoT::getTemperatureCelsius).average().orElse(0.0));
+            trou.consume(donneesVille.stream().filter(d -> d.getPm10() != null)
+                    .mapToDouble(DonneeIoT::getPm10).average().orElse(0.0));
+        });
+    }
+
+    @Benchmark
+    public void accumulateurUnPassage(Blackhole trou) {
+        // Toutes les métriques, avec variance, au global, par ville et par capteur
+        AccumulateurStatistiques accumulateur = new AccumulateurStatistiques();
+        for (DonneeIoT donnee : donnees) {
+            accumulateur.ajouter(donnee);
+        }
+        AccumulateurStatistiques.Statistiques global = accumulateur.getGlobal();
+        trou.consume(global.moyenne(MetriqueIoT.TEMPERATURE_CELSIUS));
+        trou.consume(global.ecartType(MetriqueIoT.PM10));
+        trou.consume(accumulateur.getParVille());
+        trou.consume(accumulateur.getParCapteur());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatistiquesRapportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.ensitech.smart_city_iot.utils;
+
+import com.ensitech.smart_city_iot.entity.Capteur;
+import com.ensitech.smart_city_iot.entity.DonneeIoT;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccumulateurStatistiquesTest {
+
+    private static final double PRECISION = 1e-9;
+
+    @Test
+    void fusionDeTranchesEgaleUnPassageUnique() {
+        List<DonneeIoT> donnees = donnees(1000);
+        AccumulateurStatistiques complet = accumuler(donnees);
+
+        // Tranches de tailles inégales, fusionnées dans le désordre
+        AccumulateurStatistiques fusion = accumuler(donnees.subList(700, 1000))
+                .fusionner(accumuler(donnees.subList(0, 3)))
+                .fusionner(accumuler(donnees.subList(3, 700)));
+
+        assertMemesStatistiques(complet.getGlobal(), fusion.getGlobal());
+        assertEquals(complet.getParVille().keySet(), fusion.getParVille().keySet());
+        complet.getParVille().forEach((ville, stats) -> assertMemesStatistiques(stats, fusion.getParVille().get(ville)));
+        assertEquals(complet.getParCapteur().keySet(), fusion.getParCapteur().keySet());
+        complet.getParCapteur().forEach((capteur, stats) -> assertMemesStatistiques(stats, fusion.getParCapteur().get(capteur)));
+    }
+
+    @Test
+    void fusionAvecUnAccumulateurVide() {
+        List<DonneeIoT> donnees = donnees(50);
+        AccumulateurStatistiques complet = accumuler(donnees);
+
+        assertMemesStatistiques(complet.getGlobal(),
+                new AccumulateurStatistiques().fusionner(accumuler(donnees)).getGlobal());
+        assertMemesStatistiques(complet.getGlobal(),
+                accumuler(donnees).fusionner(new AccumulateurStatistiques()).getGlobal());
+    }
+
+    @Test
+    void valeursAbsentesIgnoreesParMetrique() {
+        AccumulateurStatistiques gauche = accumuler(List.of(
+                donnee(1L, "Paris", 10.0, null),
+                donnee(1L, "Paris", 20.0, Double.NaN)));
+        AccumulateurStatistiques droite = accumuler(List.of(donnee(2L, "Lyon", null, 4.0)));
+
+        AccumulateurStatistiques.Statistiques global = gauche.fusionner(droite).getGlobal();
+        assertEquals(3, global.getNombreDonnees());
+        assertEquals(2, global.nombre(MetriqueIoT.TEMPERATURE_CELSIUS));
+        assertEquals(15.0, global.moyenne(MetriqueIoT.TEMPERATURE_CELSIUS), PRECISION);
+        assertEquals(25.0, global.variance(MetriqueIoT.TEMPERATURE_CELSIUS), PRECISION);
+        assertEquals(1, global.nombre(MetriqueIoT.PM10));
+        assertEquals(4.0, global.min(MetriqueIoT.PM10), PRECISION);
+        assertEquals(0, global.nombre(MetriqueIoT.CO));
+        assertEquals(0.0, global.min(MetriqueIoT.CO));
+    }
+
+    @Test
+    void fusionNePartagePasLesGroupesDeLaSource() {
+        AccumulateurStatistiques cible = new AccumulateurStatistiques();
+        AccumulateurStatistiques source = accumuler(List.of(donnee(1L, "Paris", 10.0, 1.0)));
+        cible.fusionner(source);
+
+        source.ajouter(donnee(1L, "Paris", 30.0, 3.0));
+
+        assertEquals(1, cible.getParVille().get("Paris").nombre(MetriqueIoT.TEMPERATURE_CELSIUS));
+        assertEquals(1, cible.getParCapteur().get(1L).nombre(MetriqueIoT.TEMPERATURE_CELSIUS));
+    }
+
+    @Test
+    void relectureDUnAgregatFusionne() throws IOException {
+        List<DonneeIoT> donnees = donnees(200);
+        AccumulateurStatistiques fusion = accumuler(donnees.subList(0, 120)).fusionner(accumuler(donnees.subList(120, 200)));
+
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        fusion.ecrire(new DataOutputStream(octets));
+        AccumulateurStatistiques relu = AccumulateurStatistiques.lire(
+                new DataInputStream(new ByteArrayInputStream(octets.toByteArray())));
+
+        assertMemesStatistiques(fusion.getGlobal(), relu.getGlobal());
+        assertEquals(fusion.getParVille().keySet(), relu.getParVille().keySet());
+        fusion.getParCapteur().forEach((capteur, stats) -> assertMemesStatistiques(stats, relu.getParCapteur().get(capteur)));
+    }
+
+    @Test
+    void formatIncompatibleRefuse() throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        new DataOutputStream(octets).writeInt(MetriqueIoT.nombre() + 1);
+
+        assertThrows(IOException.class, () -> AccumulateurStatistiques.lire(
+                new DataInputStream(new ByteArrayInputStream(octets.toByteArray()))));
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private static AccumulateurStatistiques accumuler(List<DonneeIoT> donnees) {
+        AccumulateurStatistiques accumulateur = new AccumulateurStatistiques();
+        donnees.forEach(accumulateur::ajouter);
+        return accumulateur;
+    }
+
+    private static List<DonneeIoT> donnees(int nombre) {
+        Random aleatoire = new Random(42);
+        String[] villes = {"Paris", "Lyon", "Marseille"};
+        List<DonneeIoT> donnees = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            // Grandes valeurs décalées : un calcul naïf par somme des carrés perdrait la variance
+            Double temperature = i % 7 == 0 ? null : 1e6 + aleatoire.nextGaussian() * 3;
+            donnees.add(donnee((long) (i % 5), villes[i % villes.length], temperature, aleatoire.nextDouble() * 80));
+        }
+        return donnees;
+    }
+
+    private static DonneeIoT donnee(Long idCapteur, String ville, Double temperature, Double pm10) {
+        return DonneeIoT.builder()
+                .capteur(Capteur.builder().idCapteur(idCapteur).build())
+                .villeNom(ville)
+                .temperatureCelsius(temperature)
+                .pm10(pm10)
+                .build();
+    }
+
+    private static void assertMemesStatistiques(AccumulateurStatistiques.Statistiques attendu,
+                                                AccumulateurStatistiques.Statistiques obtenu) {
+        assertEquals(attendu.getNombreDonnees(), obtenu.getNombreDonnees());
+        for (MetriqueIoT metrique : MetriqueIoT.values()) {
+            String nom = metrique.getCode();
+            assertEquals(attendu.nombre(metrique), obtenu.nombre(metrique), nom);
+            assertEquals(attendu.somme(metrique), obtenu.somme(metrique), Math.abs(attendu.somme(metrique)) * PRECISION, nom);
+            assertEquals(attendu.moyenne(metrique), obtenu.moyenne(metrique), Math.abs(attendu.moyenne(metrique)) * PRECISION, nom);
+            assertEquals(attendu.variance(metrique), obtenu.variance(metrique), Math.max(attendu.variance(metrique), 1) * 1e-6, nom);
+            assertEquals(attendu.min(metrique), obtenu.min(metrique), nom);
+            assertEquals(attendu.max(metrique), obtenu.max(metrique), nom);
+        }
+    }
+}
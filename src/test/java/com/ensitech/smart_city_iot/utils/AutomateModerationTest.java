@@ -0,0 +1,111 @@
+package com.ensitech.smart_city_iot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AutomateModerationTest {
+
+    @Test
+    void termesQuiSeChevauchent() {
+        AutomateModeration automate = automate(Map.of(
+                "arnaque", 5,
+                "arnaque totale", 10,
+                "totale", 1));
+
+        AutomateModeration.Resultat resultat = automate.analyser("Une arnaque totale");
+
+        assertEquals(16, resultat.score());
+        assertEquals(3, resultat.termes().size());
+        assertTrue(resultat.termes().containsAll(List.of("arnaque", "arnaque totale", "totale")));
+    }
+
+    @Test
+    void termeSuffixeDUnAutreTerme() {
+        // « nul » n'est atteint que par le lien d'échec de « tres nul »
+        AutomateModeration automate = automate(Map.of("tres nul", 4, "nul", 2));
+
+        assertEquals(6, automate.analyser("service tres nul").score());
+        assertEquals(2, automate.analyser("service nul").score());
+    }
+
+    @Test
+    void occurrencesRepeteesComptentChacune() {
+        AutomateModeration automate = automate(Map.of("spam", 3));
+
+        AutomateModeration.Resultat resultat = automate.analyser("spam spam", "encore spam");
+
+        assertEquals(9, resultat.score());
+        assertEquals(List.of("spam"), resultat.termes());
+    }
+
+    @Test
+    void motsEntiersSeulement() {
+        AutomateModeration automate = automate(Map.of("pub", 3));
+
+        assertEquals(0, automate.analyser("la place publique").score());
+        assertEquals(0, automate.analyser("republier").score());
+        assertEquals(0, automate.analyser("apub").score());
+        assertEquals(3, automate.analyser("trop de pub").score());
+        assertEquals(3, automate.analyser("pub").score());
+        assertEquals(3, automate.analyser("pub, encore").score());
+    }
+
+    @Test
+    void reglesDePrefixe() {
+        AutomateModeration automate = automate(Map.of("arnaq*", 5));
+
+        assertEquals(5, automate.analyser("des arnaqueurs").score());
+        assertEquals(5, automate.analyser("arnaque").score());
+        assertEquals(5, automate.analyser("arnaq").score());
+        // Un préfixe reste ancré au début d'un mot
+        assertEquals(0, automate.analyser("larnaque").score());
+        assertEquals(List.of("arnaq"), automate.analyser("arnaque").termes());
+    }
+
+    @Test
+    void termesDePlusieursMots() {
+        AutomateModeration automate = automate(Map.of("vente forcee", 7));
+
+        assertEquals(7, automate.analyser("Vente,   forcée !").score());
+        assertEquals(0, automate.analyser("vente").score());
+        assertEquals(0, automate.analyser("ventes forcees").score());
+        // Le terme peut chevaucher deux morceaux (titre puis contenu)
+        assertEquals(7, automate.analyser("Promo vente", "forcée ici").score());
+    }
+
+    @Test
+    void accentsEtMajuscules() {
+        AutomateModeration automate = automate(Map.of("Escroquérie", 4, "ÉNERVANT*", 2));
+
+        assertEquals(4, automate.analyser("ESCROQUERIE").score());
+        assertEquals(4, automate.analyser("escroquérie").score());
+        assertEquals(2, automate.analyser("Énervantes coupures").score());
+        assertEquals(List.of("escroquerie"), automate.analyser("Escroquerie").termes());
+    }
+
+    @Test
+    void dictionnaireEtTexteVides() {
+        Map<String, Integer> dictionnaire = new LinkedHashMap<>();
+        dictionnaire.put("  ", 3);
+        dictionnaire.put("*", 3);
+        dictionnaire.put("spam", 1);
+        AutomateModeration automate = automate(dictionnaire);
+
+        assertEquals(1, automate.getNombreTermes());
+        assertEquals(0, automate.analyser().score());
+        assertEquals(0, automate.analyser((String) null).score());
+        assertEquals(0, AutomateModeration.construire(Map.of()).analyser("spam").score());
+    }
+
+    // ========== MÉTHODES PRIVÉES ==========
+
+    private static AutomateModeration automate(Map<String, Integer> dictionnaire) {
+        return AutomateModeration.construire(dictionnaire);
+    }
+}
@@ -0,0 +1,70 @@
+package com.ensitech.smart_city_iot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LigneCsvTest {
+
+    @Test
+    void champsSimplesEtVides() {
+        assertEquals(List.of("a", "b", "c"), LigneCsv.decouper("a,b,c"));
+        assertEquals(List.of("", "", ""), LigneCsv.decouper(",,"));
+        assertEquals(List.of(""), LigneCsv.decouper(""));
+        assertEquals(List.of(" a ", "b"), LigneCsv.decouper(" a ,b"));
+    }
+
+    @Test
+    void champEntreGuillemetsAvecVirgule() {
+        assertEquals(List.of("Capteur, nord", "ACTIF"), LigneCsv.decouper("\"Capteur, nord\",ACTIF"));
+        assertEquals(List.of("", "x"), LigneCsv.decouper("\"\",x"));
+    }
+
+    @Test
+    void guillemetDoubleEchappe() {
+        assertEquals(List.of("dit \"nord\"", "1"), LigneCsv.decouper("\"dit \"\"nord\"\"\",1"));
+        assertEquals(List.of("\""), LigneCsv.decouper("\"\"\"\""));
+    }
+
+    @Test
+    void guillemetNonRefermeRefuse() {
+        assertThrows(IllegalArgumentException.class, () -> LigneCsv.decouper("\"ouvert,b"));
+        assertThrows(IllegalArgumentException.class, () -> LigneCsv.decouper("a,\"fin\"\""));
+    }
+
+    @Test
+    void retourChariotFinalIgnore() {
+        assertEquals(List.of("a", "b"), LigneCsv.decouper("a,b\r"));
+        assertEquals(List.of("a", "b,c"), LigneCsv.decouper("a,\"b,c\"\r"));
+        assertEquals(List.of("a", ""), LigneCsv.decouper("a,\r"));
+    }
+
+    @Test
+    void retourChariotDansUnChampConserve() {
+        assertEquals(List.of("a\rb", "c"), LigneCsv.decouper("\"a\rb\",c"));
+    }
+
+    @Test
+    void documentCrlfLuLigneParLigne() throws IOException {
+        String document = "nom,statut\r\n\"Capteur \"\"A\"\"\",ACTIF\r\nB,\r\n";
+        List<List<String>> lignes = new ArrayList<>();
+        try (BufferedReader lecteur = new BufferedReader(new StringReader(document))) {
+            String ligne;
+            while ((ligne = lecteur.readLine()) != null) {
+                lignes.add(LigneCsv.decouper(ligne));
+            }
+        }
+
+        assertEquals(List.of(
+                List.of("nom", "statut"),
+                List.of("Capteur \"A\"", "ACTIF"),
+                List.of("B", "")), lignes);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ensitech.smart_city_iot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoueTemporelleTest {
+
+    // 4 cases de 10 ms : une révolution dure 40 ms
+    private final RoueTemporelle<String> roue = new RoueTemporelle<>(4, 10, 0);
+
+    @Test
+    void echeanceSortALaCaseQuiLaContient() {
+        roue.planifier("a", 25);
+
+        assertTrue(roue.avancer(19).isEmpty());
+        assertEquals(List.of("a"), roue.avancer(20));
+        assertEquals(0, roue.getTaille());
+    }
+
+    @Test
+    void echeanceAuDelaDUneRevolutionResteDansSaCase() {
+        roue.planifier("loin", 95);
+        assertEquals(1, roue.getTaille());
+
+        // La case 1 est traversée aux numéros 1 et 5 sans que l'échéance (numéro 9) soit atteinte
+        assertTrue(roue.avancer(40).isEmpty());
+        assertTrue(roue.avancer(89).isEmpty());
+        assertEquals(List.of("loin"), roue.avancer(90));
+        assertEquals(0, roue.getTaille());
+    }
+
+    @Test
+    void longuePauseVisiteChaqueCaseUneFois() {
+        roue.planifier("a", 15);
+        roue.planifier("b", 35);
+        roue.planifier("c", 500);
+
+        List<String> echus = roue.avancer(200);
+        assertEquals(2, echus.size());
+        assertTrue(echus.containsAll(List.of("a", "b")));
+        assertEquals(1, roue.getTaille());
+        assertEquals(List.of("c"), roue.avancer(500));
+    }
+
+    @Test
+    void echeancePasseeSortAuProchainAvancement() {
+        roue.avancer(100);
+        roue.planifier("retard", 30);
+        roue.planifier("present", 105);
+
+        List<String> echus = roue.avancer(110);
+        assertEquals(2, echus.size());
+        assertTrue(echus.containsAll(List.of("retard", "present")));
+    }
+
+    @Test
+    void elementReplanifieApresSonEcheance() {
+        roue.planifier("capteur", 20);
+        assertEquals(List.of("capteur"), roue.avancer(20));
+
+        // Réarmement à une échéance qui fait repasser la roue par la même case
+        roue.planifier("capteur", 60);
+        assertTrue(roue.avancer(59).isEmpty());
+        assertEquals(List.of("capteur"), roue.avancer(60));
+        assertTrue(roue.avancer(200).isEmpty());
+    }
+
+    @Test
+    void horlogeQuiRecule() {
+        roue.planifier("a", 50);
+        roue.avancer(30);
+
+        assertTrue(roue.avancer(10).isEmpty());
+        assertEquals(List.of("a"), roue.avancer(50));
+    }
+
+    @Test
+    void parametresInvalides() {
+        assertThrows(IllegalArgumentException.class, () -> new RoueTemporelle<String>(0, 10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RoueTemporelle<String>(4, 0, 0));
+    }
+}
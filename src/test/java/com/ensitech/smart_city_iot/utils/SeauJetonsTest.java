@@ -0,0 +1,88 @@
+package com.ensitech.smart_city_iot.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeauJetonsTest {
+
+    private static final long SECONDE = 1_000_000_000L;
+
+    @Test
+    void rafaleLimiteeALaCapacite() {
+        SeauJetons seau = new SeauJetons(2, 1.0);
+        long t0 = 5 * SECONDE;
+
+        assertEquals(0, seau.prendre(t0));
+        assertEquals(0, seau.prendre(t0));
+        assertEquals(SECONDE, seau.prendre(t0));
+    }
+
+    @Test
+    void jetonRenduExactementApresUnIntervalle() {
+        SeauJetons seau = new SeauJetons(2, 1.0);
+        long t0 = 5 * SECONDE;
+        seau.prendre(t0);
+        seau.prendre(t0);
+
+        assertEquals(1, seau.prendre(t0 + SECONDE - 1));
+        assertEquals(0, seau.prendre(t0 + SECONDE));
+        assertEquals(SECONDE, seau.prendre(t0 + SECONDE));
+    }
+
+    @Test
+    void refusNeConsommePasDeJeton() {
+        SeauJetons seau = new SeauJetons(1, 1.0);
+        long t0 = 5 * SECONDE;
+        seau.prendre(t0);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(seau.prendre(t0 + i) > 0);
+        }
+        assertEquals(0, seau.prendre(t0 + SECONDE));
+    }
+
+    @Test
+    void inactiviteNeDepassePasLaCapacite() {
+        SeauJetons seau = new SeauJetons(2, 1.0);
+        long t0 = 5 * SECONDE;
+        seau.prendre(t0);
+
+        long tard = t0 + 100 * SECONDE;
+        assertEquals(0, seau.prendre(tard));
+        assertEquals(0, seau.prendre(tard));
+        assertEquals(SECONDE, seau.prendre(tard));
+    }
+
+    @Test
+    void estPleinUneFoisToutRecharge() {
+        SeauJetons seau = new SeauJetons(2, 1.0);
+        long t0 = 5 * SECONDE;
+        assertTrue(seau.estPlein(t0));
+
+        seau.prendre(t0);
+        seau.prendre(t0);
+        assertFalse(seau.estPlein(t0 + 2 * SECONDE - 1));
+        assertTrue(seau.estPlein(t0 + 2 * SECONDE));
+    }
+
+    @Test
+    void horlogeNegativeOuProcheDuDebordement() {
+        // System.nanoTime() peut être négatif ou déborder : seules les différences comptent
+        for (long t0 : new long[]{-3 * SECONDE, Long.MAX_VALUE - SECONDE / 2}) {
+            SeauJetons seau = new SeauJetons(1, 1.0);
+            assertEquals(0, seau.prendre(t0));
+            assertEquals(SECONDE, seau.prendre(t0));
+            assertEquals(0, seau.prendre(t0 + SECONDE));
+        }
+    }
+
+    @Test
+    void parametresInvalides() {
+        assertThrows(IllegalArgumentException.class, () -> new SeauJetons(0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> new SeauJetons(1, 0.0));
+    }
+}